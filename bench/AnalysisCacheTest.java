@@ -0,0 +1,74 @@
+/**
+ * Prueba de la caché de analyzeCode (AnalysisCache): el mismo código se responde de la
+ * caché, cambiar las palabras reservadas de un lenguaje hace que el mismo código vuelva a
+ * analizarse con las nuevas, y una caché chica desaloja. Termina con código 1 si algo no
+ * coincide.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src AnalysisCacheTest
+ */
+final class AnalysisCacheTest {
+    private static final long SEED = 11;
+
+    private int failures;
+
+    public static void main(String[] args) {
+        LanguageProfile.requireData();
+        AnalysisCacheTest test = new AnalysisCacheTest();
+        test.reservedWordsChange();
+        test.eviction();
+        if (test.failures > 0) {
+            System.out.println(test.failures + " diferencias");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private void reservedWordsChange() {
+        AnalysisCache cache = new AnalysisCache(16L * 1024 * 1024);
+        CodeAnalyzer analyzer = CodeAnalyzer.headless(cache);
+        String code = BenchmarkCorpus.generate("C++", 4096, SEED);
+
+        String first = analyzer.analyzeCode(code);
+        String second = analyzer.analyzeCode(code);
+        expect("el mismo código sale de la caché", cache.getHits() == 1 && cache.getMisses() == 1 && second.equals(first));
+
+        int loaded = analyzer.loadReservedWords("[C++]\nreservadas = int return cout\n\n[Go]\nreservadas = func\n");
+        expect("solo cambian los lenguajes que existen", loaded == 1);
+        String changed = analyzer.analyzeCode(code);
+        expect("otras palabras reservadas no usan el reporte guardado", cache.getMisses() == 2);
+        expect("el reporte usa las palabras nuevas", changed.contains("Palabras reservadas: int return cout\n"));
+
+        CodeAnalyzer uncached = CodeAnalyzer.headless();
+        uncached.loadReservedWords("[C++]\nreservadas = int return cout\n");
+        expect("el reporte nuevo es el de un análisis sin caché", changed.equals(uncached.analyzeCode(code)));
+
+        analyzer.analyzeCode(code);
+        expect("el reporte nuevo queda en la caché", cache.getHits() == 2 && cache.getMisses() == 2);
+    }
+
+    private void eviction() {
+        String code = BenchmarkCorpus.generate("Python", 4096, SEED);
+        String report = CodeAnalyzer.headless().analyzeCode(code);
+        // Una entrada ocupa el doble de los caracteres de código y reporte, y la caché no
+        // guarda nada más grande que un cuarto de su tope: entran cuatro y un poco más
+        AnalysisCache cache = new AnalysisCache(9L * (code.length() + report.length() + 100));
+        CodeAnalyzer analyzer = CodeAnalyzer.headless(cache);
+        String extra = "";
+        for (int i = 0; i < 6; i++) {
+            analyzer.analyzeCode(code + extra);
+            extra += "\n";
+        }
+        expect("la caché chica desaloja", cache.getEvictions() >= 2);
+        analyzer.analyzeCode(code);
+        expect("lo desalojado se vuelve a analizar", cache.getMisses() == 7 && cache.getHits() == 0);
+    }
+
+    private void expect(String description, boolean ok) {
+        if (!ok) {
+            System.out.println("FALLA " + description);
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks de los caminos calientes: Lexer.getNextToken y Lexer.fill, identifyLanguage,
+ * cada extractor find*, el pipeline de tokens, CppParser, analyzeCode completo (también
+ * respondido desde AnalysisCache) y una sola sección pedida a AnalysisResult, para los
+ * siete lenguajes y varios tamaños de código generado. Por cada uno informa tiempo por
+ * operación y bytes asignados por operación (medidos por hilo con ThreadMXBean).
+ *
+ * bench/baseline.tsv se grabó antes de TokenBuffer: su fila Lexer.getNextToken es la
+ * referencia para Lexer.fill, que --comparar no contrasta por tener otro nombre. Para
+ * verlas juntas: --tamanos 1m --filtro Lexer y la fila de 1m de baseline.tsv.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src AnalyzerBenchmark [--tamanos 1k,64k,1m,100m] [--filtro texto]
+ *        [--iteraciones N] [--procesos 3] [--guardar resultados.tsv]
+ *        [--comparar bench/baseline-2026-10-18.tsv] [--umbral 0.10]
+ *
+ * Las mediciones corren en --procesos JVMs nuevas, una después de otra, y se informa el
+ * promedio: el JIT no compila igual en todas y el mismo benchmark puede tardar el doble
+ * en otra JVM, así que el error es el mayor entre la diferencia de los procesos y la de
+ * las iteraciones de cada uno. Con --procesos 1 se mide en esta misma JVM.
+ *
+ * Con --comparar, cada resultado se contrasta con el archivo guardado y el proceso
+ * termina con código 1 si alguno empeoró más que el umbral y más que el error de
+ * ambas mediciones.
+ *
+ * bench/baseline.tsv es la medición de antes de los cambios de rendimiento y no se
+ * reemplaza. Vuelto a medir en la misma máquina, el mismo árbol que la grabó marca 158
+ * de sus 316 filas como regresiones, así que las comparaciones del árbol actual van
+ * contra bench/baseline-2026-10-18.tsv, grabada con él el mismo día que esa prueba.
+ */
+final class AnalyzerBenchmark {
+    private static final String HEADER = "benchmark\tlanguage\tsize\tns_op\terror_ns\tbytes_op";
+    private static final long SEED = 2024;
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final long ITERATION_NANOS = 100_000_000L;
+
+    // Evita que el JIT descarte el trabajo medido
+    static volatile int sink;
+
+    private final CodeAnalyzer analyzer = CodeAnalyzer.headless();
+    // Después de la primera operación, cada análisis es un acierto
+    private final CodeAnalyzer cachedAnalyzer = CodeAnalyzer.headless(new AnalysisCache(1L << 30));
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final int iterations;
+
+    AnalyzerBenchmark(int iterations) {
+        this.iterations = iterations;
+    }
+
+    static final class Result {
+        final String benchmark;
+        final String language;
+        final int size;
+        final double nanosPerOp;
+        final double errorNanos;
+        final double bytesPerOp;
+
+        Result(String benchmark, String language, int size, double nanosPerOp, double errorNanos, double bytesPerOp) {
+            this.benchmark = benchmark;
+            this.language = language;
+            this.size = size;
+            this.nanosPerOp = nanosPerOp;
+            this.errorNanos = errorNanos;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        String key() {
+            return benchmark + "\t" + language + "\t" + size;
+        }
+
+        String toLine() {
+            return String.format(Locale.ROOT, "%s\t%.1f\t%.1f\t%.1f", key(), nanosPerOp, errorNanos, bytesPerOp);
+        }
+
+        static Result parse(String line) {
+            String[] fields = line.split("\t");
+            return new Result(fields[0], fields[1], Integer.parseInt(fields[2]), Double.parseDouble(fields[3]),
+                    Double.parseDouble(fields[4]), Double.parseDouble(fields[5]));
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LanguageProfile.requireData();
+        String sizesText = "1k,64k,1m";
+        String filter = "";
+        int iterations = 5;
+        int processes = 3;
+        Path save = null;
+        Path compare = null;
+        double threshold = 0.10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tamanos":
+                    sizesText = args[++i];
+                    break;
+                case "--filtro":
+                    filter = args[++i];
+                    break;
+                case "--iteraciones":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--procesos":
+                    processes = Integer.parseInt(args[++i]);
+                    break;
+                case "--guardar":
+                    save = Paths.get(args[++i]);
+                    break;
+                case "--comparar":
+                    compare = Paths.get(args[++i]);
+                    break;
+                case "--umbral":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Argumento desconocido: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        List<Result> results;
+        if (processes > 1) {
+            results = runProcesses(processes, "--tamanos", sizesText, "--filtro", filter, "--iteraciones", String.valueOf(iterations));
+        } else {
+            results = new AnalyzerBenchmark(iterations).runAll(parseSizes(sizesText), filter);
+        }
+        if (save != null) {
+            List<String> lines = new ArrayList<>();
+            lines.add(HEADER);
+            for (Result result : results) {
+                lines.add(result.toLine());
+            }
+            Files.write(save, lines, StandardCharsets.UTF_8);
+        }
+        if (compare != null && !compare(Files.readAllLines(compare, StandardCharsets.UTF_8), results, threshold)) {
+            System.exit(1);
+        }
+    }
+
+    // Corre los benchmarks en cada proceso con --procesos 1 y promedia lo que guardó cada uno
+    private static List<Result> runProcesses(int processes, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(AnalyzerBenchmark.class.getName());
+        command.addAll(List.of(arguments));
+        command.add("--procesos");
+        command.add("1");
+        command.add("--guardar");
+
+        Map<String, List<Result>> runs = new LinkedHashMap<>();
+        Path saved = Files.createTempFile("benchmark", ".tsv");
+        try {
+            for (int i = 1; i <= processes; i++) {
+                System.out.println("Proceso " + i + " de " + processes + ":");
+                List<String> child = new ArrayList<>(command);
+                child.add(saved.toString());
+                int exit = new ProcessBuilder(child).inheritIO().start().waitFor();
+                if (exit != 0) {
+                    throw new IllegalStateException("El proceso " + i + " terminó con código " + exit);
+                }
+                for (String line : Files.readAllLines(saved, StandardCharsets.UTF_8)) {
+                    if (!line.equals(HEADER)) {
+                        Result result = Result.parse(line);
+                        runs.computeIfAbsent(result.key(), key -> new ArrayList<>()).add(result);
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(saved);
+        }
+
+        List<Result> results = new ArrayList<>();
+        System.out.println();
+        System.out.println("Promedio de " + processes + " procesos:");
+        System.out.println(HEADER + "\tMB_s");
+        for (List<Result> run : runs.values()) {
+            Result result = average(run);
+            results.add(result);
+            System.out.printf(Locale.ROOT, "%s\t%.2f%n", result.toLine(), result.size / 1.048576 / result.nanosPerOp * 1e3);
+        }
+        return results;
+    }
+
+    private static Result average(List<Result> run) {
+        double nanos = 0;
+        double error = 0;
+        double bytes = 0;
+        for (Result result : run) {
+            nanos += result.nanosPerOp;
+            error = Math.max(error, result.errorNanos);
+            bytes += result.bytesPerOp;
+        }
+        nanos /= run.size();
+        double variance = 0;
+        for (Result result : run) {
+            variance += (result.nanosPerOp - nanos) * (result.nanosPerOp - nanos);
+        }
+        double deviation = run.size() > 1 ? Math.sqrt(variance / (run.size() - 1)) : 0;
+        Result first = run.get(0);
+        return new Result(first.benchmark, first.language, first.size, nanos, Math.max(error, deviation), bytes / run.size());
+    }
+
+    List<Result> runAll(List<Integer> sizes, String filter) {
+        List<Result> results = new ArrayList<>();
+        System.out.println(HEADER + "\tMB_s");
+        for (int size : sizes) {
+            for (String language : BenchmarkCorpus.LANGUAGES) {
+                String code = BenchmarkCorpus.generate(language, size, SEED);
+                if (!language.equals(analyzer.identifyLanguage(code))) {
+                    throw new IllegalStateException("El corpus de " + language + " no se identifica como tal");
+                }
+                for (Map.Entry<String, Supplier<Object>> benchmark : benchmarks(code, language).entrySet()) {
+                    if (!benchmark.getKey().contains(filter)) {
+                        continue;
+                    }
+                    Result result = measure(benchmark.getKey(), language, size, benchmark.getValue());
+                    results.add(result);
+                    System.out.printf(Locale.ROOT, "%s\t%.2f%n", result.toLine(), size / 1.048576 / result.nanosPerOp * 1e3);
+                }
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Supplier<Object>> benchmarks(String code, String language) {
+        String variables = analyzer.findVariables(code, language);
+        Map<String, Supplier<Object>> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("Lexer.getNextToken", () -> {
+            Lexer lexer = new Lexer(code, language);
+            int count = 0;
+            while (lexer.getNextToken().getType() != TokenType.EOF) {
+                count++;
+            }
+            return count;
+        });
+        TokenBuffer tokens = new TokenBuffer(AnalysisPipeline.BLOCK_SIZE);
+        benchmarks.put("Lexer.fill", () -> {
+            Lexer lexer = new Lexer(code, language);
+            int count = 0;
+            int added;
+            while ((added = lexer.fill(tokens, AnalysisPipeline.BLOCK_SIZE)) > 0) {
+                count += added;
+                tokens.clear();
+            }
+            return count;
+        });
+        benchmarks.put("identifyLanguage", () -> analyzer.identifyLanguage(code));
+        benchmarks.put("findReservedWords", () -> analyzer.findReservedWords(code, language));
+        benchmarks.put("findLogicalExpressions", () -> analyzer.findLogicalExpressions(code));
+        benchmarks.put("findAllMathematicalExpressions", () -> analyzer.findAllMathematicalExpressions(code, variables));
+        benchmarks.put("findVariables", () -> analyzer.findVariables(code, language));
+        benchmarks.put("findConstants", () -> analyzer.findConstants(code, language));
+        benchmarks.put("findFunctions", () -> analyzer.findFunctions(code, language));
+        benchmarks.put("findClasses", () -> analyzer.findClasses(code, language));
+        benchmarks.put("findLoops", () -> analyzer.findLoops(code, language));
+        benchmarks.put("findConditionals", () -> analyzer.findConditionals(code, language));
+        benchmarks.put("findCRUDOperations", () -> analyzer.findCRUDOperations(code, language));
+        benchmarks.put("performLexicalAnalysis", () -> analyzer.performLexicalAnalysis(code, language));
+        benchmarks.put("collectSections", () -> analyzer.collectSections(code, code, language, new AnalysisMonitor()));
+        benchmarks.put("CppParser.parse", () -> {
+            CppParser parser = new CppParser(code);
+            parser.parse();
+            return parser.tree().size();
+        });
+        benchmarks.put("analyzeCode", () -> analyzer.analyzeCode(code));
+        benchmarks.put("analyzeCode.cache", () -> cachedAnalyzer.analyzeCode(code));
+        benchmarks.put("analysis.crud", () -> analyzer.analysis(code).items(ReportSection.CRUD));
+        return benchmarks;
+    }
+
+    // Cada iteración repite la operación hasta cubrir ITERATION_NANOS y da un promedio por operación
+    private Result measure(String name, String language, int size, Supplier<Object> operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation);
+        }
+        double[] nanos = new double[iterations];
+        double bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            double[] sample = iteration(operation);
+            nanos[i] = sample[0];
+            bytes += sample[1];
+        }
+        double mean = 0;
+        for (double value : nanos) {
+            mean += value;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double value : nanos) {
+            variance += (value - mean) * (value - mean);
+        }
+        double deviation = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+        return new Result(name, language, size, mean, deviation, bytes / iterations);
+    }
+
+    // {nanosegundos por operación, bytes asignados por operación}
+    private double[] iteration(Supplier<Object> operation) {
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long operations = 0;
+        long elapsed;
+        do {
+            sink += operation.get().hashCode();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        return new double[]{(double) elapsed / operations, (double) bytes / operations};
+    }
+
+    // Muestra las diferencias con la corrida guardada y devuelve false si hay regresiones
+    static boolean compare(List<String> baselineLines, List<Result> results, double threshold) {
+        Map<String, Result> baseline = new LinkedHashMap<>();
+        for (String line : baselineLines) {
+            if (!line.isEmpty() && !line.equals(HEADER)) {
+                Result result = Result.parse(line);
+                baseline.put(result.key(), result);
+            }
+        }
+        int regressions = 0;
+        System.out.println();
+        System.out.println("Comparación con la línea base (umbral " + Math.round(threshold * 100) + "%):");
+        for (Result result : results) {
+            Result base = baseline.get(result.key());
+            if (base == null) {
+                continue;
+            }
+            double change = result.nanosPerOp / base.nanosPerOp - 1;
+            boolean regression = change > threshold
+                    && result.nanosPerOp - result.errorNanos > base.nanosPerOp + base.errorNanos;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "%s%s\t%+.1f%%\tbytes %+.1f%%%n", regression ? "REGRESIÓN " : "",
+                    result.key(), change * 100, base.bytesPerOp == 0 ? 0 : (result.bytesPerOp / base.bytesPerOp - 1) * 100);
+        }
+        System.out.println(regressions == 0 ? "Sin regresiones." : regressions + " regresiones.");
+        return regressions == 0;
+    }
+
+    // "1k,64k,1m" -> bytes
+    static List<Integer> parseSizes(String text) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String part : text.split(",")) {
+            String size = part.trim().toLowerCase(Locale.ROOT);
+            int multiplier = 1;
+            if (size.endsWith("k")) {
+                multiplier = 1024;
+            } else if (size.endsWith("m")) {
+                multiplier = 1024 * 1024;
+            }
+            if (multiplier > 1) {
+                size = size.substring(0, size.length() - 1);
+            }
+            sizes.add(Integer.parseInt(size) * multiplier);
+        }
+        return sizes;
+    }
+}
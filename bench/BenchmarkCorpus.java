@@ -0,0 +1,107 @@
+import java.util.Random;
+
+/**
+ * Código de ejemplo generado para los benchmarks. Cada lenguaje repite unidades
+ * parecidas a código real (con nombres y números que varían) hasta llegar al tamaño
+ * pedido. Con la misma semilla el texto es siempre el mismo, así que los resultados
+ * de dos corridas son comparables.
+ */
+final class BenchmarkCorpus {
+    static final String[] LANGUAGES = {"PL/SQL", "T-SQL", "C++", "Pascal", "JavaScript", "HTML", "Python"};
+
+    private BenchmarkCorpus() {
+    }
+
+    static String generate(String language, int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder code = new StringBuilder(size + 1024);
+        code.append(header(language));
+        for (int unit = 0; code.length() < size; unit++) {
+            appendUnit(code, language, unit, random);
+        }
+        code.setLength(size);
+        return code.toString();
+    }
+
+    private static String header(String language) {
+        switch (language) {
+            case "C++":
+                return "#include <iostream>\nusing namespace std;\n";
+            case "Pascal":
+                return "program Bench;\nvar total: integer;\n";
+            case "HTML":
+                return "<html>\n<body>\n";
+            case "Python":
+                return "import os\n";
+            default:
+                return "";
+        }
+    }
+
+    private static void appendUnit(StringBuilder code, String language, int unit, Random random) {
+        int a = random.nextInt(1000);
+        int b = random.nextInt(100) + 1;
+        switch (language) {
+            case "PL/SQL":
+                code.append("CREATE TABLE t_").append(unit).append(" (id NUMBER, name VARCHAR2(20));\n")
+                        .append("INSERT INTO t_").append(unit).append(" VALUES (").append(a).append(", 'x');\n")
+                        .append("SELECT id, name FROM t_").append(unit).append(" WHERE id = ").append(a).append(" AND name <> 'y';\n")
+                        .append("UPDATE t_").append(unit).append(" SET name = 'z' WHERE id > ").append(b).append(";\n")
+                        .append("DELETE FROM t_").append(unit).append(" WHERE id < ").append(b).append(";\n")
+                        .append("BEGIN\n  v_").append(unit).append(" := CASE WHEN id > ").append(b)
+                        .append(" THEN 'x' ELSE 'y' END;\nEND;\n");
+                break;
+            case "T-SQL":
+                code.append("SELECT @total_").append(unit).append(" = COUNT(*) FROM orders o INNER JOIN customers c ON o.cid = c.id\n")
+                        .append("WHERE o.amount > ").append(a).append(" GROUP BY c.id HAVING COUNT(*) > ").append(b).append(" ORDER BY c.id;\n")
+                        .append("UPDATE orders SET amount = amount * ").append(b).append(" WHERE id = @id_").append(unit).append(";\n")
+                        .append("SELECT CASE WHEN a = ").append(b).append(" THEN 'x' ELSE 'y' END FROM t;\n");
+                break;
+            case "C++":
+                code.append("int f").append(unit).append("(int a, int b) {\n")
+                        .append("    int x = a + b * ").append(b).append(";\n")
+                        .append("    double y = x / ").append(a).append(".5;\n")
+                        .append("    if (x > b && a != 0) {\n        cout << x;\n    } else {\n        x = x - 1;\n    }\n")
+                        .append("    for (int i = 0; i < b; i++) {\n        y = y + i;\n    }\n")
+                        .append("    while (x < ").append(a).append(") {\n        x = x * 2;\n    }\n")
+                        .append("    return x;\n}\n")
+                        .append("const int MAX_").append(unit).append(" = ").append(a).append(";\n");
+                break;
+            case "Pascal":
+                code.append("procedure p").append(unit).append("(a: integer);\n")
+                        .append("begin\n  total := a + ").append(b).append(" * 2;\n")
+                        .append("  if total > ").append(a).append(" then writeln('hola');\n")
+                        .append("  while total < 100 do total := total * 2;\n")
+                        .append("end;\n");
+                break;
+            case "JavaScript":
+                code.append("function f").append(unit).append("(a, b) {\n")
+                        .append("  var x = a + b * ").append(b).append(";\n")
+                        .append("  let y = x / ").append(a + 1).append(";\n")
+                        .append("  const LIMIT_").append(unit).append(" = ").append(a).append(";\n")
+                        .append("  if (x == y || a != b) {\n    console.log(x);\n  } else {\n    y = y - 1;\n  }\n")
+                        .append("  for (let i = 0; i < b; i++) { x += i; }\n")
+                        .append("  while (x > 0 && y > 0) { x--; }\n")
+                        .append("  return x;\n}\n");
+                break;
+            case "HTML":
+                code.append("<div class=\"c").append(unit).append("\"><p>Texto ").append(a).append("</p>")
+                        .append("<a href=\"pagina_").append(b).append(".html\">enlace</a></div>\n")
+                        .append("<script>var x").append(unit).append(" = ").append(a).append(";</script>\n");
+                break;
+            case "Python":
+                code.append("def create_item_").append(unit).append("(name):\n")
+                        .append("    x = ").append(a).append("\n")
+                        .append("    y = x + ").append(b).append(" * 3\n")
+                        .append("    if x == y:\n        return x\n    elif x != y:\n        return y\n    else:\n        return 0\n\n")
+                        .append("def read_all_").append(unit).append("():\n")
+                        .append("    total = 0\n")
+                        .append("    for i in range(").append(b).append("):\n        total = total + i\n")
+                        .append("    while total < 100:\n        total = total * 2\n")
+                        .append("    return total\n\n");
+                break;
+            default:
+                throw new IllegalArgumentException("Lenguaje sin generador: " + language);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Prueba de que src/lenguajes.snapshot está al día: lo vuelve a generar con las clases
+ * actuales y lo compara byte a byte con el guardado. El hash de lenguajes.txt del
+ * snapshot solo detecta que cambiaron los perfiles; si cambia cómo se arma una tabla
+ * (ScannerGenerator, LexicalSpec) sin subir VERSION, el snapshot viejo se seguiría
+ * usando y esta prueba es la que lo avisa. Termina con código 1 si difieren; se arregla
+ * regenerándolo como indica LanguageSnapshot.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src LanguageSnapshotTest
+ */
+final class LanguageSnapshotTest {
+    private static final Path SNAPSHOT = Path.of("src", LanguageSnapshot.FILE);
+
+    public static void main(String[] args) throws IOException {
+        LanguageProfile.requireData();
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        LanguageSnapshot.write(generated);
+        byte[] expected = generated.toByteArray();
+        byte[] saved = Files.readAllBytes(SNAPSHOT);
+        if (!Arrays.equals(expected, saved)) {
+            int offset = Arrays.mismatch(expected, saved);
+            System.out.println("FALLA " + SNAPSHOT + " no es el que generan las clases actuales (difiere desde el byte "
+                    + offset + "; " + saved.length + " bytes guardados, " + expected.length + " generados)");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
@@ -0,0 +1,151 @@
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prueba del análisis en vivo (LiveAnalysis) con el mismo código en dos tamaños: cada
+ * edición tiene que volver a tokenizar las mismas líneas sin importar el largo del
+ * archivo, y después de cada una las secciones en vivo tienen que ser las del análisis
+ * completo del texto editado. Informa además cuánto tarda cada edición y armar el
+ * reporte; termina con código 1 si algo no coincide.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src LiveAnalysisTest [--tamanos 100000,2000000]
+ */
+final class LiveAnalysisTest {
+    private static final long SEED = 7;
+    private static final String[] LANGUAGES = {"C++", "T-SQL", "Python", "JavaScript"};
+    // Líneas que se pegan de una vez: pasan del largo de un bloque de LiveAnalysis
+    private static final int PASTED_LINES = 600;
+
+    private final Map<String, Set<String>> reservedWords = new HashMap<>();
+    private int failures;
+
+    LiveAnalysisTest() {
+        for (LanguageProfile profile : LanguageProfile.all()) {
+            reservedWords.put(profile.getName(), profile.getReservedWords());
+        }
+    }
+
+    public static void main(String[] args) throws BadLocationException {
+        LanguageProfile.requireData();
+        int[] sizes = {100_000, 2_000_000};
+        for (int i = 0; i < args.length; i++) {
+            if ("--tamanos".equals(args[i])) {
+                String[] values = args[++i].split(",");
+                sizes = new int[values.length];
+                for (int j = 0; j < values.length; j++) {
+                    sizes[j] = Integer.parseInt(values[j].trim());
+                }
+            } else {
+                System.err.println("Argumento desconocido: " + args[i]);
+                System.exit(2);
+            }
+        }
+        LiveAnalysisTest test = new LiveAnalysisTest();
+        for (String language : LANGUAGES) {
+            for (int size : sizes) {
+                test.run(language, size);
+            }
+        }
+        if (test.failures > 0) {
+            System.out.println(test.failures + " diferencias");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private void run(String language, int size) throws BadLocationException {
+        PlainDocument document = new PlainDocument();
+        document.insertString(0, BenchmarkCorpus.generate(language, size, SEED), null);
+        LiveAnalysis live = new LiveAnalysis(document, reservedWords, () -> { });
+        document.addDocumentListener(live);
+        live.report();
+        String name = language + " " + document.getDefaultRootElement().getElementCount() + " líneas";
+        check(name + ", al abrir", document, live, document.getDefaultRootElement().getElementCount(), live.getLastRetokenizedLines());
+
+        long editNanos = 0;
+        long reportNanos = 0;
+        int edits = 0;
+        for (int round = 0; round < 3; round++) {
+            int line = textLine(document, document.getDefaultRootElement().getElementCount() / 2 + round);
+            long start = System.nanoTime();
+            document.insertString(middleOf(document, line), "x", null);
+            long edited = System.nanoTime();
+            live.report();
+            editNanos += edited - start;
+            reportNanos += System.nanoTime() - edited;
+            edits++;
+            check(name + ", letra", document, live, 1, live.getLastRetokenizedLines());
+
+            start = System.nanoTime();
+            document.remove(middleOf(document, line), 1);
+            edited = System.nanoTime();
+            live.report();
+            editNanos += edited - start;
+            reportNanos += System.nanoTime() - edited;
+            edits++;
+            check(name + ", borrar una letra", document, live, 1, live.getLastRetokenizedLines());
+        }
+
+        int line = textLine(document, document.getDefaultRootElement().getElementCount() / 3);
+        document.insertString(middleOf(document, line), "\n", null);
+        check(name + ", salto de línea", document, live, 2, live.getLastRetokenizedLines());
+
+        int from = middleOf(document, line);
+        document.remove(from, middleOf(document, line + 300) - from);
+        check(name + ", borrar 300 líneas", document, live, 1, live.getLastRetokenizedLines());
+
+        Element root = document.getDefaultRootElement();
+        String pasted = document.getText(0, root.getElement(PASTED_LINES).getStartOffset());
+        document.insertString(middleOf(document, line), pasted, null);
+        check(name + ", pegar " + PASTED_LINES + " líneas", document, live, PASTED_LINES + 1, live.getLastRetokenizedLines());
+
+        System.out.printf(Locale.ROOT, "%-32s %8.3f ms por edición, %8.3f ms por reporte%n",
+                name, editNanos / 1e6 / edits, reportNanos / 1e6 / edits);
+    }
+
+    // La primera línea desde from con al menos dos caracteres: editar al comienzo de una
+    // línea también daña la anterior, como en el editor
+    private static int textLine(PlainDocument document, int from) {
+        Element root = document.getDefaultRootElement();
+        int line = from;
+        while (root.getElement(line).getEndOffset() - root.getElement(line).getStartOffset() <= 2) {
+            line++;
+        }
+        return line;
+    }
+
+    // Una posición en medio de la línea, para que la edición no toque el salto de la anterior
+    private static int middleOf(PlainDocument document, int line) {
+        Element element = document.getDefaultRootElement().getElement(line);
+        return element.getStartOffset() + (element.getEndOffset() - 1 - element.getStartOffset()) / 2;
+    }
+
+    private void check(String edit, PlainDocument document, LiveAnalysis live, int expectedLines, int retokenizedLines)
+            throws BadLocationException {
+        if (retokenizedLines != expectedLines) {
+            fail(edit + ": se tokenizaron " + retokenizedLines + " líneas, se esperaban " + expectedLines);
+        }
+        String language = live.getLanguage();
+        String code = document.getText(0, document.getLength());
+        AnalysisPipeline full = AnalysisPipeline.forLanguage(language, reservedWords.get(language));
+        full.run(code);
+        for (ReportSection section : ReportSection.values()) {
+            String result = live.result(section);
+            if (result != null && !result.equals(full.result(section))) {
+                fail(edit + ": " + section + " no coincide con el análisis completo");
+            }
+        }
+    }
+
+    private void fail(String message) {
+        System.out.println("FALLA " + message);
+        failures++;
+    }
+}
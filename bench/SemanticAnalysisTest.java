@@ -0,0 +1,139 @@
+/**
+ * Prueba del análisis semántico dentro del reporte de analyzeCode: los parámetros, las
+ * declaraciones de cualquier tipo (long, unsigned int) y las de varios declaradores
+ * entran en la tabla de símbolos, las llaves dentro de cadenas y comentarios no abren ni
+ * cierran ámbitos, y se informan la variable de un for usada después del ciclo, la
+ * asignación a una variable no declarada y la declaración repetida en un ámbito.
+ * Termina con código 1 si algo no coincide.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src SemanticAnalysisTest
+ */
+final class SemanticAnalysisTest {
+    private static final String HEADER = "#include <iostream>\nusing namespace std;\n";
+
+    private final CodeAnalyzer analyzer = CodeAnalyzer.headless();
+    private int failures;
+
+    public static void main(String[] args) {
+        LanguageProfile.requireData();
+        SemanticAnalysisTest test = new SemanticAnalysisTest();
+        test.parameters();
+        test.otherTypes();
+        test.severalDeclarators();
+        test.bracesInStringsAndComments();
+        test.forVariableOutOfScope();
+        test.undeclaredAssignment();
+        test.repeatedDeclaration();
+        if (test.failures > 0) {
+            System.out.println(test.failures + " diferencias");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private void parameters() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int f(int n) {\n"
+                + "    n = n - 1;\n"
+                + "    return n;\n"
+                + "}\n"
+                + "int main() {\n"
+                + "    cout << f(3);\n"
+                + "    return 0;\n"
+                + "}\n");
+        expectValid("un parámetro es una variable declarada", report);
+        expect("el parámetro está en la tabla", report, report.contains("n=int"));
+    }
+
+    private void otherTypes() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    long total = 0;\n"
+                + "    unsigned int count = 3;\n"
+                + "    total = total + count;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expectValid("long y unsigned int son tipos", report);
+        expect("las variables están en la tabla con su tipo", report,
+                report.contains("total=long, count=unsigned int"));
+    }
+
+    private void severalDeclarators() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    int a, b = 2;\n"
+                + "    a = b;\n"
+                + "    b = a;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expectValid("cada declarador declara una variable", report);
+        expect("los dos declaradores están en la tabla", report, report.contains("a=int, b=int"));
+    }
+
+    private void bracesInStringsAndComments() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    int x = 0;\n"
+                + "    string s = \"}\";\n"
+                + "    char c = '}'; // }\n"
+                + "    /* } */\n"
+                + "    x = 1;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expectValid("las llaves de cadenas y comentarios no cierran el ámbito", report);
+    }
+
+    private void forVariableOutOfScope() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    for (int i = 0; i < 3; i++) {\n"
+                + "    }\n"
+                + "    cout << i;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("la variable de un for no se ve después del ciclo", report,
+                report.contains("Error: La variable 'i' no está declarada en este ámbito."));
+        expect("un error semántico impide simular", report, !report.contains("Simulación: "));
+    }
+
+    private void undeclaredAssignment() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    total = 1;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("asignar a una variable sin declarar es un error", report,
+                report.contains("Error: La variable 'total' no ha sido declarada."));
+    }
+
+    private void repeatedDeclaration() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int f(int n) {\n"
+                + "    int n = 1;\n"
+                + "    return n;\n"
+                + "}\n"
+                + "int main() {\n"
+                + "    int x = 1;\n"
+                + "    {\n"
+                + "        int x = 2;\n"
+                + "    }\n"
+                + "    return f(x);\n"
+                + "}\n");
+        expect("redeclarar un parámetro en el cuerpo es un error", report,
+                report.contains("Error: La variable 'n' ya fue declarada en este ámbito."));
+        expect("declarar en un bloque anidado no es repetir", report, !report.contains("'x' ya fue declarada"));
+    }
+
+    private void expectValid(String description, String report) {
+        expect(description, report, report.contains("Código válido.\nSimulación: ") && !report.contains("Errores:"));
+    }
+
+    private void expect(String description, String report, boolean ok) {
+        if (!ok) {
+            System.out.println("FALLA " + description + ":\n" + report);
+            failures++;
+        }
+    }
+}
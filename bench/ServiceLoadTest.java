@@ -0,0 +1,180 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga del modo servicio (AnalysisServer): varios clientes mandan fragmentos
+ * chicos sin pausa (salvo unos milisegundos después de un 429) durante un tiempo fijo, y
+ * cada segundo se informan los pedidos respondidos, los rechazados con 429 y la latencia
+ * p50/p99/máxima de ese segundo, para ver si se mantiene estable bajo carga. Sin --url
+ * levanta un servidor en este proceso.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src ServiceLoadTest [--url http://127.0.0.1:8377] [--ruta /identifyLanguage]
+ *        [--clientes 32] [--segundos 10] [--tamano 256] [--lote 1]
+ */
+final class ServiceLoadTest {
+    private static final long SEED = 2024;
+    // Fragmentos distintos por lenguaje, para que la caché no responda todo
+    private static final int SNIPPETS_PER_LANGUAGE = 64;
+    private static final long REJECTED_PAUSE_MILLIS = 10;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final URI target;
+    private final List<String> bodies;
+    private final boolean json;
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    // Se reemplaza cada segundo por uno vacío
+    private volatile AnalysisMetrics.LatencyHistogram window = new AnalysisMetrics.LatencyHistogram();
+    private volatile boolean running = true;
+
+    ServiceLoadTest(URI target, List<String> bodies, boolean json) {
+        this.target = target;
+        this.bodies = bodies;
+        this.json = json;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LanguageProfile.requireData();
+        String url = null;
+        String path = "/identifyLanguage";
+        int clients = 32;
+        int seconds = 10;
+        int size = 256;
+        int batch = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--ruta":
+                    path = args[++i];
+                    break;
+                case "--clientes":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--segundos":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--tamano":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--lote":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Argumento desconocido: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        AnalysisServer server = null;
+        if (url == null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            server = new AnalysisServer(CodeAnalyzer.headless(AnalysisCache.configured()), threads, threads * 32, 8L << 20);
+            server.start(0);
+            url = "http://127.0.0.1:" + server.port();
+        }
+        ServiceLoadTest test = new ServiceLoadTest(URI.create(url + path), bodies(size, batch), batch > 1);
+        try {
+            test.run(clients, seconds);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    // Cuerpos de los pedidos: un fragmento, o un arreglo JSON con batch fragmentos
+    private static List<String> bodies(int size, int batch) {
+        List<String> snippets = new ArrayList<>();
+        for (int i = 0; i < SNIPPETS_PER_LANGUAGE; i++) {
+            for (String language : BenchmarkCorpus.LANGUAGES) {
+                snippets.add(BenchmarkCorpus.generate(language, size, SEED + i));
+            }
+        }
+        if (batch <= 1) {
+            return snippets;
+        }
+        List<String> bodies = new ArrayList<>();
+        for (int start = 0; start < snippets.size(); start += batch) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = start; i < Math.min(snippets.size(), start + batch); i++) {
+                body.append(i > start ? "," : "").append(BatchAnalyzer.quote(snippets.get(i)));
+            }
+            bodies.add(body.append(']').toString());
+        }
+        return bodies;
+    }
+
+    void run(int clients, int seconds) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int first = i;
+            Thread thread = new Thread(() -> send(first), "cliente-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        System.out.println("segundo\tok_s\t429_s\terrores\tp50_us\tp99_us\tmax_us");
+        long previousOk = 0;
+        long previousRejected = 0;
+        for (int second = 1; second <= seconds; second++) {
+            Thread.sleep(1000);
+            AnalysisMetrics.LatencyHistogram latencies = window;
+            window = new AnalysisMetrics.LatencyHistogram();
+            long currentOk = ok.get();
+            long currentRejected = rejected.get();
+            System.out.printf(Locale.ROOT, "%d\t%d\t%d\t%d\t%d\t%d\t%d%n", second, currentOk - previousOk, currentRejected - previousRejected,
+                    failed.get(), latencies.percentile(0.5) / 1000, latencies.percentile(0.99) / 1000, latencies.max() / 1000);
+            previousOk = currentOk;
+            previousRejected = currentRejected;
+        }
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        System.out.printf(Locale.ROOT, "Total: %d respondidos (%.0f/s), %d rechazados con 429, %d errores%n",
+                ok.get(), ok.get() / (double) seconds, rejected.get(), failed.get());
+    }
+
+    // Cliente sin pausa entre pedidos salvo después de un 429; solo los respondidos con 200
+    // entran en la latencia
+    private void send(int first) {
+        for (int i = first; running; i++) {
+            HttpRequest request = HttpRequest.newBuilder(target)
+                    .header("Content-Type", json ? "application/json" : "text/plain; charset=utf-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(bodies.get(i % bodies.size()), StandardCharsets.UTF_8))
+                    .build();
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    window.add(System.nanoTime() - start);
+                    ok.incrementAndGet();
+                } else if (response.statusCode() == 429) {
+                    rejected.incrementAndGet();
+                    // Como un cliente que respeta el rechazo, sin reintentar en seguida
+                    Thread.sleep(REJECTED_PAUSE_MILLIS);
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (Exception ex) {
+                if (ex instanceof InterruptedException) {
+                    return;
+                }
+                failed.incrementAndGet();
+            }
+        }
+    }
+}
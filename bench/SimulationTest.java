@@ -0,0 +1,129 @@
+/**
+ * Prueba de la simulación dentro del reporte de analyzeCode: un programa de C++ sin
+ * errores se simula y muestra su salida, uno que no termina se corta al agotar los pasos,
+ * uno que no deja de pedir memoria se corta al pasar el tope, uno con un identificador
+ * inválido no se simula, un ciclo de un millón de vueltas con long se simula completo y
+ * la variable de un for usada después del ciclo es un error semántico que impide simular.
+ * Los límites se achican para que la prueba sea rápida. Termina con código 1 si algo no
+ * coincide.
+ *
+ * Compilar y correr desde la raíz del proyecto:
+ *   javac -encoding UTF-8 -d out src/*.java bench/*.java
+ *   java -cp out:src SimulationTest
+ */
+final class SimulationTest {
+    private static final String HEADER = "#include <iostream>\nusing namespace std;\n";
+
+    private final CodeAnalyzer analyzer = CodeAnalyzer.headless();
+    private int failures;
+
+    public static void main(String[] args) {
+        LanguageProfile.requireData();
+        // Antes de que se cargue Simulation, que lee los límites una sola vez
+        System.setProperty("analyzer.simulation.steps", "10000000");
+        System.setProperty("analyzer.simulation.memoryMegabytes", "1");
+        SimulationTest test = new SimulationTest();
+        test.validProgram();
+        test.stepLimit();
+        test.memoryLimit();
+        test.invalidIdentifier();
+        test.longLoop();
+        test.forVariableOutOfScope();
+        if (test.failures > 0) {
+            System.out.println(test.failures + " diferencias");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private void validProgram() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    int total = 0;\n"
+                + "    for (int i = 1; i <= 4; i++) {\n"
+                + "        total = total + i;\n"
+                + "    }\n"
+                + "    cout << total;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("un programa válido se simula", report, report.contains("Código válido.\nSimulación: "));
+        expect("la simulación muestra la salida", report, report.contains("Salida: 10"));
+        expect("un programa válido no lista errores", report, !report.contains("Errores:"));
+    }
+
+    private void stepLimit() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    int x = 0;\n"
+                + "    while (1) {\n"
+                + "        x = x + 1;\n"
+                + "    }\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("un ciclo sin fin se simula", report, report.contains("Código válido.\nSimulación: "));
+        expect("un ciclo sin fin agota los pasos", report, report.contains("se agotó el presupuesto de la simulación"));
+        expect("el reporte avisa que es parcial", report, report.contains("Resultado parcial: "));
+    }
+
+    private void memoryLimit() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    string s = \"ab\";\n"
+                + "    while (1) {\n"
+                + "        s = s + s;\n"
+                + "    }\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("un string que crece se simula", report, report.contains("Código válido.\nSimulación: "));
+        expect("un string que crece pasa el tope de memoria", report,
+                report.contains("la simulación superó el límite de 1 MB de memoria"));
+    }
+
+    private void invalidIdentifier() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    int _1 = 0;\n"
+                + "    cout << _1;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("un identificador inválido impide simular", report, !report.contains("Simulación: "));
+        expect("el identificador inválido aparece en los errores", report, report.contains("Errores:\n"));
+    }
+
+    private void longLoop() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    long total = 0;\n"
+                + "    for (long i = 0; i < 1000000; i++) {\n"
+                + "        total = total + i;\n"
+                + "    }\n"
+                + "    cout << total;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("un programa con long se simula", report, report.contains("Código válido.\nSimulación: "));
+        expect("el ciclo con long termina con el total de 64 bits", report, report.contains("Salida: 499999500000"));
+    }
+
+    private void forVariableOutOfScope() {
+        String report = analyzer.analyzeCode(HEADER
+                + "int main() {\n"
+                + "    int total = 0;\n"
+                + "    for (int i = 0; i < 3; i++) {\n"
+                + "        total = total + i;\n"
+                + "    }\n"
+                + "    total = i;\n"
+                + "    return 0;\n"
+                + "}\n");
+        expect("la variable de un for usada fuera del ciclo no es código válido", report, !report.contains("Código válido."));
+        expect("la variable de un for usada fuera del ciclo no se simula", report, !report.contains("Simulación: "));
+        expect("el error dice que la variable no está en el ámbito", report,
+                report.contains("Error: La variable 'i' no está declarada en este ámbito."));
+    }
+
+    private void expect(String description, String report, boolean ok) {
+        if (!ok) {
+            System.out.println("FALLA " + description + ":\n" + report);
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Reportes de analyzeCode ya calculados, direccionados por el contenido: la clave es un
+ * hash de 64 bits del código, su largo y la configuración del analizador (las palabras
+ * reservadas), así que el mismo texto con otra configuración no encuentra el reporte
+ * anterior. El lenguaje no hace falta en la clave: sale del mismo contenido.
+ *
+ * La memoria está acotada por un presupuesto de bytes (código y reporte de cada entrada)
+ * y se desaloja la entrada usada hace más tiempo, como en PatternCatalog.dynamic. Una
+ * entrada que ocupa más de la cuarta parte del presupuesto no se guarda, para que un
+ * archivo enorme no vacíe la caché. Todos los métodos se pueden llamar desde varios hilos.
+ */
+final class AnalysisCache {
+    private static final long DEFAULT_MEGABYTES = 32;
+    // Objetos de la entrada, la clave y el nodo del mapa, aproximado
+    private static final long ENTRY_OVERHEAD = 160;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Protegidos por this
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    AnalysisCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Caché con -Danalyzer.cacheMegabytes (32 por defecto), o null si es 0. Sus contadores
+     * se publican por JMX junto a las estadísticas de AnalysisMetrics.
+     */
+    static AnalysisCache configured() {
+        long megabytes = Long.getLong("analyzer.cacheMegabytes", DEFAULT_MEGABYTES);
+        if (megabytes <= 0) {
+            return null;
+        }
+        AnalysisCache cache = new AnalysisCache(megabytes * 1024 * 1024);
+        AnalysisMetrics.shared().watch(cache);
+        return cache;
+    }
+
+    /** Clave del código con la configuración dada; se calcula fuera del bloqueo. */
+    static Key key(String code, Object configuration) {
+        return new Key(hash(code), code.length(), configuration);
+    }
+
+    /** El reporte guardado para el código, o null si no está. */
+    String get(Key key, String code) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            // Dos textos distintos con el mismo hash y largo no se confunden
+            if (entry != null && entry.code.equals(code)) {
+                hits++;
+                return entry.report;
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    void put(Key key, String code, String report) {
+        long size = ENTRY_OVERHEAD + 2L * (code.length() + report.length());
+        if (size > maxBytes / 4) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(code, report, size));
+            if (previous != null) {
+                bytes -= previous.size;
+            }
+            bytes += size;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().size;
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /** Quita todas las entradas; los contadores siguen. */
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "Caché: %d aciertos, %d fallos, %d desalojos, %d entradas, %.2f de %.0f MB",
+                hits, misses, evictions, entries.size(), bytes / (1024.0 * 1024.0), maxBytes / (1024.0 * 1024.0));
+    }
+
+    // FNV-1a de 64 bits sobre los caracteres
+    static long hash(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /** Hash y largo del código y la configuración con la que se analizó. */
+    static final class Key {
+        private final long hash;
+        private final int length;
+        private final Object configuration;
+
+        private Key(long hash, int length, Object configuration) {
+            this.hash = hash;
+            this.length = length;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && length == key.length
+                    && (configuration == key.configuration || Objects.equals(configuration, key.configuration));
+        }
+
+        // La configuración no entra en el hash: casi siempre es la misma instancia
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + length;
+        }
+    }
+
+    private static final class Entry {
+        final String code;
+        final String report;
+        final long size;
+
+        Entry(String code, String report, long size) {
+            this.code = code;
+            this.report = report;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentación de las fases del análisis. AnalysisMonitor avisa el fin de cada fase y
+ * de cada análisis; aquí se emite un evento JFR por fase (analyzer.Phase, visible en
+ * JDK Mission Control al grabar con -XX:StartFlightRecording) y se acumulan contadores e
+ * histogramas de latencia por fase y lenguaje que se publican por JMX (AnalysisMetricsMXBean).
+ *
+ * Está pensada para dejarla activa: por fase cuesta dos lecturas del reloj y de la memoria
+ * pedida por el hilo y unas sumas sin bloqueos; el evento JFR solo se llena si hay una
+ * grabación que lo pide.
+ */
+final class AnalysisMetrics implements AnalysisMetricsMXBean {
+    static final String OBJECT_NAME = "CodeAnalyzer:type=AnalysisMetrics";
+    // Nombre de las filas de análisis completos
+    static final String ANALYSIS = "analysis";
+    // Nombre de las filas de lo calculado después de terminado el análisis
+    static final String DEFERRED = "deferred";
+    static final String UNKNOWN_LANGUAGE = "desconocido";
+    // Espera antes de publicar por JMX (ver register)
+    private static final long PUBLISH_DELAY_MILLIS = 1000;
+
+    private static final AnalysisMetrics SHARED = register(new AnalysisMetrics());
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final ConcurrentMap<String, Series> phases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Series> languages = new ConcurrentHashMap<>();
+    private final List<AnalysisCache> caches = new CopyOnWriteArrayList<>();
+
+    static AnalysisMetrics shared() {
+        return SHARED;
+    }
+
+    /** Bytes pedidos hasta ahora por el hilo actual, o 0 si la JVM no los cuenta. */
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Evento JFR de una fase que empieza; el reloj del evento corre desde aquí. null si
+     * Flight Recorder no está iniciado: nadie lo grabaría, y cargar la clase del evento
+     * arrastra el módulo de JFR al arranque.
+     */
+    static PhaseEvent beginPhase() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /** Cierra la fase: emite el evento si hay una grabación y suma la fase a las estadísticas. */
+    void endPhase(PhaseEvent event, AnalysisPhase phase, String language, long nanos, long characters,
+                  long matches, long steps, long allocated, boolean truncated, boolean cancelled) {
+        String languageName = language == null ? UNKNOWN_LANGUAGE : language;
+        if (event != null) {
+            event.end();
+        }
+        if (event != null && event.shouldCommit()) {
+            event.phase = phase.name().toLowerCase(Locale.ROOT);
+            event.language = languageName;
+            event.characters = characters;
+            event.matches = matches;
+            event.steps = steps;
+            event.allocated = allocated;
+            event.truncated = truncated;
+            event.cancelled = cancelled;
+            event.commit();
+        }
+        series(phases, phase.name().toLowerCase(Locale.ROOT), languageName)
+                .add(nanos, characters, matches, allocated, truncated, cancelled);
+    }
+
+    /** Suma un análisis completo, o lo diferido de uno ya terminado, a las estadísticas de su lenguaje. */
+    void endAnalysis(String language, boolean deferred, long nanos, long characters, long allocated, boolean truncated,
+                     boolean cancelled) {
+        series(languages, deferred ? DEFERRED : ANALYSIS, language == null ? UNKNOWN_LANGUAGE : language)
+                .add(nanos, characters, 0, allocated, truncated, cancelled);
+    }
+
+    @Override
+    public List<Statistics> getPhases() {
+        List<Series> all = new ArrayList<>(phases.values());
+        all.sort(Comparator.comparingInt((Series series) -> AnalysisPhase.valueOf(series.phase.toUpperCase(Locale.ROOT)).ordinal())
+                .thenComparing(series -> series.language));
+        return snapshot(all);
+    }
+
+    @Override
+    public List<Statistics> getLanguages() {
+        List<Series> all = new ArrayList<>(languages.values());
+        all.sort(Comparator.comparing((Series series) -> series.language).thenComparing(series -> series.phase));
+        return snapshot(all);
+    }
+
+    @Override
+    public void reset() {
+        phases.clear();
+        languages.clear();
+    }
+
+    /** Publica los contadores de la caché; se llama una vez por caché que vive lo que el proceso. */
+    void watch(AnalysisCache cache) {
+        caches.add(cache);
+    }
+
+    @Override
+    public long getCacheHits() {
+        long hits = 0;
+        for (AnalysisCache cache : caches) {
+            hits += cache.getHits();
+        }
+        return hits;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        long misses = 0;
+        for (AnalysisCache cache : caches) {
+            misses += cache.getMisses();
+        }
+        return misses;
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        long evictions = 0;
+        for (AnalysisCache cache : caches) {
+            evictions += cache.getEvictions();
+        }
+        return evictions;
+    }
+
+    @Override
+    public void clearCaches() {
+        for (AnalysisCache cache : caches) {
+            cache.clear();
+        }
+    }
+
+    private static List<Statistics> snapshot(List<Series> all) {
+        List<Statistics> statistics = new ArrayList<>(all.size());
+        for (Series series : all) {
+            statistics.add(series.snapshot());
+        }
+        return statistics;
+    }
+
+    private static Series series(ConcurrentMap<String, Series> map, String phase, String language) {
+        return map.computeIfAbsent(phase + '/' + language, key -> new Series(phase, language));
+    }
+
+    // La instancia compartida queda publicada en el servidor JMX de la plataforma; si no se
+    // puede (otra copia de la clase ya la publicó) se usa igual, sin JMX. Crear el servidor
+    // tarda cientos de milisegundos, así que se publica en un hilo aparte pasado
+    // PUBLISH_DELAY_MILLIS: el arranque y el primer análisis no lo esperan ni compiten con
+    // él, y una corrida más corta que eso termina sin crearlo
+    private static AnalysisMetrics register(AnalysisMetrics metrics) {
+        Thread publisher = new Thread(() -> {
+            try {
+                Thread.sleep(PUBLISH_DELAY_MILLIS);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException ex) {
+                // Sin JMX
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, "analyzer-jmx");
+        publisher.setDaemon(true);
+        publisher.start();
+        return metrics;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Histograma de latencias sin bloqueos, en nanosegundos: cada potencia de dos se divide
+     * en 8 cubetas, así que un percentil se informa con a lo sumo 12,5% de error.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+
+        void add(long nanos) {
+            long value = Math.max(nanos, 0);
+            counts.incrementAndGet(bucket(value));
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Otro hilo cambió el máximo; se vuelve a comparar
+            }
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /** Cota superior del percentil q (entre 0 y 1), sin pasar del máximo; 0 si está vacío. */
+        long percentile(double q) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        // Los valores menores que SUB_BUCKETS tienen su propia cubeta; los demás van a la de
+        // su potencia de dos y sus 3 bits siguientes
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+            return lower + (1L << (exponent - SUB_BITS)) - 1;
+        }
+    }
+
+    // Acumulado de una fase (o de los análisis completos) en un lenguaje
+    private static final class Series {
+        final String phase;
+        final String language;
+        final LongAdder count = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder truncated = new LongAdder();
+        final LongAdder characters = new LongAdder();
+        final LongAdder matches = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Series(String phase, String language) {
+            this.phase = phase;
+            this.language = language;
+        }
+
+        void add(long elapsed, long characters, long matches, long allocated, boolean truncated, boolean cancelled) {
+            if (cancelled) {
+                this.cancelled.increment();
+                return;
+            }
+            count.increment();
+            if (truncated) {
+                this.truncated.increment();
+            }
+            this.characters.add(characters);
+            this.matches.add(matches);
+            this.allocated.add(allocated);
+            nanos.add(elapsed);
+            latency.add(elapsed);
+        }
+
+        Statistics snapshot() {
+            long totalNanos = nanos.sum();
+            long totalCharacters = characters.sum();
+            long perSecond = totalNanos == 0 ? 0 : (long) (totalCharacters * 1e9 / totalNanos);
+            return new Statistics(phase, language, count.sum(), cancelled.sum(), truncated.sum(), totalCharacters,
+                    matches.sum(), allocated.sum(), latency.percentile(0.5) / 1000, latency.percentile(0.99) / 1000,
+                    latency.max() / 1000, perSecond);
+        }
+    }
+
+    /** Evento JFR de una fase terminada; su duración es la de la fase. */
+    @Name("analyzer.Phase")
+    @Label("Fase del análisis")
+    @Category("Analizador")
+    @Description("Una fase de analyzeCode con el tamaño del texto, el lenguaje y lo que encontró")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Fase")
+        String phase;
+
+        @Label("Lenguaje")
+        String language;
+
+        @Label("Caracteres")
+        long characters;
+
+        @Label("Coincidencias")
+        long matches;
+
+        @Label("Lecturas de caracteres")
+        @Description("Caracteres leídos por las expresiones regulares de la fase")
+        long steps;
+
+        @Label("Memoria pedida")
+        @DataAmount
+        long allocated;
+
+        @Label("Truncada")
+        boolean truncated;
+
+        @Label("Cancelada")
+        boolean cancelled;
+    }
+}
@@ -0,0 +1,118 @@
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+/**
+ * Estadísticas de las fases del análisis publicadas por JMX (jconsole, VisualVM) con el
+ * nombre AnalysisMetrics.OBJECT_NAME. Es pública porque JMX solo publica interfaces públicas.
+ */
+public interface AnalysisMetricsMXBean {
+    /** Una fila por fase y lenguaje, en el orden de las fases. */
+    List<Statistics> getPhases();
+
+    /**
+     * Por lenguaje, una fila con los análisis completos (todas sus fases) y otra con lo
+     * calculado después de terminados, al abrir una pestaña de ResultsView.
+     */
+    List<Statistics> getLanguages();
+
+    /** Empieza de cero todas las estadísticas. */
+    void reset();
+
+    /** Reportes respondidos por las cachés de analyzeCode (AnalysisCache) del proceso. */
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    /** Entradas desalojadas de esas cachés para no pasar de su presupuesto. */
+    long getCacheEvictions();
+
+    /** Vacía las cachés de analyzeCode; sus contadores siguen. */
+    void clearCaches();
+
+    /** Contadores y latencias de una fase (o de los análisis completos) en un lenguaje. */
+    final class Statistics {
+        private final String phase;
+        private final String language;
+        private final long count;
+        private final long cancelled;
+        private final long truncated;
+        private final long characters;
+        private final long matches;
+        private final long allocatedBytes;
+        private final long p50Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+        private final long charactersPerSecond;
+
+        @ConstructorProperties({"phase", "language", "count", "cancelled", "truncated", "characters", "matches",
+                "allocatedBytes", "p50Micros", "p99Micros", "maxMicros", "charactersPerSecond"})
+        public Statistics(String phase, String language, long count, long cancelled, long truncated, long characters, long matches,
+                          long allocatedBytes, long p50Micros, long p99Micros, long maxMicros, long charactersPerSecond) {
+            this.phase = phase;
+            this.language = language;
+            this.count = count;
+            this.cancelled = cancelled;
+            this.truncated = truncated;
+            this.characters = characters;
+            this.matches = matches;
+            this.allocatedBytes = allocatedBytes;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.charactersPerSecond = charactersPerSecond;
+        }
+
+        /** Nombre de la fase en minúsculas, o "analysis" y "deferred" en getLanguages. */
+        public String getPhase() {
+            return phase;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        /** Veces que terminó sin cancelarse; solo estas entran en las latencias. */
+        public long getCount() {
+            return count;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        /** Veces que agotó su presupuesto de pasos. */
+        public long getTruncated() {
+            return truncated;
+        }
+
+        public long getCharacters() {
+            return characters;
+        }
+
+        /** Resultados encontrados: expresiones, errores, símbolos; 0 en las fases que no los cuentan. */
+        public long getMatches() {
+            return matches;
+        }
+
+        /** Memoria pedida por el hilo del análisis; no incluye la de las partes en paralelo. */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getP50Micros() {
+            return p50Micros;
+        }
+
+        public long getP99Micros() {
+            return p99Micros;
+        }
+
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        public long getCharactersPerSecond() {
+            return charactersPerSecond;
+        }
+    }
+}
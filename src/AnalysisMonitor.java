@@ -0,0 +1,256 @@
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estado compartido entre un análisis en curso y quien lo lanzó: permite cancelarlo
+ * y avisa el comienzo de cada fase. Los recorridos largos llaman a checkCancelled()
+ * periódicamente y las expresiones regulares leen el texto a través de guard(), de
+ * modo que cancelar detiene incluso un patrón que retrocede sin fin.
+ *
+ * Cada fase además tiene un presupuesto de pasos (lecturas de caracteres a través de
+ * guard()) proporcional al largo del texto. Un patrón que lo agota recibe una
+ * BudgetExhaustedException: quien recorre las coincidencias se queda con las que ya
+ * encontró y la fase queda marcada como truncada. Los pasos por carácter se configuran
+ * con -Danalyzer.budget=N para todas las fases y -Danalyzer.budget.FASE=N para una
+ * (FASE es el nombre de AnalysisPhase en minúsculas, por ejemplo syntax); 0 quita el límite.
+ * La identificación lee cada carácter una sola vez y no tiene límite: sin lenguaje no
+ * hay resultado parcial que mostrar.
+ *
+ * El monitor también mide cada fase (duración, memoria pedida por el hilo, resultados)
+ * y al terminar la pasa a AnalysisMetrics; quien corre el análisis llama a finish(). Una
+ * fase termina al empezar la siguiente o con endPhase(), si no sigue otra en seguida.
+ * Lo que se pide después de finish() (las pestañas de ResultsView) se cierra con otro
+ * finish() y se cuenta como un análisis diferido, aparte de los completos.
+ */
+final class AnalysisMonitor {
+    interface Listener {
+        void phaseStarted(AnalysisPhase phase);
+    }
+
+    // Cada cuántas lecturas de caracteres se revisa la cancelación
+    private static final int CHECK_INTERVAL_MASK = 0xFFF;
+
+    // Los patrones del reporte leen entre 1 y 12 veces cada carácter; una fase completa
+    // con -Danalyzer.regexScans=true, unas 40
+    private static final long DEFAULT_STEPS_PER_CHAR = 256;
+    // Pasos que cualquier fase puede usar aunque el texto sea corto
+    private static final long BASE_STEPS = 4_000_000;
+    private static final long[] STEPS_PER_CHAR = stepsPerChar();
+
+    // Veces que cada fase agotó su presupuesto desde que se cargó la clase
+    private static final AtomicLongArray truncations = new AtomicLongArray(AnalysisPhase.values().length);
+
+    private final Listener listener;
+    private volatile boolean cancelled;
+
+    // Solo los usa el hilo que corre el análisis
+    private long textLength;
+    private AnalysisPhase phase;
+    private long reads;
+    private long phaseReads;
+    private long phaseBudget = Long.MAX_VALUE;
+    private final EnumSet<AnalysisPhase> truncated = EnumSet.noneOf(AnalysisPhase.class);
+    // Medición de la fase en curso y del análisis completo; event es null fuera de una fase
+    private boolean analyzing;
+    private boolean deferred;
+    private String language;
+    private long matches;
+    private AnalysisMetrics.PhaseEvent event;
+    private long phaseStart;
+    private long phaseAllocated;
+    private long analysisStart;
+    private long analysisAllocated;
+
+    AnalysisMonitor() {
+        this(null);
+    }
+
+    AnalysisMonitor(Listener listener) {
+        this.listener = listener;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Análisis cancelado");
+        }
+    }
+
+    void beginPhase(AnalysisPhase phase) {
+        checkCancelled();
+        long now = System.nanoTime();
+        long allocated = AnalysisMetrics.allocatedBytes();
+        if (event != null) {
+            endPhase(now, allocated, false);
+        }
+        if (!analyzing) {
+            analyzing = true;
+            analysisStart = now;
+            analysisAllocated = allocated;
+        }
+        event = AnalysisMetrics.beginPhase();
+        phaseStart = now;
+        phaseAllocated = allocated;
+        matches = 0;
+        this.phase = phase;
+        phaseReads = reads;
+        long stepsPerChar = STEPS_PER_CHAR[phase.ordinal()];
+        phaseBudget = stepsPerChar <= 0 || phase == AnalysisPhase.IDENTIFICATION
+                ? Long.MAX_VALUE : BASE_STEPS + stepsPerChar * textLength;
+        if (listener != null) {
+            listener.phaseStarted(phase);
+        }
+    }
+
+    /** Las fases que siguen hasta el próximo finish() se piden después del análisis. */
+    void markDeferred() {
+        deferred = true;
+    }
+
+    /** Lenguaje del código, para las estadísticas de las fases que faltan cerrar. */
+    void setLanguage(String language) {
+        this.language = language;
+    }
+
+    /** Suma resultados (expresiones, errores, símbolos) a la fase en curso. */
+    void countMatches(long count) {
+        matches += count;
+    }
+
+    /**
+     * Cierra la última fase y el análisis en AnalysisMetrics. Se llama una vez al terminar,
+     * también si el análisis se canceló o falló; sin fases abiertas no hace nada.
+     */
+    void finish() {
+        if (!analyzing) {
+            return;
+        }
+        long now = System.nanoTime();
+        long allocated = AnalysisMetrics.allocatedBytes();
+        boolean cancelled = isCancelled();
+        if (event != null) {
+            endPhase(now, allocated, cancelled);
+        }
+        AnalysisMetrics.shared().endAnalysis(language, deferred, now - analysisStart, textLength, allocated - analysisAllocated,
+                !truncated.isEmpty(), cancelled);
+        analyzing = false;
+    }
+
+    /** Cierra la fase en curso sin cerrar el análisis; sin fase abierta no hace nada. */
+    void endPhase() {
+        if (event != null) {
+            endPhase(System.nanoTime(), AnalysisMetrics.allocatedBytes(), isCancelled());
+        }
+    }
+
+    private void endPhase(long now, long allocated, boolean cancelled) {
+        AnalysisMetrics.shared().endPhase(event, phase, language, now - phaseStart, textLength, matches, reads - phaseReads,
+                allocated - phaseAllocated, truncated.contains(phase), cancelled);
+        event = null;
+    }
+
+    /**
+     * Envuelve el texto para que las lecturas de un Matcher respeten la cancelación y el
+     * presupuesto de la fase. El presupuesto se calcula con el texto más largo envuelto.
+     */
+    CharSequence guard(CharSequence text) {
+        textLength = Math.max(textLength, text.length());
+        return new CancellableText(text, this);
+    }
+
+    /** Anota que la fase en curso agotó su presupuesto, para fases que llevan su propia cuenta de pasos. */
+    void markTruncated() {
+        if (truncated.add(phase)) {
+            truncations.incrementAndGet(phase.ordinal());
+        }
+    }
+
+    /** Fases que agotaron su presupuesto en este análisis, en orden. */
+    List<AnalysisPhase> truncatedPhases() {
+        return new ArrayList<>(truncated);
+    }
+
+    /** Veces que phase agotó su presupuesto en todos los análisis. */
+    static long truncationCount(AnalysisPhase phase) {
+        return truncations.get(phase.ordinal());
+    }
+
+    // Descripciones de las fases separadas por comas, para los mensajes
+    static String describe(List<AnalysisPhase> phases) {
+        List<String> descriptions = new ArrayList<>();
+        for (AnalysisPhase phase : phases) {
+            descriptions.add(phase.getDescription());
+        }
+        return String.join(", ", descriptions);
+    }
+
+    private void read() {
+        if ((++reads & CHECK_INTERVAL_MASK) == 0) {
+            checkCancelled();
+            if (reads - phaseReads > phaseBudget) {
+                markTruncated();
+                throw new BudgetExhaustedException(phase);
+            }
+        }
+    }
+
+    private static long[] stepsPerChar() {
+        long all = Long.getLong("analyzer.budget", DEFAULT_STEPS_PER_CHAR);
+        long[] steps = new long[AnalysisPhase.values().length];
+        for (AnalysisPhase phase : AnalysisPhase.values()) {
+            steps[phase.ordinal()] = Long.getLong("analyzer.budget." + phase.name().toLowerCase(Locale.ROOT), all);
+        }
+        return steps;
+    }
+
+    /** Un patrón agotó el presupuesto de pasos de la fase en curso. */
+    static final class BudgetExhaustedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExhaustedException(AnalysisPhase phase) {
+            super("Presupuesto agotado en la fase: " + phase.getDescription(), null, false, false);
+        }
+    }
+
+    private static final class CancellableText implements CharSequence {
+        private final CharSequence text;
+        private final AnalysisMonitor monitor;
+
+        CancellableText(CharSequence text, AnalysisMonitor monitor) {
+            this.text = text;
+            this.monitor = monitor;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            monitor.read();
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
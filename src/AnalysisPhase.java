@@ -0,0 +1,19 @@
+/** Fase del análisis, con el texto que muestra el progreso. */
+enum AnalysisPhase {
+    IDENTIFICATION("Identificando lenguaje"),
+    SECTIONS("Recorriendo tokens"),
+    MATHEMATICAL_EXPRESSIONS("Expresiones matemáticas"),
+    SYNTAX("Análisis sintáctico"),
+    SEMANTIC("Análisis semántico"),
+    SIMULATION("Simulación");
+
+    private final String description;
+
+    AnalysisPhase(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ejecuta el Lexer una sola vez y reparte el flujo de tokens a un recolector por
+ * sección del reporte. El costo es una pasada lineal sin importar cuántas
+ * secciones estén registradas.
+ */
+final class AnalysisPipeline {
+    // Tokens por bloque; entre bloques se revisa si el análisis fue cancelado
+    static final int BLOCK_SIZE = 1024;
+
+    private final String language;
+    private final Map<ReportSection, TokenCollector> collectors = new EnumMap<>(ReportSection.class);
+
+    AnalysisPipeline(String language) {
+        this.language = language;
+    }
+
+    /** Pipeline con las secciones del reporte estándar para el lenguaje dado. */
+    static AnalysisPipeline forLanguage(String language, Set<String> reservedWords) {
+        return forLanguage(language, reservedWords, EnumSet.allOf(ReportSection.class));
+    }
+
+    /** Pipeline con solo las secciones pedidas: el Lexer pasa una vez, sin el trabajo de las demás. */
+    static AnalysisPipeline forLanguage(String language, Set<String> reservedWords, Set<ReportSection> sections) {
+        AnalysisPipeline pipeline = new AnalysisPipeline(language);
+        for (ReportSection section : sections) {
+            pipeline.register(section, SectionCollectors.forSection(section, language, reservedWords));
+        }
+        return pipeline;
+    }
+
+    AnalysisPipeline register(ReportSection section, TokenCollector collector) {
+        collectors.put(section, collector);
+        return this;
+    }
+
+    void run(String code) {
+        run(code, new AnalysisMonitor());
+    }
+
+    void run(String code, AnalysisMonitor monitor) {
+        run(code, 0, code.length(), monitor);
+    }
+
+    /** Recorre solo [start, end) de code; start tiene que ser un comienzo de línea. */
+    void run(String code, int start, int end, AnalysisMonitor monitor) {
+        TokenCollector[] active = collectors.values().toArray(new TokenCollector[0]);
+        Lexer lexer = Lexer.plain(code, language, Lexer.State.lineStart(start), end);
+        TokenBuffer tokens = new TokenBuffer(BLOCK_SIZE);
+        // Los recolectores no guardan el token, así que una sola instancia recorre todo el código
+        Token token = new Token();
+        while (lexer.fill(tokens, BLOCK_SIZE) > 0) {
+            for (int i = 0; i < tokens.size(); i++) {
+                tokens.copyTo(i, code, token);
+                for (TokenCollector collector : active) {
+                    collector.accept(token, code);
+                }
+            }
+            tokens.clear();
+            monitor.checkCancelled();
+        }
+        for (TokenCollector collector : active) {
+            collector.finish(code, start, end);
+        }
+    }
+
+    // Todos los recolectores se pueden correr por tramos
+    boolean isMergeable() {
+        for (TokenCollector collector : collectors.values()) {
+            if (!(collector instanceof SectionCollectors.Mergeable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Agrega el resultado de un pipeline igual que recorrió el tramo siguiente del código. */
+    void absorb(AnalysisPipeline chunk) {
+        for (Map.Entry<ReportSection, TokenCollector> entry : collectors.entrySet()) {
+            SectionCollectors.Mergeable collector = (SectionCollectors.Mergeable) entry.getValue();
+            collector.absorb((SectionCollectors.Mergeable) chunk.collectors.get(entry.getKey()));
+        }
+    }
+
+    String result(ReportSection section) {
+        TokenCollector collector = collectors.get(section);
+        return collector == null ? "" : collector.result();
+    }
+
+    /** Recolector de la sección después de run(), o null si no se registró. */
+    TokenCollector collector(ReportSection section) {
+        return collectors.get(section);
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Resultado del análisis de un código con cada sección por separado. Nada se calcula al
+ * crearlo: cada sección se calcula la primera vez que se pide y queda guardada, así que
+ * quien solo quiere el lenguaje o los CRUD no paga por el análisis sintáctico ni por
+ * la simulación. Las secciones del Lexer que se pidan juntas salen de una sola pasada.
+ *
+ * report() arma con estas secciones el mismo texto de siempre de analyzeCode; los demás
+ * métodos las devuelven como listas, errores con su posición y la tabla de símbolos, para
+ * no tener que volver a leer el texto.
+ *
+ * Cada cálculo es una fase del AnalysisMonitor (con su presupuesto y sus estadísticas),
+ * que se cierra al terminar. Los métodos se pueden llamar desde varios hilos; los cálculos
+ * de un mismo resultado no corren a la vez.
+ */
+final class AnalysisResult {
+    private final CodeAnalyzer analyzer;
+    private final String code;
+    private final AnalysisMonitor monitor;
+    // Las expresiones regulares leen a través de text para que la cancelación las detenga
+    private final CharSequence text;
+    private final Map<String, Set<String>> reservedWords;
+    private final Diagnostic.Positions positions;
+
+    private boolean identified;
+    private String language;
+    private final Map<ReportSection, String> sections = new EnumMap<>(ReportSection.class);
+    private final Map<ReportSection, TokenCollector> collectors = new EnumMap<>(ReportSection.class);
+    private List<String> mathematicalExpressions;
+    private String syntaxText;
+    private List<Diagnostic> syntaxErrors;
+    private SymbolTable symbolTable;
+    private List<Diagnostic> semanticErrors;
+    private boolean simulated;
+    private String simulation;
+
+    AnalysisResult(CodeAnalyzer analyzer, String code, Map<String, Set<String>> reservedWords, AnalysisMonitor monitor) {
+        this.analyzer = analyzer;
+        this.code = code;
+        this.reservedWords = reservedWords;
+        this.monitor = monitor;
+        this.text = monitor.guard(code);
+        this.positions = new Diagnostic.Positions(code);
+    }
+
+    String getCode() {
+        return code;
+    }
+
+    /** Palabras reservadas con las que se calculan las secciones. */
+    Map<String, Set<String>> getReservedWords() {
+        return reservedWords;
+    }
+
+    /** Lenguaje identificado, o null si ninguno tiene su firma en el código. */
+    synchronized String language() {
+        if (!identified) {
+            language = phase(AnalysisPhase.IDENTIFICATION, () -> {
+                String found = analyzer.identifyLanguage(text);
+                monitor.setLanguage(found);
+                return found;
+            });
+            identified = true;
+        }
+        return language;
+    }
+
+    /** Texto de la sección tal como aparece en el reporte. */
+    synchronized String section(ReportSection section) {
+        sections(EnumSet.of(section));
+        return sections.get(section);
+    }
+
+    /**
+     * Lo encontrado en la sección, en el orden del código; vacía si el lenguaje no la
+     * admite o no se identificó. En LEXICAL son los tokens de C++.
+     */
+    synchronized List<String> items(ReportSection section) {
+        collectors(EnumSet.of(section));
+        TokenCollector collector = collectors.get(section);
+        return collector == null ? Collections.emptyList() : collector.items();
+    }
+
+    /** Expresiones matemáticas armadas con las variables encontradas. */
+    synchronized List<String> mathematicalExpressions() {
+        if (mathematicalExpressions == null) {
+            String variables = section(ReportSection.VARIABLES);
+            if (variables == null) {
+                return Collections.emptyList();
+            }
+            mathematicalExpressions = Collections.unmodifiableList(phase(AnalysisPhase.MATHEMATICAL_EXPRESSIONS, () -> {
+                List<String> found = analyzer.findAllMathematicalExpressions(text, variables);
+                monitor.countMatches(found.size());
+                return found;
+            }));
+        }
+        return mathematicalExpressions;
+    }
+
+    /** Declaraciones del código con su tipo, posición y ámbito; null si no se identificó el lenguaje. */
+    synchronized SymbolTable symbolTable() {
+        semanticErrors();
+        return symbolTable;
+    }
+
+    /**
+     * Errores léxicos (identificadores inválidos), sintácticos y semánticos, en ese orden y
+     * cada grupo en el orden del código.
+     */
+    synchronized List<Diagnostic> errors() {
+        List<Diagnostic> errors = new ArrayList<>(lexicalErrors());
+        errors.addAll(syntaxErrors());
+        errors.addAll(semanticErrors());
+        return errors;
+    }
+
+    /** Salida de la simulación, o null si el código tiene errores y no se simula. */
+    synchronized String simulation() {
+        if (!simulated) {
+            // La sección LEXICAL lista los tokens aunque no haya errores; lo que impide
+            // simular son los identificadores inválidos. Sin análisis léxico no se simula.
+            boolean lexical = language() != null && usesCppLexer() && lexicalErrors().isEmpty();
+            String syntax = syntaxText();
+            List<Diagnostic> semantic = semanticErrors();
+            if (lexical && syntax.isEmpty() && semantic.isEmpty()) {
+                String language = language();
+                simulation = phase(AnalysisPhase.SIMULATION, () -> analyzer.simulateExecution(text, language, monitor));
+            }
+            simulated = true;
+        }
+        return simulation;
+    }
+
+    /**
+     * Pide algo al resultado de un análisis que ya terminó (ya se llamó monitor.finish()):
+     * las fases que calcule se cierran al final como un análisis diferido.
+     */
+    synchronized <T> T deferred(Supplier<T> request) {
+        monitor.markDeferred();
+        try {
+            return request.get();
+        } finally {
+            monitor.finish();
+        }
+    }
+
+    /** Fases que agotaron su presupuesto en lo calculado hasta ahora. */
+    synchronized List<AnalysisPhase> truncatedPhases() {
+        return monitor.truncatedPhases();
+    }
+
+    /** El reporte de texto de analyzeCode; calcula las secciones que falten. */
+    synchronized String report() {
+        String language = language();
+        if (language == null) {
+            return "Lenguaje no identificado.";
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("Lenguaje identificado: ").append(language).append("\n");
+
+        sections(EnumSet.allOf(ReportSection.class));
+        List<String> mathematicalExpressions = mathematicalExpressions();
+
+        result.append("Palabras reservadas: ").append(sections.get(ReportSection.RESERVED_WORDS)).append("\n");
+        result.append("Expresiones lógicas: ").append(sections.get(ReportSection.LOGICAL_EXPRESSIONS)).append("\n");
+        result.append("Expresiones matemáticas: ").append(mathematicalExpressions).append("\n");
+        result.append("Variables: ").append(sections.get(ReportSection.VARIABLES)).append("\n");
+        result.append("Constantes: ").append(sections.get(ReportSection.CONSTANTS)).append("\n");
+        result.append("Funciones: ").append(sections.get(ReportSection.FUNCTIONS)).append("\n");
+        result.append("Clases: ").append(analyzer.findClasses(text, language)).append("\n");
+        result.append("Ciclos: ").append(sections.get(ReportSection.LOOPS)).append("\n");
+        result.append("Condicionales: ").append(sections.get(ReportSection.CONDITIONALS)).append("\n");
+        result.append("CRUD: ").append(sections.get(ReportSection.CRUD)).append("\n");
+
+        String syntax = syntaxText();
+        List<Diagnostic> semantic = semanticErrors();
+        result.append("Tabla de símbolos: ").append(symbolTable).append("\n");
+
+        String simulation = simulation();
+        if (simulation != null) {
+            result.append("Código válido.\nSimulación: ").append(simulation);
+        } else {
+            result.append("Errores:\n").append(sections.get(ReportSection.LEXICAL)).append(syntax);
+            for (Diagnostic error : semantic) {
+                result.append("Error: ").append(error.getMessage()).append(".\n");
+            }
+        }
+
+        List<AnalysisPhase> truncated = monitor.truncatedPhases();
+        if (!truncated.isEmpty()) {
+            if (result.charAt(result.length() - 1) != '\n') {
+                result.append("\n");
+            }
+            result.append("Resultado parcial: se agotó el presupuesto de ").append(AnalysisMonitor.describe(truncated)).append("\n");
+        }
+        return result.toString();
+    }
+
+    // Textos de las secciones que falten, todas en una sola fase
+    private void sections(Set<ReportSection> wanted) {
+        EnumSet<ReportSection> missing = EnumSet.copyOf(wanted);
+        missing.removeAll(sections.keySet());
+        if (missing.isEmpty() || language() == null) {
+            return;
+        }
+        if (CodeAnalyzer.REGEX_SCANS) {
+            phase(AnalysisPhase.SECTIONS, () -> {
+                for (ReportSection section : missing) {
+                    sections.put(section, analyzer.regexSection(text, language, section));
+                }
+                return null;
+            });
+            return;
+        }
+        collectors(missing);
+        for (ReportSection section : missing) {
+            sections.put(section, collectors.get(section).result());
+        }
+    }
+
+    // Recolectores de las secciones que falten, con una sola pasada del Lexer
+    private void collectors(Set<ReportSection> wanted) {
+        EnumSet<ReportSection> missing = EnumSet.copyOf(wanted);
+        missing.removeAll(collectors.keySet());
+        if (missing.isEmpty() || language() == null) {
+            return;
+        }
+        AnalysisPipeline pipeline = phase(AnalysisPhase.SECTIONS,
+                () -> CodeAnalyzer.runPipeline(code, language, reservedWords.get(language), missing, monitor));
+        for (ReportSection section : missing) {
+            collectors.put(section, pipeline.collector(section));
+        }
+    }
+
+    private List<Diagnostic> lexicalErrors() {
+        if (!usesCppLexer()) {
+            return Collections.emptyList();
+        }
+        return ((SectionCollectors.CppLexicalTokens) collectors.get(ReportSection.LEXICAL)).diagnostics(positions);
+    }
+
+    private boolean usesCppLexer() {
+        collectors(EnumSet.of(ReportSection.LEXICAL));
+        return collectors.get(ReportSection.LEXICAL) instanceof SectionCollectors.CppLexicalTokens;
+    }
+
+    private String syntaxText() {
+        if (syntaxText == null) {
+            String language = language();
+            if (language == null) {
+                return "";
+            }
+            List<Diagnostic> errors = new ArrayList<>();
+            syntaxText = phase(AnalysisPhase.SYNTAX, () -> {
+                String syntax = analyzer.performSyntaxAnalysis(text, language, errors);
+                monitor.countMatches(errors.size());
+                return syntax;
+            });
+            syntaxErrors = Collections.unmodifiableList(errors);
+        }
+        return syntaxText;
+    }
+
+    private List<Diagnostic> syntaxErrors() {
+        syntaxText();
+        return syntaxErrors == null ? Collections.emptyList() : syntaxErrors;
+    }
+
+    private List<Diagnostic> semanticErrors() {
+        if (semanticErrors == null) {
+            String language = language();
+            if (language == null) {
+                return Collections.emptyList();
+            }
+            // Una tabla por análisis: los análisis concurrentes no comparten estado
+            SymbolTable table = new SymbolTable();
+            List<Diagnostic> errors = phase(AnalysisPhase.SEMANTIC, () -> {
+                List<Diagnostic> found = analyzer.performSemanticAnalysis(text, language, table, positions);
+                monitor.countMatches(found.size());
+                return found;
+            });
+            symbolTable = table;
+            semanticErrors = Collections.unmodifiableList(errors);
+        }
+        return semanticErrors;
+    }
+
+    // Corre un cálculo como una fase del monitor y la cierra al terminar, también si falla
+    private <T> T phase(AnalysisPhase phase, Supplier<T> computation) {
+        monitor.beginPhase(phase);
+        try {
+            return computation.get();
+        } finally {
+            monitor.endPhase();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Modo servicio sin interfaz gráfica: publica identifyLanguage y analyzeCode por HTTP en
+ * la interfaz local (127.0.0.1), con el HttpServer del JDK, para llamarlos desde otras
+ * herramientas del mismo equipo.
+ *
+ *   POST /identifyLanguage  responde {"language":"C++"} (null si no se identifica)
+ *   POST /analyzeCode       responde {"report":"..."}
+ *
+ * El cuerpo en text/plain es un fragmento de código. Con Content-Type application/json es
+ * un lote: un arreglo JSON de strings, y la respuesta es un arreglo con un resultado por
+ * fragmento, en el mismo orden.
+ *
+ * Cada pedido se atiende en su propio hilo virtual si la JVM los tiene (Java 21 o posterior)
+ * y si no en un hilo de un pool. Los análisis simultáneos son a lo sumo --hilos; los pedidos
+ * que esperan turno, a lo sumo --cola, y el que no entra recibe 429 de inmediato, así que
+ * la latencia de los aceptados no crece sin límite cuando llegan más pedidos de los que se
+ * pueden atender. Un cuerpo más grande que --max-mb recibe 413.
+ *
+ * Uso: --servidor [--puerto N] [--hilos N] [--cola N] [--max-mb N]
+ */
+final class AnalysisServer {
+    private static final String FLAG = "--servidor";
+    private static final int DEFAULT_PORT = 8377;
+    private static final int DEFAULT_QUEUE_PER_THREAD = 32;
+    private static final long DEFAULT_MAX_MEGABYTES = 8;
+
+    private final CodeAnalyzer analyzer;
+    // Pedidos aceptados (analizándose o en la cola) y análisis en curso
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final long maxBodyBytes;
+    private final ExecutorService handlers = handlerExecutor();
+    private HttpServer server;
+
+    AnalysisServer(CodeAnalyzer analyzer, int threads, int queue, long maxBodyBytes) {
+        this.analyzer = analyzer;
+        this.running = new Semaphore(threads, true);
+        this.admitted = new Semaphore(threads + queue);
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    static boolean isRequested(String[] args) {
+        return args.length > 0 && FLAG.equals(args[0]);
+    }
+
+    /** Ejecuta el modo servicio con los argumentos de la línea de comandos hasta que se detiene el proceso; devuelve el código de salida. */
+    static int run(String[] args) {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        long maxMegabytes = DEFAULT_MAX_MEGABYTES;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--puerto":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--hilos":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--cola":
+                        queue = Integer.parseInt(args[++i]);
+                        break;
+                    case "--max-mb":
+                        maxMegabytes = Long.parseLong(args[++i]);
+                        break;
+                    default:
+                        return usage("Argumento desconocido: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            return usage("Argumentos inválidos.");
+        }
+        if (threads <= 0 || maxMegabytes <= 0) {
+            return usage("--hilos y --max-mb tienen que ser positivos.");
+        }
+        if (queue < 0) {
+            queue = threads * DEFAULT_QUEUE_PER_THREAD;
+        }
+
+        AnalysisServer service = new AnalysisServer(CodeAnalyzer.headless(AnalysisCache.configured()), threads, queue, maxMegabytes * 1024 * 1024);
+        try {
+            service.start(port);
+        } catch (IOException ex) {
+            System.err.println("No se pudo abrir el puerto " + port + ": " + ex.getMessage());
+            return 2;
+        }
+        System.err.println("Escuchando en http://127.0.0.1:" + service.port() + " (" + threads + " análisis a la vez, cola de " + queue
+                + ", " + (service.usesVirtualThreads() ? "hilos virtuales" : "pool de hilos") + ")");
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.stop();
+            stopped.countDown();
+        }));
+        try {
+            stopped.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static int usage(String message) {
+        System.err.println(message);
+        System.err.println("Uso: " + FLAG + " [--puerto N] [--hilos N] [--cola N] [--max-mb N]");
+        return 2;
+    }
+
+    /** Abre el puerto (0 elige uno libre) en la interfaz local y empieza a atender. */
+    void start(int port) throws IOException {
+        // Sin TCP_NODELAY, los encabezados y el cuerpo de la respuesta van en dos segmentos
+        // y el segundo espera el ACK retrasado del cliente (unos 40 ms por pedido). El
+        // HttpServer lee la propiedad al cargarse, así que tiene que estar antes del primero
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/identifyLanguage", exchange -> handle(exchange,
+                code -> "{\"language\":" + quoteOrNull(analyzer.identifyLanguage(code)) + "}"));
+        server.createContext("/analyzeCode", exchange -> handle(exchange,
+                code -> "{\"report\":" + BatchAnalyzer.quote(analyzer.analyzeCode(code)) + "}"));
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Deja de aceptar conexiones y espera hasta un segundo a los pedidos en curso. */
+    void stop() {
+        server.stop(1);
+        handlers.shutdownNow();
+    }
+
+    boolean usesVirtualThreads() {
+        return !(handlers instanceof java.util.concurrent.ThreadPoolExecutor);
+    }
+
+    private void handle(HttpExchange exchange, Function<String, String> operation) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, error("Use POST."));
+                return;
+            }
+            if (!admitted.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, error("Demasiados pedidos en espera."));
+                return;
+            }
+            try {
+                String body = readBody(exchange);
+                if (body == null) {
+                    respond(exchange, 413, error("El cuerpo supera " + maxBodyBytes / (1024 * 1024) + " MB."));
+                    return;
+                }
+                List<String> batch = null;
+                String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+                if (contentType != null && contentType.startsWith("application/json")) {
+                    try {
+                        batch = readStrings(body);
+                    } catch (IllegalArgumentException ex) {
+                        respond(exchange, 400, error(ex.getMessage()));
+                        return;
+                    }
+                }
+                running.acquire();
+                String response;
+                try {
+                    response = batch == null ? operation.apply(body) : results(batch, operation);
+                } finally {
+                    running.release();
+                }
+                respond(exchange, 200, response);
+            } finally {
+                admitted.release();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, error("El servicio se está deteniendo."));
+        } catch (RuntimeException | StackOverflowError ex) {
+            respond(exchange, 500, error(String.valueOf(ex)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String results(List<String> batch, Function<String, String> operation) {
+        StringBuilder response = new StringBuilder("[");
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append(operation.apply(batch.get(i)));
+        }
+        return response.append(']').toString();
+    }
+
+    // El cuerpo en UTF-8, o null si pasa de maxBodyBytes
+    private String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > maxBodyBytes) {
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + BatchAnalyzer.quote(message) + "}";
+    }
+
+    private static String quoteOrNull(String value) {
+        return value == null ? "null" : BatchAnalyzer.quote(value);
+    }
+
+    /** Lee un arreglo JSON de strings; cualquier otra cosa es IllegalArgumentException. */
+    static List<String> readStrings(String json) {
+        List<String> strings = new ArrayList<>();
+        int i = skipSpaces(json, 0);
+        if (i == json.length() || json.charAt(i) != '[') {
+            throw new IllegalArgumentException("Se esperaba un arreglo JSON de strings.");
+        }
+        i = skipSpaces(json, i + 1);
+        if (i < json.length() && json.charAt(i) == ']') {
+            i++;
+        } else {
+            while (true) {
+                StringBuilder value = new StringBuilder();
+                i = readString(json, i, value);
+                strings.add(value.toString());
+                i = skipSpaces(json, i);
+                if (i < json.length() && json.charAt(i) == ',') {
+                    i = skipSpaces(json, i + 1);
+                } else if (i < json.length() && json.charAt(i) == ']') {
+                    i++;
+                    break;
+                } else {
+                    throw new IllegalArgumentException("Falta ',' o ']' en la posición " + i + ".");
+                }
+            }
+        }
+        if (skipSpaces(json, i) != json.length()) {
+            throw new IllegalArgumentException("Sobra texto después del arreglo en la posición " + i + ".");
+        }
+        return strings;
+    }
+
+    // Lee el string que empieza en i y devuelve la posición siguiente a la comilla de cierre
+    private static int readString(String json, int i, StringBuilder value) {
+        if (i == json.length() || json.charAt(i) != '"') {
+            throw new IllegalArgumentException("Se esperaba un string en la posición " + i + ".");
+        }
+        for (i++; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (++i == json.length()) {
+                break;
+            }
+            char escape = json.charAt(i);
+            switch (escape) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 >= json.length()) {
+                        throw new IllegalArgumentException("Escape \\u incompleto en la posición " + i + ".");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException("Escape \\u inválido en la posición " + i + ".");
+                    }
+                    i += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    value.append(escape);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Escape inválido en la posición " + i + ".");
+            }
+        }
+        throw new IllegalArgumentException("String sin cerrar.");
+    }
+
+    private static int skipSpaces(String json, int i) {
+        while (i < json.length() && (json.charAt(i) == ' ' || json.charAt(i) == '\t' || json.charAt(i) == '\n' || json.charAt(i) == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    // Un hilo virtual por pedido si la JVM los tiene; si no, un pool que crece con los pedidos
+    // aceptados (los rechazados con 429 terminan enseguida)
+    private static ExecutorService handlerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reconoce expresiones aritméticas formadas por variables conocidas y números, en
+ * tiempo lineal y sin armar una expresión regular con todas las variables.
+ *
+ * Da las mismas coincidencias que el patrón original
+ *   ((?<=\s)|(?<=^))(VAR|-?\d+\.?\d*)(?:\s*[-+*\/()]\s*(VAR|-?\d+\.?\d*))*(?=(\s|$))
+ * donde VAR es la alternancia de las variables en orden, pero las variables se comparan
+ * como texto literal (en el patrón, un $ o un . dentro de una variable se interpretaba).
+ * Se recorre en el mismo orden de preferencia que el backtracking del patrón: primero
+ * las variables en el orden de la lista, después el número, y la repetición es codiciosa.
+ * El resultado de continuar desde cada posición se guarda, así que cada posición se
+ * resuelve una sola vez.
+ */
+final class ArithmeticExpressions {
+    private static final int UNKNOWN = -2;
+    private static final int FAIL = -1;
+
+    private final SymbolSet variables;
+
+    ArithmeticExpressions(List<String> variables) {
+        this.variables = new SymbolSet(variables);
+    }
+
+    /** Todas las coincidencias, en orden, como las devuelve Matcher.find(). */
+    List<String> findAll(CharSequence code) {
+        List<String> matches = new ArrayList<>();
+        findAll(code, matches);
+        return matches;
+    }
+
+    /**
+     * Agrega las coincidencias a matches a medida que las encuentra, así quedan las
+     * anteriores si la lectura de code se interrumpe con una excepción.
+     */
+    void findAll(CharSequence code, List<String> matches) {
+        int length = code.length();
+        Search search = new Search(code);
+        int position = 0;
+        while (position <= length) {
+            int end = (position == 0 || isSpace(code.charAt(position - 1))) ? search.matchAt(position) : FAIL;
+            if (end == FAIL) {
+                position++;
+                continue;
+            }
+            matches.add(code.subSequence(position, end).toString());
+            // Después de una coincidencia vacía, find() sigue desde la posición siguiente
+            position = end == position ? end + 1 : end;
+        }
+    }
+
+    // \s de java.util.regex
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isOperator(char c) {
+        return c == '-' || c == '+' || c == '*' || c == '/' || c == '(' || c == ')';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Una búsqueda sobre un texto: guarda cómo termina la expresión desde cada posición. */
+    private final class Search {
+        private final CharSequence code;
+        private final int length;
+        // Fin de la coincidencia si la expresión sigue desde la posición (después de un
+        // operando), FAIL si no puede terminar ahí, o UNKNOWN si todavía no se calculó
+        private final int[] tails;
+
+        Search(CharSequence code) {
+            this.code = code;
+            this.length = code.length();
+            this.tails = new int[length + 1];
+            Arrays.fill(tails, UNKNOWN);
+        }
+
+        // Primer operando en orden de preferencia desde start que deja terminar la expresión
+        int matchAt(int start) {
+            for (int end : operandEnds(start)) {
+                int tail = tail(end);
+                if (tail != FAIL) {
+                    return tail;
+                }
+            }
+            return FAIL;
+        }
+
+        // Finales posibles de un operando que empieza en start, en orden de preferencia
+        private int[] operandEnds(int start) {
+            int[] ends = variables.matchEnds(code, start, length);
+            int number = numberEnd(start);
+            if (number < 0) {
+                return ends;
+            }
+            int[] withNumber = Arrays.copyOf(ends, ends.length + 1);
+            withNumber[ends.length] = number;
+            return withNumber;
+        }
+
+        // -?\d+\.?\d* codicioso. Un número más corto nunca sirve: quedaría seguido de un
+        // dígito o un punto, que no son espacio, operador ni fin
+        private int numberEnd(int start) {
+            int i = start;
+            if (i < length && code.charAt(i) == '-') {
+                i++;
+            }
+            int digits = i;
+            while (i < length && isDigit(code.charAt(i))) {
+                i++;
+            }
+            if (i == digits) {
+                return FAIL;
+            }
+            if (i < length && code.charAt(i) == '.') {
+                i++;
+                while (i < length && isDigit(code.charAt(i))) {
+                    i++;
+                }
+            }
+            return i;
+        }
+
+        // (?:\s*[-+*\/()]\s*OPERANDO)*(?=(\s|$)) desde position. Sin recursión: una pila
+        // explícita recorre las continuaciones, que siempre avanzan
+        private int tail(int position) {
+            if (tails[position] != UNKNOWN) {
+                return tails[position];
+            }
+            List<Frame> stack = new ArrayList<>();
+            stack.add(new Frame(position));
+            while (!stack.isEmpty()) {
+                Frame frame = stack.get(stack.size() - 1);
+                int result = UNKNOWN;
+                while (result == UNKNOWN) {
+                    int next = frame.nextCandidate();
+                    if (next < 0) {
+                        // Ninguna repetición más: la expresión termina en position si sigue \s o $
+                        result = isEnd(frame.position) ? frame.position : FAIL;
+                    } else if (tails[next] == UNKNOWN) {
+                        break;
+                    } else if (tails[next] != FAIL) {
+                        result = tails[next];
+                    }
+                }
+                if (result == UNKNOWN) {
+                    stack.add(new Frame(frame.pendingCandidate()));
+                } else {
+                    tails[frame.position] = result;
+                    stack.remove(stack.size() - 1);
+                }
+            }
+            return tails[position];
+        }
+
+        // (?=(\s|$)): $ también coincide antes de un terminador de línea final
+        private boolean isEnd(int position) {
+            if (position == length) {
+                return true;
+            }
+            char c = code.charAt(position);
+            if (isSpace(c)) {
+                return true;
+            }
+            if (position == length - 1) {
+                return isLineTerminator(c);
+            }
+            return position == length - 2 && c == '\r' && code.charAt(position + 1) == '\n';
+        }
+
+        /** Una posición después de un operando y los operandos que pueden seguirla. */
+        private final class Frame {
+            final int position;
+            private final int[] candidates;
+            private int index;
+
+            Frame(int position) {
+                this.position = position;
+                this.candidates = continuations(position);
+            }
+
+            // Siguiente candidato a revisar, o -1 si no quedan; no avanza si su resultado
+            // todavía no se conoce
+            int nextCandidate() {
+                if (index == candidates.length) {
+                    return -1;
+                }
+                int candidate = candidates[index];
+                if (tails[candidate] != UNKNOWN) {
+                    index++;
+                }
+                return candidate;
+            }
+
+            int pendingCandidate() {
+                return candidates[index];
+            }
+        }
+
+        // Finales de \s*[-+*\/()]\s*OPERANDO desde position, en orden de preferencia. El
+        // primer \s* no puede devolver espacios (después viene un operador); el segundo
+        // solo los devuelve si hay una variable vacía, que entonces termina antes
+        private int[] continuations(int position) {
+            int operator = position;
+            while (operator < length && isSpace(code.charAt(operator))) {
+                operator++;
+            }
+            if (operator == length || !isOperator(code.charAt(operator))) {
+                return new int[0];
+            }
+            int start = operator + 1;
+            int operand = start;
+            while (operand < length && isSpace(code.charAt(operand))) {
+                operand++;
+            }
+            int[] ends = operandEnds(operand);
+            if (!variables.hasEmpty() || operand == start) {
+                return ends;
+            }
+            int[] withEmpty = Arrays.copyOf(ends, ends.length + operand - start);
+            for (int i = operand - 1, k = ends.length; i >= start; i--, k++) {
+                withEmpty[k] = i;
+            }
+            return withEmpty;
+        }
+    }
+
+    /**
+     * Variables indexadas por el hash de String y su largo: en cada posición se calcula el
+     * hash de los prefijos de cada largo posible sin crear cadenas y se buscan en la tabla.
+     */
+    static final class SymbolSet {
+        private final String[] symbols;
+        // Tabla abierta de índices en symbols (más 1; 0 es vacío)
+        private final int[] table;
+        private final boolean[] lengths;
+        private final int maxLength;
+        private final boolean hasEmpty;
+
+        SymbolSet(List<String> list) {
+            symbols = list.toArray(new String[0]);
+            table = new int[Integer.highestOneBit(Math.max(symbols.length, 1) * 4) * 2];
+            int max = 0;
+            for (String symbol : symbols) {
+                max = Math.max(max, symbol.length());
+            }
+            maxLength = max;
+            lengths = new boolean[max + 1];
+            boolean empty = false;
+            for (int i = 0; i < symbols.length; i++) {
+                String symbol = symbols[i];
+                lengths[symbol.length()] = true;
+                empty |= symbol.isEmpty();
+                if (indexOf(symbol) < 0) {
+                    // Una variable repetida vale por su primera aparición
+                    int slot = slot(symbol.hashCode(), symbol.length());
+                    while (table[slot] != 0) {
+                        slot = (slot + 1) & (table.length - 1);
+                    }
+                    table[slot] = i + 1;
+                }
+            }
+            hasEmpty = empty;
+        }
+
+        boolean hasEmpty() {
+            return hasEmpty;
+        }
+
+        private int slot(int hash, int length) {
+            int h = hash * 31 + length;
+            return (h ^ (h >>> 16)) & (table.length - 1);
+        }
+
+        private int indexOf(String symbol) {
+            for (int slot = slot(symbol.hashCode(), symbol.length()); table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+                if (symbols[table[slot] - 1].equals(symbol)) {
+                    return table[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        /** Finales de las variables que aparecen en start, en el orden de la lista. */
+        int[] matchEnds(CharSequence code, int start, int end) {
+            int[] found = null;
+            int count = 0;
+            int hash = 0;
+            int limit = Math.min(maxLength, end - start);
+            for (int length = 0; length <= limit; length++) {
+                if (length > 0) {
+                    hash = 31 * hash + code.charAt(start + length - 1);
+                }
+                if (!lengths[length]) {
+                    continue;
+                }
+                int index = find(hash, length, code, start);
+                if (index >= 0) {
+                    if (found == null) {
+                        found = new int[4];
+                    } else if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = index;
+                }
+            }
+            if (count == 0) {
+                return new int[0];
+            }
+            int[] indexes = Arrays.copyOf(found, count);
+            Arrays.sort(indexes);
+            int[] ends = new int[count];
+            for (int i = 0; i < count; i++) {
+                ends[i] = start + symbols[indexes[i]].length();
+            }
+            return ends;
+        }
+
+        private int find(int hash, int length, CharSequence code, int start) {
+            for (int slot = slot(hash, length); table[slot] != 0; slot = (slot + 1) & (table.length - 1)) {
+                String symbol = symbols[table[slot] - 1];
+                if (symbol.length() == length && symbol.hashCode() == hash && regionMatches(symbol, code, start)) {
+                    return table[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean regionMatches(String symbol, CharSequence code, int start) {
+            for (int i = 0; i < symbol.length(); i++) {
+                if (symbol.charAt(i) != code.charAt(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
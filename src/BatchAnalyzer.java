@@ -0,0 +1,422 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modo por lotes sin interfaz gráfica: recorre un directorio, identifica el lenguaje de
+ * cada archivo y corre los extractores del reporte, en paralelo sobre todos los núcleos.
+ * Escribe un registro JSON por línea a medida que termina cada archivo. La cantidad de
+ * archivos en vuelo está acotada, así que la memoria no depende del tamaño del árbol.
+ * Los archivos más grandes que --por-partes (en MB) no se cargan enteros: se leen
+ * mapeados en memoria y solo se identifica el lenguaje y se cuentan sus tokens por tipo.
+ * Un archivo cuyas expresiones regulares agotan el presupuesto de una fase (ver
+ * AnalysisMonitor) lleva las fases en "truncated" y sus secciones quedan parciales.
+ *
+ * Con --resumen las secciones no se listan: cada una lleva en "summaries" su cantidad de
+ * coincidencias, un histograma de largos, las más frecuentes y posiciones de muestra (en
+ * caracteres desde el comienzo del archivo), y la memoria por archivo queda acotada (ver
+ * SummarizedSections). Así también se resumen los archivos grandes, leídos por tramos,
+ * además de contar sus tokens. No se buscan expresiones matemáticas, que necesitan la
+ * lista de variables. --volcar además escribe las coincidencias de cada sección en un
+ * archivo temporal, cuya ruta va en "spill".
+ *
+ * Uso: --batch directorio [--salida archivo.jsonl] [--hilos N] [--en-vuelo N] [--por-partes MB] [--resumen] [--volcar]
+ */
+final class BatchAnalyzer {
+    private static final String FLAG = "--batch";
+    private static final long DEFAULT_STREAMING_MEGABYTES = 64;
+
+    private final CodeAnalyzer analyzer = CodeAnalyzer.headless();
+    private final ExecutorService pool;
+    private final Semaphore inFlight;
+    private final Writer out;
+    private final long streamingThreshold;
+    private final boolean summarize;
+    private final boolean spill;
+    private final AtomicLong files = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    BatchAnalyzer(int threads, int maxInFlight, long streamingThreshold, Writer out) {
+        this(threads, maxInFlight, streamingThreshold, false, false, out);
+    }
+
+    BatchAnalyzer(int threads, int maxInFlight, long streamingThreshold, boolean summarize, boolean spill, Writer out) {
+        this.pool = Executors.newWorkStealingPool(threads);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.streamingThreshold = streamingThreshold;
+        this.summarize = summarize || spill;
+        this.spill = spill;
+        this.out = out;
+    }
+
+    static boolean isRequested(String[] args) {
+        return args.length > 0 && FLAG.equals(args[0]);
+    }
+
+    /** Ejecuta el modo por lotes con los argumentos de la línea de comandos y devuelve el código de salida. */
+    static int run(String[] args) {
+        Path root = null;
+        Path output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = -1;
+        long streamingMegabytes = DEFAULT_STREAMING_MEGABYTES;
+        boolean summarize = false;
+        boolean spill = false;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--salida":
+                        output = Paths.get(args[++i]);
+                        break;
+                    case "--hilos":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--en-vuelo":
+                        maxInFlight = Integer.parseInt(args[++i]);
+                        break;
+                    case "--por-partes":
+                        streamingMegabytes = Long.parseLong(args[++i]);
+                        break;
+                    case "--resumen":
+                        summarize = true;
+                        break;
+                    case "--volcar":
+                        spill = true;
+                        break;
+                    default:
+                        if (root != null) {
+                            return usage("Argumento desconocido: " + args[i]);
+                        }
+                        root = Paths.get(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            return usage("Argumentos inválidos.");
+        }
+        if (root == null || !Files.isDirectory(root)) {
+            return usage("Falta el directorio a analizar.");
+        }
+        if (maxInFlight <= 0) {
+            maxInFlight = threads * 4;
+        }
+
+        try (Writer out = output == null
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            BatchAnalyzer batch = new BatchAnalyzer(threads, maxInFlight, streamingMegabytes * 1024 * 1024,
+                    summarize, spill, out);
+            long start = System.nanoTime();
+            batch.analyzeTree(root);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            out.flush();
+            batch.printSummary(seconds);
+            return batch.failures.get() == 0 ? 0 : 1;
+        } catch (IOException ex) {
+            System.err.println("Error de E/S: " + ex.getMessage());
+            return 2;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    private static int usage(String message) {
+        System.err.println(message);
+        System.err.println("Uso: " + FLAG + " directorio [--salida archivo.jsonl] [--hilos N] [--en-vuelo N] [--por-partes MB] [--resumen] [--volcar]");
+        return 2;
+    }
+
+    /** Analiza todos los archivos bajo root (salvo directorios ocultos) y espera a que terminen. */
+    void analyzeTree(Path root) throws IOException, InterruptedException {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    Path name = dir.getFileName();
+                    if (!dir.equals(root) && name != null && name.toString().startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile()) {
+                        submit(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                    failures.incrementAndGet();
+                    write(errorRecord(file, ex));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+    }
+
+    // Bloquea el recorrido mientras haya demasiados archivos en vuelo
+    private void submit(Path file) throws IOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Recorrido interrumpido", ex);
+        }
+        pool.execute(() -> {
+            try {
+                analyze(file);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void analyze(Path file) {
+        String record;
+        try {
+            long size = Files.size(file);
+            long start = System.nanoTime();
+            if (size > streamingThreshold) {
+                record = streamedRecord(file, size, start);
+            } else {
+                byte[] content = Files.readAllBytes(file);
+                record = record(file, content.length, new String(content, StandardCharsets.UTF_8), start);
+            }
+            bytes.addAndGet(size);
+        } catch (IOException | RuntimeException | StackOverflowError ex) {
+            failures.incrementAndGet();
+            record = errorRecord(file, ex);
+        }
+        files.incrementAndGet();
+        write(record);
+    }
+
+    private String record(Path file, int size, String code, long start) throws IOException {
+        LanguageClassifier.Evidence evidence = LanguageClassifier.shared().classify(code);
+        String language = evidence.language();
+
+        StringBuilder record = new StringBuilder();
+        record.append("{\"path\":").append(quote(file.toString()));
+        record.append(",\"bytes\":").append(size);
+        appendLanguage(record, evidence);
+        if (language != null && summarize) {
+            appendSummaries(record, language, code, null);
+        } else if (language != null) {
+            AnalysisMonitor monitor = new AnalysisMonitor();
+            monitor.setLanguage(language);
+            CharSequence text = monitor.guard(code);
+            Map<ReportSection, String> sections;
+            List<String> mathematicalExpressions;
+            try {
+                monitor.beginPhase(AnalysisPhase.SECTIONS);
+                sections = analyzer.collectSections(code, text, language, monitor);
+                monitor.beginPhase(AnalysisPhase.MATHEMATICAL_EXPRESSIONS);
+                mathematicalExpressions = analyzer.findAllMathematicalExpressions(text, sections.get(ReportSection.VARIABLES));
+                monitor.countMatches(mathematicalExpressions.size());
+            } finally {
+                monitor.finish();
+            }
+            record.append(",\"sections\":{");
+            boolean first = true;
+            for (Map.Entry<ReportSection, String> section : sections.entrySet()) {
+                if (!first) {
+                    record.append(',');
+                }
+                first = false;
+                record.append(quote(section.getKey().name().toLowerCase(Locale.ROOT))).append(':').append(quote(section.getValue()));
+            }
+            record.append("},\"mathematical_expressions\":[");
+            for (int i = 0; i < mathematicalExpressions.size(); i++) {
+                if (i > 0) {
+                    record.append(',');
+                }
+                record.append(quote(mathematicalExpressions.get(i)));
+            }
+            record.append(']');
+            List<AnalysisPhase> truncated = monitor.truncatedPhases();
+            if (!truncated.isEmpty()) {
+                record.append(",\"truncated\":[");
+                for (int i = 0; i < truncated.size(); i++) {
+                    if (i > 0) {
+                        record.append(',');
+                    }
+                    record.append(quote(truncated.get(i).name().toLowerCase(Locale.ROOT)));
+                }
+                record.append(']');
+            }
+        }
+        record.append(",\"millis\":").append((System.nanoTime() - start) / 1_000_000);
+        record.append('}');
+        return record.toString();
+    }
+
+    // Registro de un archivo grande, leído dos veces por partes: primero se identifica el
+    // lenguaje y después se tokeniza con sus palabras clave. Con --resumen se lee una vez
+    // más para resumir sus secciones
+    private String streamedRecord(Path file, long size, long start) throws IOException {
+        LanguageClassifier.Evidence evidence = identifyStreamed(file);
+        String language = evidence.language();
+
+        StringBuilder record = new StringBuilder();
+        record.append("{\"path\":").append(quote(file.toString()));
+        record.append(",\"bytes\":").append(size);
+        record.append(",\"streamed\":true");
+        appendLanguage(record, evidence);
+        if (language != null) {
+            long[] counts = new long[TokenType.values().length];
+            TokenBuffer tokens = new TokenBuffer(AnalysisPipeline.BLOCK_SIZE);
+            try (StreamingSource source = StreamingSource.mapped(file, StandardCharsets.UTF_8)) {
+                Lexer lexer = new Lexer(source, language);
+                while (lexer.fill(tokens, AnalysisPipeline.BLOCK_SIZE) > 0) {
+                    for (int i = 0; i < tokens.size(); i++) {
+                        counts[tokens.type(i).ordinal()]++;
+                    }
+                    tokens.clear();
+                }
+            }
+            record.append(",\"tokens\":{");
+            for (TokenType type : TokenType.values()) {
+                if (type != TokenType.EOF) {
+                    record.append(type.ordinal() == 0 ? "" : ",");
+                    record.append(quote(type.name().toLowerCase(Locale.ROOT))).append(':').append(counts[type.ordinal()]);
+                }
+            }
+            record.append('}');
+            if (summarize) {
+                appendSummaries(record, language, null, file);
+            }
+        }
+        record.append(",\"millis\":").append((System.nanoTime() - start) / 1_000_000);
+        record.append('}');
+        return record.toString();
+    }
+
+    // Resúmenes de las secciones de code o, si es null, del archivo leído por tramos
+    private void appendSummaries(StringBuilder record, String language, String code, Path file) throws IOException {
+        AnalysisMonitor monitor = new AnalysisMonitor();
+        monitor.setLanguage(language);
+        try (SummarizedSections sections = new SummarizedSections(language, analyzer.getReservedWords(language), spill)) {
+            monitor.beginPhase(AnalysisPhase.SECTIONS);
+            if (code != null) {
+                sections.run(code, monitor);
+            } else {
+                try (Reader reader = new StreamingSource.MappedFileReader(file, StandardCharsets.UTF_8)) {
+                    sections.run(reader, monitor);
+                }
+            }
+            sections.appendJson(record);
+        } finally {
+            monitor.finish();
+        }
+    }
+
+    // Lenguaje de un archivo grande leído por partes, hasta que uno queda claramente adelante
+    static LanguageClassifier.Evidence identifyStreamed(Path file) throws IOException {
+        LanguageClassifier.Tally tally = LanguageClassifier.shared().newTally();
+        try (StreamingSource source = StreamingSource.mapped(file, StandardCharsets.UTF_8)) {
+            int position = 0;
+            while (source.has(position) && !tally.evidence().hasClearLeader()) {
+                int end = source.has(position + LanguageClassifier.EARLY_STOP_INTERVAL - 1)
+                        ? position + LanguageClassifier.EARLY_STOP_INTERVAL : source.length();
+                tally.add(source, position, end);
+                position = end;
+                source.release(position);
+            }
+        }
+        return tally.finish();
+    }
+
+    // Lenguaje identificado y la fracción del puntaje que le corresponde
+    private static void appendLanguage(StringBuilder record, LanguageClassifier.Evidence evidence) {
+        String language = evidence.language();
+        record.append(",\"language\":").append(language == null ? "null" : quote(language));
+        if (language != null) {
+            double confidence = evidence.ranking().get(0).getConfidence();
+            record.append(String.format(Locale.ROOT, ",\"confidence\":%.3f", confidence));
+        }
+    }
+
+    private static String errorRecord(Path file, Throwable ex) {
+        return "{\"path\":" + quote(file.toString()) + ",\"error\":" + quote(String.valueOf(ex)) + "}";
+    }
+
+    private void write(String record) {
+        synchronized (out) {
+            try {
+                out.write(record);
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new IllegalStateException("No se pudo escribir el registro", ex);
+            }
+        }
+    }
+
+    private void printSummary(double seconds) {
+        double megabytes = bytes.get() / (1024.0 * 1024.0);
+        System.err.printf(Locale.ROOT, "Archivos: %d, errores: %d, %.2f MB en %.2f s (%.1f archivos/s, %.2f MB/s)%n",
+                files.get(), failures.get(), megabytes, seconds, files.get() / seconds, megabytes / seconds);
+        for (AnalysisPhase phase : AnalysisPhase.values()) {
+            long count = AnalysisMonitor.truncationCount(phase);
+            if (count > 0) {
+                System.err.println("Presupuesto agotado en \"" + phase.getDescription() + "\": " + count + " archivos");
+            }
+        }
+    }
+
+    /** Cadena JSON entre comillas con los caracteres de control escapados. */
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Recorre las secciones de un código grande por tramos en un ForkJoinPool y une los
+ * resultados en el orden del texto, así el reporte es el mismo que el de una sola pasada.
+ *
+ * Los tramos empiezan en comienzos de línea donde ninguna coincidencia de los
+ * recolectores puede cruzar. El Lexer sin agrupar de los recolectores (Lexer.plain) no
+ * tiene tokens que sigan en la línea siguiente, así que cualquier comienzo de línea es
+ * un límite de token; lo que puede cruzar líneas son los \s de los patrones (\s+ entre
+ * una palabra clave y un nombre, \s* antes de '(' o '{', \s* después de '='). Esos
+ * huecos siempre siguen a un carácter de palabra, a '=' o a ')', de modo que un comienzo
+ * de línea cuyo último carácter anterior que no es \s es otro cualquiera (';', '{', '}',
+ * ':', ...) es un corte seguro. Los recolectores leen el código completo, así que pueden
+ * mirar más allá de su tramo.
+ */
+final class ChunkedAnalysis {
+    // Código más corto que esto se recorre en una sola pasada
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("analyzer.parallelThreshold", 4 * 1024 * 1024);
+    // Tramos de menos caracteres no compensan repartirlos
+    private static final int MIN_CHUNK = 256 * 1024;
+    // Tramos por hilo del pool, para repartir mejor si unos tardan más que otros
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ChunkedAnalysis() {
+    }
+
+    /** true si conviene recorrer code por tramos. */
+    static boolean applies(CharSequence code) {
+        return code.length() >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Corre un pipeline de newPipeline por tramo en el pool común y devuelve uno con el
+     * resultado de todo el código. Todos los pipelines tienen que ser iguales y
+     * isMergeable(); si no lo son, se recorre el código en una sola pasada.
+     */
+    static AnalysisPipeline run(String code, Supplier<AnalysisPipeline> newPipeline, AnalysisMonitor monitor) {
+        int chunks = Math.min(code.length() / MIN_CHUNK, ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD);
+        return run(code, newPipeline, monitor, Math.max(chunks, 1));
+    }
+
+    static AnalysisPipeline run(String code, Supplier<AnalysisPipeline> newPipeline, AnalysisMonitor monitor, int chunks) {
+        int[] cuts = cuts(code, chunks);
+        AnalysisPipeline total = newPipeline.get();
+        if (cuts.length == 2 || !total.isMergeable()) {
+            total.run(code, monitor);
+            return total;
+        }
+        // Fuera del pool, fork() encola en el pool común
+        List<ForkJoinTask<AnalysisPipeline>> tasks = new ArrayList<>();
+        for (int i = 1; i < cuts.length - 1; i++) {
+            tasks.add(new ChunkTask(code, cuts[i], cuts[i + 1], newPipeline.get(), monitor).fork());
+        }
+        total.run(code, cuts[0], cuts[1], monitor);
+        // Cada tramo se absorbe una sola vez y en orden, mientras los siguientes siguen corriendo
+        for (ForkJoinTask<AnalysisPipeline> task : tasks) {
+            total.absorb(task.join());
+        }
+        return total;
+    }
+
+    /**
+     * Posiciones de corte en orden, empezando por 0 y terminando en code.length(): cerca
+     * de cada k * largo / chunks, en el primer corte seguro que sigue. Puede haber menos
+     * tramos que chunks si no aparecen cortes seguros.
+     */
+    static int[] cuts(CharSequence code, int chunks) {
+        int length = code.length();
+        List<Integer> cuts = new ArrayList<>();
+        cuts.add(0);
+        int previous = 0;
+        for (int k = 1; k < chunks; k++) {
+            int target = (int) ((long) length * k / chunks);
+            int cut = nextCut(code, Math.max(target, previous + 1));
+            if (cut >= length) {
+                break;
+            }
+            cuts.add(cut);
+            previous = cut;
+        }
+        cuts.add(length);
+        int[] result = new int[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+
+    // Primer corte seguro en from o después, o code.length() si no hay
+    static int nextCut(CharSequence code, int from) {
+        int length = code.length();
+        if (from >= length) {
+            return length;
+        }
+        // Último carácter antes de from que no es \s; 0 si no hay ninguno
+        char last = 0;
+        for (int i = from - 1; i >= 0; i--) {
+            char c = code.charAt(i);
+            if (!SectionCollectors.isSpace(c)) {
+                last = c;
+                break;
+            }
+        }
+        for (int i = from; i < length; i++) {
+            char c = code.charAt(i);
+            boolean lineEnd = c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029'
+                    || (c == '\r' && (i + 1 == length || code.charAt(i + 1) != '\n'));
+            if (lineEnd && isSafeAfter(last) && i + 1 < length) {
+                return i + 1;
+            }
+            if (!SectionCollectors.isSpace(c)) {
+                last = c;
+            }
+        }
+        return length;
+    }
+
+    // Ningún hueco \s de una coincidencia puede seguir a last
+    private static boolean isSafeAfter(char last) {
+        return !(SectionCollectors.isBoundaryChar(last) || last == '=' || last == ')');
+    }
+
+    /** Recorre el tramo [start, end) con su propio pipeline. */
+    private static final class ChunkTask extends RecursiveTask<AnalysisPipeline> {
+        private static final long serialVersionUID = 1L;
+
+        private final String code;
+        private final int start;
+        private final int end;
+        private final AnalysisPipeline pipeline;
+        private final AnalysisMonitor monitor;
+
+        ChunkTask(String code, int start, int end, AnalysisPipeline pipeline, AnalysisMonitor monitor) {
+            this.code = code;
+            this.start = start;
+            this.end = end;
+            this.pipeline = pipeline;
+            this.monitor = monitor;
+        }
+
+        @Override
+        protected AnalysisPipeline compute() {
+            pipeline.run(code, start, end, monitor);
+            return pipeline;
+        }
+    }
+}
@@ -1,36 +1,135 @@
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class CodeAnalyzer implements ActionListener {
+    // Con -Danalyzer.regexScans=true cada sección se calcula con su expresión regular
+    // original (una pasada por sección) en lugar del pipeline de tokens, y las expresiones
+    // matemáticas con la alternancia de todas las variables en lugar de ArithmeticExpressions.
+    static final boolean REGEX_SCANS = Boolean.getBoolean("analyzer.regexScans");
+
+    // Un archivo más grande se muestra de solo lectura en sourceList en lugar de codeInput
+    private static final int MAX_EDITABLE_CHARS = 1 << 20;
+    private static final String EDITOR_CARD = "editor";
+    private static final String FILE_CARD = "archivo";
+
     private JTextArea codeInput;
-    private JTextArea resultOutput;
-    private Map<String, Set<String>> reservedWords;
-    private Map<String, String> symbolTable;
+    private ResultsView resultsView;
+    private JPanel codePanel;
+    private JList<String> sourceList;
+    private JLabel sourceLabel;
+    // Archivo grande abierto; mientras no es null se analiza este en lugar de codeInput
+    private SourceFile source;
+    private FileWorker fileWorker;
+    // Nunca se modifica: setReservedWords lo reemplaza por una copia, así un análisis en
+    // curso ve siempre la misma configuración y la caché puede compararla por identidad
+    private volatile Map<String, Set<String>> reservedWords = LanguageProfile.reservedWords();
+    // null si la caché está desactivada
+    private final AnalysisCache cache;
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
+    private JButton cancelButton;
+    private AnalysisWorker currentWorker;
+    private JCheckBox liveCheckBox;
+    private LiveAnalysis liveAnalysis;
+    private boolean liveReportPending;
+    private long lastPatternCompilations;
 
     public CodeAnalyzer() {
+        this(true, AnalysisCache.configured());
+    }
+
+    // Sin ventana ni caché, para el modo por lotes
+    static CodeAnalyzer headless() {
+        return new CodeAnalyzer(false, null);
+    }
+
+    // Sin ventana, con una caché que se puede compartir entre analizadores
+    static CodeAnalyzer headless(AnalysisCache cache) {
+        return new CodeAnalyzer(false, cache);
+    }
+
+    private CodeAnalyzer(boolean withWindow, AnalysisCache cache) {
+        this.cache = cache;
+        if (withWindow) {
+            createWindow();
+        }
+    }
+
+    private void createWindow() {
         JFrame frame = new JFrame("IDECODEC - Identificador de Lenguajes de Programación");
 
         codeInput = new JTextArea(20, 30);
-        resultOutput = new JTextArea(20, 30);
-        resultOutput.setEditable(false);
+        resultsView = new ResultsView(this::showError);
+        resultsView.setPreferredSize(new Dimension(400, 320));
 
         JButton analyzeButton = new JButton("Analizar Código");
         analyzeButton.addActionListener(this);
+        JButton openButton = new JButton("Abrir archivo...");
+        openButton.addActionListener(e -> openFile(frame));
+        cancelButton = new JButton("Cancelar");
+        cancelButton.setEnabled(false);
+        cancelButton.addActionListener(e -> {
+            cancelAnalysis();
+            statusLabel.setText("Análisis cancelado.");
+        });
+
+        JButton wordsButton = new JButton("Palabras reservadas...");
+        wordsButton.addActionListener(e -> chooseReservedWords(frame));
+        liveCheckBox = new JCheckBox("Análisis en vivo");
+        liveCheckBox.addActionListener(e -> setLiveAnalysis(liveCheckBox.isSelected()));
+
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 5));
+        buttonPanel.add(analyzeButton);
+        buttonPanel.add(openButton);
+        buttonPanel.add(cancelButton);
+        buttonPanel.add(wordsButton);
+        buttonPanel.add(liveCheckBox);
+
+        // El archivo grande se recorre como una lista de líneas: solo se dibujan las visibles
+        sourceList = ResultsView.rowList(new DefaultListModel<>());
+        sourceLabel = new JLabel();
+        JButton closeButton = new JButton("Cerrar archivo");
+        closeButton.addActionListener(e -> closeFile());
+        JPanel fileHeader = new JPanel(new BorderLayout());
+        fileHeader.add(sourceLabel, BorderLayout.CENTER);
+        fileHeader.add(closeButton, BorderLayout.EAST);
+        JPanel filePanel = new JPanel(new BorderLayout());
+        filePanel.add(fileHeader, BorderLayout.NORTH);
+        filePanel.add(new JScrollPane(sourceList), BorderLayout.CENTER);
+
+        codePanel = new JPanel(new CardLayout());
+        codePanel.add(new JScrollPane(codeInput), EDITOR_CARD);
+        codePanel.add(filePanel, FILE_CARD);
 
         JPanel inputPanel = new JPanel(new BorderLayout());
         inputPanel.add(new JLabel("Ingrese el código:"), BorderLayout.NORTH);
-        inputPanel.add(new JScrollPane(codeInput), BorderLayout.CENTER);
-        inputPanel.add(analyzeButton, BorderLayout.SOUTH);
+        inputPanel.add(codePanel, BorderLayout.CENTER);
+        inputPanel.add(buttonPanel, BorderLayout.SOUTH);
 
         JPanel outputPanel = new JPanel(new BorderLayout());
         outputPanel.add(new JLabel("Resultado del análisis:"), BorderLayout.NORTH);
-        outputPanel.add(new JScrollPane(resultOutput), BorderLayout.CENTER);
+        outputPanel.add(resultsView, BorderLayout.CENTER);
+        statusLabel = new JLabel(" ");
+        progressBar = new JProgressBar(0, AnalysisPhase.values().length);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(progressBar, BorderLayout.NORTH);
+        statusPanel.add(statusLabel, BorderLayout.SOUTH);
+        outputPanel.add(statusPanel, BorderLayout.SOUTH);
 
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, inputPanel, outputPanel);
         splitPane.setDividerLocation(400);
@@ -40,306 +139,494 @@ public class CodeAnalyzer implements ActionListener {
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+    }
+
+    /**
+     * Reemplaza las palabras reservadas de un lenguaje. Los reportes en caché calculados
+     * con las anteriores ya no coinciden con la configuración y dejan de usarse. Con
+     * ventana se llama desde el hilo de eventos de Swing.
+     */
+    void setReservedWords(String language, Set<String> words) {
+        Map<String, Set<String>> updated = new HashMap<>(reservedWords);
+        updated.put(language, Collections.unmodifiableSet(new LinkedHashSet<>(words)));
+        reservedWords = updated;
+        if (liveAnalysis != null) {
+            setLiveAnalysis(true);
+        }
+    }
+
+    /**
+     * Toma las palabras reservadas de un texto con el formato de lenguajes.txt, para probar
+     * otras sin reiniciar. Solo cambian las de los lenguajes que ya existen: las firmas y
+     * los extractores siguen siendo los del arranque. Devuelve cuántos lenguajes cambió.
+     */
+    int loadReservedWords(String text) {
+        int loaded = 0;
+        for (LanguageProfile profile : LanguageProfile.parse(text)) {
+            if (LanguageProfile.forName(profile.getName()) != null) {
+                setReservedWords(profile.getName(), profile.getReservedWords());
+                loaded++;
+            }
+        }
+        return loaded;
+    }
 
-        reservedWords = new HashMap<>();
-        symbolTable = new HashMap<>();
-        initializeReservedWords();
+    /** Palabras reservadas configuradas para el lenguaje. */
+    Set<String> getReservedWords(String language) {
+        return reservedWords.get(language);
     }
 
-    private void initializeReservedWords() {
-        reservedWords.put("PL/SQL", Set.of("CREATE", "TABLE", "SELECT", "INSERT", "UPDATE", "DELETE", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "JOIN"));
-        reservedWords.put("T-SQL", Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "ON", "GROUP", "BY", "ORDER", "HAVING"));
-        reservedWords.put("C++", Set.of("include", "int", "float", "double", "char", "void", "if", "else", "for", "while", "do", "switch", "case", "default", "break", "continue", "return", "class", "public", "private", "protected", "new", "delete"));
-        reservedWords.put("Pascal", Set.of("program", "begin", "end", "var", "integer", "real", "boolean", "char", "string", "if", "then", "else", "for", "to", "do", "while", "repeat", "until", "case", "of", "function", "procedure", "array", "record"));
-        reservedWords.put("JavaScript", Set.of("function", "var", "let", "const", "if", "else", "switch", "case", "default", "for", "while", "do", "break", "continue", "return", "class", "new", "this", "super", "import", "export"));
-        reservedWords.put("HTML", Set.of("html", "head", "title", "body", "div", "span", "h1", "h2", "h3", "h4", "h5", "h6", "p", "a", "img", "ul", "ol", "li", "table", "tr", "td", "th", "form", "input", "button"));
-        reservedWords.put("Python", Set.of("def", "class", "if", "elif", "else", "while", "for", "break", "continue", "return", "import", "from", "as", "try", "except", "finally", "with", "lambda", "yield", "global", "nonlocal"));
+    // El candidato con más evidencia según LanguageClassifier, no el primer perfil cuya firma
+    // aparece. Deja de leer cuando un lenguaje queda claramente adelante.
+    String identifyLanguage(CharSequence code) {
+        return LanguageClassifier.shared().classifyEarly(code).language();
     }
 
-    private String identifyLanguage(String code) {
-        if (Pattern.compile(".*\\bCREATE\\s+TABLE\\b.*").matcher(code).find()) {
-            return "PL/SQL";
+            @Override
+    public void actionPerformed(ActionEvent e) {
+        // Un clic nuevo reemplaza al análisis en curso en lugar de esperar a que termine
+        cancelAnalysis();
+        currentWorker = new AnalysisWorker(source != null ? source.getText() : codeInput.getText());
+        cancelButton.setEnabled(true);
+        progressBar.setMaximum(AnalysisPhase.values().length);
+        statusLabel.setText("Analizando...");
+        currentWorker.execute();
+    }
+
+    // Lee el archivo elegido fuera del hilo de eventos, con el avance en la barra de progreso
+    private void openFile(Component parent) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        cancelAnalysis();
+        fileWorker = new FileWorker(chooser.getSelectedFile());
+        cancelButton.setEnabled(true);
+        progressBar.setMaximum(100);
+        progressBar.setString("Leyendo " + chooser.getSelectedFile().getName());
+        statusLabel.setText("Abriendo archivo...");
+        fileWorker.execute();
+    }
+
+    // Palabras reservadas de un archivo con el formato de lenguajes.txt elegido por el usuario
+    private void chooseReservedWords(Component parent) {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            int loaded = loadReservedWords(Files.readString(chooser.getSelectedFile().toPath(), StandardCharsets.UTF_8));
+            statusLabel.setText("Palabras reservadas de " + loaded + " lenguajes tomadas de " + chooser.getSelectedFile().getName());
+        } catch (IOException | IllegalArgumentException ex) {
+            statusLabel.setText("No se pudieron tomar las palabras reservadas: " + ex.getMessage());
         }
-        if (Pattern.compile(".*\\b(SELECT|INSERT|UPDATE|DELETE)\\b.*").matcher(code).find()) {
-            return "T-SQL";
+    }
+
+    // Un archivo chico se edita en codeInput; uno grande queda en la lista de solo lectura
+    private void showFile(SourceFile file) {
+        if (file.getText().length() <= MAX_EDITABLE_CHARS) {
+            closeFile();
+            codeInput.setText(file.getText());
+            codeInput.setCaretPosition(0);
+            return;
+        }
+        setLiveAnalysis(false);
+        liveCheckBox.setSelected(false);
+        liveCheckBox.setEnabled(false);
+        source = file;
+        sourceList.setModel(new ResultsView.LinesModel(file.getLines(), true));
+        sourceLabel.setText(file.getPath().getFileName() + ": " + file.getLines().count() + " líneas, "
+                + file.getText().length() + " caracteres (solo lectura)");
+        ((CardLayout) codePanel.getLayout()).show(codePanel, FILE_CARD);
+    }
+
+    private void closeFile() {
+        source = null;
+        sourceList.setModel(new DefaultListModel<>());
+        liveCheckBox.setEnabled(true);
+        ((CardLayout) codePanel.getLayout()).show(codePanel, EDITOR_CARD);
+    }
+
+    // Lleva al código la línea y columna de un error elegido en la pestaña Errores
+    private void showError(Diagnostic error) {
+        int line = error.getLine() - 1;
+        if (source != null) {
+            if (line < sourceList.getModel().getSize()) {
+                sourceList.setSelectedIndex(line);
+                sourceList.ensureIndexIsVisible(line);
+            }
+            return;
         }
-        if (Pattern.compile(".*#include\\b.*|.*\\b(cout|cin)\\b.*").matcher(code).find()) {
-            return "C++";
+        try {
+            int offset = codeInput.getLineStartOffset(line) + error.getColumn() - 1;
+            codeInput.requestFocusInWindow();
+            codeInput.setCaretPosition(Math.min(offset, codeInput.getLineEndOffset(line)));
+        } catch (BadLocationException ex) {
+            // El código cambió después del análisis
         }
-        if (Pattern.compile(".*\\b(program|begin|end)\\b.*").matcher(code).find()) {
-            return "Pascal";
+    }
+
+    private void setLiveAnalysis(boolean enabled) {
+        if (liveAnalysis != null) {
+            codeInput.getDocument().removeDocumentListener(liveAnalysis);
+            liveAnalysis = null;
         }
-        if (Pattern.compile(".*\\b(function|debugger|extends)\\b.*").matcher(code).find()) {
-            return "JavaScript";
+        if (enabled) {
+            liveAnalysis = new LiveAnalysis(codeInput.getDocument(), reservedWords, this::showLiveReport);
+            codeInput.getDocument().addDocumentListener(liveAnalysis);
+            showLiveReport();
         }
-        if (Pattern.compile(".*<(html|body|script)>.*").matcher(code).find()) {
-            return "HTML";
+    }
+
+    // Varias ediciones seguidas (por ejemplo, al pegar) se muestran con un solo setText
+    private void showLiveReport() {
+        if (liveReportPending) {
+            return;
+        }
+        liveReportPending = true;
+        SwingUtilities.invokeLater(() -> {
+            liveReportPending = false;
+            if (liveAnalysis != null) {
+                resultsView.showText(liveAnalysis.report());
+                statusLabel.setText("Análisis en vivo: " + liveAnalysis.getLastRetokenizedLines() + " líneas tokenizadas en la última edición");
+            }
+        });
+    }
+
+    private void cancelAnalysis() {
+        if (currentWorker != null) {
+            currentWorker.monitor.cancel();
+            currentWorker.cancel(true);
+            currentWorker = null;
         }
-        if (Pattern.compile(".*\\b(def|return|import)\\b.*").matcher(code).find()) {
-            return "Python";
+        if (fileWorker != null) {
+            fileWorker.cancel(true);
+            fileWorker = null;
         }
-        return null;
+        cancelButton.setEnabled(false);
+        progressBar.setValue(0);
+        progressBar.setString("");
     }
 
-            @Override
-    public void actionPerformed(ActionEvent e) {
-        String code = codeInput.getText();
-        String result = analyzeCode(code);
-        resultOutput.setText(result);
+    // Ejecuta analyzeCode fuera del hilo de eventos de Swing e informa el avance por fase.
+    // El resultado queda para las pestañas de ResultsView, que piden sus secciones después.
+    private class AnalysisWorker extends SwingWorker<TextLines, AnalysisPhase> {
+        private final String code;
+        private final AnalysisMonitor monitor = new AnalysisMonitor(phase -> publish(phase));
+        private AnalysisResult result;
+        private long compilations;
+
+        AnalysisWorker(String code) {
+            this.code = code;
+        }
+
+        @Override
+        protected TextLines doInBackground() {
+            long compilationsBefore = PatternCatalog.compilationCount();
+            result = new AnalysisResult(CodeAnalyzer.this, code, reservedWords, monitor);
+            String report = report(result, monitor);
+            compilations = PatternCatalog.compilationCount() - compilationsBefore;
+            // Las líneas del reporte se indexan aquí y no en el hilo de eventos
+            return new TextLines(report);
+        }
+
+        @Override
+        protected void process(List<AnalysisPhase> phases) {
+            if (this != currentWorker) {
+                return;
+            }
+            AnalysisPhase phase = phases.get(phases.size() - 1);
+            progressBar.setValue(phase.ordinal());
+            progressBar.setString(phase.getDescription());
+        }
+
+        @Override
+        protected void done() {
+            // Un análisis reemplazado o cancelado no toca la interfaz
+            if (this != currentWorker) {
+                return;
+            }
+            currentWorker = null;
+            cancelButton.setEnabled(false);
+            try {
+                resultsView.showResult(get(), result);
+                lastPatternCompilations = compilations;
+                progressBar.setValue(progressBar.getMaximum());
+                progressBar.setString("Listo");
+                String status = "Compilaciones de patrones en este análisis: " + lastPatternCompilations;
+                if (cache != null) {
+                    status += ". " + cache;
+                }
+                List<AnalysisPhase> truncated = monitor.truncatedPhases();
+                if (!truncated.isEmpty()) {
+                    status += ". Resultado parcial en: " + AnalysisMonitor.describe(truncated);
+                }
+                statusLabel.setText(status);
+            } catch (CancellationException ex) {
+                statusLabel.setText("Análisis cancelado.");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                progressBar.setString("");
+                statusLabel.setText("Error durante el análisis: " + ex.getCause());
+            }
+        }
     }
 
-    private String analyzeCode(String code) {
-        String language = identifyLanguage(code);
-        if (language == null) {
-            return "Lenguaje no identificado.";
+    // Lee un archivo con SourceFile e informa el porcentaje leído
+    private class FileWorker extends SwingWorker<SourceFile, Integer> {
+        private final File file;
+
+        FileWorker(File file) {
+            this.file = file;
         }
 
-        StringBuilder result = new StringBuilder();
-        result.append("Lenguaje identificado: ").append(language).append("\n");
+        @Override
+        protected SourceFile doInBackground() throws Exception {
+            return SourceFile.read(file.toPath(), this::publish);
+        }
+
+        @Override
+        protected void process(List<Integer> percentages) {
+            if (this == fileWorker) {
+                progressBar.setValue(percentages.get(percentages.size() - 1));
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (this != fileWorker) {
+                return;
+            }
+            fileWorker = null;
+            cancelButton.setEnabled(false);
+            progressBar.setValue(0);
+            progressBar.setString("");
+            try {
+                showFile(get());
+                statusLabel.setText("Archivo abierto: " + file.getName());
+            } catch (CancellationException ex) {
+                statusLabel.setText("Apertura cancelada.");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                statusLabel.setText("No se pudo abrir el archivo: " + ex.getCause().getMessage());
+            }
+        }
+    }
 
-        result.append("Palabras reservadas: ").append(findReservedWords(code, language)).append("\n");
-        result.append("Expresiones lógicas: ").append(findLogicalExpressions(code)).append("\n");
-        result.append("Expresiones matemáticas: ").append(findAllMathematicalExpressions(code, language)).append("\n");
-        result.append("Variables: ").append(findVariables(code, language)).append("\n");
-        result.append("Constantes: ").append(findConstants(code, language)).append("\n");
-        result.append("Funciones: ").append(findFunctions(code, language)).append("\n");
-        result.append("Clases: ").append(findClasses(code, language)).append("\n");
-        result.append("Ciclos: ").append(findLoops(code, language)).append("\n");
-        result.append("Condicionales: ").append(findConditionals(code, language)).append("\n");
-        result.append("CRUD: ").append(findCRUDOperations(code, language)).append("\n");
+    String analyzeCode(String code) {
+        return analyzeCode(code, new AnalysisMonitor());
+    }
 
-        String lexicalErrors = performLexicalAnalysis(code, language);
-        String syntaxErrors = performSyntaxAnalysis(code, language);
-        String semanticErrors = performSemanticAnalysis(code, language);
+    /**
+     * Resultado del código por secciones, sin calcular nada todavía: cada sección se calcula
+     * la primera vez que se pide. Usa las palabras reservadas configuradas al llamarlo.
+     */
+    AnalysisResult analysis(String code) {
+        return analysis(code, new AnalysisMonitor());
+    }
 
-        result.append("Tabla de símbolos: ").append(symbolTable).append("\n");
+    /** Como analysis(code), con un monitor que quien llama cierra con finish(). */
+    AnalysisResult analysis(String code, AnalysisMonitor monitor) {
+        return new AnalysisResult(this, code, reservedWords, monitor);
+    }
+
+    private String analyzeCode(String code, AnalysisMonitor monitor) {
+        return report(new AnalysisResult(this, code, reservedWords, monitor), monitor);
+    }
 
-        if (lexicalErrors.isEmpty() && syntaxErrors.isEmpty() && semanticErrors.isEmpty()) {
-            result.append("Código válido.\nSimulación: ").append(simulateExecution(code, language));
-        } else {
-            result.append("Errores:\n").append(lexicalErrors).append(syntaxErrors).append(semanticErrors);
+    // Con caché, el mismo código con las mismas palabras reservadas devuelve el reporte guardado
+    private String report(AnalysisResult analysis, AnalysisMonitor monitor) {
+        if (cache == null) {
+            return analyze(analysis, monitor);
+        }
+        Map<String, Set<String>> words = analysis.getReservedWords();
+        AnalysisCache.Key key = AnalysisCache.key(analysis.getCode(), words);
+        String result = cache.get(key, analysis.getCode());
+        if (result == null) {
+            result = analyze(analysis, monitor);
+            // Si la configuración cambió durante el análisis, el reporte puede mezclar las dos
+            if (reservedWords == words) {
+                cache.put(key, analysis.getCode(), result);
+            }
         }
+        return result;
+    }
 
-        return result.toString();
+    private static String analyze(AnalysisResult analysis, AnalysisMonitor monitor) {
+        try {
+            return analysis.report();
+        } finally {
+            monitor.finish();
+        }
     }
 
-    private String findReservedWords(String code, String language) {
+    // Calcula las secciones del reporte que dependen solo del texto, en una sola pasada del Lexer
+    Map<ReportSection, String> collectSections(String code, CharSequence text, String language, AnalysisMonitor monitor) {
+        Map<ReportSection, String> sections = new EnumMap<>(ReportSection.class);
+        if (REGEX_SCANS) {
+            for (ReportSection section : ReportSection.values()) {
+                sections.put(section, regexSection(text, language, section));
+            }
+            return sections;
+        }
+
+        AnalysisPipeline pipeline = runPipeline(code, language, reservedWords.get(language), EnumSet.allOf(ReportSection.class), monitor);
+        for (ReportSection section : ReportSection.values()) {
+            sections.put(section, pipeline.result(section));
+        }
+        return sections;
+    }
+
+    // Una pasada del Lexer con los recolectores de las secciones pedidas; un código grande
+    // se recorre por tramos en paralelo
+    static AnalysisPipeline runPipeline(String code, String language, Set<String> words, Set<ReportSection> sections,
+                                        AnalysisMonitor monitor) {
+        if (ChunkedAnalysis.applies(code)) {
+            return ChunkedAnalysis.run(code, () -> AnalysisPipeline.forLanguage(language, words, sections), monitor);
+        }
+        AnalysisPipeline pipeline = AnalysisPipeline.forLanguage(language, words, sections);
+        pipeline.run(code, monitor);
+        return pipeline;
+    }
+
+    // Texto de una sección con su expresión regular original (-Danalyzer.regexScans=true)
+    String regexSection(CharSequence text, String language, ReportSection section) {
+        switch (section) {
+            case RESERVED_WORDS:
+                return findReservedWords(text, language);
+            case LOGICAL_EXPRESSIONS:
+                return findLogicalExpressions(text).toString();
+            case VARIABLES:
+                return findVariables(text, language);
+            case CONSTANTS:
+                return findConstants(text, language);
+            case FUNCTIONS:
+                return findFunctions(text, language);
+            case LOOPS:
+                return findLoops(text, language);
+            case CONDITIONALS:
+                return findConditionals(text, language);
+            case CRUD:
+                return findCRUDOperations(text, language);
+            case LEXICAL:
+                return performLexicalAnalysis(text, language);
+            default:
+                throw new IllegalArgumentException("Sección desconocida: " + section);
+        }
+    }
+
+    String findReservedWords(CharSequence code, String language) {
         Set<String> keywords = reservedWords.get(language);
         StringBuilder foundKeywords = new StringBuilder();
         for (String keyword : keywords) {
-            if (code.contains(keyword)) {
+            if (code.toString().contains(keyword)) {
                 foundKeywords.append(keyword).append(" ");
             }
         }
         return foundKeywords.toString().trim();
     }
 
-    private List<String> findLogicalExpressions(String code) {
-        List<String> logicalExpressions = new ArrayList<>();
-        String regex = "(&&)|(\\|\\|)|(==)|(!=)|(<)|(>)";
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(code);
-
-        while (matcher.find()) {
-            logicalExpressions.add(matcher.group());
-        }
-
-        return logicalExpressions;
+    List<String> findLogicalExpressions(CharSequence code) {
+        return findAll(PatternCatalog.LOGICAL_OPERATOR.matcher(code));
     }
 
-    private List<String> findAllMathematicalExpressions(String code, String language) {
-        List<String> variables = Arrays.asList(findVariables(code, language).split(",\\s"));
+    List<String> findAllMathematicalExpressions(CharSequence code, String foundVariables) {
+        List<String> variables = Arrays.asList(PatternCatalog.LIST_SEPARATOR.split(foundVariables));
+        if (!REGEX_SCANS) {
+            List<String> matches = new ArrayList<>();
+            try {
+                new ArithmeticExpressions(variables).findAll(code, matches);
+            } catch (AnalysisMonitor.BudgetExhaustedException ex) {
+                // Quedan las expresiones encontradas hasta ahí
+            }
+            return matches;
+        }
         String variablePattern = String.join("|", variables);
 
-        Pattern pattern = Pattern.compile("((?<=\\s)|(?<=^))((" + variablePattern + ")|(-?\\d+\\.?\\d*))(?:\\s*[-+*/()]\\s*((" + variablePattern + ")|(-?\\d+\\.?\\d*)))*(?=(\\s|$))");
-        Matcher matcher = pattern.matcher(code);
-        List<String> matches = new ArrayList<>();
-        while (matcher.find()) {
-            matches.add(matcher.group());
-        }
-        return matches;
+        Pattern pattern = PatternCatalog.dynamic("((?<=\\s)|(?<=^))((" + variablePattern + ")|(-?\\d+\\.?\\d*))(?:\\s*[-+*/()]\\s*((" + variablePattern + ")|(-?\\d+\\.?\\d*)))*(?=(\\s|$))");
+        return findAll(pattern.matcher(code));
     }
 
-    private String findVariables(String code, String language) {
-        Pattern pattern = null;
-        switch (language) {
-            case "PL/SQL":
-            case "T-SQL":
-                pattern = Pattern.compile("\\s*[^\\W]([a-zA-Z_][\\w]*|@\\w*)\\b");
-                break;
-            case "C++":
-            case "Java":
-                pattern = Pattern.compile("\\b(class|int|float|double|char|string|void)\\s+([a-zA-Z_][\\w]*)\\b");
-                break;
-            case "JavaScript":
-                pattern = Pattern.compile("\\b(var|let|const)\\s+([a-zA-Z_$][\\w$]*)\\b");
-                break;
-            case "Python":
-                pattern = Pattern.compile("\\b([a-zA-Z_][\\w]*)\\s*=\\s*");
-                break;
-            default:
-                return "El lenguaje " + language + " no está soportado.";
+    String findVariables(CharSequence code, String language) {
+        Pattern pattern = LanguageProfile.forName(language).getVariables();
+        if (pattern == null) {
+            return "El lenguaje " + language + " no está soportado.";
         }
 
-        Matcher matcher = pattern.matcher(code);
         Set<String> variables = new HashSet<>();
-        while (matcher.find()) {
-            variables.add(matcher.group().trim());
+        for (String match : findAll(pattern.matcher(code))) {
+            variables.add(match.trim());
         }
         return String.join(", ", variables);
     }
 
-    private String findConstants(String code, String language) {
-        Pattern pattern = null;
-        switch (language) {
-            case "Java":
-                pattern = Pattern.compile("\\bfinal\\s+\\w+\\s+\\w+"); // final int MY_CONSTANT
-                break;
-            case "C++":
-                pattern = Pattern.compile("\\bconst\\s+\\w+\\s+\\w+"); // const int MY_CONSTANT
-                break;
-            case "Python":
-                pattern = Pattern.compile("\\b\\w+\\s*=\\s*\\d+"); // MY_CONSTANT = 100
-                break;
-            case "JavaScript":
-                pattern = Pattern.compile("\\bconst\\s+\\w+\\b"); // const MY_CONSTANT
-                break;
-        }
+    String findConstants(CharSequence code, String language) {
+        Pattern pattern = LanguageProfile.forName(language).getConstants();
         if (pattern == null) {
             return "No implementado para " + language;
         }
 
-        Matcher matcher = pattern.matcher(code);
         Set<String> constants = new HashSet<>();
-        while (matcher.find()) {
-            constants.add(matcher.group().trim());
+        for (String match : findAll(pattern.matcher(code))) {
+            constants.add(match.trim());
         }
         return String.join(", ", constants);
     }
 
-    private String findFunctions(String code, String language) {
-        Pattern pattern = null;
-        switch (language) {
-            case "C++":
-            case "Java":
-                pattern = Pattern.compile("\\b\\w+\\s*\\(.*?\\)\\s*\\{");
-                break;
-            case "Python":
-                pattern = Pattern.compile("\\bdef\\s+\\w+\\s*\\(.*?\\):");
-                break;
-            case "JavaScript":
-                pattern = Pattern.compile("\\bfunction\\s+\\w+\\s*\\(.*?\\)\\s*\\{");
-                break;
-            default:
-                return "El lenguaje " + language + " no está soportado.";
+    String findFunctions(CharSequence code, String language) {
+        Pattern pattern = LanguageProfile.forName(language).getFunctions();
+        if (pattern == null) {
+            return "El lenguaje " + language + " no está soportado.";
         }
 
-        Matcher matcher = pattern.matcher(code);
-        List<String> functions = new ArrayList<>();
-        while (matcher.find()) {
-            functions.add(matcher.group());
-        }
-        return String.join(", ", functions);
+        return String.join(", ", findAll(pattern.matcher(code)));
     }
 
-    private String findClasses(String code, String language) {
+    String findClasses(CharSequence code, String language) {
         // Implementar lógica para encontrar clases según el lenguaje identificado
         return "No implementado para " + language;
     }
 
-    private String findLoops(String code, String language) {
-        Pattern pattern = null;
-        switch (language) {
-            case "Java":
-            case "C++":
-            case "JavaScript":
-                pattern = Pattern.compile("\\b(for|while|do)\\b.*\\{");
-                break;
-            case "Python":
-                pattern = Pattern.compile("\\b(for|while)\\b.*:");
-                break;
-            default:
-                return "El lenguaje " + language + " no está soportado.";
-        }
-
-        Matcher matcher = pattern.matcher(code);
-        List<String> loops = new ArrayList<>();
-        while (matcher.find()) {
-            loops.add(matcher.group());
-        }
-        return String.join(", ", loops);
-    }
-
-    private String findConditionals(String code, String language) {
-        Pattern pattern = null;
-        switch (language) {
-            case "Java":
-            case "C++":
-            case "JavaScript":
-                pattern = Pattern.compile("\\b(if|else if|else|switch)\\b.*\\{");
-                break;
-            case "Python":
-                pattern = Pattern.compile("\\b(if|elif|else):");
-                break;
-            case "PL/SQL":
-            case "T-SQL":
-                pattern = Pattern.compile("(CASE|WHEN|THEN|ELSE|END)\\b", Pattern.CASE_INSENSITIVE);
-                break;
-            default:
-                return "The language " + language + " is not supported.";
+    String findLoops(CharSequence code, String language) {
+        Pattern pattern = LanguageProfile.forName(language).getLoops();
+        if (pattern == null) {
+            return "El lenguaje " + language + " no está soportado.";
         }
 
-        Matcher matcher = pattern.matcher(code);
-        List<String> conditionals = new ArrayList<>();
-        while (matcher.find()) {
-            conditionals.add(matcher.group());
-        }
-        return String.join(", ", conditionals);
+        return String.join(", ", findAll(pattern.matcher(code)));
     }
 
-    private String findCRUDOperations(String code, String language) {
-        Pattern pattern = null;
-        switch (language) {
-            case "Python":
-                pattern = Pattern.compile("\\bdef\\b\\s*(create|read|update|delete)(\\w*)\\s*\\(");
-                break;
-            case "PL/SQL":
-            case "T-SQL":
-                pattern = Pattern.compile("\\b(INSERT INTO|SELECT|UPDATE|DELETE FROM)\\b");
-                break;
-            default:
-                return "El lenguaje " + language + " no está soportado.";
+    String findConditionals(CharSequence code, String language) {
+        Pattern pattern = LanguageProfile.forName(language).getConditionals();
+        if (pattern == null) {
+            return "The language " + language + " is not supported.";
         }
 
-        Matcher matcher = pattern.matcher(code);
-        List<String> crudOperations = new ArrayList<>();
-        while (matcher.find()) {
-            crudOperations.add(matcher.group());
+        return String.join(", ", findAll(pattern.matcher(code)));
+    }
+
+    String findCRUDOperations(CharSequence code, String language) {
+        Pattern pattern = LanguageProfile.forName(language).getCrudOperations();
+        if (pattern == null) {
+            return "El lenguaje " + language + " no está soportado.";
         }
-        return String.join(", ", crudOperations);
+
+        return String.join(", ", findAll(pattern.matcher(code)));
     }
 
-    private String performLexicalAnalysis(String code, String language) {
-        if (!"C++".equals(language)) {
+    String performLexicalAnalysis(CharSequence code, String language) {
+        if (!usesCppAnalyzer(language)) {
             return "Este analizador solo admite C++.";
         }
 
-        Pattern pattern = Pattern.compile(
-                "\\b(int|char|void|double|float|bool|if|else|for|while|return|include|using|namespace|class|public|private|protected)\\b|" +  // palabras clave
-                        "\\b\\d+\\b|" +  // literales numéricos
-                        "[+\\-*/=]|" +  // operadores
-                        "\\b[_a-zA-Z][_a-zA-Z0-9]*\\b"  // identificadores
-        );
-
-        Matcher matcher = pattern.matcher(code);
-        List<String> tokens = new ArrayList<>();
+        Matcher matcher = PatternCatalog.CPP_TOKEN.matcher(code);
+        List<String> tokens = findAll(matcher);
         List<String> invalidTokens = new ArrayList<>();
-        while (matcher.find()) {
-            String token = matcher.group();
-            tokens.add(token);
-
+        for (String token : tokens) {
             // Verifica si el identificador está bien formado (variables)
-            if (token.matches("\\b[_a-zA-Z][_a-zA-Z0-9]*\\b") && !token.matches("_*[A-Za-z][A-Za-z0-9_]*")) {
+            if (PatternCatalog.CPP_IDENTIFIER.matcher(token).matches() && !PatternCatalog.CPP_WELL_FORMED_IDENTIFIER.matcher(token).matches()) {
                 invalidTokens.add(token);
             }
         }
@@ -351,139 +638,86 @@ public class CodeAnalyzer implements ActionListener {
         return response;
     }
 
-    private String performSyntaxAnalysis(String code, String language) {
-
-
-        switch (language) {
-
-
-               case "C++":
-
-
-                return performCPPSyntaxAnalysis(code);
-            case "Pascal":
-
-                return "El lenguaje " + language + " no tiene un análisis sintáctico implementado.";
-        }
-        return code;
-    }
-    private String performCPPSyntaxAnalysis(String code) {
-        StringBuilder syntaxErrors = new StringBuilder();
+    // Texto de la sección sintáctica del reporte; en C++ además deja los errores en errors
+    String performSyntaxAnalysis(CharSequence code, String language, List<Diagnostic> errors) {
 
-        // Verificar la estructura de los bloques if-else
-        int ifCount = countOccurrences(code, "\\bif\\b");
-        int elseCount = countOccurrences(code, "\\belse\\b");
-        if (ifCount != elseCount) {
-            syntaxErrors.append("Error: La cantidad de bloques 'if' y 'else' no coincide.\n");
-        }
 
-        // Verificar la estructura de los bucles for
-        int forCount = countOccurrences(code, "\\bfor\\b");
-        int leftBraceCount = countOccurrences(code, "\\{");
-        if (forCount > 0 && forCount != leftBraceCount) {
-            syntaxErrors.append("Error: La cantidad de bloques 'for' no coincide con la cantidad de llaves '{'.\n");
+        LanguageProfile profile = LanguageProfile.forName(language);
+        if (profile != null && profile.usesCppAnalyzer()) {
+            return performCPPSyntaxAnalysis(code, errors);
         }
-
-        // Verificar la estructura de los bucles while
-        int whileCount = countOccurrences(code, "\\bwhile\\b");
-        if (whileCount > 0 && whileCount != leftBraceCount) {
-            syntaxErrors.append("Error: La cantidad de bloques 'while' no coincide con la cantidad de llaves '{'.\n");
+        if (profile != null && profile.isSyntaxPending()) {
+            return "El lenguaje " + language + " no tiene un análisis sintáctico implementado.";
         }
+        return code.toString();
+    }
 
-        // Verificar la estructura de los bucles do-while
-        int doCount = countOccurrences(code, "\\bdo\\b");
-        int rightBraceCount = countOccurrences(code, "\\}");
-        if (doCount > 0 && doCount != rightBraceCount) {
-            syntaxErrors.append("Error: La cantidad de bloques 'do' no coincide con la cantidad de llaves '}'.\n");
-        }
+    // Un solo recorrido del código con CppParser; si se agota el presupuesto quedan los
+    // errores encontrados hasta ahí
+    private String performCPPSyntaxAnalysis(CharSequence code, List<Diagnostic> errors) {
+        CppParser parser = new CppParser(code);
+        try {
+            parser.parse();
+        } catch (AnalysisMonitor.BudgetExhaustedException ex) {
+            // Resultado parcial
+        }
+        errors.addAll(parser.diagnostics());
+        return String.join("", parser.errors());
+    }
 
-        // Verificar la estructura de las declaraciones de funciones
-        Pattern functionPattern = Pattern.compile("\\b\\w+\\s+\\w+\\s*\\(.*?\\)\\s*\\{");
-        Matcher functionMatcher = functionPattern.matcher(code);
-        while (functionMatcher.find()) {
-            String functionDeclaration = functionMatcher.group();
-            if (!functionDeclaration.contains("return") && !functionDeclaration.contains("void")) {
-                syntaxErrors.append("Error: La función '").append(functionDeclaration).append("' no tiene un retorno.\n");
+    // Coincidencias en orden hasta el final del texto o hasta que se agote el presupuesto de
+    // la fase: en ese caso quedan las encontradas y el monitor ya marcó la fase como truncada
+    private static List<String> findAll(Matcher matcher) {
+        List<String> matches = new ArrayList<>();
+        try {
+            while (matcher.find()) {
+                matches.add(matcher.group());
             }
+        } catch (AnalysisMonitor.BudgetExhaustedException ex) {
+            // Resultado parcial
         }
-
-        return syntaxErrors.toString();
+        return matches;
     }
 
-    private int countOccurrences(String input, String regex) {
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(input);
-        int count = 0;
-        while (matcher.find()) {
-            count++;
+
+    /**
+     * Llena symbolTable con las declaraciones del código y devuelve los errores
+     * semánticos (ver SemanticAnalysis). Solo existe para C++: en los demás lenguajes la
+     * tabla queda vacía.
+     */
+    List<Diagnostic> performSemanticAnalysis(CharSequence code, String language, SymbolTable symbolTable,
+                                             Diagnostic.Positions positions) {
+        if (!usesCppAnalyzer(language)) {
+            return new ArrayList<>();
         }
-        return count;
+        return SemanticAnalysis.run(code, symbolTable, positions);
     }
 
-
-    private String performSemanticAnalysis(String code, String language) {
-        StringBuilder semanticErrors = new StringBuilder();
-
-        // Analizar asignaciones de variables
-        Pattern assignmentPattern = Pattern.compile("\\b(int|char|double|float|bool|string)\\s+\\w+\\s*(=\\s*[^;]+;|;)");
-        Matcher assignmentMatcher = assignmentPattern.matcher(code);
-        while (assignmentMatcher.find()) {
-            String assignment = assignmentMatcher.group();
-            String[] parts = assignment.split("\\s*=\\s*");
-            String variable = parts[0].trim();
-            String value = parts[1].trim();
-
-            if (!symbolTable.containsKey(variable)) {
-                semanticErrors.append("Error: La variable '").append(variable).append("' no ha sido declarada.\n");
-            } else {
-                String variableType = symbolTable.get(variable);
-                if (!isValidAssignment(variableType, value)) {
-                    semanticErrors.append("Error: La variable '").append(variable).append("' no puede ser asignada con el valor '").append(value).append("'.\n");
-                }
-            }
+    String simulateExecution(CharSequence code, String language, AnalysisMonitor monitor) {
+        if (!usesCppAnalyzer(language)) {
+            return "Esta simulación solo soporta C++.";
         }
-
-        return semanticErrors.toString();
+        return Simulation.run(code, monitor);
     }
 
-    private boolean isValidAssignment(String variableType, String value) {
-        // Implementar lógica para verificar la validez de la asignación según el tipo de la variable
-        // Aquí puedes agregar reglas específicas para cada tipo de dato (int, float, string, etc.)
-        // Por ejemplo, si variableType es "int", verificar si value es un entero válido, etc.
-        // Devolver true si la asignación es válida, false de lo contrario.
-        return true; // Por ahora, asumimos que todas las asignaciones son válidas
+    // Los análisis léxico, sintáctico, semántico y la simulación solo existen para C++; el
+    // perfil dice qué lenguajes los usan
+    private static boolean usesCppAnalyzer(String language) {
+        LanguageProfile profile = LanguageProfile.forName(language);
+        return profile != null && profile.usesCppAnalyzer();
     }
 
-
-
-    private String simulateExecution(String code, String language) {
-        if (!"C++".equals(language)) {
-            return "Esta simulación solo soporta C++.";
+    public static void main(String[] args) {
+        LanguageProfile.requireData();
+        if (BatchAnalyzer.isRequested(args)) {
+            System.exit(BatchAnalyzer.run(args));
         }
-        Map<String, String> variables = new HashMap<>();
-        String[] lines = code.split("\\r?\\n");
-        for (String line : lines) {
-            Matcher declarationMatcher = Pattern.compile("\\b(int|char|double|float|bool|string)\\s+(\\w+)\\s*(=\\s*([^;]+))?;").matcher(line);
-            Matcher assignmentMatcher = Pattern.compile("\\b(\\w+)\\s*=\\s*([^;]+);").matcher(line);
-            if (declarationMatcher.matches()) {
-                String varType = declarationMatcher.group(1);
-                String varName = declarationMatcher.group(2);
-                String varValue = declarationMatcher.group(4);
-                variables.put(varName, varValue == null ? "No definida" : varValue);
-            } else if (assignmentMatcher.matches()) {
-                String varName = assignmentMatcher.group(1);
-                String varValue = assignmentMatcher.group(2);
-                if (variables.containsKey(varName)) {
-                    variables.put(varName, varValue);
-                } else {
-                    return "Error: variable `" + varName + "` no está declarada.";
-                }
-            }
+        if (ProjectIndex.isRequested(args)) {
+            System.exit(ProjectIndex.run(args));
+        }
+        if (AnalysisServer.isRequested(args)) {
+            System.exit(AnalysisServer.run(args));
         }
-        return "Estado final de variables: " + variables.toString();
-    }
-
-    public static void main(String[] args) {
         SwingUtilities.invokeLater(CodeAnalyzer::new);
     }
 
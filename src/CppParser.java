@@ -0,0 +1,1769 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Analizador sintáctico descendente recursivo para el subconjunto de C++ del analizador.
+ *
+ * Lee los tokens del Lexer por bloques y los pasa a arreglos propios: se saltan los
+ * comentarios y las directivas del preprocesador, y los operadores (<<, ==, ->, ...),
+ * cadenas y caracteres ya vienen del Lexer en un solo token. Después se
+ * reconoce el programa una sola vez, armando un SyntaxTree. Ante un error se anota con
+ * su línea y columna, se descarta la sentencia y se sigue desde el próximo ';', '{', '}'
+ * o palabra que empieza una sentencia en otra línea (modo pánico), así que un error no
+ * oculta los siguientes. Cada token se consume una vez y las miradas hacia adelante no
+ * pasan de la sentencia en curso: el tiempo es lineal en el largo del código.
+ */
+final class CppParser {
+    // Anidamiento máximo de sentencias y expresiones; más profundo es un error, no un desborde de pila
+    private static final int MAX_DEPTH = 256;
+    // Largo máximo del texto de un token en los mensajes
+    private static final int MAX_SHOWN = 24;
+    // Tokens END al final: las miradas hacia adelante no necesitan revisar el largo
+    private static final int END_PADDING = 4;
+
+    // Clases de token
+    private static final int IDENTIFIER = 0;
+    private static final int NUMBER = 1;
+    private static final int STRING = 2;
+    private static final int CHARACTER = 3;
+    private static final int OPERATOR = 4;
+    private static final int OTHER = 5;
+    private static final int END = 6;
+
+    private static final String[] OPERATORS = {
+            "{", "}", "(", ")", "[", "]", ";", ",", ":", "::", "?", ".", "->", "~", "!",
+            "+", "-", "*", "/", "%", "&", "|", "^", "<", ">", "=", "++", "--", "<<", ">>",
+            "<=", ">=", "==", "!=", "&&", "||", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=",
+            "<<=", ">>=", "...", ".*", "->*"};
+    private static final int LEFT_BRACE = operator("{");
+    private static final int RIGHT_BRACE = operator("}");
+    private static final int LEFT_PAREN = operator("(");
+    private static final int RIGHT_PAREN = operator(")");
+    private static final int LEFT_BRACKET = operator("[");
+    private static final int RIGHT_BRACKET = operator("]");
+    private static final int SEMICOLON = operator(";");
+    private static final int COMMA = operator(",");
+    private static final int COLON = operator(":");
+    private static final int SCOPE = operator("::");
+    private static final int QUESTION = operator("?");
+    private static final int DOT = operator(".");
+    private static final int ARROW = operator("->");
+    private static final int TILDE = operator("~");
+    private static final int NOT = operator("!");
+    private static final int PLUS = operator("+");
+    private static final int MINUS = operator("-");
+    private static final int STAR = operator("*");
+    private static final int AMPERSAND = operator("&");
+    private static final int LESS = operator("<");
+    private static final int GREATER = operator(">");
+    private static final int ASSIGN = operator("=");
+    private static final int INCREMENT = operator("++");
+    private static final int DECREMENT = operator("--");
+    private static final int SHIFT_RIGHT = operator(">>");
+    private static final int AND = operator("&&");
+    private static final int ELLIPSIS = operator("...");
+    // Operadores de cada primer carácter ASCII, los más largos primero
+    private static final int[][] OPERATORS_BY_CHAR = operatorsByChar();
+    // Precedencia de los operadores binarios (0 si no lo es) y operadores de asignación
+    private static final int[] PRECEDENCE = new int[OPERATORS.length];
+    private static final boolean[] ASSIGNMENT = new boolean[OPERATORS.length];
+    private static final int LOGICAL_OR_PRECEDENCE = 3;
+
+    static {
+        String[][] levels = {{"||"}, {"&&"}, {"|"}, {"^"}, {"&"}, {"==", "!="}, {"<", ">", "<=", ">="},
+                {"<<", ">>"}, {"+", "-"}, {"*", "/", "%"}, {".*", "->*"}};
+        for (int level = 0; level < levels.length; level++) {
+            for (String op : levels[level]) {
+                PRECEDENCE[operator(op)] = LOGICAL_OR_PRECEDENCE + level;
+            }
+        }
+        for (String op : new String[]{"=", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<=", ">>="}) {
+            ASSIGNMENT[operator(op)] = true;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "if", "else", "for", "while", "do", "return", "break", "continue", "switch", "case",
+            "default", "goto", "try", "catch", "throw", "using", "namespace", "class", "struct",
+            "union", "enum", "typedef", "template", "typename", "public", "private", "protected",
+            "operator", "sizeof", "new", "delete", "true", "false", "nullptr", "this",
+            "const", "static", "extern", "inline", "explicit", "mutable", "constexpr", "volatile",
+            "register", "virtual", "friend", "noexcept", "override", "final",
+            "unsigned", "signed", "long", "short", "int", "char", "double", "float", "bool",
+            "void", "auto", "wchar_t"};
+    private static final int IF = word("if");
+    private static final int ELSE = word("else");
+    private static final int FOR = word("for");
+    private static final int WHILE = word("while");
+    private static final int DO = word("do");
+    private static final int RETURN = word("return");
+    private static final int BREAK = word("break");
+    private static final int CONTINUE = word("continue");
+    private static final int SWITCH = word("switch");
+    private static final int CASE = word("case");
+    private static final int DEFAULT = word("default");
+    private static final int GOTO = word("goto");
+    private static final int TRY = word("try");
+    private static final int CATCH = word("catch");
+    private static final int THROW = word("throw");
+    private static final int USING = word("using");
+    private static final int NAMESPACE = word("namespace");
+    private static final int CLASS = word("class");
+    private static final int STRUCT = word("struct");
+    private static final int UNION = word("union");
+    private static final int ENUM = word("enum");
+    private static final int TYPEDEF = word("typedef");
+    private static final int TEMPLATE = word("template");
+    private static final int TYPENAME = word("typename");
+    private static final int PUBLIC = word("public");
+    private static final int PRIVATE = word("private");
+    private static final int PROTECTED = word("protected");
+    private static final int OPERATOR_WORD = word("operator");
+    private static final int SIZEOF = word("sizeof");
+    private static final int NEW = word("new");
+    private static final int DELETE = word("delete");
+    private static final int TRUE = word("true");
+    private static final int FALSE = word("false");
+    private static final int NULLPTR = word("nullptr");
+    private static final int THIS = word("this");
+    private static final int CONST = word("const");
+    private static final int FRIEND = word("friend");
+    private static final int NOEXCEPT = word("noexcept");
+    private static final int OVERRIDE = word("override");
+    private static final int FINAL = word("final");
+    private static final int VOID = word("void");
+    // Palabras que pueden ir antes del tipo, y las que forman tipos básicos
+    private static final boolean[] QUALIFIER = words("const", "static", "extern", "inline", "explicit", "mutable",
+            "constexpr", "volatile", "register", "virtual", "friend");
+    private static final boolean[] BUILTIN_TYPE = words("unsigned", "signed", "long", "short", "int", "char",
+            "double", "float", "bool", "void", "auto", "wchar_t");
+    // Palabras que empiezan una sentencia: ahí termina la recuperación de un error de otra línea
+    private static final boolean[] STATEMENT_START = words("if", "for", "while", "do", "return", "break",
+            "continue", "switch", "case", "default", "try", "throw");
+    private static final int[][] WORDS_BY_LENGTH = wordsByLength();
+
+    private final CharSequence code;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private final SyntaxTree tree;
+
+    // Tokens: clase, operador o palabra (-1 si no es ninguno), posición, línea y columna
+    private int[] kinds;
+    private int[] ids;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int[] columns;
+    private int count;
+
+    private int position;
+    private int depth;
+    // Token del último error anotado: dos errores en el mismo token son el mismo
+    private int lastError = -1;
+    private boolean depthReported;
+    private int returns;
+
+    CppParser(CharSequence code) {
+        this.code = code;
+        int capacity = Math.max(16, code.length() / 4);
+        kinds = new int[capacity];
+        ids = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        tree = new SyntaxTree(capacity);
+    }
+
+    /**
+     * Reconoce todo el código. Si la lectura se interrumpe (cancelación o presupuesto),
+     * errors() y tree() conservan lo reconocido hasta ahí.
+     */
+    void parse() {
+        new Tokenizer().run();
+        translationUnit();
+    }
+
+    /** Errores en el orden del código. */
+    List<Diagnostic> diagnostics() {
+        List<Diagnostic> sorted = new ArrayList<>(diagnostics);
+        sorted.sort(Comparator.comparingInt(Diagnostic::getLine).thenComparingInt(Diagnostic::getColumn));
+        return sorted;
+    }
+
+    /** Errores en el orden del código, cada uno en una línea terminada en \n. */
+    List<String> errors() {
+        List<String> errors = new ArrayList<>(diagnostics.size());
+        for (Diagnostic diagnostic : diagnostics()) {
+            errors.add(diagnostic + "\n");
+        }
+        return errors;
+    }
+
+    SyntaxTree tree() {
+        return tree;
+    }
+
+    /** Texto del token; "" para el final del código. */
+    String text(int token) {
+        return code.subSequence(starts[token], ends[token]).toString();
+    }
+
+    int line(int token) {
+        return lines[token];
+    }
+
+    /** Posición en el código del primer carácter del token. */
+    int offset(int token) {
+        return starts[token];
+    }
+
+    /** Posición en el código que sigue al último carácter del token. */
+    int endOffset(int token) {
+        return ends[token];
+    }
+
+    /** true si el token es un número, una cadena o un carácter. */
+    boolean isLiteral(int token) {
+        return kinds[token] == NUMBER || kinds[token] == STRING || kinds[token] == CHARACTER;
+    }
+
+    // ---- Unidad de traducción y declaraciones ----
+
+    private void translationUnit() {
+        int first = tree.size();
+        while (!atEnd()) {
+            if (isOperator(RIGHT_BRACE)) {
+                errorAt(position, "'}' sin '{' que lo abra");
+                position++;
+            } else {
+                recovering(true, this::topLevel);
+            }
+        }
+        node(SyntaxKind.TRANSLATION_UNIT, 0, first);
+    }
+
+    private void topLevel() {
+        if (isOperator(SEMICOLON)) {
+            emptyStatement();
+        } else if (isWord(NAMESPACE)) {
+            namespace();
+        } else {
+            declaration(true);
+        }
+    }
+
+    private void namespace() {
+        int first = tree.size();
+        int start = position;
+        position++;
+        if (kind() == IDENTIFIER && id() < 0) {
+            qualifiedName();
+        }
+        expect(LEFT_BRACE);
+        while (!isOperator(RIGHT_BRACE) && !atEnd()) {
+            recovering(true, this::topLevel);
+        }
+        expect(RIGHT_BRACE);
+        node(SyntaxKind.NAMESPACE, start, first);
+    }
+
+    // using namespace X; | using X = tipo; | using X::y;
+    private void using() {
+        int first = tree.size();
+        int start = position;
+        position++;
+        if (isWord(NAMESPACE)) {
+            position++;
+            qualifiedName();
+        } else {
+            qualifiedName();
+            if (isOperator(ASSIGN)) {
+                position++;
+                type();
+            }
+        }
+        expect(SEMICOLON);
+        node(SyntaxKind.USING, start, first);
+    }
+
+    /**
+     * Una declaración terminada en ';' o una definición de función, clase o enum. En el
+     * nivel de archivo y de clase, un nombre seguido de '(' es una función; dentro de un
+     * bloque es una variable con inicialización entre paréntesis.
+     */
+    private void declaration(boolean functions) {
+        if (isWord(USING)) {
+            using();
+            return;
+        }
+        int first = tree.size();
+        int start = position;
+        if (isWord(TEMPLATE)) {
+            position++;
+            skipAngles();
+            enter();
+            declaration(functions);
+            depth--;
+            node(SyntaxKind.TEMPLATE, start, first);
+            return;
+        }
+        if (isWord(TYPEDEF)) {
+            position++;
+        }
+        while (isQualifier()) {
+            position++;
+        }
+        if ((isWord(CLASS) || isWord(STRUCT) || isWord(UNION)) && isClassDefinition()) {
+            classDefinition();
+            declaratorsAfterDefinition(start, first);
+            return;
+        }
+        if (isWord(ENUM) && isEnumDefinition()) {
+            enumDefinition();
+            declaratorsAfterDefinition(start, first);
+            return;
+        }
+        if (functions && (isOperator(TILDE) || isConstructor())) {
+            // Constructor o destructor: el nombre sin tipo de retorno
+            int nameStart = position;
+            if (isOperator(TILDE)) {
+                position++;
+            }
+            qualifiedName();
+            function(start, first, nameStart, false);
+            return;
+        }
+        boolean returnsValue = type();
+        int declaratorFirst = tree.size();
+        int nameStart = position;
+        declarator();
+        if (functions && isOperator(LEFT_PAREN) && !isArgumentList()) {
+            function(start, first, nameStart, returnsValue);
+            return;
+        }
+        initializer();
+        node(SyntaxKind.DECLARATOR, nameStart, declaratorFirst);
+        while (isOperator(COMMA)) {
+            position++;
+            initDeclarator();
+        }
+        expect(SEMICOLON);
+        node(SyntaxKind.DECLARATION, start, first);
+    }
+
+    // Después de struct S { ... } puede haber variables antes del ';'
+    private void declaratorsAfterDefinition(int start, int first) {
+        if (!isOperator(SEMICOLON)) {
+            initDeclarator();
+            while (isOperator(COMMA)) {
+                position++;
+                initDeclarator();
+            }
+        }
+        expect(SEMICOLON);
+        node(SyntaxKind.DECLARATION, start, first);
+    }
+
+    // Parámetros, calificadores y cuerpo (o ';') de una función cuyo nombre empieza en nameStart
+    private void function(int start, int first, int nameStart, boolean returnsValue) {
+        parameters();
+        while (isWord(CONST) || isWord(NOEXCEPT) || isWord(OVERRIDE) || isWord(FINAL)) {
+            position++;
+        }
+        if (isOperator(ARROW)) {
+            // Tipo de retorno al final: auto f() -> int
+            position++;
+            returnsValue = type();
+        }
+        if (isOperator(ASSIGN)) {
+            // = 0, = default, = delete
+            position++;
+            if (kind() != NUMBER && !isWord(DEFAULT) && !isWord(DELETE)) {
+                throw error("se esperaba 0, default o delete");
+            }
+            position++;
+            expect(SEMICOLON);
+        } else if (isOperator(SEMICOLON)) {
+            position++;
+        } else {
+            if (isOperator(COLON)) {
+                memberInitializers();
+            }
+            int returnsBefore = returns;
+            block();
+            if (returnsValue && returns == returnsBefore && !isMain(nameStart)) {
+                errorAt(nameStart, "la función " + shown(nameStart) + " no tiene un retorno");
+            }
+        }
+        node(SyntaxKind.FUNCTION, start, first);
+    }
+
+    private void parameters() {
+        expect(LEFT_PAREN);
+        enter();
+        if (isWord(VOID) && isOperatorAt(position + 1, RIGHT_PAREN)) {
+            position++;
+        }
+        if (!isOperator(RIGHT_PAREN)) {
+            parameter();
+            while (isOperator(COMMA)) {
+                position++;
+                parameter();
+            }
+        }
+        depth--;
+        expect(RIGHT_PAREN);
+    }
+
+    private void parameter() {
+        int first = tree.size();
+        int start = position;
+        if (isOperator(ELLIPSIS)) {
+            position++;
+        } else {
+            type();
+            int declaratorFirst = tree.size();
+            int declaratorStart = position;
+            boolean named = !isOperator(COMMA) && !isOperator(RIGHT_PAREN) && !isOperator(ASSIGN);
+            if (named) {
+                declarator();
+            }
+            if (isOperator(ASSIGN)) {
+                position++;
+                assignment();
+            }
+            if (named) {
+                node(SyntaxKind.DECLARATOR, declaratorStart, declaratorFirst);
+            }
+        }
+        node(SyntaxKind.PARAMETER, start, first);
+    }
+
+    // : base(x), miembro{y}
+    private void memberInitializers() {
+        position++;
+        do {
+            if (isOperator(COMMA)) {
+                position++;
+            }
+            qualifiedName();
+            if (isOperator(LEFT_BRACE)) {
+                initializerList();
+            } else {
+                arguments();
+            }
+        } while (isOperator(COMMA));
+    }
+
+    private void classDefinition() {
+        int first = tree.size();
+        int start = position;
+        position++;
+        if (kind() == IDENTIFIER && id() < 0) {
+            qualifiedName();
+        }
+        if (isOperator(COLON)) {
+            // Clases base: se saltan hasta la llave
+            while (!isOperator(LEFT_BRACE) && !atEnd()) {
+                position++;
+            }
+        }
+        expect(LEFT_BRACE);
+        while (!isOperator(RIGHT_BRACE) && !atEnd()) {
+            recovering(true, this::member);
+        }
+        expect(RIGHT_BRACE);
+        node(SyntaxKind.CLASS, start, first);
+    }
+
+    private void member() {
+        if ((isWord(PUBLIC) || isWord(PRIVATE) || isWord(PROTECTED)) && isOperatorAt(position + 1, COLON)) {
+            position += 2;
+        } else if (isOperator(SEMICOLON)) {
+            emptyStatement();
+        } else if (isWord(FRIEND) && (isWord(position + 1, CLASS) || isWord(position + 1, STRUCT))) {
+            position += 2;
+            qualifiedName();
+            expect(SEMICOLON);
+        } else {
+            declaration(true);
+        }
+    }
+
+    private void enumDefinition() {
+        int first = tree.size();
+        int start = position;
+        position++;
+        if (isWord(CLASS) || isWord(STRUCT)) {
+            position++;
+        }
+        if (kind() == IDENTIFIER && id() < 0) {
+            position++;
+        }
+        if (isOperator(COLON)) {
+            position++;
+            type();
+        }
+        expect(LEFT_BRACE);
+        while (!isOperator(RIGHT_BRACE)) {
+            name();
+            if (isOperator(ASSIGN)) {
+                position++;
+                conditional();
+            }
+            if (!isOperator(COMMA)) {
+                break;
+            }
+            position++;
+        }
+        expect(RIGHT_BRACE);
+        node(SyntaxKind.ENUM, start, first);
+    }
+
+    /**
+     * Tipo con sus calificadores, punteros y referencias. Devuelve false si el tipo es
+     * void sin puntero, es decir, si una función con este tipo no devuelve un valor.
+     */
+    private boolean type() {
+        int first = tree.size();
+        int start = position;
+        while (isQualifier() || isWord(TYPENAME)) {
+            position++;
+        }
+        boolean isVoid = isWord(VOID);
+        if (isBuiltinType()) {
+            while (isBuiltinType()) {
+                position++;
+            }
+        } else if (isWord(CLASS) || isWord(STRUCT) || isWord(UNION) || isWord(ENUM)) {
+            position++;
+            qualifiedName();
+        } else if ((kind() == IDENTIFIER && id() < 0) || isOperator(SCOPE)) {
+            qualifiedName();
+        } else {
+            throw error("se esperaba un tipo");
+        }
+        while (isWord(CONST) || isQualifier()) {
+            position++;
+        }
+        while (isOperator(STAR) || isOperator(AMPERSAND) || isOperator(AND) || isWord(CONST)) {
+            isVoid &= !isOperator(STAR);
+            position++;
+        }
+        node(SyntaxKind.TYPE, start, first);
+        return !isVoid;
+    }
+
+    // Nombre con ámbitos y argumentos de plantilla: std::vector<int>::iterator
+    private void qualifiedName() {
+        int first = tree.size();
+        int start = position;
+        if (isOperator(SCOPE)) {
+            position++;
+        }
+        name();
+        if (isOperator(LESS)) {
+            templateArguments();
+        }
+        while (isOperator(SCOPE)) {
+            position++;
+            if (isWord(OPERATOR_WORD)) {
+                // Shape::operator=
+                operatorName();
+                break;
+            }
+            if (isOperator(TILDE)) {
+                position++;
+            }
+            name();
+            if (isOperator(LESS)) {
+                templateArguments();
+            }
+        }
+        node(SyntaxKind.NAME, start, first);
+    }
+
+    // operator+, operator<<, operator(), operator[]
+    private void operatorName() {
+        position++;
+        if ((isOperator(LEFT_PAREN) && isOperatorAt(position + 1, RIGHT_PAREN))
+                || (isOperator(LEFT_BRACKET) && isOperatorAt(position + 1, RIGHT_BRACKET))) {
+            position += 2;
+        } else if (kind() == OPERATOR || kind() == IDENTIFIER) {
+            position++;
+        } else {
+            throw error("se esperaba un operador");
+        }
+    }
+
+    private void templateArguments() {
+        position++;
+        if (closeAngle()) {
+            return;
+        }
+        enter();
+        do {
+            if (isOperator(COMMA)) {
+                position++;
+            }
+            if (kind() == NUMBER) {
+                position++;
+            } else {
+                type();
+            }
+        } while (isOperator(COMMA));
+        depth--;
+        if (!closeAngle()) {
+            throw error("se esperaba '>'");
+        }
+    }
+
+    // Consume un '>'; en a<b<c>> el '>>' cierra dos listas y se parte en dos
+    private boolean closeAngle() {
+        if (isOperator(GREATER)) {
+            position++;
+            return true;
+        }
+        if (isOperator(SHIFT_RIGHT)) {
+            ids[position] = GREATER;
+            starts[position]++;
+            columns[position]++;
+            return true;
+        }
+        return false;
+    }
+
+    // Salta <...> con anidamiento, como en template <typename T, int N>
+    private void skipAngles() {
+        expect(LESS);
+        int open = 1;
+        while (open > 0 && !atEnd() && !isOperator(LEFT_BRACE) && !isOperator(SEMICOLON)) {
+            if (isOperator(LESS)) {
+                open++;
+            } else if (isOperator(GREATER)) {
+                open--;
+            } else if (isOperator(SHIFT_RIGHT)) {
+                open -= 2;
+            }
+            position++;
+        }
+        if (open > 0) {
+            throw error("se esperaba '>'");
+        }
+    }
+
+    // Punteros, nombre (puede faltar en parámetros) y dimensiones de arreglo
+    private void declarator() {
+        while (isOperator(STAR) || isOperator(AMPERSAND) || isOperator(AND) || isWord(CONST)) {
+            position++;
+        }
+        if (isWord(OPERATOR_WORD)) {
+            int first = tree.size();
+            int start = position;
+            operatorName();
+            node(SyntaxKind.NAME, start, first);
+        } else if (isOperator(LEFT_PAREN) && isOperatorAt(position + 1, STAR)) {
+            // Puntero a función: (*nombre)(parámetros)
+            position += 2;
+            name();
+            expect(RIGHT_PAREN);
+            parameters();
+        } else if ((kind() == IDENTIFIER && id() < 0) || isOperator(SCOPE)) {
+            qualifiedName();
+        } else if (!isOperator(LEFT_BRACKET)) {
+            throw error("se esperaba un nombre");
+        }
+        while (isOperator(LEFT_BRACKET)) {
+            int first = tree.size();
+            int start = position;
+            position++;
+            if (!isOperator(RIGHT_BRACKET)) {
+                expression();
+            }
+            expect(RIGHT_BRACKET);
+            node(SyntaxKind.INDEX, start, first);
+        }
+    }
+
+    // Un declarador con su inicialización, en un nodo DECLARATOR
+    private void initDeclarator() {
+        int first = tree.size();
+        int start = position;
+        declarator();
+        initializer();
+        node(SyntaxKind.DECLARATOR, start, first);
+    }
+
+    // = valor, = {lista}, {lista} o (argumentos) después de un declarador
+    private void initializer() {
+        if (isOperator(ASSIGN)) {
+            position++;
+            assignment();
+        } else if (isOperator(LEFT_BRACE)) {
+            initializerList();
+        } else if (isOperator(LEFT_PAREN)) {
+            arguments();
+        } else if (isOperator(COLON)) {
+            // Campo de bits
+            position++;
+            conditional();
+        }
+    }
+
+    // ---- Sentencias ----
+
+    private void statement() {
+        if (isOperator(LEFT_BRACE)) {
+            block();
+        } else if (isOperator(SEMICOLON)) {
+            emptyStatement();
+        } else if (kind() == IDENTIFIER && id() >= 0 && !BUILTIN_TYPE[id()] && !QUALIFIER[id()]) {
+            keywordStatement();
+        } else if (kind() == IDENTIFIER && id() < 0 && isOperatorAt(position + 1, COLON)) {
+            int first = tree.size();
+            int start = position;
+            position += 2;
+            nested(this::statement);
+            node(SyntaxKind.LABEL, start, first);
+        } else if (isDeclarationStart()) {
+            declaration(false);
+        } else {
+            expressionStatement();
+        }
+    }
+
+    private void keywordStatement() {
+        int word = id();
+        int first = tree.size();
+        int start = position;
+        SyntaxKind kind;
+        if (word == IF) {
+            position++;
+            condition();
+            nested(this::statement);
+            if (isWord(ELSE)) {
+                position++;
+                nested(this::statement);
+            }
+            kind = SyntaxKind.IF;
+        } else if (word == WHILE) {
+            position++;
+            condition();
+            nested(this::statement);
+            kind = SyntaxKind.WHILE;
+        } else if (word == DO) {
+            position++;
+            nested(this::statement);
+            if (!isWord(WHILE)) {
+                throw error("se esperaba 'while'");
+            }
+            position++;
+            condition();
+            expect(SEMICOLON);
+            kind = SyntaxKind.DO;
+        } else if (word == FOR) {
+            position++;
+            forHeader();
+            nested(this::statement);
+            kind = SyntaxKind.FOR;
+        } else if (word == SWITCH) {
+            position++;
+            condition();
+            nested(this::statement);
+            kind = SyntaxKind.SWITCH;
+        } else if (word == CASE || word == DEFAULT) {
+            position++;
+            if (word == CASE) {
+                conditional();
+            }
+            expect(COLON);
+            kind = SyntaxKind.CASE;
+        } else if (word == RETURN) {
+            position++;
+            if (!isOperator(SEMICOLON)) {
+                expression();
+            }
+            expect(SEMICOLON);
+            returns++;
+            kind = SyntaxKind.RETURN;
+        } else if (word == BREAK || word == CONTINUE) {
+            position++;
+            expect(SEMICOLON);
+            kind = SyntaxKind.JUMP;
+        } else if (word == GOTO) {
+            position++;
+            name();
+            expect(SEMICOLON);
+            kind = SyntaxKind.JUMP;
+        } else if (word == TRY) {
+            position++;
+            block();
+            if (!isWord(CATCH)) {
+                throw error("se esperaba 'catch'");
+            }
+            while (isWord(CATCH)) {
+                position++;
+                expect(LEFT_PAREN);
+                parameter();
+                expect(RIGHT_PAREN);
+                block();
+            }
+            kind = SyntaxKind.TRY;
+        } else if (word == USING || word == TYPEDEF || word == TEMPLATE || word == CLASS || word == STRUCT
+                || word == UNION || word == ENUM || word == TYPENAME) {
+            declaration(false);
+            return;
+        } else {
+            // throw, sizeof, new, delete, this, true...: empiezan una expresión
+            expressionStatement();
+            return;
+        }
+        node(kind, start, first);
+    }
+
+    private void condition() {
+        expect(LEFT_PAREN);
+        if (isDeclarationStart()) {
+            // if (int n = f())
+            int first = tree.size();
+            int start = position;
+            type();
+            initDeclarator();
+            node(SyntaxKind.DECLARATION, start, first);
+        } else {
+            expression();
+        }
+        expect(RIGHT_PAREN);
+    }
+
+    // (inicio; condición; incremento) o (declaración : rango). El primero deja siempre tres
+    // nodos, con EMPTY en las partes que faltan; el de rango deja solo la declaración
+    private void forHeader() {
+        expect(LEFT_PAREN);
+        int first = tree.size();
+        int start = position;
+        if (isOperator(SEMICOLON)) {
+            emptyStatement();
+        } else if (isDeclarationStart()) {
+            type();
+            int declaratorFirst = tree.size();
+            int declaratorStart = position;
+            declarator();
+            if (isOperator(COLON)) {
+                node(SyntaxKind.DECLARATOR, declaratorStart, declaratorFirst);
+                position++;
+                expression();
+                expect(RIGHT_PAREN);
+                node(SyntaxKind.DECLARATION, start, first);
+                return;
+            }
+            initializer();
+            node(SyntaxKind.DECLARATOR, declaratorStart, declaratorFirst);
+            while (isOperator(COMMA)) {
+                position++;
+                initDeclarator();
+            }
+            expect(SEMICOLON);
+            node(SyntaxKind.DECLARATION, start, first);
+        } else {
+            expressionStatement();
+        }
+        optionalExpression(SEMICOLON);
+        optionalExpression(RIGHT_PAREN);
+    }
+
+    // Una expresión, o un nodo EMPTY sin tokens si falta, seguida de op
+    private void optionalExpression(int op) {
+        if (isOperator(op)) {
+            node(SyntaxKind.EMPTY, position, tree.size());
+        } else {
+            expression();
+        }
+        expect(op);
+    }
+
+    private void block() {
+        int first = tree.size();
+        int start = position;
+        expect(LEFT_BRACE);
+        while (!isOperator(RIGHT_BRACE) && !atEnd()) {
+            recovering(false, this::statement);
+        }
+        expect(RIGHT_BRACE);
+        node(SyntaxKind.BLOCK, start, first);
+    }
+
+    private void emptyStatement() {
+        int first = tree.size();
+        int start = position;
+        position++;
+        node(SyntaxKind.EMPTY, start, first);
+    }
+
+    private void expressionStatement() {
+        int first = tree.size();
+        int start = position;
+        expression();
+        expect(SEMICOLON);
+        node(SyntaxKind.EXPRESSION_STATEMENT, start, first);
+    }
+
+    /**
+     * Reconoce una sentencia o declaración y, si tiene un error, la reemplaza por un nodo
+     * ERROR y salta hasta donde se puede seguir. Siempre consume al menos un token.
+     */
+    private void recovering(boolean declarations, Runnable item) {
+        int first = tree.size();
+        int start = position;
+        int savedDepth = depth;
+        try {
+            nested(item);
+        } catch (Failure failure) {
+            depth = savedDepth;
+            tree.truncate(first);
+            synchronize(start, declarations);
+            node(SyntaxKind.ERROR, start, first);
+        }
+    }
+
+    // Modo pánico: hasta después de un ';', o hasta un '{' o '}', o hasta una palabra que
+    // empieza una sentencia en una línea posterior a la del error. Si el error está en el
+    // primer token de una línea (por ejemplo, falta el ';' anterior), se sigue desde ahí
+    private void synchronize(int start, boolean declarations) {
+        if (position > start && lines[position] > lines[position - 1]) {
+            return;
+        }
+        if (declarations && position == start && isOperator(LEFT_BRACE)) {
+            // Un bloque suelto entre declaraciones se salta entero
+            skipBraces();
+            return;
+        }
+        int errorLine = lines[position];
+        while (!atEnd()) {
+            if (isOperator(SEMICOLON)) {
+                position++;
+                break;
+            }
+            if (isOperator(RIGHT_BRACE) || (isOperator(LEFT_BRACE) && position > start)) {
+                break;
+            }
+            if (!declarations && position > start && lines[position] > errorLine
+                    && kind() == IDENTIFIER && id() >= 0 && STATEMENT_START[id()]) {
+                break;
+            }
+            position++;
+        }
+        if (position == start) {
+            position++;
+        }
+    }
+
+    private void skipBraces() {
+        int open = 0;
+        do {
+            if (isOperator(LEFT_BRACE)) {
+                open++;
+            } else if (isOperator(RIGHT_BRACE)) {
+                open--;
+            }
+            position++;
+        } while (open > 0 && !atEnd());
+    }
+
+    // ---- Expresiones ----
+
+    private void expression() {
+        int first = tree.size();
+        int start = position;
+        assignment();
+        while (isOperator(COMMA)) {
+            position++;
+            assignment();
+            node(SyntaxKind.BINARY, start, first);
+        }
+    }
+
+    private void assignment() {
+        enter();
+        int first = tree.size();
+        int start = position;
+        conditional();
+        if (kind() == OPERATOR && ASSIGNMENT[id()]) {
+            position++;
+            if (isOperator(LEFT_BRACE)) {
+                initializerList();
+            } else {
+                assignment();
+            }
+            node(SyntaxKind.ASSIGNMENT, start, first);
+        }
+        depth--;
+    }
+
+    private void conditional() {
+        int first = tree.size();
+        int start = position;
+        binary(LOGICAL_OR_PRECEDENCE);
+        if (isOperator(QUESTION)) {
+            position++;
+            expression();
+            expect(COLON);
+            assignment();
+            node(SyntaxKind.CONDITIONAL, start, first);
+        }
+    }
+
+    // Operadores binarios por precedencia: los de igual nivel se agrupan a la izquierda
+    private void binary(int minimum) {
+        int first = tree.size();
+        int start = position;
+        unary();
+        while (kind() == OPERATOR && PRECEDENCE[id()] >= minimum) {
+            int precedence = PRECEDENCE[id()];
+            position++;
+            binary(precedence + 1);
+            node(SyntaxKind.BINARY, start, first);
+        }
+    }
+
+    private void unary() {
+        int first = tree.size();
+        int start = position;
+        if (kind() == OPERATOR && (id() == PLUS || id() == MINUS || id() == NOT || id() == TILDE || id() == STAR
+                || id() == AMPERSAND || id() == INCREMENT || id() == DECREMENT)) {
+            position++;
+            enter();
+            unary();
+            depth--;
+        } else if (isWord(SIZEOF)) {
+            position++;
+            if (isOperator(LEFT_PAREN) && isTypeAt(position + 1)) {
+                position++;
+                type();
+                expect(RIGHT_PAREN);
+            } else {
+                enter();
+                unary();
+                depth--;
+            }
+        } else if (isWord(NEW)) {
+            position++;
+            type();
+            if (isOperator(LEFT_BRACKET)) {
+                position++;
+                expression();
+                expect(RIGHT_BRACKET);
+            } else if (isOperator(LEFT_PAREN)) {
+                arguments();
+            } else if (isOperator(LEFT_BRACE)) {
+                initializerList();
+            }
+        } else if (isWord(DELETE)) {
+            position++;
+            if (isOperator(LEFT_BRACKET)) {
+                position++;
+                expect(RIGHT_BRACKET);
+            }
+            enter();
+            unary();
+            depth--;
+        } else if (isWord(THROW)) {
+            position++;
+            if (!isOperator(SEMICOLON)) {
+                assignment();
+            }
+        } else if (isOperator(LEFT_PAREN) && isCast()) {
+            position++;
+            type();
+            expect(RIGHT_PAREN);
+            enter();
+            unary();
+            depth--;
+            node(SyntaxKind.CAST, start, first);
+            return;
+        } else {
+            postfix();
+            return;
+        }
+        node(SyntaxKind.UNARY, start, first);
+    }
+
+    private void postfix() {
+        int first = tree.size();
+        int start = position;
+        primary();
+        while (true) {
+            SyntaxKind kind;
+            if (isOperator(LEFT_PAREN)) {
+                arguments();
+                kind = SyntaxKind.CALL;
+            } else if (isOperator(LEFT_BRACKET)) {
+                position++;
+                expression();
+                expect(RIGHT_BRACKET);
+                kind = SyntaxKind.INDEX;
+            } else if (isOperator(DOT) || isOperator(ARROW)) {
+                position++;
+                if (isOperator(TILDE)) {
+                    position++;
+                }
+                qualifiedName();
+                kind = SyntaxKind.MEMBER;
+            } else if (isOperator(INCREMENT) || isOperator(DECREMENT)) {
+                position++;
+                kind = SyntaxKind.POSTFIX;
+            } else {
+                return;
+            }
+            node(kind, start, first);
+        }
+    }
+
+    private void primary() {
+        int first = tree.size();
+        int start = position;
+        int kind = kind();
+        if (kind == NUMBER || kind == CHARACTER) {
+            position++;
+        } else if (kind == STRING) {
+            // "a" "b" es una sola cadena
+            while (kind() == STRING) {
+                position++;
+            }
+        } else if (isWord(TRUE) || isWord(FALSE) || isWord(NULLPTR) || isWord(THIS)) {
+            position++;
+        } else if (isOperator(LEFT_PAREN)) {
+            position++;
+            enter();
+            expression();
+            depth--;
+            expect(RIGHT_PAREN);
+            tree.widen(tree.root(), start, position);
+            return;
+        } else if (isOperator(LEFT_BRACE)) {
+            initializerList();
+            return;
+        } else if (isOperator(LEFT_BRACKET)) {
+            lambda();
+            return;
+        } else if (kind == IDENTIFIER && id() >= 0 && BUILTIN_TYPE[id()]) {
+            // Conversión con forma de función: int(x)
+            while (isBuiltinType()) {
+                position++;
+            }
+            node(SyntaxKind.TYPE, start, first);
+            return;
+        } else if ((kind == IDENTIFIER && (id() < 0 || id() == OPERATOR_WORD)) || isOperator(SCOPE)) {
+            expressionName();
+            return;
+        } else {
+            throw error("se esperaba una expresión");
+        }
+        node(SyntaxKind.LITERAL, start, first);
+    }
+
+    // En una expresión, a < b es una comparación: los argumentos de plantilla no se reconocen
+    private void expressionName() {
+        int first = tree.size();
+        int start = position;
+        if (isOperator(SCOPE)) {
+            position++;
+        }
+        if (isWord(OPERATOR_WORD)) {
+            position += 2;
+        } else {
+            position++;
+        }
+        while (isOperator(SCOPE)) {
+            position++;
+            if (isOperator(TILDE)) {
+                position++;
+            }
+            name();
+        }
+        node(SyntaxKind.NAME, start, first);
+    }
+
+    private void name() {
+        if (kind() != IDENTIFIER || id() >= 0) {
+            throw error("se esperaba un nombre");
+        }
+        position++;
+    }
+
+    private void arguments() {
+        expect(LEFT_PAREN);
+        if (!isOperator(RIGHT_PAREN)) {
+            assignment();
+            while (isOperator(COMMA)) {
+                position++;
+                assignment();
+            }
+        }
+        expect(RIGHT_PAREN);
+    }
+
+    private void initializerList() {
+        int first = tree.size();
+        int start = position;
+        expect(LEFT_BRACE);
+        enter();
+        while (!isOperator(RIGHT_BRACE)) {
+            assignment();
+            if (!isOperator(COMMA)) {
+                break;
+            }
+            position++;
+        }
+        depth--;
+        expect(RIGHT_BRACE);
+        node(SyntaxKind.INITIALIZER_LIST, start, first);
+    }
+
+    // [capturas](parámetros) -> tipo { cuerpo }
+    private void lambda() {
+        int first = tree.size();
+        int start = position;
+        position++;
+        while (!isOperator(RIGHT_BRACKET)) {
+            if (atEnd() || isOperator(SEMICOLON) || isOperator(LEFT_BRACE)) {
+                throw error("se esperaba ']'");
+            }
+            position++;
+        }
+        position++;
+        if (isOperator(LEFT_PAREN)) {
+            parameters();
+        }
+        while (kind() == IDENTIFIER && id() >= 0 && !BUILTIN_TYPE[id()]) {
+            // mutable, noexcept
+            position++;
+        }
+        if (isOperator(ARROW)) {
+            position++;
+            type();
+        }
+        int savedReturns = returns;
+        nested(this::block);
+        returns = savedReturns;
+        node(SyntaxKind.LAMBDA, start, first);
+    }
+
+    // ---- Miradas hacia adelante (no consumen tokens) ----
+
+    // Una sentencia que empieza con un tipo seguido de un nombre es una declaración
+    private boolean isDeclarationStart() {
+        if (kind() != IDENTIFIER && !isOperator(SCOPE)) {
+            return false;
+        }
+        if (id() >= 0) {
+            return QUALIFIER[id()] || BUILTIN_TYPE[id()] || id() == TYPENAME;
+        }
+        int next = skipTypeName(position);
+        if (next < 0) {
+            return false;
+        }
+        while (isOperatorAt(next, STAR) || isOperatorAt(next, AMPERSAND) || isOperatorAt(next, AND) || isWord(next, CONST)) {
+            next++;
+        }
+        return kinds[next] == IDENTIFIER && (ids[next] < 0 || ids[next] == OPERATOR_WORD)
+                || (isOperatorAt(next, LEFT_PAREN) && isOperatorAt(next + 1, STAR));
+    }
+
+    // Fin de un nombre de tipo como std::map<int, std::string> que empieza en i, o -1
+    private int skipTypeName(int i) {
+        if (isOperatorAt(i, SCOPE)) {
+            i++;
+        }
+        while (true) {
+            if (kinds[i] != IDENTIFIER) {
+                return -1;
+            }
+            i++;
+            if (isOperatorAt(i, LESS)) {
+                int open = 1;
+                i++;
+                while (open > 0) {
+                    int kind = kinds[i];
+                    if (kind == OPERATOR) {
+                        int op = ids[i];
+                        if (op == LESS) {
+                            open++;
+                        } else if (op == GREATER) {
+                            open--;
+                        } else if (op == SHIFT_RIGHT) {
+                            open -= 2;
+                        } else if (op != SCOPE && op != COMMA && op != STAR && op != AMPERSAND) {
+                            return -1;
+                        }
+                    } else if (kind != IDENTIFIER && kind != NUMBER) {
+                        return -1;
+                    }
+                    i++;
+                }
+                if (open < 0) {
+                    return -1;
+                }
+            }
+            if (!isOperatorAt(i, SCOPE)) {
+                return i;
+            }
+            i++;
+        }
+    }
+
+    // En una clase, Nombre( sin tipo antes es un constructor; fuera, A::A( o A::~A(
+    private boolean isConstructor() {
+        if (kind() != IDENTIFIER || id() >= 0) {
+            return false;
+        }
+        int next = skipTypeName(position);
+        if (next < 0 || !isOperatorAt(next, LEFT_PAREN)) {
+            return false;
+        }
+        // Un Tipo(...) seguido de un nombre es una declaración de función: Tipo f(...)
+        return !isOperatorAt(next + 1, STAR);
+    }
+
+    private boolean isClassDefinition() {
+        int i = position + 1;
+        if (kinds[i] == IDENTIFIER && ids[i] < 0) {
+            i = skipTypeName(i);
+            if (i < 0) {
+                return false;
+            }
+            if (isWord(i, FINAL)) {
+                i++;
+            }
+        }
+        return isOperatorAt(i, LEFT_BRACE) || isOperatorAt(i, COLON);
+    }
+
+    private boolean isEnumDefinition() {
+        int i = position + 1;
+        if (isWord(i, CLASS) || isWord(i, STRUCT)) {
+            i++;
+        }
+        if (kinds[i] == IDENTIFIER && ids[i] < 0) {
+            i++;
+        }
+        return isOperatorAt(i, LEFT_BRACE) || isOperatorAt(i, COLON);
+    }
+
+    // Después del nombre de una función, (1, x) son argumentos: int x(5);
+    private boolean isArgumentList() {
+        int i = position + 1;
+        if (isOperatorAt(i, RIGHT_PAREN) || isOperatorAt(i, ELLIPSIS)) {
+            return false;
+        }
+        int kind = kinds[i];
+        if (kind == NUMBER || kind == STRING || kind == CHARACTER) {
+            return true;
+        }
+        if (kind != IDENTIFIER) {
+            return !isOperatorAt(i, SCOPE);
+        }
+        int id = ids[i];
+        if (id >= 0) {
+            return !(QUALIFIER[id] || BUILTIN_TYPE[id] || id == TYPENAME || id == CLASS || id == STRUCT || id == ENUM);
+        }
+        // Un nombre solo es un tipo si lo sigue otro nombre, un puntero, una referencia o ','
+        int next = skipTypeName(i);
+        return next < 0 || !(kinds[next] == IDENTIFIER || isOperatorAt(next, STAR) || isOperatorAt(next, AMPERSAND)
+                || isOperatorAt(next, AND) || isOperatorAt(next, COMMA) || isOperatorAt(next, RIGHT_PAREN)
+                || isOperatorAt(next, LESS));
+    }
+
+    // (int) x, (unsigned long*) p
+    private boolean isCast() {
+        int i = position + 1;
+        if (!isTypeAt(i)) {
+            return false;
+        }
+        while (kinds[i] == IDENTIFIER && ids[i] >= 0 && (BUILTIN_TYPE[ids[i]] || QUALIFIER[ids[i]])) {
+            i++;
+        }
+        while (isOperatorAt(i, STAR) || isOperatorAt(i, AMPERSAND)) {
+            i++;
+        }
+        return isOperatorAt(i, RIGHT_PAREN);
+    }
+
+    private boolean isTypeAt(int i) {
+        return kinds[i] == IDENTIFIER && ids[i] >= 0 && (BUILTIN_TYPE[ids[i]] || ids[i] == CONST);
+    }
+
+    private boolean isMain(int nameToken) {
+        int start = starts[nameToken];
+        return ends[nameToken] - start == 4 && code.charAt(start) == 'm' && code.charAt(start + 1) == 'a'
+                && code.charAt(start + 2) == 'i' && code.charAt(start + 3) == 'n';
+    }
+
+    // ---- Tokens ----
+
+    private int kind() {
+        return kinds[position];
+    }
+
+    private int id() {
+        return ids[position];
+    }
+
+    // Agrega un nodo que cubre desde el token start hasta el actual
+    private void node(SyntaxKind kind, int start, int first) {
+        tree.add(kind, start, position, first);
+    }
+
+    private boolean atEnd() {
+        return kinds[position] == END;
+    }
+
+    private boolean isOperator(int op) {
+        return isOperatorAt(position, op);
+    }
+
+    private boolean isOperatorAt(int i, int op) {
+        return kinds[i] == OPERATOR && ids[i] == op;
+    }
+
+    private boolean isWord(int word) {
+        return isWord(position, word);
+    }
+
+    private boolean isWord(int i, int word) {
+        return kinds[i] == IDENTIFIER && ids[i] == word;
+    }
+
+    private boolean isQualifier() {
+        return kind() == IDENTIFIER && id() >= 0 && QUALIFIER[id()];
+    }
+
+    private boolean isBuiltinType() {
+        return kind() == IDENTIFIER && id() >= 0 && BUILTIN_TYPE[id()];
+    }
+
+    private void expect(int op) {
+        if (!isOperator(op)) {
+            throw error("se esperaba '" + OPERATORS[op] + "'");
+        }
+        position++;
+    }
+
+    private void nested(Runnable item) {
+        enter();
+        item.run();
+        depth--;
+    }
+
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            if (!depthReported) {
+                depthReported = true;
+                errorAt(position, "anidamiento de más de " + MAX_DEPTH + " niveles");
+            }
+            throw Failure.INSTANCE;
+        }
+    }
+
+    // Anota un error en el token actual y devuelve la excepción que corta la sentencia
+    private Failure error(String message) {
+        if (position > lastError) {
+            errorAt(position, message + " y se encontró " + shown(position));
+        }
+        return Failure.INSTANCE;
+    }
+
+    private void errorAt(int token, String message) {
+        lastError = Math.max(lastError, token);
+        diagnostics.add(new Diagnostic(Diagnostic.Kind.SYNTAX, lines[token], columns[token], message));
+    }
+
+    private String shown(int token) {
+        if (kinds[token] == END) {
+            return "el final del código";
+        }
+        int start = starts[token];
+        int end = Math.min(ends[token], start + MAX_SHOWN);
+        return "'" + code.subSequence(start, end) + (end < ends[token] ? "...'" : "'");
+    }
+
+    private void addToken(int kind, int id, int start, int end, int line, int column) {
+        if (count == kinds.length) {
+            int capacity = count + (count >> 1);
+            kinds = Arrays.copyOf(kinds, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        kinds[count] = kind;
+        ids[count] = id;
+        starts[count] = start;
+        ends[count] = end;
+        lines[count] = line;
+        columns[count] = column;
+        count++;
+    }
+
+    /**
+     * Pasa los tokens del Lexer a los arreglos del parser. Es una máquina de estados que
+     * recibe un token por vez, así que no depende de cómo el Lexer los agrupa en bloques.
+     */
+    private final class Tokenizer {
+        private boolean preprocessor;
+        // Última línea de la directiva en curso
+        private int directiveLine;
+        private boolean continued;
+        // Línea donde terminó el token anterior
+        private int previousLine;
+
+        void run() {
+            Lexer lexer = new Lexer(code, "C++");
+            TokenBuffer block = new TokenBuffer(AnalysisPipeline.BLOCK_SIZE);
+            while (lexer.fill(block, AnalysisPipeline.BLOCK_SIZE) > 0) {
+                for (int i = 0; i < block.size(); i++) {
+                    accept(block.type(i), block.start(i), block.end(i), block.line(i), block.column(i));
+                }
+                block.clear();
+            }
+            // El final queda después del último token
+            int line = count == 0 ? 1 : lines[count - 1];
+            int column = count == 0 ? 1 : columns[count - 1] + ends[count - 1] - starts[count - 1];
+            for (int i = 0; i < END_PADDING; i++) {
+                addToken(END, -1, code.length(), code.length(), line, column);
+            }
+        }
+
+        private void accept(TokenType type, int start, int end, int line, int column) {
+            boolean firstOnLine = line != previousLine;
+            previousLine = type == TokenType.COMMENT ? lastLine(start, end, line) : line;
+            // También dentro de una directiva, que sigue hasta donde termina el comentario
+            if (type == TokenType.COMMENT && code.charAt(start + 1) == '*' && !endsWith(start + 2, end, "*/")) {
+                diagnostics.add(new Diagnostic(Diagnostic.Kind.SYNTAX, line, column, "comentario sin cerrar"));
+            }
+            if (preprocessor) {
+                // La directiva sigue en la línea siguiente si la anterior termina en '\\'
+                if (line == directiveLine || (continued && line == directiveLine + 1)) {
+                    directiveLine = previousLine;
+                    continued = code.charAt(lastVisible(start, end)) == '\\';
+                    return;
+                }
+                preprocessor = false;
+            }
+            if (type == TokenType.COMMENT) {
+                return;
+            }
+            if (type == TokenType.STRING) {
+                literal(start, end, line, column);
+            } else if (firstOnLine && (type == TokenType.DIRECTIVE || code.charAt(start) == '#')) {
+                preprocessor = true;
+                directiveLine = line;
+                continued = false;
+            } else if (type == TokenType.DIRECTIVE) {
+                // Un '#' en medio de la línea y la palabra que le sigue
+                addToken(OTHER, -1, start, start + 1, line, column);
+                normal(TokenType.IDENTIFIER, start + 1, end, line, column + 1);
+            } else {
+                normal(type, start, end, line, column);
+            }
+        }
+
+        private void normal(TokenType type, int start, int end, int line, int column) {
+            int last = count - 1;
+            boolean afterNumber = last >= 0 && kinds[last] == NUMBER && ends[last] == start;
+            if (type == TokenType.IDENTIFIER || type == TokenType.KEYWORD) {
+                if (afterNumber) {
+                    // Sufijos y otras bases: 3.5f, 10u, 0x1F, 1e
+                    ends[last] = end;
+                } else {
+                    addToken(IDENTIFIER, wordId(start, end), start, end, line, column);
+                }
+                return;
+            }
+            if (type == TokenType.NUMBER) {
+                if (afterNumber) {
+                    ends[last] = end;
+                } else {
+                    addToken(NUMBER, -1, start, end, line, column);
+                }
+                return;
+            }
+            char c = code.charAt(start);
+            char next = end < code.length() ? code.charAt(end) : 0;
+            if (end - start == 1 && afterNumber && (c == '+' || c == '-') && isExponent(last) && next >= '0' && next <= '9') {
+                // 1e-5: el signo y los dígitos siguen en el mismo número
+                ends[last] = end;
+                return;
+            }
+            if (end - start == 1 && c == '.' && next >= '0' && next <= '9' && !afterNumber) {
+                addToken(NUMBER, -1, start, end, line, column);
+                return;
+            }
+            // Los operadores de lenguajes.txt son los de OPERATORS, así que un token es un
+            // solo operador; si no, se parte como lo partiría operatorAt
+            for (int position = start; position < end; ) {
+                int op = operatorAt(position, end);
+                int length = op < 0 ? 1 : OPERATORS[op].length();
+                addToken(op < 0 ? OTHER : OPERATOR, op, position, position + length, line, column + position - start);
+                position += length;
+            }
+        }
+
+        // Una cadena o un carácter; sin cerrar termina en el último carácter que no es espacio
+        private void literal(int start, int end, int line, int column) {
+            char quote = code.charAt(start);
+            boolean closed = end - start > 1 && code.charAt(end - 1) == quote && !escaped(start + 1, end - 1);
+            if (!closed) {
+                end = lastVisible(start, end) + 1;
+                diagnostics.add(new Diagnostic(Diagnostic.Kind.SYNTAX, line, column, quote == '"' ? "cadena sin cerrar" : "carácter sin cerrar"));
+            }
+            addToken(quote == '"' ? STRING : CHARACTER, -1, start, end, line, column);
+        }
+
+        // Si el carácter en position queda escapado por las barras que lo preceden desde from
+        private boolean escaped(int from, int position) {
+            int backslashes = 0;
+            while (position - backslashes > from && code.charAt(position - backslashes - 1) == '\\') {
+                backslashes++;
+            }
+            return backslashes % 2 != 0;
+        }
+
+        // Último carácter del token que no es un espacio; una cadena o un comentario sin
+        // cerrar llegan hasta el salto de línea con los espacios que lo preceden
+        private int lastVisible(int start, int end) {
+            int last = end - 1;
+            while (last > start && Character.isWhitespace(code.charAt(last))) {
+                last--;
+            }
+            return last;
+        }
+
+        private boolean endsWith(int from, int end, String suffix) {
+            return end - from >= suffix.length() && code.subSequence(end - suffix.length(), end).toString().equals(suffix);
+        }
+
+        // Línea donde termina un comentario que empieza en line
+        private int lastLine(int start, int end, int line) {
+            for (int position = start; position < end; position++) {
+                char c = code.charAt(position);
+                if (c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029'
+                        || (c == '\r' && (position + 1 == code.length() || code.charAt(position + 1) != '\n'))) {
+                    line++;
+                }
+            }
+            return line;
+        }
+
+        // El número termina en e o E y no es hexadecimal
+        private boolean isExponent(int token) {
+            int start = starts[token];
+            char c = code.charAt(ends[token] - 1);
+            boolean hex = ends[token] - start > 1 && code.charAt(start) == '0'
+                    && (code.charAt(start + 1) == 'x' || code.charAt(start + 1) == 'X');
+            return (c == 'e' || c == 'E') && !hex;
+        }
+    }
+
+    // Operador más largo que empieza en start y termina antes de limit, o -1
+    private int operatorAt(int start, int limit) {
+        char c = code.charAt(start);
+        if (c >= OPERATORS_BY_CHAR.length || OPERATORS_BY_CHAR[c] == null) {
+            return -1;
+        }
+        candidates:
+        for (int op : OPERATORS_BY_CHAR[c]) {
+            String text = OPERATORS[op];
+            if (start + text.length() > limit) {
+                continue;
+            }
+            for (int i = 1; i < text.length(); i++) {
+                if (code.charAt(start + i) != text.charAt(i)) {
+                    continue candidates;
+                }
+            }
+            return op;
+        }
+        return -1;
+    }
+
+    // Id de la palabra reservada en [start, end), o -1
+    private int wordId(int start, int end) {
+        int length = end - start;
+        if (length >= WORDS_BY_LENGTH.length || WORDS_BY_LENGTH[length] == null) {
+            return -1;
+        }
+        candidates:
+        for (int word : WORDS_BY_LENGTH[length]) {
+            String text = WORDS[word];
+            for (int i = 0; i < length; i++) {
+                if (code.charAt(start + i) != text.charAt(i)) {
+                    continue candidates;
+                }
+            }
+            return word;
+        }
+        return -1;
+    }
+
+    private static int operator(String text) {
+        return Arrays.asList(OPERATORS).indexOf(text);
+    }
+
+    private static int word(String text) {
+        return Arrays.asList(WORDS).indexOf(text);
+    }
+
+    private static boolean[] words(String... list) {
+        boolean[] set = new boolean[WORDS.length];
+        for (String text : list) {
+            set[word(text)] = true;
+        }
+        return set;
+    }
+
+    private static int[][] operatorsByChar() {
+        int[][] byChar = new int[128][];
+        for (int length = 3; length >= 1; length--) {
+            for (int op = 0; op < OPERATORS.length; op++) {
+                if (OPERATORS[op].length() == length) {
+                    char c = OPERATORS[op].charAt(0);
+                    byChar[c] = byChar[c] == null ? new int[]{op} : append(byChar[c], op);
+                }
+            }
+        }
+        return byChar;
+    }
+
+    private static int[][] wordsByLength() {
+        int max = 0;
+        for (String text : WORDS) {
+            max = Math.max(max, text.length());
+        }
+        int[][] byLength = new int[max + 1][];
+        for (int word = 0; word < WORDS.length; word++) {
+            int length = WORDS[word].length();
+            byLength[length] = byLength[length] == null ? new int[]{word} : append(byLength[length], word);
+        }
+        return byLength;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    /** Corta el reconocimiento de una sentencia con errores; no lleva traza. */
+    private static final class Failure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final Failure INSTANCE = new Failure();
+
+        private Failure() {
+            super("Error de sintaxis", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.Locale;
+
+/**
+ * Un error del análisis con su posición en el código. Línea y columna empiezan en 1 y
+ * cuentan los mismos saltos de línea que el Lexer (ver TextLines).
+ */
+final class Diagnostic {
+    enum Kind {
+        LEXICAL,
+        SYNTAX,
+        SEMANTIC
+    }
+
+    private final Kind kind;
+    private final int line;
+    private final int column;
+    private final String message;
+
+    Diagnostic(Kind kind, int line, int column, String message) {
+        this.kind = kind;
+        this.line = line;
+        this.column = column;
+        this.message = message;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /** El mensaje sin el prefijo "Error:" ni el punto final. */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Error: línea %d, columna %d: %s.", line, column, message);
+    }
+
+    /**
+     * Ubica posiciones de un código en líneas y columnas. Los comienzos de línea se
+     * calculan con el primer error, así que un código sin errores no se recorre.
+     */
+    static final class Positions {
+        private final CharSequence code;
+        private TextLines lines;
+
+        Positions(CharSequence code) {
+            this.code = code;
+        }
+
+        Diagnostic at(Kind kind, int offset, String message) {
+            if (lines == null) {
+                lines = new TextLines(code);
+            }
+            int line = lines.lineOf(offset);
+            return new Diagnostic(kind, line + 1, offset - lines.start(line) + 1, message);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Identifica el lenguaje puntuando todos los perfiles a la vez en una sola pasada lineal,
+ * sin expresiones regulares. Un autómata de Aho-Corasick construido una vez con las
+ * palabras reservadas y las palabras de las firmas reconoce todas sus apariciones como
+ * palabras completas (con los mismos límites que \b).
+ *
+ * Cada aparición reparte su peso entre los lenguajes que reclaman la palabra, así que
+ * las palabras compartidas ("if", "SELECT") no desempatan y las exclusivas
+ * ("#include", "CREATE TABLE") sí. Las palabras de firma pesan más que las reservadas.
+ * Solo son candidatos los lenguajes con al menos una aparición de su firma: un texto
+ * sin ninguna firma sigue sin identificarse.
+ */
+final class LanguageClassifier {
+    static final int SIGNATURE_WEIGHT = 4;
+    // Divisible por cualquier cantidad de lenguajes que comparta una palabra
+    private static final int SCALE = 420;
+    private static final int ASCII = 128;
+    // Cada cuántos caracteres Tally revisa si ya puede dejar de leer
+    static final int EARLY_STOP_INTERVAL = 64 * 1024;
+    private static final int EARLY_STOP_SIGNATURES = 16;
+    // Ventaja mínima del primero sobre cada uno de los demás, en porcentaje de su puntaje
+    private static final int EARLY_STOP_LEAD_PERCENT = 50;
+
+    private final String[] languages;
+    // Palabras que reconoce el autómata
+    private final char[][] words;
+    // Por palabra: lenguajes que la reclaman, el peso para cada uno y si es su firma
+    private final int[][] claimants;
+    private final long[] weights;
+    private final boolean[][] signatureOf;
+    // Firmas de dos palabras separadas por espacios: primera palabra, segunda y lenguaje
+    private final int[] pairFirst;
+    private final int[] pairSecond;
+    private final int[] pairLanguage;
+    // Autómata: transiciones ASCII por estado y palabras reconocidas al llegar a cada estado
+    private final int[] next;
+    private final int[][] outputs;
+
+    LanguageClassifier(List<LanguageProfile> profiles) {
+        languages = new String[profiles.size()];
+        Map<String, List<Integer>> claimed = new LinkedHashMap<>();
+        Map<String, boolean[]> signatures = new LinkedHashMap<>();
+        List<int[]> pairs = new ArrayList<>();
+        for (int l = 0; l < profiles.size(); l++) {
+            LanguageProfile profile = profiles.get(l);
+            languages[l] = profile.getName();
+            for (String word : profile.getReservedWords()) {
+                claim(claimed, word, l);
+            }
+            for (String token : profile.getSignatureTokens()) {
+                String[] parts = token.split(" ");
+                if (parts.length == 1) {
+                    claim(claimed, token, l);
+                    signatures.computeIfAbsent(token, k -> new boolean[profiles.size()])[l] = true;
+                } else if (parts.length == 2) {
+                    claimed.computeIfAbsent(parts[0], k -> new ArrayList<>());
+                    claimed.computeIfAbsent(parts[1], k -> new ArrayList<>());
+                    pairs.add(new int[]{indexOf(claimed, parts[0]), indexOf(claimed, parts[1]), l});
+                } else {
+                    throw new IllegalArgumentException("Firma de más de dos palabras: " + token);
+                }
+            }
+        }
+
+        int count = claimed.size();
+        words = new char[count][];
+        claimants = new int[count][];
+        weights = new long[count];
+        signatureOf = new boolean[count][];
+        int i = 0;
+        for (Map.Entry<String, List<Integer>> entry : claimed.entrySet()) {
+            String word = entry.getKey();
+            for (int c = 0; c < word.length(); c++) {
+                if (word.charAt(c) >= ASCII) {
+                    throw new IllegalArgumentException("Palabra no ASCII: " + word);
+                }
+            }
+            words[i] = word.toCharArray();
+            claimants[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            boolean[] signature = signatures.get(word);
+            signatureOf[i] = signature == null ? new boolean[languages.length] : signature;
+            // Las palabras de una firma doble solo cuentan como firma cuando aparecen juntas
+            int base = signature == null ? 1 : SIGNATURE_WEIGHT;
+            weights[i] = claimants[i].length == 0 ? 0 : (long) base * SCALE / claimants[i].length;
+            i++;
+        }
+        pairFirst = new int[pairs.size()];
+        pairSecond = new int[pairs.size()];
+        pairLanguage = new int[pairs.size()];
+        for (int p = 0; p < pairs.size(); p++) {
+            pairFirst[p] = pairs.get(p)[0];
+            pairSecond[p] = pairs.get(p)[1];
+            pairLanguage[p] = pairs.get(p)[2];
+        }
+
+        // Trie de todas las palabras
+        List<int[]> goTo = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        goTo.add(newState());
+        ends.add(new ArrayList<>());
+        for (int w = 0; w < words.length; w++) {
+            int state = 0;
+            for (char c : words[w]) {
+                if (goTo.get(state)[c] < 0) {
+                    goTo.get(state)[c] = goTo.size();
+                    goTo.add(newState());
+                    ends.add(new ArrayList<>());
+                }
+                state = goTo.get(state)[c];
+            }
+            ends.get(state).add(w);
+        }
+
+        // Enlaces de falla por niveles; las transiciones faltantes se completan con las del
+        // estado de falla, y cada estado hereda las palabras que termina su enlace
+        int states = goTo.size();
+        next = new int[states * ASCII];
+        int[] fail = new int[states];
+        outputs = new int[states][];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int c = 0; c < ASCII; c++) {
+            int child = goTo.get(0)[c];
+            next[c] = Math.max(child, 0);
+            if (child > 0) {
+                fail[child] = 0;
+                queue[tail++] = child;
+            }
+        }
+        outputs[0] = null;
+        while (head < tail) {
+            int state = queue[head++];
+            List<Integer> matched = new ArrayList<>(ends.get(state));
+            if (outputs[fail[state]] != null) {
+                for (int w : outputs[fail[state]]) {
+                    matched.add(w);
+                }
+            }
+            outputs[state] = matched.isEmpty() ? null : matched.stream().mapToInt(Integer::intValue).toArray();
+            for (int c = 0; c < ASCII; c++) {
+                int child = goTo.get(state)[c];
+                if (child > 0) {
+                    fail[child] = next[fail[state] * ASCII + c];
+                    next[state * ASCII + c] = child;
+                    queue[tail++] = child;
+                } else {
+                    next[state * ASCII + c] = next[fail[state] * ASCII + c];
+                }
+            }
+        }
+    }
+
+    private LanguageClassifier(String[] languages, char[][] words, int[][] claimants, long[] weights,
+                               boolean[][] signatureOf, int[] pairFirst, int[] pairSecond, int[] pairLanguage,
+                               int[] next, int[][] outputs) {
+        this.languages = languages;
+        this.words = words;
+        this.claimants = claimants;
+        this.weights = weights;
+        this.signatureOf = signatureOf;
+        this.pairFirst = pairFirst;
+        this.pairSecond = pairSecond;
+        this.pairLanguage = pairLanguage;
+        this.next = next;
+        this.outputs = outputs;
+    }
+
+    /** Escribe el clasificador ya construido en el formato de LanguageSnapshot. */
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(languages.length);
+        for (String language : languages) {
+            out.writeUTF(language);
+        }
+        out.writeInt(words.length);
+        for (int w = 0; w < words.length; w++) {
+            out.writeUTF(new String(words[w]));
+            LanguageSnapshot.writeInts(out, claimants[w]);
+            out.writeLong(weights[w]);
+            for (boolean signature : signatureOf[w]) {
+                out.writeBoolean(signature);
+            }
+        }
+        LanguageSnapshot.writeInts(out, pairFirst);
+        LanguageSnapshot.writeInts(out, pairSecond);
+        LanguageSnapshot.writeInts(out, pairLanguage);
+        LanguageSnapshot.writeInts(out, next);
+        out.writeInt(outputs.length);
+        for (int[] output : outputs) {
+            // Los estados que no terminan ninguna palabra se escriben como -1
+            if (output == null) {
+                out.writeInt(-1);
+            } else {
+                LanguageSnapshot.writeInts(out, output);
+            }
+        }
+    }
+
+    /** Lee un clasificador escrito con writeTo, sin volver a armar el autómata. */
+    static LanguageClassifier readFrom(ByteBuffer in) {
+        String[] languages = new String[in.getInt()];
+        for (int l = 0; l < languages.length; l++) {
+            languages[l] = LanguageSnapshot.readString(in);
+        }
+        int count = in.getInt();
+        char[][] words = new char[count][];
+        int[][] claimants = new int[count][];
+        long[] weights = new long[count];
+        boolean[][] signatureOf = new boolean[count][];
+        for (int w = 0; w < count; w++) {
+            words[w] = LanguageSnapshot.readString(in).toCharArray();
+            claimants[w] = LanguageSnapshot.readInts(in);
+            weights[w] = in.getLong();
+            signatureOf[w] = new boolean[languages.length];
+            for (int l = 0; l < languages.length; l++) {
+                signatureOf[w][l] = in.get() != 0;
+            }
+        }
+        int[] pairFirst = LanguageSnapshot.readInts(in);
+        int[] pairSecond = LanguageSnapshot.readInts(in);
+        int[] pairLanguage = LanguageSnapshot.readInts(in);
+        int[] next = LanguageSnapshot.readInts(in);
+        int[][] outputs = new int[in.getInt()][];
+        for (int state = 0; state < outputs.length; state++) {
+            in.mark();
+            if (in.getInt() >= 0) {
+                in.reset();
+                outputs[state] = LanguageSnapshot.readInts(in);
+            }
+        }
+        if (next.length != outputs.length * ASCII) {
+            throw new IllegalArgumentException("Autómata inválido");
+        }
+        return new LanguageClassifier(languages, words, claimants, weights, signatureOf, pairFirst, pairSecond,
+                pairLanguage, next, outputs);
+    }
+
+    // El del snapshot si es de los perfiles actuales; si no, se arma de los perfiles. Va en
+    // su propia clase porque leer el snapshot carga esta
+    private static final class Shared {
+        static final LanguageClassifier INSTANCE = prebuiltOrNew();
+
+        private static LanguageClassifier prebuiltOrNew() {
+            LanguageClassifier prebuilt = LanguageSnapshot.shared().classifier();
+            return prebuilt != null ? prebuilt : new LanguageClassifier(LanguageProfile.all());
+        }
+    }
+
+    private static void claim(Map<String, List<Integer>> claimed, String word, int language) {
+        List<Integer> languages = claimed.computeIfAbsent(word, k -> new ArrayList<>());
+        if (!languages.contains(language)) {
+            languages.add(language);
+        }
+    }
+
+    private static int indexOf(Map<String, ?> map, String key) {
+        int i = 0;
+        for (String candidate : map.keySet()) {
+            if (candidate.equals(key)) {
+                return i;
+            }
+            i++;
+        }
+        throw new IllegalArgumentException(key);
+    }
+
+    private static int[] newState() {
+        int[] transitions = new int[ASCII];
+        Arrays.fill(transitions, -1);
+        return transitions;
+    }
+
+    /** Clasificador de los perfiles de LanguageProfile.all(), construido o leído del snapshot una sola vez. */
+    static LanguageClassifier shared() {
+        return Shared.INSTANCE;
+    }
+
+    /** Puntúa el texto completo. */
+    Evidence classify(CharSequence text) {
+        Tally tally = new Tally();
+        tally.add(text, 0, text.length());
+        return tally.finish();
+    }
+
+    /**
+     * Puntúa el texto, pero deja de leer en cuanto un lenguaje queda claramente adelante
+     * (ver Evidence.hasClearLeader()).
+     */
+    Evidence classifyEarly(CharSequence text) {
+        Tally tally = new Tally();
+        for (int start = 0; start < text.length(); start += EARLY_STOP_INTERVAL) {
+            tally.add(text, start, Math.min(start + EARLY_STOP_INTERVAL, text.length()));
+            if (tally.evidence.hasClearLeader()) {
+                break;
+            }
+        }
+        return tally.finish();
+    }
+
+    Tally newTally() {
+        return new Tally();
+    }
+
+    Evidence newEvidence() {
+        return new Evidence();
+    }
+
+    // Mismos caracteres de palabra que \b en java.util.regex
+    private static boolean isWord(char c) {
+        if (c < ASCII) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    // Los espacios de \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** Puntaje y apariciones de firma de cada lenguaje. Se pueden sumar y restar. */
+    final class Evidence {
+        private final long[] scores = new long[languages.length];
+        private final int[] signatureHits = new int[languages.length];
+
+        /** Suma (sign = 1) o resta (sign = -1) la evidencia de other. */
+        void add(Evidence other, int sign) {
+            for (int l = 0; l < languages.length; l++) {
+                scores[l] += sign * other.scores[l];
+                signatureHits[l] += sign * other.signatureHits[l];
+            }
+        }
+
+        void clear() {
+            Arrays.fill(scores, 0);
+            Arrays.fill(signatureHits, 0);
+        }
+
+        /**
+         * Lenguajes con alguna evidencia, de mayor a menor: primero los candidatos (con
+         * firma) y después el resto. Los empates se resuelven por el orden de los perfiles.
+         */
+        List<Score> ranking() {
+            long total = 0;
+            for (long score : scores) {
+                total += score;
+            }
+            List<Score> ranking = new ArrayList<>();
+            for (int l = 0; l < languages.length; l++) {
+                if (scores[l] > 0 || signatureHits[l] > 0) {
+                    ranking.add(new Score(languages[l], scores[l], signatureHits[l],
+                            total == 0 ? 0 : (double) scores[l] / total));
+                }
+            }
+            ranking.sort((a, b) -> {
+                if (a.isCandidate() != b.isCandidate()) {
+                    return a.isCandidate() ? -1 : 1;
+                }
+                return Long.compare(b.getScore(), a.getScore());
+            });
+            return ranking;
+        }
+
+        /** El candidato con mayor puntaje, o null si ningún lenguaje tiene su firma. */
+        String language() {
+            int best = -1;
+            for (int l = 0; l < languages.length; l++) {
+                if (signatureHits[l] > 0 && (best < 0 || scores[l] > scores[best])) {
+                    best = l;
+                }
+            }
+            return best < 0 ? null : languages[best];
+        }
+
+        /**
+         * true si el candidato que va primero ya tiene suficientes apariciones de firma y
+         * un puntaje al menos un 50% mayor que el de cualquier otro lenguaje.
+         */
+        boolean hasClearLeader() {
+            String leader = language();
+            if (leader == null) {
+                return false;
+            }
+            int l = Arrays.asList(languages).indexOf(leader);
+            if (signatureHits[l] < EARLY_STOP_SIGNATURES) {
+                return false;
+            }
+            for (int other = 0; other < languages.length; other++) {
+                if (other != l && scores[l] * 100 < scores[other] * (100 + EARLY_STOP_LEAD_PERCENT)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Pasada en curso. El texto se puede entregar en partes consecutivas con add(); las
+     * palabras y las firmas dobles que cruzan de una parte a la siguiente se reconocen igual.
+     */
+    final class Tally {
+        private final Evidence evidence = new Evidence();
+        private int state;
+        // Posición absoluta del siguiente carácter
+        private long position;
+        // Un bit por cada uno de los últimos 64 caracteres: 1 si es de palabra (bit 0 = el último)
+        private long wordHistory;
+        // Fin (exclusivo) del último carácter que no es \s, en general y antes de la palabra actual
+        private long lastNonSpaceEnd;
+        private long nonSpaceEndBeforeWord;
+        // Palabras que terminan en position y cuyo final espera al siguiente carácter
+        private final int[] pending = new int[words.length];
+        private int pendingCount;
+        // Fin de la última aparición de la primera palabra de cada firma doble
+        private final long[] pairFirstEnd = new long[pairFirst.length];
+
+        private Tally() {
+            Arrays.fill(pairFirstEnd, -1);
+        }
+
+        void add(CharSequence text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                boolean word = isWord(c);
+                if (pendingCount > 0) {
+                    confirmPending(!word);
+                }
+                if (word && (wordHistory & 1) == 0) {
+                    nonSpaceEndBeforeWord = lastNonSpaceEnd;
+                }
+                wordHistory = (wordHistory << 1) | (word ? 1 : 0);
+                position++;
+                if (!isSpace(c)) {
+                    lastNonSpaceEnd = position;
+                }
+                state = c < ASCII ? next[state * ASCII + c] : 0;
+                int[] matched = outputs[state];
+                if (matched != null) {
+                    for (int w : matched) {
+                        match(w);
+                    }
+                }
+            }
+        }
+
+        /** Termina la pasada (el final del texto es un límite de palabra) y devuelve la evidencia. */
+        Evidence finish() {
+            confirmPending(true);
+            state = 0;
+            return evidence;
+        }
+
+        Evidence evidence() {
+            return evidence;
+        }
+
+        private void match(int w) {
+            char[] chars = words[w];
+            // El carácter anterior a la palabra está length posiciones atrás en wordHistory
+            if (isWord(chars[0]) && chars.length < 64 && (wordHistory >>> chars.length & 1) != 0) {
+                return;
+            }
+            if (isWord(chars[chars.length - 1])) {
+                pending[pendingCount++] = w;
+            } else {
+                count(w);
+            }
+        }
+
+        private void confirmPending(boolean boundary) {
+            if (boundary) {
+                for (int i = 0; i < pendingCount; i++) {
+                    count(pending[i]);
+                }
+            }
+            pendingCount = 0;
+        }
+
+        private void count(int w) {
+            long[] scores = evidence.scores;
+            for (int l : claimants[w]) {
+                scores[l] += weights[w];
+                if (signatureOf[w][l]) {
+                    evidence.signatureHits[l]++;
+                }
+            }
+            for (int p = 0; p < pairFirst.length; p++) {
+                if (pairSecond[p] == w && pairFirstEnd[p] >= 0
+                        && nonSpaceEndBeforeWord == pairFirstEnd[p] && position - words[w].length > pairFirstEnd[p]) {
+                    scores[pairLanguage[p]] += (long) SIGNATURE_WEIGHT * SCALE;
+                    evidence.signatureHits[pairLanguage[p]]++;
+                }
+                if (pairFirst[p] == w) {
+                    pairFirstEnd[p] = position;
+                }
+            }
+        }
+    }
+
+    /** Posición de un lenguaje en el ranking. */
+    static final class Score {
+        private final String language;
+        private final long score;
+        private final int signatureHits;
+        private final double confidence;
+
+        Score(String language, long score, int signatureHits, double confidence) {
+            this.language = language;
+            this.score = score;
+            this.signatureHits = signatureHits;
+            this.confidence = confidence;
+        }
+
+        String getLanguage() {
+            return language;
+        }
+
+        long getScore() {
+            return score;
+        }
+
+        int getSignatureHits() {
+            return signatureHits;
+        }
+
+        /** Fracción del puntaje total que corresponde a este lenguaje, entre 0 y 1. */
+        double getConfidence() {
+            return confidence;
+        }
+
+        boolean isCandidate() {
+            return signatureHits > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.ROOT, "%s %.0f%%", language, confidence * 100);
+        }
+    }
+}
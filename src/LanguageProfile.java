@@ -0,0 +1,462 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Perfil inmutable de un lenguaje: palabras reservadas, patrón de identificación
+ * y patrones de cada extractor. Los perfiles se leen una sola vez de lenguajes.txt
+ * (un recurso del classpath, o el archivo que indique -Danalyzer.languages) y los
+ * comparten todos los análisis; agregar un lenguaje es agregar una sección a ese
+ * archivo. Un patrón nulo indica que el extractor no está soportado para ese lenguaje.
+ * "javac -d out src/*.java" no copia lenguajes.txt junto a las clases: se corre con
+ * src en el classpath (java -cp out:src ...) o copiándolo a out. Si no se puede leer,
+ * los main lo informan al arrancar con requireData.
+ *
+ * Las expresiones se compilan la primera vez que se piden: identificar el lenguaje
+ * y recorrer los tokens no las usan, así que el arranque no paga por ellas.
+ */
+public final class LanguageProfile {
+    static final String DATA = "lenguajes.txt";
+    static final String DATA_PROPERTY = "analyzer.languages";
+    static final String CPP_ANALYZER = "cpp";
+
+    // Claves de lenguajes.txt de cada extractor
+    private static final Map<String, ReportSection> EXTRACTORS = new LinkedHashMap<>();
+
+    static {
+        EXTRACTORS.put("variables", ReportSection.VARIABLES);
+        EXTRACTORS.put("constantes", ReportSection.CONSTANTS);
+        EXTRACTORS.put("funciones", ReportSection.FUNCTIONS);
+        EXTRACTORS.put("ciclos", ReportSection.LOOPS);
+        EXTRACTORS.put("condicionales", ReportSection.CONDITIONALS);
+        EXTRACTORS.put("crud", ReportSection.CRUD);
+    }
+
+    private static final String SOURCE;
+    private static final List<LanguageProfile> PROFILES;
+    // Por qué no se pudieron leer los perfiles, o null si se leyeron
+    private static final String PROBLEM;
+    private static final Map<String, LanguageProfile> BY_NAME;
+
+    static {
+        // Sin datos no se lanza nada aquí: un error en el inicializador de la clase saldría
+        // del primer análisis, lejos del arranque; queda sin perfiles y requireData avisa
+        String source = "";
+        List<LanguageProfile> profiles = Collections.emptyList();
+        String problem = null;
+        try {
+            String text = readData();
+            profiles = parse(text);
+            source = text;
+        } catch (IOException ex) {
+            problem = "No se pudieron leer los perfiles de los lenguajes: " + ex;
+        } catch (IllegalStateException | IllegalArgumentException ex) {
+            problem = ex.getMessage();
+        }
+        SOURCE = source;
+        PROFILES = profiles;
+        PROBLEM = problem;
+        Map<String, LanguageProfile> byName = new LinkedHashMap<>();
+        for (LanguageProfile profile : PROFILES) {
+            byName.put(profile.getName(), profile);
+        }
+        BY_NAME = Collections.unmodifiableMap(byName);
+    }
+
+    private final String name;
+    private final Set<String> reservedWords;
+    private final boolean caseInsensitive;
+    private final String signatureRegex;
+    private final List<String> signatureTokens;
+    private final Map<ReportSection, String> extractorRegexes;
+    private final Map<ReportSection, String[]> collectors;
+    private final String analyzer;
+    private final boolean syntaxPending;
+    private final List<String> lineComments;
+    private final Map<String, String> blockComments;
+    private final String quotes;
+    private final String stringEscape;
+    private final List<String> operators;
+    private final String variablePrefix;
+    private final String directivePrefix;
+    private volatile Pattern signature;
+    private final Map<ReportSection, Pattern> extractors = Collections.synchronizedMap(new EnumMap<>(ReportSection.class));
+
+    private LanguageProfile(Builder builder) {
+        this.name = builder.name;
+        this.reservedWords = Collections.unmodifiableSet(builder.reservedWords);
+        this.caseInsensitive = builder.caseInsensitive;
+        this.signatureRegex = builder.signature;
+        this.signatureTokens = Collections.unmodifiableList(builder.signatureTokens);
+        this.extractorRegexes = builder.extractors;
+        this.collectors = builder.collectors;
+        this.analyzer = builder.analyzer;
+        this.syntaxPending = builder.syntaxPending;
+        this.lineComments = Collections.unmodifiableList(builder.lineComments);
+        this.blockComments = Collections.unmodifiableMap(builder.blockComments);
+        this.quotes = builder.quotes;
+        this.stringEscape = builder.stringEscape;
+        this.operators = Collections.unmodifiableList(builder.operators);
+        this.variablePrefix = builder.variablePrefix;
+        this.directivePrefix = builder.directivePrefix;
+    }
+
+    /**
+     * Termina el programa con el motivo si no se pudieron leer los perfiles. Lo llaman los
+     * main antes de analizar nada: sin perfiles ningún lenguaje se identifica.
+     */
+    static void requireData() {
+        if (PROBLEM != null) {
+            System.err.println(PROBLEM);
+            System.exit(2);
+        }
+    }
+
+    /** Perfiles de todos los lenguajes soportados, en orden de identificación. */
+    public static List<LanguageProfile> all() {
+        return PROFILES;
+    }
+
+    /** Devuelve el perfil del lenguaje o null si no está soportado. */
+    public static LanguageProfile forName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /** Palabras reservadas de cada lenguaje por nombre, como las usa CodeAnalyzer. */
+    static Map<String, Set<String>> reservedWords() {
+        Map<String, Set<String>> words = new HashMap<>();
+        for (LanguageProfile profile : PROFILES) {
+            words.put(profile.getName(), profile.getReservedWords());
+        }
+        return words;
+    }
+
+    /** Texto del que se leyeron los perfiles. */
+    static String source() {
+        return SOURCE;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Set<String> getReservedWords() {
+        return reservedWords;
+    }
+
+    /** Si las palabras clave se reconocen sin distinguir mayúsculas (solo en ASCII). */
+    public boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    public Pattern getSignature() {
+        Pattern pattern = signature;
+        if (pattern == null && signatureRegex != null) {
+            pattern = PatternCatalog.compile(signatureRegex);
+            signature = pattern;
+        }
+        return pattern;
+    }
+
+    /**
+     * Las palabras que busca la firma, tal como aparecen en el código. Un espacio
+     * entre dos palabras representa uno o más espacios en blanco (\s+).
+     */
+    public List<String> getSignatureTokens() {
+        return signatureTokens;
+    }
+
+    public Pattern getVariables() {
+        return getExtractor(ReportSection.VARIABLES);
+    }
+
+    public Pattern getConstants() {
+        return getExtractor(ReportSection.CONSTANTS);
+    }
+
+    public Pattern getFunctions() {
+        return getExtractor(ReportSection.FUNCTIONS);
+    }
+
+    public Pattern getLoops() {
+        return getExtractor(ReportSection.LOOPS);
+    }
+
+    public Pattern getConditionals() {
+        return getExtractor(ReportSection.CONDITIONALS);
+    }
+
+    public Pattern getCrudOperations() {
+        return getExtractor(ReportSection.CRUD);
+    }
+
+    /** Patrón del extractor de la sección, compilado una sola vez, o null si no está soportado. */
+    Pattern getExtractor(ReportSection section) {
+        String regex = extractorRegexes.get(section);
+        if (regex == null) {
+            return null;
+        }
+        return extractors.computeIfAbsent(section, key -> PatternCatalog.compile(regex));
+    }
+
+    /** Tipo de recolector de tokens de la sección y sus argumentos, o null si no se indicó. */
+    String[] getCollector(ReportSection section) {
+        String[] collector = collectors.get(section);
+        return collector == null ? null : collector.clone();
+    }
+
+    /** Si el lenguaje tiene los análisis léxico, sintáctico, semántico y la simulación de C++. */
+    boolean usesCppAnalyzer() {
+        return CPP_ANALYZER.equals(analyzer);
+    }
+
+    /** Si el análisis sintáctico solo avisa que no está implementado. */
+    boolean isSyntaxPending() {
+        return syntaxPending;
+    }
+
+    /** Comienzos de los comentarios que terminan con la línea. */
+    List<String> getLineComments() {
+        return lineComments;
+    }
+
+    /** Apertura y cierre de cada comentario de bloque, en el orden de lenguajes.txt. */
+    Map<String, String> getBlockComments() {
+        return blockComments;
+    }
+
+    /** Comillas que abren una cadena, un carácter por comilla. */
+    String getQuotes() {
+        return quotes;
+    }
+
+    /**
+     * Carácter que escapa al siguiente dentro de una cadena, o "" si la comilla se escapa
+     * duplicándola, como en SQL y Pascal.
+     */
+    String getStringEscape() {
+        return stringEscape;
+    }
+
+    /** Operadores de más de un carácter. */
+    List<String> getOperators() {
+        return operators;
+    }
+
+    /** Prefijo que forma una variable con la palabra que le sigue (@total), o "". */
+    String getVariablePrefix() {
+        return variablePrefix;
+    }
+
+    /** Prefijo que forma una directiva con la palabra que le sigue (#include), o "". */
+    String getDirectivePrefix() {
+        return directivePrefix;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static String readData() throws IOException {
+        String file = System.getProperty(DATA_PROPERTY);
+        if (file != null) {
+            return Files.readString(Path.of(file), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = LanguageProfile.class.getResourceAsStream(DATA)) {
+            if (in == null) {
+                throw new IllegalStateException("No se encontró " + DATA + " en el classpath del analizador: copiarlo junto"
+                        + " a las clases, agregar src al classpath (java -cp out:src ...) o indicarlo con -D"
+                        + DATA_PROPERTY + "=archivo");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Perfiles de un texto con el formato de lenguajes.txt, en el orden en que aparecen. */
+    static List<LanguageProfile> parse(String text) {
+        List<LanguageProfile> profiles = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        Builder current = null;
+        String[] lines = text.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                if (current != null) {
+                    profiles.add(current.build());
+                }
+                current = new Builder(line.substring(1, line.length() - 1).trim());
+                if (current.name.isEmpty() || !names.add(current.name)) {
+                    throw error(i, "nombre de lenguaje vacío o repetido: " + line);
+                }
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw error(i, "se esperaba clave = valor: " + line);
+            }
+            if (current == null) {
+                throw error(i, "clave antes del primer [lenguaje]: " + line);
+            }
+            String key = line.substring(0, equals).trim();
+            String value = line.substring(equals + 1).trim();
+            boolean known;
+            try {
+                known = current.set(key, value);
+            } catch (IllegalArgumentException ex) {
+                throw error(i, ex.getMessage());
+            }
+            if (!known) {
+                throw error(i, "clave desconocida: " + key);
+            }
+        }
+        if (current != null) {
+            profiles.add(current.build());
+        }
+        return Collections.unmodifiableList(profiles);
+    }
+
+    private static IllegalArgumentException error(int line, String message) {
+        return new IllegalArgumentException(DATA + ":" + (line + 1) + ": " + message);
+    }
+
+    // Claves de una sección de lenguajes.txt mientras se lee
+    private static final class Builder {
+        final String name;
+        final Set<String> reservedWords = new LinkedHashSet<>();
+        boolean caseInsensitive;
+        String signature;
+        final List<String> signatureTokens = new ArrayList<>();
+        final Map<ReportSection, String> extractors = new EnumMap<>(ReportSection.class);
+        final Map<ReportSection, String[]> collectors = new EnumMap<>(ReportSection.class);
+        String analyzer;
+        boolean syntaxPending;
+        final List<String> lineComments = new ArrayList<>();
+        final Map<String, String> blockComments = new LinkedHashMap<>();
+        String quotes = "";
+        String stringEscape = "";
+        final List<String> operators = new ArrayList<>();
+        String variablePrefix = "";
+        String directivePrefix = "";
+
+        Builder(String name) {
+            this.name = name;
+        }
+
+        boolean set(String key, String value) {
+            switch (key) {
+                case "reservadas":
+                    if (!value.isEmpty()) {
+                        reservedWords.addAll(Arrays.asList(value.split("\\s+")));
+                    }
+                    return true;
+                case "mayusculas":
+                    caseInsensitive = "no".equals(value);
+                    return true;
+                case "firma":
+                    signature = value;
+                    return true;
+                case "firma.palabras":
+                    for (String token : value.split(",")) {
+                        if (!token.trim().isEmpty()) {
+                            signatureTokens.add(token.trim());
+                        }
+                    }
+                    return true;
+                case "analizador":
+                    analyzer = value;
+                    return true;
+                case "sintaxis":
+                    syntaxPending = "pendiente".equals(value);
+                    return true;
+                case "comentario":
+                    lineComments.addAll(symbols(value));
+                    return true;
+                case "comentario.bloque":
+                    List<String> delimiters = symbols(value);
+                    if (delimiters.size() % 2 != 0) {
+                        throw new IllegalArgumentException("cada comentario de bloque necesita apertura y cierre: " + value);
+                    }
+                    for (int i = 0; i < delimiters.size(); i += 2) {
+                        blockComments.put(delimiters.get(i), delimiters.get(i + 1));
+                    }
+                    return true;
+                case "cadenas":
+                    quotes = String.join("", symbols(value));
+                    if (quotes.length() != symbols(value).size()) {
+                        throw new IllegalArgumentException("cada comilla es un solo carácter: " + value);
+                    }
+                    return true;
+                case "cadenas.escape":
+                    stringEscape = single(value);
+                    return true;
+                case "operadores":
+                    operators.addAll(symbols(value));
+                    return true;
+                case "variables.prefijo":
+                    variablePrefix = single(value);
+                    return true;
+                case "directivas":
+                    directivePrefix = single(value);
+                    return true;
+                default:
+                    break;
+            }
+            if (key.endsWith(".recolector")) {
+                ReportSection section = EXTRACTORS.get(key.substring(0, key.length() - ".recolector".length()));
+                if (section != null) {
+                    collectors.put(section, value.split("\\s+"));
+                }
+                return section != null;
+            }
+            ReportSection section = EXTRACTORS.get(key);
+            if (section != null) {
+                extractors.put(section, value);
+            }
+            return section != null;
+        }
+
+        LanguageProfile build() {
+            return new LanguageProfile(this);
+        }
+
+        // Símbolos ASCII separados por espacios, como los necesita LexicalSpec
+        private static List<String> symbols(String value) {
+            List<String> symbols = new ArrayList<>();
+            for (String symbol : value.split("\\s+")) {
+                if (symbol.isEmpty()) {
+                    continue;
+                }
+                if (!symbol.chars().allMatch(c -> c < 0x80)) {
+                    throw new IllegalArgumentException("solo se admiten símbolos ASCII: " + symbol);
+                }
+                symbols.add(symbol);
+            }
+            return symbols;
+        }
+
+        private static String single(String value) {
+            List<String> symbols = symbols(value);
+            if (symbols.size() != 1 || symbols.get(0).length() != 1) {
+                throw new IllegalArgumentException("se esperaba un solo carácter: " + value);
+            }
+            return symbols.get(0);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lo que se arma de lenguajes.txt antes de poder analizar, ya armado: los dos AFD del
+ * Lexer de cada lenguaje (LexicalSpec) y el autómata de LanguageClassifier. Se genera al
+ * compilar, con lenguajes.txt en el classpath:
+ *
+ *   java -cp clases:src LanguageSnapshot src/lenguajes.snapshot
+ *
+ * y al arrancar se mapea lenguajes.snapshot (un recurso del classpath, como
+ * lenguajes.txt) en memoria y sus arreglos se copian tal cual, sin construir nada. Guarda el hash de lenguajes.txt: si no coincide con el texto que leyó
+ * LanguageProfile (se editó el archivo, o -Danalyzer.languages indica otro) o no se
+ * puede leer, se ignora y cada tabla se arma de los perfiles como antes. El hash no
+ * detecta un cambio en cómo se arman las tablas: para eso está VERSION, y
+ * LanguageSnapshotTest avisa si src/lenguajes.snapshot ya no es el que se generaría.
+ *
+ * Formato (enteros de Java, big-endian): MAGIC, VERSION, hash de lenguajes.txt,
+ * cantidad de lenguajes y por cada uno su nombre ("" para los textos sin lenguaje), su
+ * ScanTable y la ScanTable sin agrupar, luego el LanguageClassifier y al final MAGIC
+ * otra vez. Cambiar cómo se arma alguna de esas estructuras obliga a subir VERSION.
+ */
+final class LanguageSnapshot {
+    static final String FILE = "lenguajes.snapshot";
+    private static final int MAGIC = 0x414E4C53;
+    private static final int VERSION = 2;
+
+    private static final LanguageSnapshot EMPTY = new LanguageSnapshot(Collections.emptyMap(), Collections.emptyMap(), null);
+    private static final LanguageSnapshot SHARED = load();
+
+    private final Map<String, ScanTable> tables;
+    private final Map<String, ScanTable> plainTables;
+    private final LanguageClassifier classifier;
+
+    private LanguageSnapshot(Map<String, ScanTable> tables, Map<String, ScanTable> plainTables, LanguageClassifier classifier) {
+        this.tables = tables;
+        this.plainTables = plainTables;
+        this.classifier = classifier;
+    }
+
+    /** El snapshot de los perfiles actuales, o uno vacío si no hay o no es de estos perfiles. */
+    static LanguageSnapshot shared() {
+        return SHARED;
+    }
+
+    /** AFD ya generado del lenguaje, o null si hay que generarlo. */
+    ScanTable table(String language) {
+        return tables.get(language);
+    }
+
+    /** AFD sin agrupar ya generado del lenguaje, o null si hay que generarlo. */
+    ScanTable plainTable(String language) {
+        return plainTables.get(language);
+    }
+
+    /** Clasificador ya armado, o null si hay que armarlo. */
+    LanguageClassifier classifier() {
+        return classifier;
+    }
+
+    private static LanguageSnapshot load() {
+        URL url = LanguageSnapshot.class.getResource(FILE);
+        if (url == null) {
+            return EMPTY;
+        }
+        try {
+            return read(map(url), AnalysisCache.hash(LanguageProfile.source()));
+        } catch (IOException | URISyntaxException | RuntimeException ex) {
+            // Dañado o de otra versión: se arma todo de los perfiles
+            return EMPTY;
+        }
+    }
+
+    // Junto a las clases se mapea; dentro de un jar se lee entero
+    private static ByteBuffer map(URL url) throws IOException, URISyntaxException {
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    private static LanguageSnapshot read(ByteBuffer in, long dataHash) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != dataHash) {
+            return EMPTY;
+        }
+        Map<String, ScanTable> tables = new HashMap<>();
+        Map<String, ScanTable> plainTables = new HashMap<>();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            String language = readString(in);
+            tables.put(language, ScanTable.readFrom(in));
+            plainTables.put(language, ScanTable.readFrom(in));
+        }
+        LanguageClassifier classifier = LanguageClassifier.readFrom(in);
+        if (in.getInt() != MAGIC || in.hasRemaining()) {
+            return EMPTY;
+        }
+        return new LanguageSnapshot(tables, plainTables, classifier);
+    }
+
+    /** Escribe el snapshot de los perfiles actuales, armando cada tabla de nuevo. */
+    static void write(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(AnalysisCache.hash(LanguageProfile.source()));
+        out.writeInt(LanguageProfile.all().size() + 1);
+        out.writeUTF("");
+        LexicalSpec.generateTable(null).writeTo(out);
+        LexicalSpec.generatePlainTable(null).writeTo(out);
+        for (LanguageProfile profile : LanguageProfile.all()) {
+            out.writeUTF(profile.getName());
+            LexicalSpec.generateTable(profile).writeTo(out);
+            LexicalSpec.generatePlainTable(profile).writeTo(out);
+        }
+        new LanguageClassifier(LanguageProfile.all()).writeTo(out);
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+
+    // Compila todas las expresiones y crea todos los recolectores, para que un error en
+    // lenguajes.txt aparezca al generar el snapshot y no en el primer análisis
+    private static void validate() {
+        for (LanguageProfile profile : LanguageProfile.all()) {
+            profile.getSignature();
+            for (ReportSection section : ReportSection.values()) {
+                String[] collector = profile.getCollector(section);
+                if (profile.getExtractor(section) == null && collector != null) {
+                    throw new IllegalArgumentException(profile.getName() + ": recolector sin expresión para " + section);
+                }
+                if (collector != null) {
+                    SectionCollectors.collector(section, collector);
+                }
+            }
+        }
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    static byte[] readBytes(ByteBuffer in) {
+        byte[] values = new byte[in.getInt()];
+        in.get(values);
+        return values;
+    }
+
+    // Copia en bloque desde el archivo mapeado
+    static int[] readInts(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / Integer.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        int[] values = new int[length];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + length * Integer.BYTES);
+        return values;
+    }
+
+    // Texto de DataOutputStream.writeUTF; los nombres y palabras no tienen '\0' ni
+    // caracteres fuera del plano básico, así que es UTF-8 común
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Uso: LanguageSnapshot archivo-de-salida");
+            System.exit(2);
+        }
+        LanguageProfile.requireData();
+        Path target = Paths.get(args[0]);
+        try {
+            validate();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            write(bytes);
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                bytes.writeTo(out);
+            } catch (IOException ex) {
+                Files.deleteIfExists(temporary);
+                throw ex;
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            System.err.println(LanguageProfile.all().size() + " lenguajes, " + bytes.size() + " bytes en " + target);
+        } catch (IOException ex) {
+            System.err.println("Error de E/S: " + ex.getMessage());
+            System.exit(2);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -1,108 +1,229 @@
-import java.util.HashSet;
-import java.util.Set;
-
+/**
+ * Tokeniza el código con el AFD de la especificación léxica del lenguaje (ver
+ * LexicalSpec): cada token es el prefijo más largo que acepta la tabla, así que el
+ * recorrido es el mismo para todos los lenguajes y no pregunta por tipos de carácter.
+ * Cadenas, comentarios, operadores, variables y directivas salen como un token; el
+ * Lexer de plain() los deja carácter por carácter, como los leen los recolectores.
+ */
 public class Lexer {
-    private String code;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private CharSequence code;
+    private int end;
+    // Código leído por partes; null cuando está completo en memoria
+    private StreamingSource stream;
     private int currentPosition;
-    private Set<String> keywords;
+    private int line;
+    private int lineStart;
+    private LexicalSpec spec;
+    private ScanTable table;
+    // toUpperCase() usa el Locale por defecto: en turco "i" no pasa a "I" y la tabla, que
+    // compara en ASCII, deja de ser equivalente para las palabras clave sin mayúsculas
+    private boolean asciiUpperCase;
+
+    // Datos del último token reconocido por scan(); termina en currentPosition
+    private int tokenStart;
+    private int tokenLine;
+    private int tokenColumn;
+
+    public Lexer(CharSequence code, String language) {
+        this(code, language, State.START, code.length());
+    }
+
+    /**
+     * Tokeniza un código que se lee por partes. Cada llamada a getNextToken() o fill()
+     * libera el texto anterior a la línea actual: los lexemas de tokens de líneas
+     * anteriores que hayan quedado en un TokenBuffer ya no se pueden pedir.
+     */
+    public Lexer(StreamingSource source, String language) {
+        this(source, language, State.START, Integer.MAX_VALUE);
+        this.stream = source;
+    }
 
-    public Lexer(String code, String language) {
+    /**
+     * Reanuda el análisis desde un estado guardado y lo detiene en end, como si el
+     * código terminara ahí. Sirve para volver a tokenizar solo una región del texto.
+     */
+    public Lexer(CharSequence code, String language, State state, int end) {
+        this(code, language, state, end, false);
+    }
+
+    private Lexer(CharSequence code, String language, State state, int end, boolean plain) {
         this.code = code;
-        this.currentPosition = 0;
-        this.keywords = new HashSet<>();
+        this.end = end;
+        this.currentPosition = state.getPosition();
+        this.line = state.getLine();
+        this.lineStart = state.getLineStart();
+        this.asciiUpperCase = "i".toUpperCase().equals("I");
+        this.spec = LexicalSpec.forLanguage(language);
+        this.table = plain ? spec.getPlainTable() : spec.getTable();
+    }
 
-        // Agregar palabras clave para cada lenguaje
-        switch (language) {
-            case "PL/SQL":
-                keywords.addAll(Set.of("CREATE", "TABLE", "SELECT", "INSERT", "UPDATE", "DELETE", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "JOIN"));
-                break;
-            case "T-SQL":
-                keywords.addAll(Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "ON", "GROUP", "BY", "ORDER", "HAVING"));
+    /**
+     * Como Lexer(code, language, state, end) con la tabla sin agrupar de LexicalSpec:
+     * solo palabras, números, paréntesis y comas, y cualquier otro carácter es un token.
+     * Ningún token cruza un salto de línea.
+     */
+    public static Lexer plain(CharSequence code, String language, State state, int end) {
+        return new Lexer(code, language, state, end, true);
+    }
+
+    // Estado entre el último token entregado y el siguiente
+    public State saveState() {
+        return new State(currentPosition, line, lineStart);
+    }
+
+    public Token getNextToken() {
+        releaseConsumed();
+        TokenType type = scan();
+        String lexeme;
+        if (type == TokenType.EOF) {
+            lexeme = "";
+        } else if (type == TokenType.KEYWORD && spec.isCaseInsensitive()) {
+            lexeme = text(tokenStart, currentPosition).toUpperCase();
+        } else {
+            lexeme = text(tokenStart, currentPosition);
+        }
+        return new Token(type, lexeme, tokenStart, currentPosition, tokenLine, tokenColumn);
+    }
+
+    /**
+     * Agrega a tokens hasta max tokens sin crear objetos por token y devuelve cuántos
+     * agregó; 0 significa que se llegó al final del código.
+     */
+    public int fill(TokenBuffer tokens, int max) {
+        releaseConsumed();
+        tokens.setUpperCaseKeywords(spec.isCaseInsensitive());
+        int added = 0;
+        while (added < max) {
+            TokenType type = scan();
+            if (type == TokenType.EOF) {
                 break;
-            // Agregar más casos según sea necesario para otros lenguajes
+            }
+            tokens.add(type, tokenStart, currentPosition, tokenLine, tokenColumn);
+            added++;
         }
+        return added;
     }
 
-    public Token getNextToken() {
-        while (currentPosition < code.length() && Character.isWhitespace(code.charAt(currentPosition))) {
-            currentPosition++;
+    private void releaseConsumed() {
+        if (stream != null) {
+            stream.release(lineStart);
         }
+    }
+
+    // true si hay un carácter en position; con un código por partes puede leer más
+    private boolean has(int position) {
+        return position < end && (stream == null || stream.has(position));
+    }
+
+    // Reconoce el siguiente token: queda entre tokenStart y currentPosition
+    private TokenType scan() {
+        skipWhitespace();
 
-        if (currentPosition >= code.length()) {
-            return new Token(TokenType.EOF, "");
+        tokenStart = currentPosition;
+        tokenLine = line;
+        tokenColumn = currentPosition - lineStart + 1;
+        if (!has(currentPosition)) {
+            return TokenType.EOF;
         }
 
-        char currentChar = code.charAt(currentPosition);
-        if (Character.isLetter(currentChar)) {
-            StringBuilder lexemeBuilder = new StringBuilder();
-            while (currentPosition < code.length() && (Character.isLetterOrDigit(code.charAt(currentPosition)) || code.charAt(currentPosition) == '_')) {
-                lexemeBuilder.append(code.charAt(currentPosition));
-                currentPosition++;
+        // Prefijo más largo que acepta la tabla; todo carácter que no es espacio es un token
+        ScanTable table = this.table;
+        CharSequence code = this.code;
+        int state = 0;
+        int tag = TokenType.UNKNOWN.ordinal();
+        int tokenEnd = currentPosition + 1;
+        for (int position = currentPosition; has(position); position++) {
+            state = table.next(state, code.charAt(position));
+            if (state < 0) {
+                break;
             }
-            String lexeme = lexemeBuilder.toString();
-            if (keywords.contains(lexeme.toUpperCase())) {
-                return new Token(TokenType.KEYWORD, lexeme.toUpperCase());
-            } else {
-                return new Token(TokenType.IDENTIFIER, lexeme);
+            int accepted = table.accepted(state);
+            if (accepted >= 0) {
+                tag = accepted >> 1;
+                tokenEnd = position + 1;
+                if ((accepted & 1) != 0) {
+                    break;
+                }
+            }
+        }
+        currentPosition = tokenEnd;
+        if (tag == TokenType.COMMENT.ordinal()) {
+            countLines(tokenStart, tokenEnd);
+        }
+        if (tag == LexicalSpec.UNICODE_WORD || (!asciiUpperCase && spec.isCaseInsensitive() && spec.hasKeywords()
+                && (tag == TokenType.KEYWORD.ordinal() || tag == TokenType.IDENTIFIER.ordinal()))) {
+            return spec.isKeyword(text(tokenStart, currentPosition)) ? TokenType.KEYWORD : TokenType.IDENTIFIER;
+        }
+        return TYPES[tag];
+    }
+
+    private String text(int start, int end) {
+        return code.subSequence(start, end).toString();
+    }
+
+    // Los saltos de línea dentro de un comentario de bloque, contados como en skipWhitespace
+    private void countLines(int start, int end) {
+        for (int position = start; position < end; position++) {
+            char c = code.charAt(position);
+            if (c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029'
+                    || (c == '\r' && (!has(position + 1) || code.charAt(position + 1) != '\n'))) {
+                line++;
+                lineStart = position + 1;
             }
-        } else if (Character.isDigit(currentChar)) {
-            StringBuilder lexemeBuilder = new StringBuilder();
-            while (currentPosition < code.length() && (Character.isDigit(code.charAt(currentPosition)) || code.charAt(currentPosition) == '.')) {
-                lexemeBuilder.append(code.charAt(currentPosition));
+        }
+    }
+
+    // Avanza sobre los espacios llevando la cuenta de líneas. Los saltos de línea son
+    // los mismos que reconoce java.util.regex: \n, \r, \r\n, \u0085, \u2028 y \u2029.
+    private void skipWhitespace() {
+        while (has(currentPosition)) {
+            char c = code.charAt(currentPosition);
+            if (c == ' ' || c == '\t') {
                 currentPosition++;
+                continue;
             }
-            return new Token(TokenType.NUMBER, lexemeBuilder.toString());
-        } else {
-            currentPosition++;
-            switch (currentChar) {
-                case '(':
-                    return new Token(TokenType.LEFT_PAREN, "(");
-                case ')':
-                    return new Token(TokenType.RIGHT_PAREN, ")");
-                case ',':
-                    return new Token(TokenType.COMMA, ",");
-                // Agregar más casos según sea necesario para otros caracteres especiales
-                default:
-                    return new Token(TokenType.UNKNOWN, String.valueOf(currentChar));
+            if (c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029'
+                    || (c == '\r' && (!has(currentPosition + 1) || code.charAt(currentPosition + 1) != '\n'))) {
+                line++;
+                lineStart = currentPosition + 1;
+            } else if (!Character.isWhitespace(c) && c != '\r') {
+                return;
             }
+            currentPosition++;
         }
     }
-}
 
-enum TokenType {
-    KEYWORD,
-    IDENTIFIER,
-    NUMBER,
-    LEFT_PAREN,
-    RIGHT_PAREN,
-    COMMA,
-    // Agregar más tipos de token según sea necesario
-    EOF,
-    UNKNOWN
-}
+    /** Posición y cuenta de líneas del Lexer entre dos tokens. */
+    public static final class State {
+        public static final State START = new State(0, 1, 0);
 
-class Token {
-    private TokenType type;
-    private String lexeme;
+        private final int position;
+        private final int line;
+        private final int lineStart;
 
-    public Token(TokenType type, String lexeme) {
-        this.type = type;
-        this.lexeme = lexeme;
-    }
+        public State(int position, int line, int lineStart) {
+            this.position = position;
+            this.line = line;
+            this.lineStart = lineStart;
+        }
 
-    public TokenType getType() {
-        return type;
-    }
+        // Comienzo de una línea, numerada como la primera
+        public static State lineStart(int position) {
+            return new State(position, 1, position);
+        }
 
-    public String getLexeme() {
-        return lexeme;
-    }
+        public int getPosition() {
+            return position;
+        }
 
-    @Override
-    public String toString() {
-        return "Token{" +
-                "type=" + type +
-                ", lexeme='" + lexeme + '\'' +
-                '}';
+        public int getLine() {
+            return line;
+        }
+
+        public int getLineStart() {
+            return lineStart;
+        }
     }
 }
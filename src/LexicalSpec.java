@@ -0,0 +1,228 @@
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Especificación léxica de un lenguaje y el AFD que se genera de ella para el Lexer.
+ * Todos los lenguajes comparten las reglas de los tokens y cambian en sus palabras
+ * clave, que son las palabras reservadas de su LanguageProfile: sin distinguir
+ * mayúsculas (solo en ASCII) si el perfil lo indica, como en PL/SQL, T-SQL, Pascal y
+ * HTML, y en los demás tal cual.
+ *
+ * Reglas, de mayor a menor prioridad:
+ *   KEYWORD     una palabra clave completa
+ *   IDENTIFIER  [a-zA-Z_][a-zA-Z0-9_]*
+ *   UNICODE_WORD  lo mismo con letras y dígitos de Character.isLetter/isDigit; si es
+ *               palabra clave se decide con isKeyword, como hacía el Lexer
+ *   NUMBER      dígito seguido de dígitos o '.'
+ *   COMMENT     de línea hasta el salto, o de bloque hasta el cierre o el final del texto
+ *   STRING      de una comilla hasta la misma comilla o hasta el salto de línea, con el
+ *               escape del lenguaje o la comilla duplicada
+ *   DIRECTIVE, VARIABLE  el prefijo del lenguaje seguido de una palabra, con las letras
+ *               y dígitos de UNICODE_WORD
+ *               (la variable admite el prefijo dos veces, como @@ROWCOUNT)
+ *   OPERATOR    un operador de más de un carácter
+ *   LEFT_PAREN, RIGHT_PAREN, COMMA
+ *   UNKNOWN     cualquier otro carácter, uno por token
+ * Los comentarios, comillas, operadores y prefijos de cada lenguaje están en su perfil.
+ * Un comentario o una cadena sin cerrar acepta todo prefijo, así que el Lexer nunca
+ * vuelve atrás, y solo los comentarios de bloque cruzan líneas.
+ *
+ * La tabla sin agrupar (getPlainTable) tiene solo las reglas de palabras, números,
+ * paréntesis y comas: cadenas, comentarios y operadores salen carácter por carácter.
+ * La usan los recolectores de AnalysisPipeline y LiveAnalysis, que reproducen
+ * expresiones regulares que también encuentran coincidencias dentro de cadenas y
+ * comentarios, y que necesitan que ningún token cruce un salto de línea.
+ */
+final class LexicalSpec {
+    /** Etiqueta de una palabra con caracteres no ASCII. */
+    static final int UNICODE_WORD = TokenType.values().length;
+
+    private static final Map<String, LexicalSpec> SPECS = new ConcurrentHashMap<>();
+    private static final LexicalSpec NO_KEYWORDS = new LexicalSpec("", null);
+
+    private final String language;
+    private final Set<String> keywords;
+    private final boolean caseInsensitive;
+    private final ScanTable table;
+    private final ScanTable plainTable;
+
+    // Sin perfil no hay palabras clave ni reglas del lenguaje: las dos tablas son la misma
+    private LexicalSpec(String language, LanguageProfile profile) {
+        this.language = language;
+        this.caseInsensitive = profile != null && profile.isCaseInsensitive();
+        this.keywords = normalize(profile == null ? Collections.emptySet() : profile.getReservedWords(), caseInsensitive);
+        // Los AFD del snapshot son los mismos que se generarían del perfil
+        LanguageSnapshot snapshot = LanguageSnapshot.shared();
+        ScanTable prebuilt = snapshot.plainTable(language);
+        this.plainTable = prebuilt != null ? prebuilt : generate(keywords, caseInsensitive, null);
+        prebuilt = snapshot.table(language);
+        this.table = profile == null ? plainTable : prebuilt != null ? prebuilt : generate(keywords, caseInsensitive, profile);
+    }
+
+    /** Especificación del lenguaje; sin palabras clave si no tiene perfil. Las tablas se generan una vez por lenguaje. */
+    static LexicalSpec forLanguage(String language) {
+        LanguageProfile profile = LanguageProfile.forName(language);
+        if (profile == null) {
+            return NO_KEYWORDS;
+        }
+        return SPECS.computeIfAbsent(language, name -> new LexicalSpec(name, profile));
+    }
+
+    /** Genera el AFD del perfil, o el de los textos sin lenguaje si es null, sin usar el snapshot. */
+    static ScanTable generateTable(LanguageProfile profile) {
+        if (profile == null) {
+            return generatePlainTable(null);
+        }
+        return generate(normalize(profile.getReservedWords(), profile.isCaseInsensitive()), profile.isCaseInsensitive(), profile);
+    }
+
+    /** Genera el AFD sin agrupar del perfil (o sin palabras clave si es null), sin usar el snapshot. */
+    static ScanTable generatePlainTable(LanguageProfile profile) {
+        if (profile == null) {
+            return generate(Collections.emptySet(), false, null);
+        }
+        return generate(normalize(profile.getReservedWords(), profile.isCaseInsensitive()), profile.isCaseInsensitive(), null);
+    }
+
+    private static Set<String> normalize(Set<String> keywords, boolean caseInsensitive) {
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            // Una palabra clave que no es una palabra nunca coincide con un token entero
+            if (keyword.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+                normalized.add(caseInsensitive ? keyword.toUpperCase(Locale.ROOT) : keyword);
+            }
+        }
+        return Collections.unmodifiableSet(normalized);
+    }
+
+    // Sin profile, la tabla sin agrupar
+    private static ScanTable generate(Set<String> keywords, boolean caseInsensitive, LanguageProfile profile) {
+        BitSet letters = ScannerGenerator.set("abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_");
+        BitSet lettersOrDigits = ScannerGenerator.set("0123456789");
+        lettersOrDigits.or(letters);
+        BitSet unicodeLetters = (BitSet) letters.clone();
+        unicodeLetters.set(ScannerGenerator.UNICODE_LETTER);
+        BitSet unicodeLettersOrDigits = (BitSet) lettersOrDigits.clone();
+        unicodeLettersOrDigits.set(ScannerGenerator.UNICODE_LETTER);
+        unicodeLettersOrDigits.set(ScannerGenerator.UNICODE_DIGIT);
+        BitSet digits = ScannerGenerator.set("0123456789");
+        digits.set(ScannerGenerator.UNICODE_DIGIT);
+        BitSet digitsOrPoint = (BitSet) digits.clone();
+        digitsOrPoint.set('.');
+
+        ScannerGenerator generator = new ScannerGenerator();
+        if (!keywords.isEmpty()) {
+            ScannerGenerator.Expr[] words = new ScannerGenerator.Expr[keywords.size()];
+            int i = 0;
+            for (String keyword : keywords) {
+                words[i++] = ScannerGenerator.literal(keyword, caseInsensitive);
+            }
+            generator.add(ScannerGenerator.alternative(words), TokenType.KEYWORD.ordinal());
+        }
+        generator.add(word(letters, lettersOrDigits), TokenType.IDENTIFIER.ordinal());
+        generator.add(word(unicodeLetters, unicodeLettersOrDigits), UNICODE_WORD);
+        generator.add(word(digits, digitsOrPoint), TokenType.NUMBER.ordinal());
+        if (profile != null) {
+            addGroupingRules(generator, profile, unicodeLetters, unicodeLettersOrDigits);
+        }
+        generator.add(ScannerGenerator.anyOf("("), TokenType.LEFT_PAREN.ordinal());
+        generator.add(ScannerGenerator.anyOf(")"), TokenType.RIGHT_PAREN.ordinal());
+        generator.add(ScannerGenerator.anyOf(","), TokenType.COMMA.ordinal());
+        generator.add(ScannerGenerator.any(), TokenType.UNKNOWN.ordinal());
+        return generator.generate();
+    }
+
+    private static void addGroupingRules(ScannerGenerator generator, LanguageProfile profile, BitSet letters, BitSet lettersOrDigits) {
+        // Lo que sigue en la misma línea; \r también corta, como en el Lexer
+        BitSet sameLine = new BitSet(ScannerGenerator.SYMBOLS);
+        sameLine.set(0, ScannerGenerator.SYMBOLS);
+        sameLine.clear('\n');
+        sameLine.clear('\r');
+        sameLine.clear(ScannerGenerator.UNICODE_LINE);
+        for (String start : profile.getLineComments()) {
+            generator.add(ScannerGenerator.sequence(ScannerGenerator.literal(start, false),
+                    ScannerGenerator.repeat(ScannerGenerator.symbols(sameLine))), TokenType.COMMENT.ordinal());
+        }
+        for (Map.Entry<String, String> block : profile.getBlockComments().entrySet()) {
+            generator.add(ScannerGenerator.sequence(ScannerGenerator.literal(block.getKey(), false),
+                    ScannerGenerator.through(block.getValue())), TokenType.COMMENT.ordinal());
+        }
+        for (char quote : profile.getQuotes().toCharArray()) {
+            generator.add(string(quote, profile.getStringEscape(), sameLine), TokenType.STRING.ordinal());
+        }
+        ScannerGenerator.Expr name = word(letters, lettersOrDigits);
+        if (!profile.getDirectivePrefix().isEmpty()) {
+            generator.add(ScannerGenerator.sequence(ScannerGenerator.literal(profile.getDirectivePrefix(), false), name),
+                    TokenType.DIRECTIVE.ordinal());
+        }
+        if (!profile.getVariablePrefix().isEmpty()) {
+            ScannerGenerator.Expr prefix = ScannerGenerator.literal(profile.getVariablePrefix(), false);
+            generator.add(ScannerGenerator.sequence(prefix, ScannerGenerator.optional(prefix), name), TokenType.VARIABLE.ordinal());
+        }
+        if (!profile.getOperators().isEmpty()) {
+            ScannerGenerator.Expr[] operators = new ScannerGenerator.Expr[profile.getOperators().size()];
+            for (int i = 0; i < operators.length; i++) {
+                operators[i] = ScannerGenerator.literal(profile.getOperators().get(i), false);
+            }
+            generator.add(ScannerGenerator.alternative(operators), TokenType.OPERATOR.ordinal());
+        }
+    }
+
+    // De la comilla hasta la misma comilla o el salto de línea. Con escape, el escape y el
+    // carácter que le sigue van juntos; sin escape, dos comillas seguidas son una comilla.
+    // Todo prefijo es aceptado: una cadena sin cerrar termina donde termina la línea.
+    private static ScannerGenerator.Expr string(char quote, String escape, BitSet sameLine) {
+        BitSet plain = (BitSet) sameLine.clone();
+        plain.clear(quote);
+        ScannerGenerator.Expr open = ScannerGenerator.anyOf(String.valueOf(quote));
+        ScannerGenerator.Expr inner;
+        ScannerGenerator.Expr end;
+        if (escape.isEmpty()) {
+            inner = ScannerGenerator.alternative(ScannerGenerator.symbols(plain), ScannerGenerator.sequence(open, open));
+            end = open;
+        } else {
+            plain.clear(escape.charAt(0));
+            ScannerGenerator.Expr escapeChar = ScannerGenerator.anyOf(escape);
+            inner = ScannerGenerator.alternative(ScannerGenerator.symbols(plain),
+                    ScannerGenerator.sequence(escapeChar, ScannerGenerator.symbols(sameLine)));
+            end = ScannerGenerator.alternative(open, escapeChar);
+        }
+        return ScannerGenerator.sequence(open, ScannerGenerator.repeat(inner), ScannerGenerator.optional(end));
+    }
+
+    // Un carácter de first seguido de cualquier cantidad de rest
+    private static ScannerGenerator.Expr word(BitSet first, BitSet rest) {
+        return ScannerGenerator.sequence(ScannerGenerator.symbols(first), ScannerGenerator.repeat(ScannerGenerator.symbols(rest)));
+    }
+
+    String getLanguage() {
+        return language;
+    }
+
+    ScanTable getTable() {
+        return table;
+    }
+
+    /** La tabla sin cadenas, comentarios, operadores, variables ni directivas. */
+    ScanTable getPlainTable() {
+        return plainTable;
+    }
+
+    boolean isCaseInsensitive() {
+        return caseInsensitive;
+    }
+
+    boolean hasKeywords() {
+        return !keywords.isEmpty();
+    }
+
+    /** Si word es palabra clave; sin distinguir mayúsculas se compara word.toUpperCase(). */
+    boolean isKeyword(String word) {
+        return keywords.contains(caseInsensitive ? word.toUpperCase() : word);
+    }
+}
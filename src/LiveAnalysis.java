@@ -0,0 +1,384 @@
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Análisis en vivo mientras se edita el documento. Guarda por cada línea lo que sus
+ * tokens aportan a las secciones del reporte; una edición vuelve a tokenizar solo las
+ * líneas dañadas, resta su aporte viejo del total de cada sección y suma el nuevo
+ * (SectionCollectors.LineTotal). El texto de una sección cuyo aporte cambió se arma
+ * recién cuando se pide, una vez por reporte aunque haya habido varias ediciones, y las
+ * líneas se agrupan en bloques que guardan su aporte ya combinado: armarlo solo vuelve a
+ * combinar las líneas de los bloques editados.
+ * Las secciones cuyas coincidencias pueden cruzar saltos de línea (declaraciones,
+ * funciones, expresiones matemáticas, sintaxis y semántica) quedan para el análisis
+ * completo del botón Analizar.
+ */
+final class LiveAnalysis implements DocumentListener {
+    static final String PENDING = "(se calcula con \"Analizar Código\")";
+
+    private static final ReportSection[] SECTIONS = ReportSection.values();
+    // Líneas por bloque; uno se parte al pasar del doble
+    private static final int BLOCK_LINES = 256;
+
+    private static final class Line {
+        // Aporte de la línea a la identificación del lenguaje
+        final LanguageClassifier.Evidence evidence;
+        int tokens;
+        // Aporte de la línea a cada sección y su resultado; null si no aporta nada
+        final SectionCollectors.LineLocal[] contributions = new SectionCollectors.LineLocal[SECTIONS.length];
+        final String[] results = new String[SECTIONS.length];
+
+        Line(LanguageClassifier.Evidence evidence) {
+            this.evidence = evidence;
+        }
+    }
+
+    private static final class Block {
+        final List<Line> lines = new ArrayList<>();
+        // Aporte combinado de las líneas a cada sección, null si no aportan nada; falta si
+        // alguna línea cambió desde que se combinó
+        final Map<ReportSection, SectionCollectors.LineLocal> merged = new EnumMap<>(ReportSection.class);
+    }
+
+    private final Document document;
+    private final Map<String, Set<String>> reservedWords;
+    private final Runnable listener;
+    private final LanguageClassifier classifier = LanguageClassifier.shared();
+    private final List<Block> blocks = new ArrayList<>();
+    private int lineCount;
+    // Suma de la evidencia de todas las líneas
+    private final LanguageClassifier.Evidence evidence = classifier.newEvidence();
+    private final Map<ReportSection, String> emptyResults = new EnumMap<>(ReportSection.class);
+    private final Map<ReportSection, SectionCollectors.LineTotal> totals = new EnumMap<>(ReportSection.class);
+    // Resultado de cada sección en vivo; falta si cambió desde la última vez que se pidió
+    private final Map<ReportSection, String> sections = new EnumMap<>(ReportSection.class);
+    private String language;
+    private long tokenCount;
+    private int lastRetokenizedLines;
+    // Reutilizados al tokenizar cada línea
+    private final TokenBuffer lineTokens = new TokenBuffer(64);
+    private final Token token = new Token();
+
+    LiveAnalysis(Document document, Map<String, Set<String>> reservedWords, Runnable listener) {
+        this.document = document;
+        this.reservedWords = reservedWords;
+        this.listener = listener;
+        reset();
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        update(e);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        update(e);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Solo cambian atributos, no el texto
+    }
+
+    private void update(DocumentEvent e) {
+        Element root = document.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        if (change == null) {
+            // La edición no agregó ni quitó saltos de línea: se daña una sola línea
+            int index = root.getElementIndex(e.getOffset());
+            replaceLines(index, 1, 1);
+        } else {
+            replaceLines(change.getIndex(), change.getChildrenRemoved().length, change.getChildrenAdded().length);
+        }
+        listener.run();
+    }
+
+    /** Vuelve a analizar todo el documento. */
+    void reset() {
+        blocks.clear();
+        blocks.add(new Block());
+        lineCount = 0;
+        evidence.clear();
+        language = null;
+        replaceLines(0, 0, document.getDefaultRootElement().getElementCount());
+    }
+
+    // Reemplaza las líneas [index, index + removed) por las líneas actuales [index, index + added)
+    private void replaceLines(int index, int removed, int added) {
+        Element root = document.getDefaultRootElement();
+        int chunkStart = root.getElement(index).getStartOffset();
+        int chunkEnd = Math.min(root.getElement(index + added - 1).getEndOffset(), document.getLength());
+        String chunk = text(chunkStart, chunkEnd);
+
+        // Límites de cada línea nueva dentro de chunk, sin el salto de línea final
+        int[] starts = new int[added];
+        int[] ends = new int[added];
+        List<Line> newLines = new ArrayList<>(added);
+        for (int i = 0; i < added; i++) {
+            Element element = root.getElement(index + i);
+            starts[i] = element.getStartOffset() - chunkStart;
+            ends[i] = Math.min(element.getEndOffset() - 1, document.getLength()) - chunkStart;
+            // Cada línea se puntúa sola: un CREATE y un TABLE separados por un salto de
+            // línea solo cuentan como firma de PL/SQL en el análisis completo
+            LanguageClassifier.Tally tally = classifier.newTally();
+            tally.add(chunk, starts[i], ends[i]);
+            Line line = new Line(tally.finish());
+            evidence.add(line.evidence, 1);
+            newLines.add(line);
+        }
+        List<Line> oldLines = replace(index, removed, newLines);
+        for (Line line : oldLines) {
+            evidence.add(line.evidence, -1);
+        }
+        lastRetokenizedLines = added;
+
+        String identified = evidence.language();
+        if (!Objects.equals(identified, language)) {
+            // Otro lenguaje cambia las palabras clave y los recolectores de todas las líneas
+            language = identified;
+            rebuild();
+            return;
+        }
+        if (language == null) {
+            return;
+        }
+
+        for (int i = 0; i < added; i++) {
+            contribute(newLines.get(i), chunk, starts[i], ends[i]);
+        }
+        for (Line line : oldLines) {
+            tokenCount -= line.tokens;
+            addContributions(line, -1);
+        }
+        for (Line line : newLines) {
+            tokenCount += line.tokens;
+            addContributions(line, 1);
+        }
+        for (ReportSection section : totals.keySet()) {
+            if (!sameContributions(section, oldLines, newLines)) {
+                sections.remove(section);
+            }
+        }
+    }
+
+    private void rebuild() {
+        tokenCount = 0;
+        emptyResults.clear();
+        totals.clear();
+        sections.clear();
+        if (language == null) {
+            return;
+        }
+        for (ReportSection section : SECTIONS) {
+            SectionCollectors.LineLocal empty = SectionCollectors.lineLocal(section, language, reservedWords.get(language));
+            if (empty != null) {
+                emptyResults.put(section, empty.result());
+                totals.put(section, empty.newTotal());
+            }
+        }
+        String code = text(0, document.getLength());
+        Element root = document.getDefaultRootElement();
+        int index = 0;
+        for (Block block : blocks) {
+            block.merged.clear();
+            for (Line line : block.lines) {
+                Element element = root.getElement(index++);
+                int end = Math.min(element.getEndOffset() - 1, code.length());
+                contribute(line, code, element.getStartOffset(), end);
+                tokenCount += line.tokens;
+                addContributions(line, 1);
+            }
+        }
+        lastRetokenizedLines = lineCount;
+    }
+
+    // Reemplaza las líneas [index, index + removed) por newLines y devuelve las que quitó
+    private List<Line> replace(int index, int removed, List<Line> newLines) {
+        int first = 0;
+        int target = 0;
+        while (target < blocks.size() - 1 && first + blocks.get(target).lines.size() <= index) {
+            first += blocks.get(target).lines.size();
+            target++;
+        }
+        List<Line> oldLines = new ArrayList<>(removed);
+        int offset = index - first;
+        for (int i = target; oldLines.size() < removed; i++) {
+            Block block = blocks.get(i);
+            List<Line> range = block.lines.subList(offset, Math.min(block.lines.size(), offset + removed - oldLines.size()));
+            oldLines.addAll(range);
+            range.clear();
+            block.merged.clear();
+            offset = 0;
+        }
+        Block block = blocks.get(target);
+        block.lines.addAll(index - first, newLines);
+        block.merged.clear();
+        lineCount += newLines.size() - removed;
+
+        // Los bloques que quedaron vacíos se quitan y el que creció se parte
+        for (int i = blocks.size() - 1; i > target; i--) {
+            if (blocks.get(i).lines.isEmpty()) {
+                blocks.remove(i);
+            }
+        }
+        if (block.lines.size() > 2 * BLOCK_LINES) {
+            List<Block> parts = new ArrayList<>();
+            for (int start = 0; start < block.lines.size(); start += BLOCK_LINES) {
+                Block part = new Block();
+                part.lines.addAll(block.lines.subList(start, Math.min(block.lines.size(), start + BLOCK_LINES)));
+                parts.add(part);
+            }
+            blocks.remove(target);
+            blocks.addAll(target, parts);
+        } else if (block.lines.size() < BLOCK_LINES / 2 && target + 1 < blocks.size()
+                && block.lines.size() + blocks.get(target + 1).lines.size() <= 2 * BLOCK_LINES) {
+            // Uno chico se junta con el siguiente, para que no queden muchos bloques de pocas líneas
+            block.lines.addAll(blocks.remove(target + 1).lines);
+        } else if (block.lines.isEmpty() && blocks.size() > 1) {
+            blocks.remove(target);
+        }
+        return oldLines;
+    }
+
+    // Tokeniza la línea [start, end) de source y registra su aporte a cada sección
+    private void contribute(Line line, String source, int start, int end) {
+        SectionCollectors.LineLocal[] collectors = new SectionCollectors.LineLocal[SECTIONS.length];
+        for (ReportSection section : emptyResults.keySet()) {
+            collectors[section.ordinal()] = SectionCollectors.lineLocal(section, language, reservedWords.get(language));
+        }
+        Lexer lexer = Lexer.plain(source, language, Lexer.State.lineStart(start), end);
+        lexer.fill(lineTokens, Integer.MAX_VALUE);
+        for (int i = 0; i < lineTokens.size(); i++) {
+            lineTokens.copyTo(i, source, token);
+            for (SectionCollectors.LineLocal collector : collectors) {
+                if (collector != null) {
+                    collector.accept(token, source);
+                }
+            }
+        }
+        line.tokens = lineTokens.size();
+        lineTokens.clear();
+        for (ReportSection section : emptyResults.keySet()) {
+            SectionCollectors.LineLocal collector = collectors[section.ordinal()];
+            collector.finish(source);
+            String result = collector.result();
+            boolean empty = result.equals(emptyResults.get(section));
+            line.contributions[section.ordinal()] = empty ? null : collector;
+            line.results[section.ordinal()] = empty ? null : result;
+        }
+    }
+
+    private void addContributions(Line line, int sign) {
+        for (Map.Entry<ReportSection, SectionCollectors.LineTotal> total : totals.entrySet()) {
+            SectionCollectors.LineLocal contribution = line.contributions[total.getKey().ordinal()];
+            if (contribution != null) {
+                total.getValue().add(contribution, sign);
+            }
+        }
+    }
+
+    // El resultado de una sección solo depende de la secuencia de aportes no vacíos
+    private static boolean sameContributions(ReportSection section, List<Line> oldLines, List<Line> newLines) {
+        int i = nextContribution(section, oldLines, 0);
+        int j = nextContribution(section, newLines, 0);
+        while (i < oldLines.size() && j < newLines.size()) {
+            if (!oldLines.get(i).results[section.ordinal()].equals(newLines.get(j).results[section.ordinal()])) {
+                return false;
+            }
+            i = nextContribution(section, oldLines, i + 1);
+            j = nextContribution(section, newLines, j + 1);
+        }
+        return i == oldLines.size() && j == newLines.size();
+    }
+
+    private static int nextContribution(ReportSection section, List<Line> range, int from) {
+        int i = from;
+        while (i < range.size() && range.get(i).results[section.ordinal()] == null) {
+            i++;
+        }
+        return i;
+    }
+
+    // Los aportes no vacíos de la sección, combinados por bloque y en el orden de las líneas
+    private Iterable<SectionCollectors.LineLocal> contributions(ReportSection section) {
+        return () -> blocks.stream().map(block -> merged(block, section)).filter(Objects::nonNull).iterator();
+    }
+
+    private SectionCollectors.LineLocal merged(Block block, ReportSection section) {
+        if (!block.merged.containsKey(section)) {
+            SectionCollectors.LineLocal total = null;
+            for (Line line : block.lines) {
+                SectionCollectors.LineLocal contribution = line.contributions[section.ordinal()];
+                if (contribution != null) {
+                    if (total == null) {
+                        total = SectionCollectors.lineLocal(section, language, reservedWords.get(language));
+                    }
+                    total.absorb(contribution);
+                }
+            }
+            block.merged.put(section, total);
+        }
+        return block.merged.get(section);
+    }
+
+    private String text(int start, int end) {
+        try {
+            return document.getText(start, end - start);
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    String getLanguage() {
+        return language;
+    }
+
+    /** Resultado actual de la sección, o null si la sección no se mantiene en vivo. */
+    String result(ReportSection section) {
+        SectionCollectors.LineTotal total = totals.get(section);
+        if (total == null) {
+            return null;
+        }
+        return sections.computeIfAbsent(section, key -> total.result(contributions(key)));
+    }
+
+    int getLastRetokenizedLines() {
+        return lastRetokenizedLines;
+    }
+
+    String report() {
+        if (language == null) {
+            return "Lenguaje no identificado.";
+        }
+
+        StringBuilder result = new StringBuilder();
+        result.append("Lenguaje identificado: ").append(language).append("\n");
+        result.append("Palabras reservadas: ").append(section(ReportSection.RESERVED_WORDS)).append("\n");
+        result.append("Expresiones lógicas: ").append(section(ReportSection.LOGICAL_EXPRESSIONS)).append("\n");
+        result.append("Expresiones matemáticas: ").append(PENDING).append("\n");
+        result.append("Variables: ").append(section(ReportSection.VARIABLES)).append("\n");
+        result.append("Constantes: ").append(section(ReportSection.CONSTANTS)).append("\n");
+        result.append("Funciones: ").append(section(ReportSection.FUNCTIONS)).append("\n");
+        result.append("Ciclos: ").append(section(ReportSection.LOOPS)).append("\n");
+        result.append("Condicionales: ").append(section(ReportSection.CONDITIONALS)).append("\n");
+        result.append("CRUD: ").append(section(ReportSection.CRUD)).append("\n");
+        result.append("Análisis léxico: ").append(section(ReportSection.LEXICAL)).append("\n");
+        result.append("Líneas: ").append(lineCount).append(", tokens: ").append(tokenCount).append("\n");
+        return result.toString();
+    }
+
+    private String section(ReportSection section) {
+        String result = result(section);
+        return result == null ? PENDING : result;
+    }
+}
@@ -2,6 +2,16 @@ import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        LanguageProfile.requireData();
+        if (BatchAnalyzer.isRequested(args)) {
+            System.exit(BatchAnalyzer.run(args));
+        }
+        if (ProjectIndex.isRequested(args)) {
+            System.exit(ProjectIndex.run(args));
+        }
+        if (AnalysisServer.isRequested(args)) {
+            System.exit(AnalysisServer.run(args));
+        }
         SwingUtilities.invokeLater(() -> {
             CodeAnalyzer analyzer = new CodeAnalyzer();
             analyzer.setVisible(true);
@@ -0,0 +1,196 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Resumen de tamaño fijo de las coincidencias de una sección: cuántas hay, un histograma
+ * de sus largos, las más frecuentes y algunas posiciones de muestra. La memoria no
+ * depende de cuántas coincidencias haya ni de cuánto midan. Si se pide, además escribe
+ * cada coincidencia en un archivo, una por línea, para quien necesite la lista completa.
+ *
+ * Las más frecuentes salen del algoritmo Space-Saving con TOP_CAPACITY contadores: toda
+ * coincidencia que aparece más de count / TOP_CAPACITY veces está entre ellas, y su cuenta
+ * supera a la real a lo sumo en su "error". Las posiciones son un muestreo de reservorio
+ * con semilla fija, así que dos corridas sobre el mismo archivo dan las mismas.
+ */
+final class MatchSummary implements Closeable {
+    static final int TOP_CAPACITY = 64;
+    static final int TOP_SHOWN = 10;
+    static final int SAMPLES = 16;
+    // Las coincidencias más largas se cuentan por sus primeros caracteres
+    static final int MAX_KEY_LENGTH = 200;
+    private static final long SEED = 0x5EED;
+
+    private long count;
+    // lengths[0] cuenta las vacías y lengths[i] las de largo en [2^(i-1), 2^i)
+    private final long[] lengths = new long[Integer.SIZE];
+
+    // Contadores de Space-Saving y un montículo de mínimos de sus índices por cuenta
+    private final String[] keys = new String[TOP_CAPACITY];
+    private final long[] counts = new long[TOP_CAPACITY];
+    private final long[] errors = new long[TOP_CAPACITY];
+    private final int[] heap = new int[TOP_CAPACITY];
+    private final int[] heapIndex = new int[TOP_CAPACITY];
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int used;
+
+    private final long[] samples = new long[SAMPLES];
+    private final SplittableRandom random = new SplittableRandom(SEED);
+
+    private Path spillPath;
+    private Writer spill;
+
+    /** Escribe desde ahora cada coincidencia en file como "posición\tcadena JSON". */
+    void spillTo(Path file) throws IOException {
+        spill = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        spillPath = file;
+    }
+
+    void add(String match, long position) {
+        count++;
+        lengths[Integer.SIZE - Integer.numberOfLeadingZeros(match.length())]++;
+        countKey(match.length() > MAX_KEY_LENGTH ? match.substring(0, MAX_KEY_LENGTH) : match);
+        if (count <= SAMPLES) {
+            samples[(int) count - 1] = position;
+        } else {
+            long j = random.nextLong(count);
+            if (j < SAMPLES) {
+                samples[(int) j] = position;
+            }
+        }
+        if (spill != null) {
+            try {
+                spill.write(Long.toString(position));
+                spill.write('\t');
+                spill.write(BatchAnalyzer.quote(match));
+                spill.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private void countKey(String key) {
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            counts[slot]++;
+            siftDown(heapIndex[slot]);
+            return;
+        }
+        if (used < TOP_CAPACITY) {
+            slot = used;
+            heap[used] = slot;
+            heapIndex[slot] = used;
+            used++;
+            keys[slot] = key;
+            counts[slot] = 1;
+            slots.put(key, slot);
+            siftUp(heapIndex[slot]);
+            return;
+        }
+        // Reemplaza al de menor cuenta, que pasa a ser el error del nuevo
+        slot = heap[0];
+        slots.remove(keys[slot]);
+        keys[slot] = key;
+        errors[slot] = counts[slot];
+        counts[slot]++;
+        slots.put(key, slot);
+        siftDown(0);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (counts[heap[parent]] <= counts[heap[i]]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < used; child++) {
+                if (counts[heap[child]] < counts[heap[smallest]]) {
+                    smallest = child;
+                }
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int slot = heap[i];
+        heap[i] = heap[j];
+        heap[j] = slot;
+        heapIndex[heap[i]] = i;
+        heapIndex[heap[j]] = j;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Agrega el resumen como objeto JSON: count, lengths (sin los ceros finales), top (a lo
+     * sumo TOP_SHOWN, de la más frecuente a la menos), positions (ordenadas) y spill si hay.
+     */
+    void appendJson(StringBuilder json) {
+        json.append("{\"count\":").append(count);
+        int lastLength = lengths.length;
+        while (lastLength > 0 && lengths[lastLength - 1] == 0) {
+            lastLength--;
+        }
+        json.append(",\"lengths\":[");
+        for (int i = 0; i < lastLength; i++) {
+            json.append(i == 0 ? "" : ",").append(lengths[i]);
+        }
+        json.append("],\"top\":[");
+        List<Integer> top = new ArrayList<>();
+        for (int slot = 0; slot < used; slot++) {
+            top.add(slot);
+        }
+        top.sort((a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a]) : keys[a].compareTo(keys[b]));
+        for (int i = 0; i < Math.min(TOP_SHOWN, top.size()); i++) {
+            int slot = top.get(i);
+            json.append(i == 0 ? "" : ",");
+            json.append("{\"match\":").append(BatchAnalyzer.quote(keys[slot]));
+            json.append(",\"count\":").append(counts[slot]);
+            json.append(",\"error\":").append(errors[slot]).append('}');
+        }
+        json.append("],\"positions\":[");
+        long[] sampled = Arrays.copyOf(samples, (int) Math.min(count, SAMPLES));
+        Arrays.sort(sampled);
+        for (int i = 0; i < sampled.length; i++) {
+            json.append(i == 0 ? "" : ",").append(sampled[i]);
+        }
+        json.append(']');
+        if (spillPath != null) {
+            json.append(",\"spill\":").append(BatchAnalyzer.quote(spillPath.toString()));
+        }
+        json.append('}');
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Catálogo de expresiones regulares compartidas por todos los análisis.
+ * Todos los patrones se compilan una sola vez al cargar la clase; el contador
+ * de compilaciones permite comprobar que en régimen estable no se compila nada.
+ */
+final class PatternCatalog {
+    private static final AtomicLong compilations = new AtomicLong();
+
+    // Máximo de patrones dinámicos (construidos a partir de la entrada) que se conservan
+    private static final int DYNAMIC_CACHE_SIZE = 64;
+    private static final Map<String, Pattern> dynamicPatterns = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > DYNAMIC_CACHE_SIZE;
+        }
+    };
+
+    // Expresiones lógicas
+    static final Pattern LOGICAL_OPERATOR = compile("(&&)|(\\|\\|)|(==)|(!=)|(<)|(>)");
+
+    // Separadores
+    static final Pattern LIST_SEPARATOR = compile(",\\s");
+
+    // Análisis léxico de C++
+    static final Pattern CPP_TOKEN = compile(
+            "\\b(int|char|void|double|float|bool|if|else|for|while|return|include|using|namespace|class|public|private|protected)\\b|" +  // palabras clave
+                    "\\b\\d+\\b|" +  // literales numéricos
+                    "[+\\-*/=]|" +  // operadores
+                    "\\b[_a-zA-Z][_a-zA-Z0-9]*\\b"  // identificadores
+    );
+    static final Pattern CPP_IDENTIFIER = compile("\\b[_a-zA-Z][_a-zA-Z0-9]*\\b");
+    static final Pattern CPP_WELL_FORMED_IDENTIFIER = compile("_*[A-Za-z][A-Za-z0-9_]*");
+
+    private PatternCatalog() {
+    }
+
+    static Pattern compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    static Pattern compile(String regex, int flags) {
+        compilations.incrementAndGet();
+        return Pattern.compile(regex, flags);
+    }
+
+    /**
+     * Devuelve el patrón para una expresión construida en tiempo de análisis,
+     * reutilizando la compilación si la misma expresión ya se pidió antes.
+     */
+    static Pattern dynamic(String regex) {
+        synchronized (dynamicPatterns) {
+            Pattern pattern = dynamicPatterns.get(regex);
+            if (pattern == null) {
+                pattern = compile(regex);
+                dynamicPatterns.put(regex, pattern);
+            }
+            return pattern;
+        }
+    }
+
+    /** Cantidad total de compilaciones realizadas desde que se cargó la clase. */
+    static long compilationCount() {
+        return compilations.get();
+    }
+}
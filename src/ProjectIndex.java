@@ -0,0 +1,902 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Índice persistente de un proyecto: por cada archivo guarda el lenguaje, las operaciones
+ * CRUD con su tabla, las funciones, la tabla de símbolos y los errores, en un solo archivo
+ * que se lee mapeado en memoria sin cargarlo. Cada archivo se identifica por su ruta
+ * relativa a la raíz, su tamaño, su fecha de modificación y un hash de su contenido.
+ *
+ * Al actualizarlo solo se vuelven a analizar los archivos que cambiaron: si el tamaño y la
+ * fecha coinciden no se abre el archivo, y si solo cambió la fecha se compara el hash. Lo
+ * de los demás se copia tal cual del índice anterior, y si nada cambió el índice no se
+ * reescribe. Un archivo modificado hace menos de RACY_MILLIS se guarda sin fecha, porque
+ * podría volver a cambiar sin que su fecha cambie; la próxima vez se compara su hash. Si
+ * cambian las palabras reservadas configuradas se vuelve a analizar todo.
+ *
+ * Las tablas que usan las operaciones CRUD de SQL tienen un índice invertido, ordenado por
+ * nombre, con los archivos que las leen (SELECT) o escriben (INSERT, UPDATE, DELETE).
+ *
+ * Formato, en big endian: MAGIC y VERSION; el contenido de cada archivo y los nombres de
+ * las tablas (cadenas con su largo en bytes y UTF-8); un registro de ENTRY_SIZE bytes por
+ * archivo en orden de ruta (tamaño, fecha, hash, posición y largo del contenido); uno de
+ * TABLE_SIZE por tabla (posición del nombre, de sus referencias y cuántas son); las
+ * referencias (archivo << 4 | operaciones); y al final TRAILER_SIZE bytes con la
+ * configuración, las cantidades y posiciones de esas partes y MAGIC otra vez. El índice
+ * se escribe en un archivo aparte que después reemplaza al anterior, así que uno escrito
+ * a medias nunca se lee. Para actualizarlo el índice anterior se lee a memoria en vez de
+ * mapearlo: en Windows no se puede reemplazar un archivo mapeado, y Java no libera un
+ * mapeo hasta que el recolector de basura descarta el buffer. Un índice de otra versión
+ * se descarta y se reconstruye.
+ *
+ * Uso: --indice directorio [--archivo índice] [--hilos N] [--por-partes MB] [--escriben TABLA] [--leen TABLA] [--mostrar RUTA]
+ */
+final class ProjectIndex {
+    private static final String FLAG = "--indice";
+    static final String DEFAULT_FILE = ".analizador.idx";
+    private static final int MAGIC = 0x41494458;
+    private static final int VERSION = 1;
+    private static final int ENTRY_SIZE = 32;
+    private static final int TABLE_SIZE = 12;
+    private static final int TRAILER_SIZE = 32;
+    private static final long RACY_MILLIS = 2000;
+    private static final long DEFAULT_STREAMING_MEGABYTES = 64;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    // Bytes mapeados a la vez al calcular el hash de un archivo grande
+    private static final long HASH_WINDOW = 64L * 1024 * 1024;
+    // Archivos por delante del que se escribe que pueden estar analizándose
+    private static final int WINDOW_PER_THREAD = 64;
+
+    // Operaciones de un archivo sobre una tabla
+    static final int READS = 1;
+    static final int INSERTS = 2;
+    static final int UPDATES = 4;
+    static final int DELETES = 8;
+    static final int WRITES = INSERTS | UPDATES | DELETES;
+
+    private static final ProjectIndex EMPTY = new ProjectIndex(ByteBuffer.allocate(0), 0, 0, 0, 0, 0);
+
+    private final ByteBuffer data;
+    private final long configuration;
+    private final int entryCount;
+    private final int entriesOffset;
+    private final int tableCount;
+    private final int tablesOffset;
+    // Posición de cada ruta; se arma la primera vez que se busca una
+    private Map<String, Integer> byPath;
+
+    private ProjectIndex(ByteBuffer data, long configuration, int entryCount, int entriesOffset,
+                         int tableCount, int tablesOffset) {
+        this.data = data;
+        this.configuration = configuration;
+        this.entryCount = entryCount;
+        this.entriesOffset = entriesOffset;
+        this.tableCount = tableCount;
+        this.tablesOffset = tablesOffset;
+    }
+
+    static boolean isRequested(String[] args) {
+        return args.length > 0 && FLAG.equals(args[0]);
+    }
+
+    /** Actualiza el índice, responde las consultas pedidas y devuelve el código de salida. */
+    static int run(String[] args) {
+        Path root = null;
+        Path file = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long streamingMegabytes = DEFAULT_STREAMING_MEGABYTES;
+        List<String[]> queries = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--archivo":
+                        file = Paths.get(args[++i]);
+                        break;
+                    case "--hilos":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--por-partes":
+                        streamingMegabytes = Long.parseLong(args[++i]);
+                        break;
+                    case "--escriben":
+                    case "--leen":
+                    case "--mostrar":
+                        queries.add(new String[] {args[i], args[++i]});
+                        break;
+                    default:
+                        if (root != null) {
+                            return usage("Argumento desconocido: " + args[i]);
+                        }
+                        root = Paths.get(args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            return usage("Argumentos inválidos.");
+        }
+        if (root == null || !Files.isDirectory(root)) {
+            return usage("Falta el directorio a indexar.");
+        }
+        if (file == null) {
+            file = root.resolve(DEFAULT_FILE);
+        }
+
+        try {
+            long start = System.nanoTime();
+            Update update = update(root, file, CodeAnalyzer.headless(), threads, streamingMegabytes * 1024 * 1024);
+            System.err.printf(Locale.ROOT, "%s en %.2f s%n", update, (System.nanoTime() - start) / 1e9);
+            ProjectIndex index = open(file);
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            for (String[] query : queries) {
+                switch (query[0]) {
+                    case "--escriben":
+                        writeLines(out, index.filesUsing(query[1], WRITES));
+                        break;
+                    case "--leen":
+                        writeLines(out, index.filesUsing(query[1], READS));
+                        break;
+                    default:
+                        int entry = index.find(query[1]);
+                        if (entry < 0) {
+                            System.err.println("No está en el índice: " + query[1]);
+                        } else {
+                            StringBuilder json = new StringBuilder();
+                            index.file(entry).appendJson(json);
+                            out.write(json.append('\n').toString());
+                        }
+                }
+            }
+            out.flush();
+            return update.failed == 0 ? 0 : 1;
+        } catch (IOException ex) {
+            System.err.println("Error de E/S: " + ex.getMessage());
+            return 2;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return 2;
+        }
+    }
+
+    private static int usage(String message) {
+        System.err.println(message);
+        System.err.println("Uso: " + FLAG + " directorio [--archivo índice] [--hilos N] [--por-partes MB] [--escriben TABLA] [--leen TABLA] [--mostrar RUTA]");
+        return 2;
+    }
+
+    private static void writeLines(Writer out, List<String> lines) throws IOException {
+        for (String line : lines) {
+            out.write(line);
+            out.write('\n');
+        }
+    }
+
+    /** El índice guardado en file, mapeado en memoria; vacío si no existe o es de otro formato. */
+    static ProjectIndex open(Path file) throws IOException {
+        return open(file, true);
+    }
+
+    // Sin mapped se lee entero a memoria y el archivo queda libre al volver
+    private static ProjectIndex open(Path file, boolean mapped) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("El índice supera los 2 GB: " + file);
+            }
+            if (size < 8 + TRAILER_SIZE) {
+                return EMPTY;
+            }
+            ByteBuffer data;
+            if (mapped) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                data = ByteBuffer.allocate((int) size);
+                while (data.hasRemaining() && channel.read(data) >= 0) {
+                    // Hasta llenarlo o llegar al final
+                }
+                if (data.hasRemaining()) {
+                    throw new IOException("El índice cambió mientras se leía: " + file);
+                }
+            }
+            int trailer = (int) size - TRAILER_SIZE;
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getInt(trailer + 28) != MAGIC) {
+                return EMPTY;
+            }
+            return new ProjectIndex(data, data.getLong(trailer), data.getInt(trailer + 8), data.getInt(trailer + 12),
+                    data.getInt(trailer + 16), data.getInt(trailer + 20));
+        }
+    }
+
+    int size() {
+        return entryCount;
+    }
+
+    /** Ruta relativa a la raíz, con '/' como separador. */
+    String path(int entry) {
+        return new Cursor(data, payloadOffset(entry)).string();
+    }
+
+    long fileSize(int entry) {
+        return data.getLong(entriesOffset + entry * ENTRY_SIZE);
+    }
+
+    /** Fecha de modificación en milisegundos, o 0 si no se guardó (ver RACY_MILLIS). */
+    long modified(int entry) {
+        return data.getLong(entriesOffset + entry * ENTRY_SIZE + 8);
+    }
+
+    long hash(int entry) {
+        return data.getLong(entriesOffset + entry * ENTRY_SIZE + 16);
+    }
+
+    private int payloadOffset(int entry) {
+        return data.getInt(entriesOffset + entry * ENTRY_SIZE + 24);
+    }
+
+    private int payloadLength(int entry) {
+        return data.getInt(entriesOffset + entry * ENTRY_SIZE + 28);
+    }
+
+    // Cuántas entradas son de alguna de las rutas o de un archivo dentro de ellas ("" es la raíz)
+    private int entriesUnder(List<String> paths) {
+        int count = 0;
+        for (int entry = 0; entry < entryCount && !paths.isEmpty(); entry++) {
+            String path = path(entry);
+            for (String under : paths) {
+                if (under.isEmpty() || path.equals(under) || path.startsWith(under + "/")) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Posición del archivo en el índice, o -1. */
+    synchronized int find(String path) {
+        if (byPath == null) {
+            byPath = new HashMap<>(entryCount * 2);
+            for (int entry = 0; entry < entryCount; entry++) {
+                byPath.put(path(entry), entry);
+            }
+        }
+        Integer entry = byPath.get(path);
+        return entry == null ? -1 : entry;
+    }
+
+    /** Todo lo indexado del archivo. */
+    FileEntry file(int entry) {
+        Cursor cursor = new Cursor(data, payloadOffset(entry));
+        String path = cursor.string();
+        String language = cursor.string();
+        int count = cursor.nextInt();
+        List<String> operations = new ArrayList<>(count);
+        List<String> tables = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            operations.add(cursor.string());
+            tables.add(cursor.string());
+        }
+        List<String> functions = cursor.strings();
+        List<String> symbols = cursor.strings();
+        count = cursor.nextInt();
+        List<Diagnostic> errors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Diagnostic.Kind kind = Diagnostic.Kind.values()[cursor.nextInt()];
+            int line = cursor.nextInt();
+            int column = cursor.nextInt();
+            errors.add(new Diagnostic(kind, line, column, cursor.string()));
+        }
+        return new FileEntry(path, language.isEmpty() ? null : language, operations, tables, functions, symbols, errors);
+    }
+
+    /**
+     * Archivos con alguna de las operaciones (READS, WRITES o una de sus partes) sobre la
+     * tabla, en orden de ruta. El nombre no distingue mayúsculas y lleva el esquema si la
+     * operación lo nombra: ventas.clientes y clientes son tablas distintas.
+     */
+    List<String> filesUsing(String table, int operations) {
+        String name = table.toUpperCase(Locale.ROOT);
+        int low = 0;
+        int high = tableCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = tablesOffset + middle * TABLE_SIZE;
+            int comparison = new Cursor(data, data.getInt(record)).string().compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                List<String> files = new ArrayList<>();
+                int postings = data.getInt(record + 4);
+                int count = data.getInt(record + 8);
+                for (int i = 0; i < count; i++) {
+                    int posting = data.getInt(postings + 4 * i);
+                    if ((posting & operations) != 0) {
+                        files.add(path(posting >>> 4));
+                    }
+                }
+                return files;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /** Huella de la configuración del analizador: las palabras reservadas de cada lenguaje. */
+    static long configuration(CodeAnalyzer analyzer) {
+        StringBuilder text = new StringBuilder();
+        for (LanguageProfile profile : LanguageProfile.all()) {
+            Set<String> words = analyzer.getReservedWords(profile.getName());
+            text.append(profile.getName()).append(':').append(words == null ? "" : new TreeSet<>(words)).append('\n');
+        }
+        return AnalysisCache.hash(text);
+    }
+
+    /**
+     * Lleva el índice en file al estado actual de los archivos bajo root (salvo directorios
+     * ocultos y el propio índice). Los archivos más grandes que streamingThreshold solo se
+     * identifican, leídos por partes.
+     */
+    static Update update(Path root, Path file, CodeAnalyzer analyzer, int threads, long streamingThreshold)
+            throws IOException, InterruptedException {
+        // El anterior no queda mapeado: al final se reemplaza su archivo
+        ProjectIndex previous = open(file, false);
+        long configuration = configuration(analyzer);
+        if (previous.configuration != configuration) {
+            previous = EMPTY;
+        }
+        Update update = new Update();
+        List<String> unreadable = new ArrayList<>();
+        List<Candidate> candidates = walk(root, file, update, unreadable);
+
+        // Sin cambios de tamaño, fecha ni archivos nuevos o borrados no se reescribe
+        int[] previousEntries = new int[candidates.size()];
+        boolean unchanged = candidates.size() == previous.size();
+        for (int i = 0; i < candidates.size(); i++) {
+            previousEntries[i] = previous.find(candidates.get(i).key);
+            unchanged &= candidates.get(i).isUnchanged(previous, previousEntries[i]);
+        }
+        if (unchanged && previous != EMPTY) {
+            update.files = candidates.size();
+            update.unchanged = candidates.size();
+            return update;
+        }
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        boolean written = false;
+        try (IndexWriter writer = new IndexWriter(temporary)) {
+            List<Future<Examined>> pending = new ArrayList<>(Collections.nCopies(candidates.size(), null));
+            int window = threads * WINDOW_PER_THREAD;
+            int submitted = 0;
+            // Entradas del índice anterior cuyo archivo sigue ahí, se haya podido leer o no: las
+            // demás son de archivos borrados. Lo que no se pudo leer se cuenta solo en errores
+            int kept = previous.entriesUnder(unreadable);
+            int failedReads = 0;
+            for (int i = 0; i < candidates.size(); i++) {
+                for (; submitted < candidates.size() && submitted < i + window; submitted++) {
+                    Candidate candidate = candidates.get(submitted);
+                    int entry = previousEntries[submitted];
+                    if (!candidate.isUnchanged(previous, entry)) {
+                        ProjectIndex old = previous;
+                        pending.set(submitted, pool.submit(() -> examine(candidate, old, entry, analyzer, streamingThreshold)));
+                    }
+                }
+                Candidate candidate = candidates.get(i);
+                int entry = previousEntries[i];
+                long modified = candidate.modified >= now - RACY_MILLIS ? 0 : candidate.modified;
+                Future<Examined> future = pending.set(i, null);
+                if (future == null) {
+                    writer.copy(previous, entry, candidate.size, modified);
+                    update.unchanged++;
+                    kept++;
+                    continue;
+                }
+                Examined examined;
+                try {
+                    examined = future.get();
+                } catch (ExecutionException ex) {
+                    update.failed++;
+                    failedReads++;
+                    System.err.println(candidate.key + ": " + ex.getCause());
+                    kept += entry >= 0 ? 1 : 0;
+                    continue;
+                }
+                if (examined.payload == null) {
+                    writer.copy(previous, entry, examined.size, modified);
+                    update.touched++;
+                } else {
+                    writer.add(examined.payload, examined.size, modified, examined.hash);
+                    update.analyzed++;
+                }
+                kept += entry >= 0 ? 1 : 0;
+            }
+            update.files = candidates.size() - failedReads;
+            update.removed = previous.size() - kept;
+            writer.finish(configuration);
+            written = true;
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            if (!written) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return update;
+    }
+
+    // Archivos bajo root en orden de ruta; los que no se pueden leer se cuentan como fallidos y
+    // su ruta relativa queda en unreadable
+    private static List<Candidate> walk(Path root, Path file, Update update, List<String> unreadable) throws IOException {
+        Path index = file.toAbsolutePath().normalize();
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        List<Candidate> candidates = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                Path name = dir.getFileName();
+                if (!dir.equals(root) && name != null && name.toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                Path absolute = path.toAbsolutePath().normalize();
+                if (attrs.isRegularFile() && !absolute.equals(index) && !absolute.equals(temporary)) {
+                    candidates.add(new Candidate(key(root, path), path, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path, IOException ex) {
+                update.failed++;
+                unreadable.add(key(root, path));
+                System.err.println(path + ": " + ex);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        candidates.sort((a, b) -> a.key.compareTo(b.key));
+        return candidates;
+    }
+
+    // Ruta relativa a root con '/' como separador
+    private static String key(Path root, Path path) {
+        return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    // Lee el archivo y, si su contenido no es el del índice anterior, lo analiza
+    private static Examined examine(Candidate candidate, ProjectIndex previous, int entry, CodeAnalyzer analyzer,
+                                    long streamingThreshold) throws IOException {
+        if (candidate.size > streamingThreshold) {
+            long hash = hashFile(candidate.path);
+            if (entry >= 0 && previous.hash(entry) == hash && previous.fileSize(entry) == candidate.size) {
+                return new Examined(candidate.size, hash, null);
+            }
+            String language = BatchAnalyzer.identifyStreamed(candidate.path).language();
+            return new Examined(candidate.size, hash, payload(candidate.key, language, Collections.emptyList(),
+                    Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList()));
+        }
+        byte[] content = Files.readAllBytes(candidate.path);
+        long hash = hash(ByteBuffer.wrap(content), FNV_OFFSET);
+        if (entry >= 0 && previous.hash(entry) == hash && previous.fileSize(entry) == content.length) {
+            return new Examined(content.length, hash, null);
+        }
+        return new Examined(content.length, hash, analyze(candidate.key, new String(content, StandardCharsets.UTF_8), analyzer));
+    }
+
+    // Contenido de la entrada de un archivo: lenguaje, CRUD, funciones, símbolos y errores
+    private static byte[] analyze(String key, String code, CodeAnalyzer analyzer) {
+        AnalysisMonitor monitor = new AnalysisMonitor();
+        try {
+            AnalysisResult analysis = analyzer.analysis(code, monitor);
+            String language = analysis.language();
+            if (language == null) {
+                return payload(key, null, Collections.emptyList(), Collections.emptyList(), Collections.emptyList(),
+                        Collections.emptyList(), Collections.emptyList());
+            }
+            List<String> operations;
+            List<String> tables;
+            SectionCollectors.CrudTargets targets = SectionCollectors.crudTargets(language);
+            if (targets != null) {
+                monitor.beginPhase(AnalysisPhase.SECTIONS);
+                new AnalysisPipeline(language).register(ReportSection.CRUD, targets).run(code, monitor);
+                monitor.endPhase();
+                operations = targets.items();
+                tables = targets.tables();
+            } else {
+                operations = analysis.items(ReportSection.CRUD);
+                tables = Collections.nCopies(operations.size(), "");
+            }
+            List<String> functions = analysis.items(ReportSection.FUNCTIONS);
+            List<Diagnostic> errors = analysis.errors();
+            SymbolTable table = analysis.symbolTable();
+            List<String> symbols = new ArrayList<>(table.size());
+            for (int i = 0; i < table.size(); i++) {
+                symbols.add(table.name(i) + "=" + table.type(i));
+            }
+            return payload(key, language, operations, tables, functions, symbols, errors);
+        } finally {
+            monitor.finish();
+        }
+    }
+
+    private static byte[] payload(String key, String language, List<String> operations, List<String> tables,
+                                  List<String> functions, List<String> symbols, List<Diagnostic> errors) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, key);
+            writeString(out, language == null ? "" : language);
+            out.writeInt(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                writeString(out, operations.get(i));
+                writeString(out, tables.get(i));
+            }
+            writeStrings(out, functions);
+            writeStrings(out, symbols);
+            out.writeInt(errors.size());
+            for (Diagnostic error : errors) {
+                out.writeInt(error.getKind().ordinal());
+                out.writeInt(error.getLine());
+                out.writeInt(error.getColumn());
+                writeString(out, error.getMessage());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            // Un ByteArrayOutputStream no falla
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // FNV-1a de 64 bits sobre los bytes, siguiendo desde hash
+    private static long hash(ByteBuffer bytes, long hash) {
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            hash = (hash ^ (bytes.get(i) & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // El mismo hash, mapeando el archivo por ventanas
+    private static long hashFile(Path path) throws IOException {
+        long hash = FNV_OFFSET;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += HASH_WINDOW) {
+                hash = hash(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(HASH_WINDOW, size - position)), hash);
+            }
+        }
+        return hash;
+    }
+
+    // Recorre cadenas y enteros desde una posición del índice o de un contenido
+    private static final class Cursor {
+        private final ByteBuffer data;
+        private int position;
+
+        Cursor(ByteBuffer data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        int nextInt() {
+            int value = data.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        String string() {
+            int length = nextInt();
+            byte[] bytes = new byte[length];
+            data.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        List<String> strings() {
+            int count = nextInt();
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(string());
+            }
+            return values;
+        }
+
+        // Operaciones por tabla de un contenido, en mayúsculas y sin las que no tienen tabla
+        Map<String, Integer> tableOperations() {
+            string();
+            string();
+            int count = nextInt();
+            Map<String, Integer> operations = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                int operation = operation(string());
+                String table = string();
+                if (!table.isEmpty() && operation != 0) {
+                    operations.merge(table.toUpperCase(Locale.ROOT), operation, (a, b) -> a | b);
+                }
+            }
+            return operations;
+        }
+
+        private static int operation(String crud) {
+            switch (crud) {
+                case "SELECT":
+                    return READS;
+                case "INSERT INTO":
+                    return INSERTS;
+                case "UPDATE":
+                    return UPDATES;
+                case "DELETE FROM":
+                    return DELETES;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    // Escribe un índice nuevo de corrido; las partes de tamaño fijo se juntan en memoria
+    private static final class IndexWriter implements AutoCloseable {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final DataOutputStream entryOut = new DataOutputStream(entries);
+        private final TreeMap<String, List<Integer>> postings = new TreeMap<>();
+        private int count;
+
+        IndexWriter(Path file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        // Contenido de la entrada entry del índice anterior, con tamaño y fecha nuevos
+        void copy(ProjectIndex previous, int entry, long size, long modified) throws IOException {
+            int offset = previous.payloadOffset(entry);
+            byte[] payload = new byte[previous.payloadLength(entry)];
+            previous.data.get(offset, payload);
+            add(payload, size, modified, previous.hash(entry));
+        }
+
+        void add(byte[] payload, long size, long modified, long hash) throws IOException {
+            int offset = checkedSize();
+            out.write(payload);
+            entryOut.writeLong(size);
+            entryOut.writeLong(modified);
+            entryOut.writeLong(hash);
+            entryOut.writeInt(offset);
+            entryOut.writeInt(payload.length);
+            for (Map.Entry<String, Integer> table : new Cursor(ByteBuffer.wrap(payload), 0).tableOperations().entrySet()) {
+                postings.computeIfAbsent(table.getKey(), name -> new ArrayList<>()).add(count << 4 | table.getValue());
+            }
+            count++;
+        }
+
+        void finish(long configuration) throws IOException {
+            int[] names = new int[postings.size()];
+            int i = 0;
+            for (String table : postings.keySet()) {
+                names[i++] = checkedSize();
+                writeString(out, table);
+            }
+            int entriesOffset = checkedSize();
+            entries.writeTo(out);
+            int tablesOffset = checkedSize();
+            int postingsOffset = tablesOffset + postings.size() * TABLE_SIZE;
+            int next = postingsOffset;
+            i = 0;
+            for (List<Integer> references : postings.values()) {
+                out.writeInt(names[i++]);
+                out.writeInt(next);
+                out.writeInt(references.size());
+                next += 4 * references.size();
+            }
+            for (List<Integer> references : postings.values()) {
+                for (int reference : references) {
+                    out.writeInt(reference);
+                }
+            }
+            checkedSize();
+            out.writeLong(configuration);
+            out.writeInt(count);
+            out.writeInt(entriesOffset);
+            out.writeInt(postings.size());
+            out.writeInt(tablesOffset);
+            out.writeInt(postingsOffset);
+            out.writeInt(MAGIC);
+            checkedSize();
+        }
+
+        // DataOutputStream deja de contar en Integer.MAX_VALUE
+        private int checkedSize() throws IOException {
+            if (out.size() >= Integer.MAX_VALUE - TRAILER_SIZE) {
+                throw new IOException("El índice supera los 2 GB");
+            }
+            return out.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class Candidate {
+        final String key;
+        final Path path;
+        final long size;
+        final long modified;
+
+        Candidate(String key, Path path, long size, long modified) {
+            this.key = key;
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        // Mismo tamaño y fecha que en el índice, que la tiene guardada
+        boolean isUnchanged(ProjectIndex previous, int entry) {
+            return entry >= 0 && previous.modified(entry) != 0
+                    && previous.modified(entry) == modified && previous.fileSize(entry) == size;
+        }
+    }
+
+    // Resultado de leer un archivo: payload null si el contenido es el del índice anterior
+    private static final class Examined {
+        final long size;
+        final long hash;
+        final byte[] payload;
+
+        Examined(long size, long hash, byte[] payload) {
+            this.size = size;
+            this.hash = hash;
+            this.payload = payload;
+        }
+    }
+
+    /** Qué hizo una actualización del índice. */
+    static final class Update {
+        int files;
+        int unchanged;
+        int touched;
+        int analyzed;
+        int removed;
+        int failed;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "Archivos: %d, sin cambios: %d, iguales por hash: %d, analizados: %d, borrados: %d, errores: %d",
+                    files, unchanged, touched, analyzed, removed, failed);
+        }
+    }
+
+    /** Lo indexado de un archivo. */
+    static final class FileEntry {
+        private final String path;
+        private final String language;
+        private final List<String> operations;
+        private final List<String> tables;
+        private final List<String> functions;
+        private final List<String> symbols;
+        private final List<Diagnostic> errors;
+
+        FileEntry(String path, String language, List<String> operations, List<String> tables,
+                  List<String> functions, List<String> symbols, List<Diagnostic> errors) {
+            this.path = path;
+            this.language = language;
+            this.operations = Collections.unmodifiableList(operations);
+            this.tables = Collections.unmodifiableList(tables);
+            this.functions = Collections.unmodifiableList(functions);
+            this.symbols = Collections.unmodifiableList(symbols);
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        /** Lenguaje identificado, o null. */
+        String getLanguage() {
+            return language;
+        }
+
+        /** Las operaciones de findCRUDOperations, en el orden del código. */
+        List<String> getOperations() {
+            return operations;
+        }
+
+        /** La tabla de cada operación; vacía si no se reconoció o el lenguaje no es SQL. */
+        List<String> getTables() {
+            return tables;
+        }
+
+        List<String> getFunctions() {
+            return functions;
+        }
+
+        /** Declaraciones de la tabla de símbolos como nombre=tipo, en el orden del código. */
+        List<String> getSymbols() {
+            return symbols;
+        }
+
+        List<Diagnostic> getErrors() {
+            return errors;
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append("{\"path\":").append(BatchAnalyzer.quote(path));
+            json.append(",\"language\":").append(language == null ? "null" : BatchAnalyzer.quote(language));
+            json.append(",\"crud\":[");
+            for (int i = 0; i < operations.size(); i++) {
+                json.append(i == 0 ? "" : ",").append("{\"operation\":").append(BatchAnalyzer.quote(operations.get(i)));
+                json.append(",\"table\":").append(BatchAnalyzer.quote(tables.get(i))).append('}');
+            }
+            json.append("],\"functions\":");
+            appendStrings(json, functions);
+            json.append(",\"symbols\":");
+            appendStrings(json, symbols);
+            json.append(",\"errors\":");
+            List<String> messages = new ArrayList<>(errors.size());
+            for (Diagnostic error : errors) {
+                messages.add(error.toString());
+            }
+            appendStrings(json, messages);
+            json.append('}');
+        }
+
+        private static void appendStrings(StringBuilder json, List<String> values) {
+            json.append('[');
+            for (int i = 0; i < values.size(); i++) {
+                json.append(i == 0 ? "" : ",").append(BatchAnalyzer.quote(values.get(i)));
+            }
+            json.append(']');
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/** Sección del reporte de analyzeCode, con el título con que aparece. */
+enum ReportSection {
+    RESERVED_WORDS("Palabras reservadas"),
+    LOGICAL_EXPRESSIONS("Expresiones lógicas"),
+    VARIABLES("Variables"),
+    CONSTANTS("Constantes"),
+    FUNCTIONS("Funciones"),
+    LOOPS("Ciclos"),
+    CONDITIONALS("Condicionales"),
+    CRUD("CRUD"),
+    LEXICAL("Tokens");
+
+    private final String description;
+
+    ReportSection(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,312 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Resultado del análisis en pestañas: el reporte de texto y una lista o tabla por sección.
+ * Las listas son virtuales: JList y JTable solo piden y dibujan las filas visibles, todas
+ * de la misma altura, así que una sección con millones de elementos o un reporte de cientos
+ * de megabytes se abre y se recorre sin pasar el texto entero a un componente. Cada fila
+ * muestra a lo sumo MAX_SHOWN_CHARS caracteres.
+ *
+ * Las pestañas de las secciones piden sus datos al AnalysisResult la primera vez que se
+ * eligen, fuera del hilo de eventos: si el reporte vino de la caché, se calculan recién ahí.
+ * Lo que calculan se cuenta en AnalysisMetrics como diferido (AnalysisResult.deferred).
+ */
+final class ResultsView extends JPanel {
+    private static final long serialVersionUID = 1L;
+    static final int MAX_SHOWN_CHARS = 200;
+    private static final Font MONOSPACED = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    private final JTabbedPane tabs = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+    private final Consumer<Diagnostic> errorSelected;
+    // Carga de cada pestaña por índice; null en la del reporte y en las ya pedidas
+    private final List<Runnable> loaders = new ArrayList<>();
+    // Cambia con cada resultado mostrado, para descartar cargas de uno anterior
+    private Object shown = new Object();
+
+    ResultsView(Consumer<Diagnostic> errorSelected) {
+        super(new BorderLayout());
+        this.errorSelected = errorSelected;
+        add(tabs, BorderLayout.CENTER);
+        tabs.addChangeListener(e -> loadSelected());
+        showText("");
+    }
+
+    /** Solo el reporte, sin pestañas de secciones (análisis en vivo o sin lenguaje). */
+    void showText(String report) {
+        showReport(new TextLines(report));
+    }
+
+    /**
+     * El reporte, con las líneas ya indexadas fuera del hilo de eventos, y una pestaña por
+     * sección de result que se calcula al elegirla.
+     */
+    void showResult(TextLines report, AnalysisResult result) {
+        showReport(report);
+        if (result.language() == null) {
+            return;
+        }
+        addSectionTab(ReportSection.RESERVED_WORDS, result);
+        addSectionTab(ReportSection.LOGICAL_EXPRESSIONS, result);
+        addTab("Expresiones matemáticas", result, result::mathematicalExpressions, ResultsView::itemsView);
+        for (ReportSection section : new ReportSection[]{ReportSection.VARIABLES, ReportSection.CONSTANTS,
+                ReportSection.FUNCTIONS, ReportSection.LOOPS, ReportSection.CONDITIONALS, ReportSection.CRUD,
+                ReportSection.LEXICAL}) {
+            addSectionTab(section, result);
+        }
+        addTab("Errores", result, result::errors, this::errorsView);
+        addTab("Símbolos", result, result::symbolTable, ResultsView::symbolsView);
+    }
+
+    private void showReport(TextLines report) {
+        shown = new Object();
+        loaders.clear();
+        tabs.removeAll();
+        loaders.add(null);
+        tabs.addTab("Reporte", new JScrollPane(rowList(new LinesModel(report, false))));
+    }
+
+    private void addSectionTab(ReportSection section, AnalysisResult result) {
+        addTab(section.getDescription(), result, () -> result.items(section), ResultsView::itemsView);
+    }
+
+    // La pestaña empieza vacía; compute corre en un SwingWorker la primera vez que se elige
+    private <T> void addTab(String title, AnalysisResult result, Supplier<T> compute, Function<T, JComponent> view) {
+        int index = tabs.getTabCount();
+        Object owner = shown;
+        tabs.addTab(title, centered("Calculando..."));
+        loaders.add(() -> new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() {
+                return result.deferred(compute);
+            }
+
+            @Override
+            protected void done() {
+                if (owner != shown) {
+                    return;
+                }
+                JComponent content;
+                try {
+                    content = view.apply(get());
+                } catch (CancellationException ex) {
+                    content = centered("Análisis cancelado.");
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ex) {
+                    content = centered("Error durante el análisis: " + ex.getCause());
+                }
+                tabs.setComponentAt(index, content);
+            }
+        }.execute());
+    }
+
+    private void loadSelected() {
+        int index = tabs.getSelectedIndex();
+        if (index >= 0 && index < loaders.size() && loaders.get(index) != null) {
+            Runnable loader = loaders.get(index);
+            loaders.set(index, null);
+            loader.run();
+        }
+    }
+
+    private static JComponent itemsView(List<String> items) {
+        if (items.isEmpty()) {
+            return centered("Sin resultados.");
+        }
+        return new JScrollPane(rowList(new ItemsModel(items)));
+    }
+
+    private JComponent errorsView(List<Diagnostic> errors) {
+        if (errors.isEmpty()) {
+            return centered("Sin errores.");
+        }
+        JTable table = new JTable(new ErrorsModel(errors));
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(3).setPreferredWidth(600);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0) {
+                    errorSelected.accept(errors.get(row));
+                }
+            }
+        });
+        return new JScrollPane(table);
+    }
+
+    private static JComponent symbolsView(SymbolTable symbols) {
+        if (symbols == null || symbols.size() == 0) {
+            return centered("Sin declaraciones.");
+        }
+        JTable table = new JTable(new SymbolsModel(symbols));
+        table.setFillsViewportHeight(true);
+        return new JScrollPane(table);
+    }
+
+    private static JComponent centered(String message) {
+        return new JLabel(message, SwingConstants.CENTER);
+    }
+
+    /**
+     * Lista de una fila por elemento con altura y ancho fijos (los de una fila de
+     * MAX_SHOWN_CHARS caracteres), así no mide cada fila para calcular su tamaño.
+     */
+    static JList<String> rowList(ListModel<String> model) {
+        JList<String> list = new JList<>(model);
+        list.setFont(MONOSPACED);
+        list.setPrototypeCellValue(shown("0".repeat(MAX_SHOWN_CHARS + 1), 0, MAX_SHOWN_CHARS + 1));
+        return list;
+    }
+
+    // El texto de una fila, cortado en MAX_SHOWN_CHARS con la cantidad de caracteres que faltan
+    static String shown(CharSequence text, int start, int end) {
+        if (end - start <= MAX_SHOWN_CHARS) {
+            return text.subSequence(start, end).toString();
+        }
+        return text.subSequence(start, start + MAX_SHOWN_CHARS) + "… (+" + (end - start - MAX_SHOWN_CHARS) + " caracteres)";
+    }
+
+    /** Una fila por línea de un texto, opcionalmente con su número. */
+    static final class LinesModel extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+        private final TextLines lines;
+        private final boolean numbered;
+
+        LinesModel(TextLines lines, boolean numbered) {
+            this.lines = lines;
+            this.numbered = numbered;
+        }
+
+        @Override
+        public int getSize() {
+            return lines.count();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            String line = shown(lines.text(), lines.start(index), lines.end(index));
+            return numbered ? String.format("%7d  %s", index + 1, line) : line;
+        }
+    }
+
+    private static final class ItemsModel extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+        private final List<String> items;
+
+        ItemsModel(List<String> items) {
+            this.items = items;
+        }
+
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            String item = items.get(index);
+            return shown(item, 0, item.length());
+        }
+    }
+
+    private static final class ErrorsModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Tipo", "Línea", "Columna", "Mensaje"};
+        private final List<Diagnostic> errors;
+
+        ErrorsModel(List<Diagnostic> errors) {
+            this.errors = errors;
+        }
+
+        @Override
+        public int getRowCount() {
+            return errors.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 1 || column == 2 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Diagnostic error = errors.get(row);
+            switch (column) {
+                case 0:
+                    return error.getKind() == Diagnostic.Kind.LEXICAL ? "Léxico"
+                            : error.getKind() == Diagnostic.Kind.SYNTAX ? "Sintáctico" : "Semántico";
+                case 1:
+                    return error.getLine();
+                case 2:
+                    return error.getColumn();
+                default:
+                    return shown(error.getMessage(), 0, error.getMessage().length());
+            }
+        }
+    }
+
+    private static final class SymbolsModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Nombre", "Tipo", "Posición"};
+        private final SymbolTable symbols;
+
+        SymbolsModel(SymbolTable symbols) {
+            this.symbols = symbols;
+        }
+
+        @Override
+        public int getRowCount() {
+            return symbols.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 ? Integer.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:
+                    return symbols.name(row);
+                case 1:
+                    return symbols.type(row);
+                default:
+                    return symbols.position(row);
+            }
+        }
+    }
+}
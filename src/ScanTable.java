@@ -0,0 +1,102 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Tabla de transiciones de un AFD generado por ScannerGenerator. Cada carácter se lleva
+ * a su clase (una búsqueda en un arreglo si es ASCII) y el estado siguiente es una
+ * posición de rows: el recorrido de un token no tiene ramas por tipo de carácter.
+ *
+ * Cada estado es el comienzo de su fila en rows: classCount transiciones (el comienzo de
+ * la fila destino, o -1) y al final lo que acepta el estado, todo junto para leer una
+ * sola zona de memoria por carácter. El estado inicial es 0.
+ */
+final class ScanTable {
+    private final byte[] classes;
+    private final int classCount;
+    private final int[] rows;
+    private final int stateCount;
+
+    ScanTable(byte[] classes, int classCount, short[] transitions, int[] tags) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.stateCount = tags.length;
+        int width = classCount + 1;
+        this.rows = new int[stateCount * width];
+        for (int state = 0; state < stateCount; state++) {
+            boolean last = true;
+            for (int c = 0; c < classCount; c++) {
+                int target = transitions[state * classCount + c];
+                rows[state * width + c] = target < 0 ? -1 : target * width;
+                last &= target < 0;
+            }
+            rows[state * width + classCount] = tags[state] < 0 ? -1 : tags[state] << 1 | (last ? 1 : 0);
+        }
+    }
+
+    private ScanTable(byte[] classes, int classCount, int[] rows) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.rows = rows;
+        this.stateCount = rows.length / (classCount + 1);
+    }
+
+    /** Escribe la tabla en el formato de LanguageSnapshot. */
+    void writeTo(DataOutputStream out) throws IOException {
+        LanguageSnapshot.writeBytes(out, classes);
+        out.writeInt(classCount);
+        LanguageSnapshot.writeInts(out, rows);
+    }
+
+    /** Lee una tabla escrita con writeTo. */
+    static ScanTable readFrom(ByteBuffer in) {
+        byte[] classes = LanguageSnapshot.readBytes(in);
+        int classCount = in.getInt();
+        int[] rows = LanguageSnapshot.readInts(in);
+        if (classCount <= 0 || rows.length == 0 || rows.length % (classCount + 1) != 0) {
+            throw new IllegalArgumentException("Tabla de transiciones inválida");
+        }
+        return new ScanTable(classes, classCount, rows);
+    }
+
+    /** Estado siguiente a state con c, o -1. */
+    int next(int state, char c) {
+        return rows[state + classes[c < 0x80 ? c : symbol(c)]];
+    }
+
+    /**
+     * Lo que acepta state: -1 si no acepta; si no, la etiqueta de la regla por 2, más 1
+     * si ningún carácter sigue desde ahí (el token termina sin mirar el siguiente).
+     */
+    int accepted(int state) {
+        return rows[state + classCount];
+    }
+
+    int stateCount() {
+        return stateCount;
+    }
+
+    int classCount() {
+        return classCount;
+    }
+
+    // Los caracteres no ASCII se agrupan con las mismas pruebas que hacía el Lexer
+    static int symbol(char c) {
+        if (c < 0x80) {
+            return c;
+        }
+        if (Character.isLetter(c)) {
+            return ScannerGenerator.UNICODE_LETTER;
+        }
+        if (Character.isDigit(c)) {
+            return ScannerGenerator.UNICODE_DIGIT;
+        }
+        if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+            return ScannerGenerator.UNICODE_LINE;
+        }
+        if (Character.isWhitespace(c)) {
+            return ScannerGenerator.UNICODE_SPACE;
+        }
+        return ScannerGenerator.UNICODE_OTHER;
+    }
+}
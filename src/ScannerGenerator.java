@@ -0,0 +1,440 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generador de escáneres: compila reglas léxicas en un AFD mínimo y lo entrega como una
+ * ScanTable. Cada regla es una expresión sobre símbolos con una etiqueta; el token es
+ * el prefijo más largo que acepta alguna regla y, entre las que aceptan el mismo largo,
+ * gana la que se agregó primero.
+ *
+ * Los símbolos son los 128 caracteres ASCII, uno por uno, y cinco clases para el resto
+ * (ver ScanTable.symbol). Se arma un AFN de Thompson, se pasa a AFD por subconjuntos, se
+ * minimiza refinando particiones (Moore) y al final los símbolos con la misma columna en
+ * todos los estados se unen en una sola clase, así la tabla tiene pocas columnas.
+ */
+final class ScannerGenerator {
+    static final int UNICODE_LETTER = 128;
+    static final int UNICODE_DIGIT = 129;
+    static final int UNICODE_SPACE = 130;
+    static final int UNICODE_OTHER = 131;
+    // \u0085, \u2028 y \u2029, que el Lexer cuenta como saltos de línea
+    static final int UNICODE_LINE = 132;
+    static final int SYMBOLS = 133;
+
+    private final List<Expr> patterns = new ArrayList<>();
+    private final List<Integer> tags = new ArrayList<>();
+
+    /** Agrega una regla; las agregadas antes tienen prioridad. tag tiene que ser >= 0. */
+    ScannerGenerator add(Expr pattern, int tag) {
+        if (tag < 0) {
+            throw new IllegalArgumentException("Etiqueta negativa: " + tag);
+        }
+        patterns.add(pattern);
+        tags.add(tag);
+        return this;
+    }
+
+    ScanTable generate() {
+        Nfa nfa = new Nfa();
+        int start = nfa.newState();
+        for (int rule = 0; rule < patterns.size(); rule++) {
+            int ruleStart = nfa.newState();
+            nfa.epsilon(start, ruleStart);
+            nfa.accept(patterns.get(rule).build(nfa, ruleStart), rule);
+        }
+        int[][] dfa = determinize(nfa, start);
+        return compress(minimize(dfa));
+    }
+
+    // ---- Expresiones ----
+
+    /** Expresión regular sobre símbolos; build agrega su fragmento de AFN desde from y devuelve dónde termina. */
+    abstract static class Expr {
+        abstract int build(Nfa nfa, int from);
+    }
+
+    /** Un símbolo de set. */
+    static Expr symbols(BitSet set) {
+        BitSet copy = (BitSet) set.clone();
+        return new Expr() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int to = nfa.newState();
+                nfa.edge(from, copy, to);
+                return to;
+            }
+        };
+    }
+
+    /** Un carácter ASCII de chars. */
+    static Expr anyOf(String chars) {
+        return symbols(set(chars));
+    }
+
+    /** Cualquier símbolo. */
+    static Expr any() {
+        BitSet set = new BitSet(SYMBOLS);
+        set.set(0, SYMBOLS);
+        return symbols(set);
+    }
+
+    /**
+     * El texto ASCII literal. Con ignoreCase cada letra también acepta su minúscula, igual
+     * que comparar después de pasar el texto a mayúsculas (text tiene que estar en mayúsculas).
+     */
+    static Expr literal(String text, boolean ignoreCase) {
+        Expr[] chars = new Expr[text.length()];
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            BitSet set = set(String.valueOf(c));
+            if (ignoreCase && c >= 'A' && c <= 'Z') {
+                set.set(Character.toLowerCase(c));
+            }
+            chars[i] = symbols(set);
+        }
+        return sequence(chars);
+    }
+
+    static Expr sequence(Expr... parts) {
+        return new Expr() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int end = from;
+                for (Expr part : parts) {
+                    end = part.build(nfa, end);
+                }
+                return end;
+            }
+        };
+    }
+
+    static Expr alternative(Expr... options) {
+        return new Expr() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int end = nfa.newState();
+                for (Expr option : options) {
+                    int optionStart = nfa.newState();
+                    nfa.epsilon(from, optionStart);
+                    nfa.epsilon(option.build(nfa, optionStart), end);
+                }
+                return end;
+            }
+        };
+    }
+
+    /** part o nada. */
+    static Expr optional(Expr part) {
+        return alternative(part, sequence());
+    }
+
+    /**
+     * Cualquier texto hasta la primera aparición de end inclusive, o sin end si el texto
+     * termina antes: todo prefijo es aceptado, así que el token no retrocede nunca.
+     */
+    static Expr through(String end) {
+        return new Expr() {
+            @Override
+            int build(Nfa nfa, int from) {
+                // Un estado por cuántos caracteres de end coinciden hasta ahora, como en KMP
+                int[] matched = new int[end.length() + 1];
+                for (int k = 0; k <= end.length(); k++) {
+                    matched[k] = nfa.newState();
+                }
+                nfa.epsilon(from, matched[0]);
+                int finish = nfa.newState();
+                for (int k = 0; k < end.length(); k++) {
+                    BitSet[] targets = new BitSet[end.length() + 1];
+                    for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                        int next = overlap(end, k, symbol);
+                        if (targets[next] == null) {
+                            targets[next] = new BitSet(SYMBOLS);
+                        }
+                        targets[next].set(symbol);
+                    }
+                    for (int next = 0; next <= end.length(); next++) {
+                        if (targets[next] != null) {
+                            nfa.edge(matched[k], targets[next], matched[next]);
+                        }
+                    }
+                    nfa.epsilon(matched[k], finish);
+                }
+                nfa.epsilon(matched[end.length()], finish);
+                return finish;
+            }
+        };
+    }
+
+    // Largo del prefijo más largo de end que termina los k caracteres ya coincidentes más symbol
+    private static int overlap(String end, int k, int symbol) {
+        if (symbol >= 0x80) {
+            return 0;
+        }
+        String seen = end.substring(0, k) + (char) symbol;
+        for (int length = seen.length(); length > 0; length--) {
+            if (seen.endsWith(end.substring(0, length))) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    /** Cero o más repeticiones. */
+    static Expr repeat(Expr part) {
+        return new Expr() {
+            @Override
+            int build(Nfa nfa, int from) {
+                int loop = nfa.newState();
+                nfa.epsilon(from, loop);
+                nfa.epsilon(part.build(nfa, loop), loop);
+                return loop;
+            }
+        };
+    }
+
+    static BitSet set(String chars) {
+        BitSet set = new BitSet(SYMBOLS);
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            if (c >= 0x80) {
+                throw new IllegalArgumentException("Solo caracteres ASCII: " + c);
+            }
+            set.set(c);
+        }
+        return set;
+    }
+
+    // ---- AFN ----
+
+    /** AFN de Thompson: transiciones por conjuntos de símbolos y transiciones vacías. */
+    static final class Nfa {
+        private final List<List<BitSet>> edgeSymbols = new ArrayList<>();
+        private final List<List<Integer>> edgeTargets = new ArrayList<>();
+        private final List<List<Integer>> epsilons = new ArrayList<>();
+        // Regla que acepta en cada estado, o -1
+        private final List<Integer> accepts = new ArrayList<>();
+
+        int newState() {
+            edgeSymbols.add(new ArrayList<>());
+            edgeTargets.add(new ArrayList<>());
+            epsilons.add(new ArrayList<>());
+            accepts.add(-1);
+            return accepts.size() - 1;
+        }
+
+        void edge(int from, BitSet symbols, int to) {
+            edgeSymbols.get(from).add(symbols);
+            edgeTargets.get(from).add(to);
+        }
+
+        void epsilon(int from, int to) {
+            epsilons.get(from).add(to);
+        }
+
+        void accept(int state, int rule) {
+            accepts.set(state, rule);
+        }
+
+        int size() {
+            return accepts.size();
+        }
+
+        void close(BitSet states) {
+            int[] stack = new int[size()];
+            int top = 0;
+            for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+                stack[top++] = s;
+            }
+            while (top > 0) {
+                for (int next : epsilons.get(stack[--top])) {
+                    if (!states.get(next)) {
+                        states.set(next);
+                        stack[top++] = next;
+                    }
+                }
+            }
+        }
+    }
+
+    // ---- AFD ----
+
+    // Una fila por estado: SYMBOLS transiciones (-1 sin transición) y la regla aceptada al final
+    private int[][] determinize(Nfa nfa, int start) {
+        BitSet initial = new BitSet(nfa.size());
+        initial.set(start);
+        nfa.close(initial);
+        List<BitSet> states = new ArrayList<>();
+        Map<BitSet, Integer> ids = new HashMap<>();
+        states.add(initial);
+        ids.put(initial, 0);
+        List<int[]> rows = new ArrayList<>();
+        for (int current = 0; current < states.size(); current++) {
+            BitSet set = states.get(current);
+            int[] row = new int[SYMBOLS + 1];
+            int rule = -1;
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                int accepted = nfa.accepts.get(s);
+                if (accepted >= 0 && (rule < 0 || accepted < rule)) {
+                    rule = accepted;
+                }
+            }
+            row[SYMBOLS] = rule < 0 ? -1 : tags.get(rule);
+            // Destinos por símbolo, recorriendo solo las transiciones que salen del conjunto
+            BitSet[] targets = new BitSet[SYMBOLS];
+            for (int s = set.nextSetBit(0); s >= 0; s = set.nextSetBit(s + 1)) {
+                List<BitSet> symbols = nfa.edgeSymbols.get(s);
+                for (int e = 0; e < symbols.size(); e++) {
+                    BitSet edge = symbols.get(e);
+                    for (int symbol = edge.nextSetBit(0); symbol >= 0; symbol = edge.nextSetBit(symbol + 1)) {
+                        if (targets[symbol] == null) {
+                            targets[symbol] = new BitSet(nfa.size());
+                        }
+                        targets[symbol].set(nfa.edgeTargets.get(s).get(e));
+                    }
+                }
+            }
+            for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                BitSet target = targets[symbol];
+                if (target == null) {
+                    row[symbol] = -1;
+                    continue;
+                }
+                nfa.close(target);
+                Integer id = ids.get(target);
+                if (id == null) {
+                    id = states.size();
+                    states.add(target);
+                    ids.put(target, id);
+                }
+                row[symbol] = id;
+            }
+            rows.add(row);
+        }
+        return rows.toArray(new int[0][]);
+    }
+
+    // Une los estados equivalentes; el estado inicial queda en 0
+    private static int[][] minimize(int[][] dfa) {
+        int[] block = new int[dfa.length];
+        int blocks = renumber(dfa, block, s -> Arrays.hashCode(new int[]{dfa[s][SYMBOLS]}), (a, b) -> dfa[a][SYMBOLS] == dfa[b][SYMBOLS]);
+        while (true) {
+            int[] previous = block.clone();
+            int refined = renumber(dfa, block, s -> signatureHash(dfa, previous, s), (a, b) -> sameSignature(dfa, previous, a, b));
+            if (refined == blocks) {
+                break;
+            }
+            blocks = refined;
+        }
+        int[][] minimal = new int[blocks][];
+        for (int s = 0; s < dfa.length; s++) {
+            if (minimal[block[s]] == null) {
+                int[] row = new int[SYMBOLS + 1];
+                for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+                    row[symbol] = dfa[s][symbol] < 0 ? -1 : block[dfa[s][symbol]];
+                }
+                row[SYMBOLS] = dfa[s][SYMBOLS];
+                minimal[block[s]] = row;
+            }
+        }
+        return minimal;
+    }
+
+    private interface StateHash {
+        int of(int state);
+    }
+
+    private interface StateEquality {
+        boolean test(int a, int b);
+    }
+
+    // Numera las clases de equivalencia en orden de primera aparición y devuelve cuántas hay
+    private static int renumber(int[][] dfa, int[] block, StateHash hash, StateEquality equal) {
+        Map<Integer, List<Integer>> representatives = new HashMap<>();
+        int[] numbered = new int[dfa.length];
+        int count = 0;
+        for (int s = 0; s < dfa.length; s++) {
+            List<Integer> candidates = representatives.computeIfAbsent(hash.of(s), k -> new ArrayList<>());
+            int found = -1;
+            for (int candidate : candidates) {
+                if (equal.test(candidate, s)) {
+                    found = numbered[candidate];
+                    break;
+                }
+            }
+            if (found < 0) {
+                found = count++;
+                candidates.add(s);
+            }
+            numbered[s] = found;
+        }
+        System.arraycopy(numbered, 0, block, 0, block.length);
+        return count;
+    }
+
+    private static int signatureHash(int[][] dfa, int[] block, int s) {
+        int hash = block[s];
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            hash = 31 * hash + (dfa[s][symbol] < 0 ? -1 : block[dfa[s][symbol]]);
+        }
+        return hash;
+    }
+
+    private static boolean sameSignature(int[][] dfa, int[] block, int a, int b) {
+        if (block[a] != block[b]) {
+            return false;
+        }
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            int ta = dfa[a][symbol] < 0 ? -1 : block[dfa[a][symbol]];
+            int tb = dfa[b][symbol] < 0 ? -1 : block[dfa[b][symbol]];
+            if (ta != tb) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Une los símbolos con la misma columna y arma la tabla
+    private static ScanTable compress(int[][] dfa) {
+        byte[] classes = new byte[SYMBOLS];
+        List<Integer> representatives = new ArrayList<>();
+        symbols:
+        for (int symbol = 0; symbol < SYMBOLS; symbol++) {
+            for (int c = 0; c < representatives.size(); c++) {
+                int other = representatives.get(c);
+                boolean same = true;
+                for (int[] row : dfa) {
+                    if (row[symbol] != row[other]) {
+                        same = false;
+                        break;
+                    }
+                }
+                if (same) {
+                    classes[symbol] = (byte) c;
+                    continue symbols;
+                }
+            }
+            if (representatives.size() == Byte.MAX_VALUE) {
+                throw new IllegalStateException("Demasiadas clases de caracteres");
+            }
+            classes[symbol] = (byte) representatives.size();
+            representatives.add(symbol);
+        }
+        if (dfa.length > Short.MAX_VALUE) {
+            throw new IllegalStateException("Demasiados estados: " + dfa.length);
+        }
+        int classCount = representatives.size();
+        short[] next = new short[dfa.length * classCount];
+        int[] tags = new int[dfa.length];
+        for (int s = 0; s < dfa.length; s++) {
+            for (int c = 0; c < classCount; c++) {
+                next[s * classCount + c] = (short) dfa[s][representatives.get(c)];
+            }
+            tags[s] = dfa[s][SYMBOLS];
+        }
+        return new ScanTable(classes, classCount, next, tags);
+    }
+}
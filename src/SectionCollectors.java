@@ -0,0 +1,1688 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recolectores de cada sección del reporte. Cada uno reproduce sobre el flujo de
+ * tokens las mismas coincidencias que la expresión regular del extractor original
+ * (anotada en cada clase), respetando la semántica de \b, \w y \s de java.util.regex:
+ * \w y \s son ASCII, mientras que \b considera letras y dígitos Unicode.
+ */
+final class SectionCollectors {
+    private SectionCollectors() {
+    }
+
+    /**
+     * Recolector que se puede correr por tramos: si ninguna coincidencia cruza el corte
+     * entre dos tramos consecutivos, el resultado del texto completo es el de un recolector
+     * vacío que absorbe, en orden, los de cada tramo.
+     */
+    interface Mergeable extends TokenCollector {
+        void absorb(Mergeable chunk);
+    }
+
+    /**
+     * Recolector cuyas coincidencias nunca cruzan un salto de línea, así que cualquier
+     * comienzo de línea es un corte válido y cada línea puede ser un tramo.
+     */
+    interface LineLocal extends Mergeable {
+        /** Total vacío de la sección para el análisis en vivo (ver LineTotal). */
+        LineTotal newTotal();
+    }
+
+    /**
+     * Resultado de una sección en el análisis en vivo, como suma de los aportes de cada
+     * línea. Al editar una línea se resta su aporte viejo y se suma el nuevo (add con sign
+     * -1 y 1) sin mirar las demás; el texto se arma recién en result, que recibe los aportes
+     * no vacíos de todas las líneas en orden. Las secciones que listan coincidencias unen el
+     * texto que cada aporte ya guardó unido, así que cuestan lo que mide su resultado.
+     */
+    abstract static class LineTotal {
+        void add(LineLocal line, int sign) {
+        }
+
+        abstract String result(Iterable<? extends LineLocal> lines);
+    }
+
+    /** Total de una lista en orden: prefix, las coincidencias de cada línea separadas por ", " y suffix. */
+    static final class JoinedTotal extends LineTotal {
+        private final Function<LineLocal, Matches> matches;
+        private final String prefix;
+        private final String suffix;
+        // Largo del texto unido de todos los aportes y cuántos son, para reservar el resultado de una vez
+        private long length;
+        private int count;
+
+        JoinedTotal(Function<LineLocal, Matches> matches, String prefix, String suffix) {
+            this.matches = matches;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        void add(LineLocal line, int sign) {
+            length += sign * matches.apply(line).join().length();
+            count += sign;
+        }
+
+        @Override
+        String result(Iterable<? extends LineLocal> lines) {
+            long capacity = prefix.length() + length + 2L * Math.max(count - 1, 0) + suffix.length();
+            StringBuilder result = new StringBuilder((int) Math.min(capacity, Integer.MAX_VALUE - 8));
+            result.append(prefix);
+            String separator = "";
+            for (LineLocal line : lines) {
+                result.append(separator).append(matches.apply(line).join());
+                separator = ", ";
+            }
+            return result.append(suffix).toString();
+        }
+    }
+
+    /** Recolector de la sección para una sola línea, o null si sus coincidencias pueden cruzar líneas. */
+    static LineLocal lineLocal(ReportSection section, String language, Set<String> reservedWords) {
+        TokenCollector collector = forSection(section, language, reservedWords);
+        return collector instanceof LineLocal ? (LineLocal) collector : null;
+    }
+
+    /** Recolector vacío de la sección del reporte para el lenguaje. */
+    static TokenCollector forSection(ReportSection section, String language, Set<String> reservedWords) {
+        switch (section) {
+            case RESERVED_WORDS:
+                return new ReservedWords(reservedWords);
+            case LOGICAL_EXPRESSIONS:
+                return new LogicalExpressions();
+            case VARIABLES:
+                return variables(language);
+            case CONSTANTS:
+                return constants(language);
+            case FUNCTIONS:
+                return functions(language);
+            case LOOPS:
+                return loops(language);
+            case CONDITIONALS:
+                return conditionals(language);
+            case CRUD:
+                return crudOperations(language);
+            case LEXICAL:
+                return lexicalTokens(language);
+            default:
+                throw new IllegalArgumentException("Sección desconocida: " + section);
+        }
+    }
+
+    static TokenCollector variables(String language) {
+        return extractor(language, ReportSection.VARIABLES, "El lenguaje " + language + " no está soportado.");
+    }
+
+    static TokenCollector constants(String language) {
+        return extractor(language, ReportSection.CONSTANTS, "No implementado para " + language);
+    }
+
+    static TokenCollector functions(String language) {
+        return extractor(language, ReportSection.FUNCTIONS, "El lenguaje " + language + " no está soportado.");
+    }
+
+    static TokenCollector loops(String language) {
+        return extractor(language, ReportSection.LOOPS, "El lenguaje " + language + " no está soportado.");
+    }
+
+    static TokenCollector conditionals(String language) {
+        return extractor(language, ReportSection.CONDITIONALS, "The language " + language + " is not supported.");
+    }
+
+    static TokenCollector crudOperations(String language) {
+        return extractor(language, ReportSection.CRUD, "El lenguaje " + language + " no está soportado.");
+    }
+
+    /** Operaciones CRUD con sus tablas, o null si el lenguaje no es SQL. */
+    static CrudTargets crudTargets(String language) {
+        LanguageProfile profile = LanguageProfile.forName(language);
+        String[] collector = profile == null ? null : profile.getCollector(ReportSection.CRUD);
+        return collector != null && "sql".equals(collector[0]) ? new CrudTargets() : null;
+    }
+
+    static TokenCollector lexicalTokens(String language) {
+        LanguageProfile profile = LanguageProfile.forName(language);
+        if (profile == null || !profile.usesCppAnalyzer()) {
+            return new Unsupported("Este analizador solo admite C++.");
+        }
+        return new CppLexicalTokens();
+    }
+
+    // Recolector que indica el perfil para la sección; sin recolector indicado, la expresión
+    // del perfil sobre el texto completo
+    private static TokenCollector extractor(String language, ReportSection section, String unsupported) {
+        LanguageProfile profile = LanguageProfile.forName(language);
+        Pattern pattern = profile == null ? null : profile.getExtractor(section);
+        if (pattern == null) {
+            return new Unsupported(unsupported);
+        }
+        String[] collector = profile.getCollector(section);
+        if (collector == null) {
+            boolean distinct = section == ReportSection.VARIABLES || section == ReportSection.CONSTANTS;
+            return new PatternMatches(pattern, distinct);
+        }
+        return collector(section, collector);
+    }
+
+    /**
+     * Recolector de tokens por su nombre en lenguajes.txt (clave "<extractor>.recolector"):
+     * el tipo y sus argumentos separados por espacios. funcion y bloques sirven en
+     * cualquier sección; los demás, en la suya.
+     *   funcion PALABRA CIERRE   "def" o "function" antes del nombre ("-" si no hay) y '{' o ':'
+     *   bloques CIERRE PALABRAS  líneas que empiezan con una de las palabras y tienen el cierre
+     */
+    static TokenCollector collector(ReportSection section, String[] collector) {
+        String kind = collector[0];
+        if ("funcion".equals(kind) && collector.length == 3 && isClose(collector[2])) {
+            return new Functions("-".equals(collector[1]) ? null : collector[1], ":".equals(collector[2]));
+        }
+        if ("bloques".equals(kind) && collector.length > 2 && isClose(collector[1])) {
+            return new LineBlocks(Arrays.copyOfRange(collector, 2, collector.length), collector[1].charAt(0));
+        }
+        switch (section + "/" + kind) {
+            case "VARIABLES/sql":
+                return new SqlVariables();
+            case "VARIABLES/tipadas":
+                return new TypedDeclarations();
+            case "VARIABLES/declaradas":
+                return new DeclaredVariables();
+            case "VARIABLES/asignadas":
+                return new AssignedVariables();
+            case "CONSTANTS/const-tipada":
+                return new CppConstants();
+            case "CONSTANTS/asignacion-numerica":
+                return new PythonConstants();
+            case "CONSTANTS/const":
+                return new JavaScriptConstants();
+            case "CONDITIONALS/python":
+                return new PythonConditionals();
+            case "CONDITIONALS/sql":
+                return new SqlConditionals();
+            case "CRUD/python":
+                return new PythonCrud();
+            case "CRUD/sql":
+                return new SqlCrud();
+            default:
+                throw new IllegalArgumentException("Recolector desconocido para " + section + ": " + String.join(" ", collector));
+        }
+    }
+
+    private static boolean isClose(String close) {
+        return "{".equals(close) || ":".equals(close);
+    }
+
+    // ---- Utilidades de texto con la misma semántica que java.util.regex ----
+
+    // \w
+    static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    // Carácter de palabra para \b
+    static boolean isBoundaryChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    // \s
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // [a-zA-Z_]
+    static boolean isLetterOrUnderscore(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isBoundary(CharSequence source, int index) {
+        boolean left = index > 0 && isBoundaryChar(source.charAt(index - 1));
+        boolean right = index < source.length() && isBoundaryChar(source.charAt(index));
+        return left != right;
+    }
+
+    // \b delante de un carácter de palabra
+    static boolean startsWord(CharSequence source, int index) {
+        return index == 0 || !isBoundaryChar(source.charAt(index - 1));
+    }
+
+    static int skipSpaces(CharSequence source, int index) {
+        while (index < source.length() && isSpace(source.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    static int wordEnd(CharSequence source, int index) {
+        while (index < source.length() && isWordChar(source.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    static int digitsEnd(CharSequence source, int index) {
+        while (index < source.length() && isDigit(source.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    static boolean charAtIs(CharSequence source, int index, char expected) {
+        return index < source.length() && source.charAt(index) == expected;
+    }
+
+    static boolean regionEquals(CharSequence source, int from, String text) {
+        if (from < 0 || from + text.length() > source.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (source.charAt(from + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Comparación sin distinguir mayúsculas solo en ASCII, como Pattern.CASE_INSENSITIVE
+    static boolean regionEqualsIgnoreCase(CharSequence source, int from, String upperCaseText) {
+        if (from < 0 || from + upperCaseText.length() > source.length()) {
+            return false;
+        }
+        for (int i = 0; i < upperCaseText.length(); i++) {
+            char c = source.charAt(from + i);
+            char expected = upperCaseText.charAt(i);
+            if (c != expected && c != Character.toLowerCase(expected)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isWordToken(Token token) {
+        return token.getType() == TokenType.IDENTIFIER || token.getType() == TokenType.KEYWORD;
+    }
+
+    static boolean textEquals(Token token, CharSequence source, String text) {
+        return token.getEnd() - token.getStart() == text.length() && regionEquals(source, token.getStart(), text);
+    }
+
+    static boolean textEqualsAny(Token token, CharSequence source, String[] texts) {
+        for (String text : texts) {
+            if (textEquals(token, source, text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String text(CharSequence source, int from, int to) {
+        return source.subSequence(from, to).toString();
+    }
+
+    /**
+     * Coincidencias de un recolector, en el orden del código y con o sin repetidos. En modo
+     * resumen (summarizeInto) no se guardan: cada una se cuenta en un MatchSummary y lo
+     * que ocupa el recolector ya no depende de cuántas encuentre.
+     */
+    static final class Matches {
+        private final Collection<String> items;
+        private String joined;
+        private MatchSummary summary;
+        // Posición en el archivo del comienzo del texto recorrido, para el resumen
+        private long base;
+
+        private Matches(Collection<String> items) {
+            this.items = items;
+        }
+
+        static Matches inOrder() {
+            return new Matches(new ArrayList<>());
+        }
+
+        static Matches distinct() {
+            return new Matches(new LinkedHashSet<>());
+        }
+
+        void add(String match, int position) {
+            if (summary != null) {
+                summary.add(match, base + position);
+            } else {
+                items.add(match);
+                joined = null;
+            }
+        }
+
+        // Las de un tramo resumido ya están en su resumen, que es el mismo que el de este
+        void addAll(Matches chunk) {
+            items.addAll(chunk.items);
+            joined = null;
+        }
+
+        void summarizeInto(MatchSummary summary, long base) {
+            this.summary = summary;
+            this.base = base;
+        }
+
+        int size() {
+            return items.size();
+        }
+
+        List<String> list() {
+            return items instanceof List ? Collections.unmodifiableList((List<String>) items) : new ArrayList<>(items);
+        }
+
+        // Se guarda: el análisis en vivo une el de cada línea cada vez que arma la sección
+        String join() {
+            if (joined == null) {
+                joined = String.join(", ", items);
+            }
+            return joined;
+        }
+
+        // Se guardan en orden de aparición para poder absorber tramos, pero los extractores
+        // originales las unen en el orden de un HashSet llenado en ese orden
+        String joinUnordered() {
+            Set<String> unordered = new HashSet<>();
+            unordered.addAll(items);
+            return String.join(", ", unordered);
+        }
+
+        @Override
+        public String toString() {
+            return items.toString();
+        }
+    }
+
+    // ---- Recolectores ----
+
+    /** Sección fija para lenguajes que no soportan el extractor. */
+    static final class Unsupported implements LineLocal {
+        private final String message;
+
+        Unsupported(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new LineTotal() {
+                @Override
+                String result(Iterable<? extends LineLocal> lines) {
+                    return message;
+                }
+            };
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            // El mensaje no depende del código
+        }
+
+        @Override
+        public String result() {
+            return message;
+        }
+
+        @Override
+        public List<String> items() {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * La expresión del extractor buscada sobre el texto, para los lenguajes de
+     * lenguajes.txt sin recolector de tokens. Al recorrer un tramo solo cuentan las
+     * coincidencias que empiezan en él, y ninguna pasa del corte: el resultado es el del
+     * texto completo si ninguna lo cruza, como en los demás recolectores. Como en
+     * findVariables y findConstants, en esas secciones no hay repetidos.
+     */
+    static final class PatternMatches implements Mergeable {
+        private final Pattern pattern;
+        private final boolean distinct;
+        private final Matches matches;
+
+        PatternMatches(Pattern pattern, boolean distinct) {
+            this.pattern = pattern;
+            this.distinct = distinct;
+            this.matches = distinct ? Matches.distinct() : Matches.inOrder();
+        }
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+        }
+
+        @Override
+        public void finish(CharSequence source) {
+            finish(source, 0, source.length());
+        }
+
+        @Override
+        public void finish(CharSequence source, int start, int end) {
+            Matcher matcher = pattern.matcher(source).region(start, end);
+            matcher.useTransparentBounds(true).useAnchoringBounds(false);
+            while (matcher.find()) {
+                matches.add(distinct ? matcher.group().trim() : matcher.group(), matcher.start());
+            }
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            matches.addAll(((PatternMatches) chunk).matches);
+        }
+
+        @Override
+        public String result() {
+            return distinct ? matches.joinUnordered() : matches.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return matches.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            matches.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /**
+     * Palabras reservadas que aparecen en el código (code.contains(keyword)).
+     * Las palabras reservadas son alfanuméricas y empiezan con letra, así que cualquier
+     * aparición cae dentro de un único token de palabra.
+     */
+    static final class ReservedWords implements LineLocal {
+        private final String[] words;
+        private final boolean[] found;
+        private int remaining;
+
+        ReservedWords(Set<String> reservedWords) {
+            words = new String[reservedWords.size()];
+            int i = 0;
+            for (String word : reservedWords) {
+                words[i++] = word;
+            }
+            found = new boolean[words.length];
+            remaining = words.length;
+        }
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (remaining == 0 || !isWordToken(token)) {
+                return;
+            }
+            String lexeme = text(source, token.getStart(), token.getEnd());
+            for (int i = 0; i < words.length; i++) {
+                if (!found[i] && lexeme.contains(words[i])) {
+                    found[i] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new LineTotal() {
+                // En cuántas líneas aparece cada palabra
+                private final int[] lines = new int[words.length];
+
+                @Override
+                void add(LineLocal line, int sign) {
+                    boolean[] lineFound = ((ReservedWords) line).found;
+                    for (int i = 0; i < words.length; i++) {
+                        if (lineFound[i]) {
+                            lines[i] += sign;
+                        }
+                    }
+                }
+
+                @Override
+                String result(Iterable<? extends LineLocal> contributions) {
+                    StringJoiner foundKeywords = new StringJoiner(" ");
+                    for (int i = 0; i < words.length; i++) {
+                        if (lines[i] > 0) {
+                            foundKeywords.add(words[i]);
+                        }
+                    }
+                    return foundKeywords.toString();
+                }
+            };
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            boolean[] lineFound = ((ReservedWords) line).found;
+            for (int i = 0; i < words.length; i++) {
+                if (lineFound[i] && !found[i]) {
+                    found[i] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        @Override
+        public String result() {
+            StringBuilder foundKeywords = new StringBuilder();
+            for (int i = 0; i < words.length; i++) {
+                if (found[i]) {
+                    foundKeywords.append(words[i]).append(" ");
+                }
+            }
+            return foundKeywords.toString().trim();
+        }
+
+        @Override
+        public List<String> items() {
+            List<String> items = new ArrayList<>();
+            for (int i = 0; i < words.length; i++) {
+                if (found[i]) {
+                    items.add(words[i]);
+                }
+            }
+            return items;
+        }
+    }
+
+    /** (&&)|(\|\|)|(==)|(!=)|(<)|(>) */
+    static final class LogicalExpressions implements LineLocal {
+        private final Matches logicalExpressions = Matches.inOrder();
+        private char pending;
+        private int previousEnd = -1;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (token.getStart() != previousEnd) {
+                pending = 0;
+            }
+            previousEnd = token.getEnd();
+            if (isWordToken(token) || token.getType() == TokenType.NUMBER) {
+                pending = 0;
+                return;
+            }
+            for (int i = token.getStart(); i < token.getEnd(); i++) {
+                step(source.charAt(i), i);
+            }
+        }
+
+        private void step(char c, int position) {
+            if (pending != 0) {
+                String pair = pair(pending, c);
+                if (pair != null) {
+                    logicalExpressions.add(pair, position - 1);
+                    pending = 0;
+                    return;
+                }
+            }
+            if (c == '<' || c == '>') {
+                logicalExpressions.add(c == '<' ? "<" : ">", position);
+                pending = 0;
+            } else if (c == '&' || c == '|' || c == '=' || c == '!') {
+                pending = c;
+            } else {
+                pending = 0;
+            }
+        }
+
+        private static String pair(char first, char second) {
+            if (first == '&' && second == '&') {
+                return "&&";
+            } else if (first == '|' && second == '|') {
+                return "||";
+            } else if (first == '=' && second == '=') {
+                return "==";
+            } else if (first == '!' && second == '=') {
+                return "!=";
+            }
+            return null;
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new JoinedTotal(line -> ((LogicalExpressions) line).logicalExpressions, "[", "]");
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            logicalExpressions.addAll(((LogicalExpressions) line).logicalExpressions);
+        }
+
+        @Override
+        public String result() {
+            return logicalExpressions.toString();
+        }
+
+        @Override
+        public List<String> items() {
+            return logicalExpressions.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            logicalExpressions.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \s*[^\W]([a-zA-Z_][\w]*|@\w*)\b */
+    static final class SqlVariables implements LineLocal {
+        private final Matches variables = Matches.distinct();
+        private int position;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            // Los caracteres de \w solo aparecen en tokens de palabra o numéricos
+            if (!isWordToken(token) && token.getType() != TokenType.NUMBER) {
+                return;
+            }
+            int i = Math.max(position, token.getStart());
+            while (i < token.getEnd()) {
+                if (isWordChar(source.charAt(i))) {
+                    i = scanRun(source, i, wordEnd(source, i));
+                } else {
+                    i++;
+                }
+            }
+            position = Math.max(position, i);
+        }
+
+        // Procesa la racha de \w [start, end) y devuelve dónde continúa la búsqueda
+        private int scanRun(CharSequence source, int start, int end) {
+            // Primera alternativa: un carácter de palabra seguido de [a-zA-Z_]\w* hasta el final de la racha
+            for (int q = start; q + 1 < end; q++) {
+                if (isLetterOrUnderscore(source.charAt(q + 1))) {
+                    if (isBoundary(source, end)) {
+                        variables.add(text(source, q, end), q);
+                    }
+                    return end;
+                }
+            }
+            // Segunda alternativa: el último carácter seguido de @\w*
+            if (charAtIs(source, end, '@')) {
+                for (int e = wordEnd(source, end + 1); e > end; e--) {
+                    if (isBoundary(source, e)) {
+                        variables.add(text(source, end - 1, e), end - 1);
+                        return e;
+                    }
+                }
+            }
+            return end;
+        }
+
+        // El orden del HashSet depende del orden de aparición de cada variable, que editar
+        // cualquier línea puede cambiar, así que se vuelven a combinar todas las líneas
+        @Override
+        public LineTotal newTotal() {
+            return new LineTotal() {
+                @Override
+                String result(Iterable<? extends LineLocal> lines) {
+                    SqlVariables total = new SqlVariables();
+                    for (LineLocal line : lines) {
+                        total.absorb(line);
+                    }
+                    return total.result();
+                }
+            };
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            variables.addAll(((SqlVariables) line).variables);
+        }
+
+        @Override
+        public String result() {
+            return variables.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return variables.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            variables.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \b(class|int|float|double|char|string|void)\s+([a-zA-Z_][\w]*)\b */
+    static final class TypedDeclarations implements Mergeable {
+        private static final String[] TYPES = {"class", "int", "float", "double", "char", "string", "void"};
+        private final Matches variables = Matches.distinct();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !textEqualsAny(token, source, TYPES) || !startsWord(source, start)) {
+                return;
+            }
+            int end = token.getEnd();
+            if (end >= source.length() || !isSpace(source.charAt(end))) {
+                return;
+            }
+            int nameStart = skipSpaces(source, end);
+            if (nameStart >= source.length() || !isLetterOrUnderscore(source.charAt(nameStart))) {
+                return;
+            }
+            int nameEnd = wordEnd(source, nameStart + 1);
+            if (isBoundary(source, nameEnd)) {
+                variables.add(text(source, start, nameEnd).trim(), start);
+                resumeAt = nameEnd;
+            }
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            variables.addAll(((TypedDeclarations) chunk).variables);
+        }
+
+        @Override
+        public String result() {
+            return variables.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return variables.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            variables.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \b(var|let|const)\s+([a-zA-Z_$][\w$]*)\b */
+    static final class DeclaredVariables implements Mergeable {
+        private static final String[] DECLARATORS = {"var", "let", "const"};
+        private final Matches variables = Matches.distinct();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !textEqualsAny(token, source, DECLARATORS) || !startsWord(source, start)) {
+                return;
+            }
+            int end = token.getEnd();
+            if (end >= source.length() || !isSpace(source.charAt(end))) {
+                return;
+            }
+            int nameStart = skipSpaces(source, end);
+            if (nameStart >= source.length() || !(isLetterOrUnderscore(source.charAt(nameStart)) || source.charAt(nameStart) == '$')) {
+                return;
+            }
+            int nameEnd = nameStart + 1;
+            while (nameEnd < source.length() && (isWordChar(source.charAt(nameEnd)) || source.charAt(nameEnd) == '$')) {
+                nameEnd++;
+            }
+            // [\w$]* retrocede hasta el primer \b
+            for (int e = nameEnd; e > nameStart; e--) {
+                if (isBoundary(source, e)) {
+                    variables.add(text(source, start, e).trim(), start);
+                    resumeAt = e;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            variables.addAll(((DeclaredVariables) chunk).variables);
+        }
+
+        @Override
+        public String result() {
+            return variables.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return variables.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            variables.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \b([a-zA-Z_][\w]*)\s*=\s* */
+    static final class AssignedVariables implements Mergeable {
+        private final Matches variables = Matches.distinct();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !isLetterOrUnderscore(source.charAt(start)) || !startsWord(source, start)) {
+                return;
+            }
+            int equals = skipSpaces(source, wordEnd(source, start));
+            if (!charAtIs(source, equals, '=')) {
+                return;
+            }
+            int end = skipSpaces(source, equals + 1);
+            variables.add(text(source, start, end).trim(), start);
+            resumeAt = end;
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            variables.addAll(((AssignedVariables) chunk).variables);
+        }
+
+        @Override
+        public String result() {
+            return variables.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return variables.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            variables.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \bconst\s+\w+\s+\w+ */
+    static final class CppConstants implements Mergeable {
+        private final Matches constants = Matches.distinct();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !textEquals(token, source, "const") || !startsWord(source, start)) {
+                return;
+            }
+            int end = token.getEnd();
+            if (end >= source.length() || !isSpace(source.charAt(end))) {
+                return;
+            }
+            int typeStart = skipSpaces(source, end);
+            if (typeStart >= source.length() || !isWordChar(source.charAt(typeStart))) {
+                return;
+            }
+            int typeEnd = wordEnd(source, typeStart);
+            if (typeEnd >= source.length() || !isSpace(source.charAt(typeEnd))) {
+                return;
+            }
+            int nameStart = skipSpaces(source, typeEnd);
+            if (nameStart >= source.length() || !isWordChar(source.charAt(nameStart))) {
+                return;
+            }
+            int nameEnd = wordEnd(source, nameStart);
+            constants.add(text(source, start, nameEnd).trim(), start);
+            resumeAt = nameEnd;
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            constants.addAll(((CppConstants) chunk).constants);
+        }
+
+        @Override
+        public String result() {
+            return constants.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return constants.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            constants.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \bconst\s+\w+\b */
+    static final class JavaScriptConstants implements Mergeable {
+        private final Matches constants = Matches.distinct();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !textEquals(token, source, "const") || !startsWord(source, start)) {
+                return;
+            }
+            int end = token.getEnd();
+            if (end >= source.length() || !isSpace(source.charAt(end))) {
+                return;
+            }
+            int nameStart = skipSpaces(source, end);
+            if (nameStart >= source.length() || !isWordChar(source.charAt(nameStart))) {
+                return;
+            }
+            int nameEnd = wordEnd(source, nameStart);
+            if (isBoundary(source, nameEnd)) {
+                constants.add(text(source, start, nameEnd).trim(), start);
+                resumeAt = nameEnd;
+            }
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            constants.addAll(((JavaScriptConstants) chunk).constants);
+        }
+
+        @Override
+        public String result() {
+            return constants.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return constants.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            constants.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \b\w+\s*=\s*\d+ */
+    static final class PythonConstants implements Mergeable {
+        private final Matches constants = Matches.distinct();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (!isWordToken(token) && token.getType() != TokenType.NUMBER) {
+                return;
+            }
+            for (int i = Math.max(resumeAt, token.getStart()); i < token.getEnd(); i++) {
+                if (!isWordChar(source.charAt(i)) || !startsWord(source, i)) {
+                    continue;
+                }
+                int nameEnd = wordEnd(source, i);
+                int equals = skipSpaces(source, nameEnd);
+                if (charAtIs(source, equals, '=')) {
+                    int valueStart = skipSpaces(source, equals + 1);
+                    if (valueStart < source.length() && isDigit(source.charAt(valueStart))) {
+                        int valueEnd = digitsEnd(source, valueStart);
+                        constants.add(text(source, i, valueEnd).trim(), i);
+                        resumeAt = valueEnd;
+                        i = valueEnd - 1;
+                        continue;
+                    }
+                }
+                i = nameEnd - 1;
+            }
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            constants.addAll(((PythonConstants) chunk).constants);
+        }
+
+        @Override
+        public String result() {
+            return constants.joinUnordered();
+        }
+
+        @Override
+        public List<String> items() {
+            return constants.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            constants.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /**
+     * C++:        \b\w+\s*\(.*?\)\s*\{
+     * JavaScript: \bfunction\s+\w+\s*\(.*?\)\s*\{
+     * Python:     \bdef\s+\w+\s*\(.*?\):
+     * El tramo .*? no cruza líneas, así que una candidata espera su cierre solo
+     * mientras los tokens sigan en la línea de su paréntesis.
+     */
+    static final class Functions implements Mergeable {
+        private final String keyword;
+        private final boolean colonClose;
+        private final Matches functions = Matches.inOrder();
+        private int resumeAt;
+        // Candidata cuyo '(' todavía no llegó
+        private int expectedParen = -1;
+        private int expectedStart;
+        // Candidata que espera el cierre en la línea de su '('
+        private int pendingStart = -1;
+        private int pendingLine;
+
+        Functions(String keyword, boolean colonClose) {
+            this.keyword = keyword;
+            this.colonClose = colonClose;
+        }
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (pendingStart >= 0 && token.getLine() != pendingLine) {
+                pendingStart = -1;
+            }
+            if (pendingStart >= 0 && token.getType() == TokenType.RIGHT_PAREN) {
+                int end = closeEnd(source, token.getEnd());
+                if (end >= 0) {
+                    functions.add(text(source, pendingStart, end), pendingStart);
+                    resumeAt = end;
+                    pendingStart = -1;
+                    expectedParen = -1;
+                }
+                return;
+            }
+            if (start == expectedParen) {
+                expectedParen = -1;
+                // Si ya hay una candidata en esta línea, la nueva comparte su mismo cierre
+                if (pendingStart < 0 && expectedStart >= resumeAt) {
+                    pendingStart = expectedStart;
+                    pendingLine = token.getLine();
+                }
+                return;
+            }
+            if (start < resumeAt || expectedParen >= 0) {
+                return;
+            }
+            if (keyword != null) {
+                if (isWordToken(token) && textEquals(token, source, keyword) && startsWord(source, start)) {
+                    expectCandidate(source, start, token.getEnd());
+                }
+            } else if (isWordToken(token) || token.getType() == TokenType.NUMBER) {
+                for (int i = token.getStart(); i < token.getEnd() && expectedParen < 0; i++) {
+                    if (isWordChar(source.charAt(i)) && startsWord(source, i)) {
+                        int nameEnd = wordEnd(source, i);
+                        int paren = skipSpaces(source, nameEnd);
+                        if (charAtIs(source, paren, '(')) {
+                            expectedParen = paren;
+                            expectedStart = i;
+                        }
+                        i = nameEnd - 1;
+                    }
+                }
+            }
+        }
+
+        // keyword\s+\w+\s*\(
+        private void expectCandidate(CharSequence source, int start, int keywordEnd) {
+            if (keywordEnd >= source.length() || !isSpace(source.charAt(keywordEnd))) {
+                return;
+            }
+            int nameStart = skipSpaces(source, keywordEnd);
+            if (nameStart >= source.length() || !isWordChar(source.charAt(nameStart))) {
+                return;
+            }
+            int paren = skipSpaces(source, wordEnd(source, nameStart));
+            if (charAtIs(source, paren, '(')) {
+                expectedParen = paren;
+                expectedStart = start;
+            }
+        }
+
+        // Fin de la coincidencia si el ')' que termina en parenEnd cierra la función, o -1
+        private int closeEnd(CharSequence source, int parenEnd) {
+            if (colonClose) {
+                return charAtIs(source, parenEnd, ':') ? parenEnd + 1 : -1;
+            }
+            int brace = skipSpaces(source, parenEnd);
+            return charAtIs(source, brace, '{') ? brace + 1 : -1;
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            functions.addAll(((Functions) chunk).functions);
+        }
+
+        @Override
+        public String result() {
+            return functions.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return functions.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            functions.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /**
+     * \b(palabra)\b.*X: desde la primera palabra clave de la línea hasta el último
+     * carácter X de esa misma línea. Cubre ciclos y condicionales con llaves o dos puntos.
+     */
+    static final class LineBlocks implements LineLocal {
+        private final String[] keywords;
+        private final char close;
+        private final Matches blocks = Matches.inOrder();
+        private int line = -1;
+        private int keywordStart = -1;
+        private int lastClose = -1;
+
+        LineBlocks(String[] keywords, char close) {
+            this.keywords = keywords;
+            this.close = close;
+        }
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (token.getLine() != line) {
+                flush(source);
+                line = token.getLine();
+            }
+            if (isWordToken(token)) {
+                if (keywordStart < 0 && textEqualsAny(token, source, keywords) && startsWord(source, token.getStart())) {
+                    keywordStart = token.getStart();
+                }
+            } else if (keywordStart >= 0 && token.getType() != TokenType.NUMBER) {
+                for (int i = token.getStart(); i < token.getEnd(); i++) {
+                    if (source.charAt(i) == close) {
+                        lastClose = i;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void finish(CharSequence source) {
+            flush(source);
+        }
+
+        private void flush(CharSequence source) {
+            if (keywordStart >= 0 && lastClose > keywordStart) {
+                blocks.add(text(source, keywordStart, lastClose + 1), keywordStart);
+            }
+            keywordStart = -1;
+            lastClose = -1;
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new JoinedTotal(line -> ((LineBlocks) line).blocks, "", "");
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            blocks.addAll(((LineBlocks) line).blocks);
+        }
+
+        @Override
+        public String result() {
+            return blocks.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return blocks.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            blocks.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \b(if|elif|else): */
+    static final class PythonConditionals implements LineLocal {
+        private static final String[] KEYWORDS = {"if", "elif", "else"};
+        private final Matches conditionals = Matches.inOrder();
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (isWordToken(token) && textEqualsAny(token, source, KEYWORDS) && startsWord(source, token.getStart())
+                    && charAtIs(source, token.getEnd(), ':')) {
+                conditionals.add(text(source, token.getStart(), token.getEnd() + 1), token.getStart());
+            }
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new JoinedTotal(line -> ((PythonConditionals) line).conditionals, "", "");
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            conditionals.addAll(((PythonConditionals) line).conditionals);
+        }
+
+        @Override
+        public String result() {
+            return conditionals.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return conditionals.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            conditionals.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /**
+     * (CASE|WHEN|THEN|ELSE|END)\b sin distinguir mayúsculas. Sin \b inicial la palabra
+     * puede ser el final de otra, pero el \b final la ancla al final del token.
+     */
+    static final class SqlConditionals implements LineLocal {
+        private static final String[] KEYWORDS = {"CASE", "WHEN", "THEN", "ELSE", "END"};
+        private final Matches conditionals = Matches.inOrder();
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (!isWordToken(token)) {
+                return;
+            }
+            for (String keyword : KEYWORDS) {
+                int start = token.getEnd() - keyword.length();
+                if (start >= token.getStart() && regionEqualsIgnoreCase(source, start, keyword)) {
+                    conditionals.add(text(source, start, token.getEnd()), start);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new JoinedTotal(line -> ((SqlConditionals) line).conditionals, "", "");
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            conditionals.addAll(((SqlConditionals) line).conditionals);
+        }
+
+        @Override
+        public String result() {
+            return conditionals.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return conditionals.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            conditionals.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \bdef\b\s*(create|read|update|delete)(\w*)\s*\( */
+    static final class PythonCrud implements Mergeable {
+        private static final String[] OPERATIONS = {"create", "read", "update", "delete"};
+        private final Matches crudOperations = Matches.inOrder();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !textEquals(token, source, "def") || !startsWord(source, start)) {
+                return;
+            }
+            int nameStart = skipSpaces(source, token.getEnd());
+            for (String operation : OPERATIONS) {
+                if (regionEquals(source, nameStart, operation)) {
+                    int paren = skipSpaces(source, wordEnd(source, nameStart + operation.length()));
+                    if (charAtIs(source, paren, '(')) {
+                        crudOperations.add(text(source, start, paren + 1), start);
+                        resumeAt = paren + 1;
+                    }
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void absorb(Mergeable chunk) {
+            crudOperations.addAll(((PythonCrud) chunk).crudOperations);
+        }
+
+        @Override
+        public String result() {
+            return crudOperations.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return crudOperations.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            crudOperations.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /** \b(INSERT INTO|SELECT|UPDATE|DELETE FROM)\b */
+    static final class SqlCrud implements LineLocal {
+        private final Matches crudOperations = Matches.inOrder();
+        private int resumeAt;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int start = token.getStart();
+            if (start < resumeAt || !isWordToken(token) || !startsWord(source, start)) {
+                return;
+            }
+            int end = token.getEnd();
+            if (textEquals(token, source, "SELECT") || textEquals(token, source, "UPDATE")) {
+                add(source, start, end);
+            } else if (textEquals(token, source, "INSERT")) {
+                addIfFollowedBy(source, start, end, " INTO");
+            } else if (textEquals(token, source, "DELETE")) {
+                addIfFollowedBy(source, start, end, " FROM");
+            }
+        }
+
+        private void addIfFollowedBy(CharSequence source, int start, int end, String suffix) {
+            if (regionEquals(source, end, suffix) && isBoundary(source, end + suffix.length())) {
+                add(source, start, end + suffix.length());
+            }
+        }
+
+        private void add(CharSequence source, int start, int end) {
+            crudOperations.add(text(source, start, end), start);
+            resumeAt = end;
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            return new JoinedTotal(line -> ((SqlCrud) line).crudOperations, "", "");
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            crudOperations.addAll(((SqlCrud) line).crudOperations);
+        }
+
+        @Override
+        public String result() {
+            return crudOperations.join();
+        }
+
+        @Override
+        public List<String> items() {
+            return crudOperations.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            crudOperations.summarizeInto(summary, base);
+            return true;
+        }
+    }
+
+    /**
+     * Operaciones CRUD de SQL con la tabla sobre la que actúan, para el índice del proyecto
+     * (ProjectIndex). Las operaciones son las de SqlCrud, que recibe los mismos tokens; la
+     * tabla es el nombre que sigue a INSERT INTO, UPDATE o DELETE FROM, o al primer FROM
+     * después de un SELECT y antes de un ';'. Sin tabla reconocible queda vacía. Un SELECT
+     * puede esperar su FROM varias líneas, así que no se corre por tramos.
+     */
+    static final class CrudTargets implements TokenCollector {
+        private final SqlCrud operations = new SqlCrud();
+        private final List<String> tables = new ArrayList<>();
+        // Índice del SELECT que todavía espera su FROM, o -1
+        private int pendingSelect = -1;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            int before = operations.crudOperations.size();
+            operations.accept(token, source);
+            if (operations.crudOperations.size() > before) {
+                if (textEquals(token, source, "SELECT")) {
+                    pendingSelect = tables.size();
+                    tables.add("");
+                } else {
+                    tables.add(tableAt(source, skipSpaces(source, operations.resumeAt)));
+                }
+            } else if (pendingSelect >= 0 && isWordToken(token) && textEquals(token, source, "FROM")
+                    && startsWord(source, token.getStart())) {
+                tables.set(pendingSelect, tableAt(source, skipSpaces(source, token.getEnd())));
+                pendingSelect = -1;
+            } else if (token.getType() == TokenType.UNKNOWN && charAtIs(source, token.getStart(), ';')) {
+                pendingSelect = -1;
+            }
+        }
+
+        // Nombre en from, con esquema y comillas o corchetes, que se quitan: "x"."y" es x.y
+        private static String tableAt(CharSequence source, int from) {
+            StringBuilder name = new StringBuilder();
+            int i = from;
+            while (i < source.length()) {
+                char c = source.charAt(i);
+                if (c == '"' || c == '[') {
+                    char close = c == '"' ? '"' : ']';
+                    int end = i + 1;
+                    while (end < source.length() && source.charAt(end) != close && source.charAt(end) != '\n') {
+                        end++;
+                    }
+                    if (end == source.length() || source.charAt(end) != close) {
+                        break;
+                    }
+                    name.append(source, i + 1, end);
+                    i = end + 1;
+                } else if (isNameChar(c)) {
+                    int end = i + 1;
+                    while (end < source.length() && isNameChar(source.charAt(end))) {
+                        end++;
+                    }
+                    name.append(source, i, end);
+                    i = end;
+                } else {
+                    break;
+                }
+                if (i < source.length() && source.charAt(i) == '.') {
+                    name.append('.');
+                    i++;
+                } else {
+                    break;
+                }
+            }
+            // Un punto sin nombre después no es parte del nombre
+            int length = name.length();
+            return length > 0 && name.charAt(length - 1) == '.' ? name.substring(0, length - 1) : name.toString();
+        }
+
+        private static boolean isNameChar(char c) {
+            return isWordChar(c) || c == '$' || c == '#';
+        }
+
+        @Override
+        public String result() {
+            return operations.result();
+        }
+
+        /** Las operaciones, como las de findCRUDOperations. */
+        @Override
+        public List<String> items() {
+            return operations.items();
+        }
+
+        /** La tabla de cada operación de items(), en el mismo orden. */
+        List<String> tables() {
+            return Collections.unmodifiableList(tables);
+        }
+    }
+
+    /**
+     * Tokens del análisis léxico de C++: palabras completas (palabras clave, identificadores
+     * o literales enteros) y los operadores + - * / =.
+     */
+    static final class CppLexicalTokens implements LineLocal {
+        private final Matches tokens = Matches.inOrder();
+        // Identificadores inválidos y su posición en el código; no se guardan en modo resumen
+        private final List<String> invalidTokens = new ArrayList<>();
+        private final List<Integer> invalidStarts = new ArrayList<>();
+        private boolean summarized;
+        private int previousEnd = -1;
+        private int runStart = -1;
+        private boolean runIsWord;
+        private boolean runIsNumber;
+
+        @Override
+        public void accept(Token token, CharSequence source) {
+            if (token.getStart() != previousEnd) {
+                endRun(source, previousEnd);
+            }
+            for (int i = token.getStart(); i < token.getEnd(); i++) {
+                char c = source.charAt(i);
+                if (isBoundaryChar(c)) {
+                    if (runStart < 0) {
+                        runStart = i;
+                        runIsWord = true;
+                        runIsNumber = true;
+                    }
+                    runIsWord &= isWordChar(c);
+                    runIsNumber &= isDigit(c);
+                } else {
+                    endRun(source, i);
+                    if (c == '+' || c == '-' || c == '*' || c == '/' || c == '=') {
+                        tokens.add(String.valueOf(c), i);
+                    }
+                }
+            }
+            previousEnd = token.getEnd();
+        }
+
+        @Override
+        public void finish(CharSequence source) {
+            endRun(source, previousEnd);
+        }
+
+        // Una palabra solo es token si es completamente ASCII: \b no admite cortes dentro de ella
+        private void endRun(CharSequence source, int runEnd) {
+            if (runStart < 0) {
+                return;
+            }
+            if (runIsWord && isLetterOrUnderscore(source.charAt(runStart))) {
+                String token = text(source, runStart, runEnd);
+                tokens.add(token, runStart);
+                // Verifica si el identificador está bien formado (variables)
+                int i = runStart;
+                while (i < runEnd && source.charAt(i) == '_') {
+                    i++;
+                }
+                if (!summarized && (i == runEnd || isDigit(source.charAt(i)))) {
+                    invalidTokens.add(token);
+                    invalidStarts.add(runStart);
+                }
+            } else if (runIsNumber) {
+                tokens.add(text(source, runStart, runEnd), runStart);
+            }
+            runStart = -1;
+        }
+
+        @Override
+        public LineTotal newTotal() {
+            JoinedTotal tokens = new JoinedTotal(line -> ((CppLexicalTokens) line).tokens, "Tokens encontrados: ", "");
+            return new LineTotal() {
+                // Líneas con identificadores inválidos
+                private int invalidLines;
+
+                @Override
+                void add(LineLocal line, int sign) {
+                    tokens.add(line, sign);
+                    if (!((CppLexicalTokens) line).invalidTokens.isEmpty()) {
+                        invalidLines += sign;
+                    }
+                }
+
+                @Override
+                String result(Iterable<? extends LineLocal> lines) {
+                    String response = tokens.result(lines);
+                    if (invalidLines > 0) {
+                        StringJoiner invalid = new StringJoiner(", ", "\nIdentificadores inválidos encontrados: ", "");
+                        for (LineLocal line : lines) {
+                            for (String token : ((CppLexicalTokens) line).invalidTokens) {
+                                invalid.add(token);
+                            }
+                        }
+                        response += invalid;
+                    }
+                    return response;
+                }
+            };
+        }
+
+        @Override
+        public void absorb(Mergeable line) {
+            tokens.addAll(((CppLexicalTokens) line).tokens);
+            invalidTokens.addAll(((CppLexicalTokens) line).invalidTokens);
+            invalidStarts.addAll(((CppLexicalTokens) line).invalidStarts);
+        }
+
+        @Override
+        public String result() {
+            String response = "Tokens encontrados: " + tokens.join();
+            if (!invalidTokens.isEmpty()) {
+                response += "\nIdentificadores inválidos encontrados: " + String.join(", ", invalidTokens);
+            }
+            return response;
+        }
+
+        @Override
+        public List<String> items() {
+            return tokens.list();
+        }
+
+        @Override
+        public boolean summarizeInto(MatchSummary summary, long base) {
+            summarized = true;
+            tokens.summarizeInto(summary, base);
+            return true;
+        }
+
+        /** Un error léxico por identificador inválido, en el orden del código. */
+        List<Diagnostic> diagnostics(Diagnostic.Positions positions) {
+            List<Diagnostic> diagnostics = new ArrayList<>(invalidTokens.size());
+            for (int i = 0; i < invalidTokens.size(); i++) {
+                diagnostics.add(positions.at(Diagnostic.Kind.LEXICAL, invalidStarts.get(i),
+                        "identificador inválido '" + invalidTokens.get(i) + "'"));
+            }
+            return diagnostics;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Análisis semántico de C++ sobre el árbol de CppParser: llena la SymbolTable con cada
+ * declarador de cada declaración (de cualquier tipo, también los de la cabecera de un
+ * for y los parámetros de las funciones) y revisa que los nombres usados se vean en ese
+ * punto. Los ámbitos salen del árbol y no de las llaves del texto, así que una llave en
+ * una cadena o un comentario no abre nada.
+ *
+ * Los ámbitos son los que usa Simulation: un bloque, una función con sus parámetros, un
+ * for, if, while o switch con lo que declara su cabecera, una clase y un espacio de
+ * nombres. Un nombre que no se ve es un error si se le asigna un valor y no se declara
+ * en ninguna parte, o si solo se declara como variable local de alguna función (como la
+ * variable de un for usada después del ciclo). Los demás nombres que no se ven (cout,
+ * constantes de un enum, miembros heredados) pueden venir de fuera del código y no se
+ * informan.
+ */
+final class SemanticAnalysis {
+    private final CharSequence code;
+    private final CppParser parser;
+    private final SyntaxTree tree;
+    private final SymbolTable symbols;
+    private final Diagnostic.Positions positions;
+    private final List<Diagnostic> errors = new ArrayList<>();
+    // Nombres declarados como variable local o parámetro, como variable fuera de las
+    // funciones y como función
+    private final Set<String> localNames = new HashSet<>();
+    private final Set<String> otherNames = new HashSet<>();
+    private final Set<String> functionNames = new HashSet<>();
+
+    private SemanticAnalysis(CharSequence code, CppParser parser, SymbolTable symbols, Diagnostic.Positions positions) {
+        this.code = code;
+        this.parser = parser;
+        this.tree = parser.tree();
+        this.symbols = symbols;
+        this.positions = positions;
+    }
+
+    /**
+     * Analiza code llenando symbols y devuelve los errores en el orden del código. Si se
+     * agota el presupuesto de la fase quedan los encontrados hasta ahí.
+     */
+    static List<Diagnostic> run(CharSequence code, SymbolTable symbols, Diagnostic.Positions positions) {
+        CppParser parser = new CppParser(code);
+        try {
+            parser.parse();
+        } catch (AnalysisMonitor.BudgetExhaustedException ex) {
+            // Sin el árbol completo no hay ámbitos confiables
+            return new ArrayList<>();
+        }
+        SemanticAnalysis analysis = new SemanticAnalysis(code, parser, symbols, positions);
+        try {
+            analysis.collectNames();
+            analysis.items(analysis.tree.children(analysis.tree.root()));
+        } catch (AnalysisMonitor.BudgetExhaustedException ex) {
+            // Quedan los errores encontrados hasta ahí
+        }
+        return analysis.errors;
+    }
+
+    // Primera pasada: qué nombres se declaran en el código y dónde
+    private void collectNames() {
+        collectNames(tree.root(), false);
+    }
+
+    private void collectNames(int node, boolean local) {
+        SyntaxKind kind = tree.kind(node);
+        if (kind == SyntaxKind.FUNCTION) {
+            int name = functionName(node);
+            if (name >= 0) {
+                String text = source(name);
+                functionNames.add(text.substring(text.lastIndexOf(':') + 1));
+            }
+            local = true;
+        } else if (kind == SyntaxKind.CLASS || kind == SyntaxKind.LAMBDA) {
+            local = kind == SyntaxKind.LAMBDA;
+        } else if (kind == SyntaxKind.DECLARATOR) {
+            int name = declaratorName(node);
+            if (name >= 0) {
+                (local ? localNames : otherNames).add(source(name));
+            }
+        }
+        for (int child : tree.children(node)) {
+            collectNames(child, local);
+        }
+    }
+
+    // ---- Declaraciones ----
+
+    // Elementos de un archivo, espacio de nombres o bloque, en el ámbito ya abierto
+    private void items(int[] items) {
+        for (int item : items) {
+            node(item);
+        }
+    }
+
+    private void node(int node) {
+        int[] children = tree.children(node);
+        switch (tree.kind(node)) {
+            case FUNCTION:
+                function(node, children);
+                break;
+            case CLASS:
+                classDefinition(children);
+                break;
+            case DECLARATION:
+                declaration(children);
+                break;
+            case NAMESPACE:
+            case BLOCK:
+            case FOR:
+            case IF:
+            case WHILE:
+            case SWITCH:
+                symbols.enterScope();
+                items(children);
+                symbols.exitScope();
+                break;
+            case TRY:
+                tryStatement(children);
+                break;
+            case LAMBDA:
+                symbols.enterScope();
+                for (int child : children) {
+                    if (tree.kind(child) == SyntaxKind.PARAMETER) {
+                        parameter(child);
+                    } else if (tree.kind(child) == SyntaxKind.BLOCK) {
+                        items(tree.children(child));
+                    }
+                }
+                symbols.exitScope();
+                break;
+            case ASSIGNMENT:
+                assignment(children);
+                break;
+            case NAME:
+                use(node, false);
+                break;
+            case CALL:
+                // El nombre de la función no es una variable
+                if (tree.kind(children[0]) != SyntaxKind.NAME) {
+                    node(children[0]);
+                }
+                for (int i = 1; i < children.length; i++) {
+                    node(children[i]);
+                }
+                break;
+            case MEMBER:
+                // a.b: b es un miembro de a
+                node(children[0]);
+                break;
+            case TYPE:
+            case USING:
+            case ENUM:
+                break;
+            default:
+                items(children);
+        }
+    }
+
+    // Los parámetros y el cuerpo comparten el ámbito; un prototipo no declara nada
+    private void function(int node, int[] children) {
+        int body = -1;
+        for (int child : children) {
+            if (tree.kind(child) == SyntaxKind.BLOCK) {
+                body = child;
+            }
+        }
+        if (body < 0) {
+            return;
+        }
+        symbols.enterScope();
+        for (int child : children) {
+            if (tree.kind(child) == SyntaxKind.PARAMETER) {
+                parameter(child);
+            }
+        }
+        items(tree.children(body));
+        symbols.exitScope();
+    }
+
+    // Los miembros se ven en todas las funciones de la clase, aunque se declaren después
+    private void classDefinition(int[] members) {
+        symbols.enterScope();
+        List<Integer> functions = new ArrayList<>();
+        for (int member : members) {
+            if (tree.kind(member) == SyntaxKind.NAME) {
+                // El nombre de la clase
+                continue;
+            }
+            if (isFunction(member)) {
+                functions.add(member);
+            } else {
+                node(member);
+            }
+        }
+        for (int function : functions) {
+            node(function);
+        }
+        symbols.exitScope();
+    }
+
+    private boolean isFunction(int node) {
+        while (tree.kind(node) == SyntaxKind.TEMPLATE) {
+            node = node - 1;
+        }
+        return tree.kind(node) == SyntaxKind.FUNCTION;
+    }
+
+    private void declaration(int[] children) {
+        if (children.length == 0) {
+            return;
+        }
+        // struct S { ... } s; declara s con el tipo struct S
+        String type = tree.kind(children[0]) == SyntaxKind.ENUM || tree.kind(children[0]) == SyntaxKind.CLASS
+                ? typeName(tree.start(children[0]), tree.end(children[0]), true)
+                : typeName(tree.start(children[0]), tree.end(children[0]), false);
+        for (int child : children) {
+            switch (tree.kind(child)) {
+                case DECLARATOR:
+                    declarator(child, type);
+                    break;
+                case CLASS:
+                    classDefinition(tree.children(child));
+                    break;
+                default:
+                    // El tipo, un enum o la expresión de rango de un for
+                    node(child);
+            }
+        }
+    }
+
+    // La inicialización se revisa antes de declarar: el nombre se ve después de ella
+    private void declarator(int node, String type) {
+        int[] parts = tree.children(node);
+        int name = declaratorName(node);
+        for (int i = name >= 0 ? 1 : 0; i < parts.length; i++) {
+            node(parts[i]);
+        }
+        if (name < 0) {
+            return;
+        }
+        int token = tree.start(name);
+        int start = parser.offset(token);
+        if (symbols.declare(code, start, parser.endOffset(token), type, start) < 0) {
+            errors.add(positions.at(Diagnostic.Kind.SEMANTIC, start,
+                    "La variable '" + source(name) + "' ya fue declarada en este ámbito"));
+        }
+    }
+
+    private void parameter(int node) {
+        int[] parts = tree.children(node);
+        if (parts.length > 1 && tree.kind(parts[0]) == SyntaxKind.TYPE && tree.kind(parts[1]) == SyntaxKind.DECLARATOR) {
+            declarator(parts[1], typeName(tree.start(parts[0]), tree.end(parts[0]), false));
+        }
+    }
+
+    // catch (tipo nombre) { ... }: el parámetro se ve en su bloque
+    private void tryStatement(int[] children) {
+        int parameter = -1;
+        for (int child : children) {
+            if (tree.kind(child) == SyntaxKind.PARAMETER) {
+                parameter = child;
+            } else {
+                symbols.enterScope();
+                if (parameter >= 0) {
+                    parameter(parameter);
+                    parameter = -1;
+                }
+                items(tree.children(child));
+                symbols.exitScope();
+            }
+        }
+    }
+
+    // ---- Usos ----
+
+    private void assignment(int[] children) {
+        if (tree.kind(children[0]) == SyntaxKind.NAME) {
+            use(children[0], true);
+        } else {
+            node(children[0]);
+        }
+        node(children[1]);
+    }
+
+    private void use(int node, boolean assigned) {
+        if (tree.end(node) - tree.start(node) != 1) {
+            // Nombre calificado: std::cout, Clase::miembro
+            return;
+        }
+        int token = tree.start(node);
+        if (symbols.lookup(code, parser.offset(token), parser.endOffset(token)) >= 0) {
+            return;
+        }
+        String name = parser.text(token);
+        if (functionNames.contains(name) || otherNames.contains(name)) {
+            return;
+        }
+        if (localNames.contains(name)) {
+            errors.add(positions.at(Diagnostic.Kind.SEMANTIC, parser.offset(token),
+                    "La variable '" + name + "' no está declarada en este ámbito"));
+        } else if (assigned) {
+            errors.add(positions.at(Diagnostic.Kind.SEMANTIC, parser.offset(token),
+                    "La variable '" + name + "' no ha sido declarada"));
+        }
+    }
+
+    // ---- Nodos ----
+
+    // El NAME de un declarador, o -1 si no tiene (un parámetro sin nombre, un puntero a función)
+    private int declaratorName(int node) {
+        int[] parts = tree.children(node);
+        return parts.length > 0 && tree.kind(parts[0]) == SyntaxKind.NAME ? parts[0] : -1;
+    }
+
+    // El nombre de una función es el NAME que va antes de los parámetros
+    private int functionName(int node) {
+        for (int child : tree.children(node)) {
+            SyntaxKind kind = tree.kind(child);
+            if (kind == SyntaxKind.NAME) {
+                return child;
+            }
+            if (kind != SyntaxKind.TYPE) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // Texto del código de los tokens [start, end) con cada tramo de espacios como uno solo:
+    // unsigned int, std::map<int, int>; con header se detiene antes del cuerpo de una clase
+    // o enum. Se lee del código y no de los tokens porque el '>>' que cierra dos plantillas
+    // queda como un solo '>'
+    private String typeName(int start, int end, boolean header) {
+        int last = start;
+        for (int token = start + 1; token < end; token++) {
+            if (header && (parser.text(token).equals("{") || parser.text(token).equals(":"))) {
+                break;
+            }
+            last = token;
+        }
+        StringBuilder text = new StringBuilder();
+        boolean space = false;
+        for (int i = parser.offset(start); i < parser.endOffset(last); i++) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    text.append(' ');
+                    space = false;
+                }
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+
+    // Texto de los tokens del nodo sin separación: std::cout
+    private String source(int node) {
+        StringBuilder text = new StringBuilder();
+        for (int token = tree.start(node); token < tree.end(node); token++) {
+            text.append(parser.text(token));
+        }
+        return text.toString();
+    }
+}
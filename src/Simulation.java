@@ -0,0 +1,2724 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Simula un programa del subconjunto de C++ que reconoce CppParser.
+ *
+ * El árbol sintáctico se compila una sola vez a un árbol de nodos ejecutables con tipo:
+ * cada expresión sabe si da un entero, un double o un objeto (string o arreglo) y se
+ * evalúa con el método de ese tipo, sin cajas ni búsquedas de nombres al ejecutar. Las
+ * variables son casillas numeradas de un Frame, resueltas al compilar con una SymbolTable.
+ * int es de 32 bits y desborda como en C++, char de 8, long de 64, double de doble
+ * precisión y string es el de C++.
+ *
+ * La ejecución tiene un presupuesto de pasos (sentencias, vueltas de ciclo y llamadas),
+ * -Danalyzer.simulation.steps (0 quita el límite), y un tope para la memoria viva
+ * (marcos de llamada, arreglos y cadenas guardadas), -Danalyzer.simulation.memoryMegabytes.
+ * Lo que la simulación no admite (punteros, clases, plantillas, ...) se informa al
+ * compilar, antes de ejecutar nada.
+ */
+final class Simulation {
+    private static final long STEP_BUDGET = stepBudget();
+    private static final long MEMORY_MEGABYTES = Long.getLong("analyzer.simulation.memoryMegabytes", 64);
+    private static final long MEMORY_LIMIT = MEMORY_MEGABYTES * 1024 * 1024;
+    // Cada cuántos pasos se revisa la cancelación
+    private static final int CHECK_INTERVAL = 4096;
+    // Llamadas anidadas; más es recursión sin fin o una pila que no alcanzaría
+    private static final int MAX_CALL_DEPTH = 5000;
+    // Caracteres de la salida que se muestran en el reporte
+    private static final int MAX_OUTPUT = 64 * 1024;
+    // Elementos de un arreglo que se muestran en el estado final
+    private static final int MAX_SHOWN_ELEMENTS = 10;
+    // Caracteres de un string que se muestran en el estado final
+    private static final int MAX_SHOWN_CHARS = 80;
+    // Memoria de un marco de llamada sin casillas y de cada casilla
+    private static final long FRAME_BYTES = 64;
+    private static final long SLOT_BYTES = 25;
+
+    // Tipos; un arreglo es ARRAY | tipo del elemento
+    private static final int VOID = 0;
+    private static final int BOOL = 1;
+    private static final int CHAR = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int STRING = 6;
+    private static final int AUTO = 7;
+    private static final int ARRAY = 8;
+    private static final String[] TYPE_NAMES = {"void", "bool", "char", "int", "long", "double", "string", "auto"};
+
+    // Resultado de ejecutar una sentencia
+    private static final int NORMAL = 0;
+    private static final int BREAK = 1;
+    private static final int CONTINUE = 2;
+    private static final int RETURN = 3;
+
+    // Operadores binarios; desde LESS son comparaciones
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "%", "&", "|", "^", "<<", ">>", "<", ">", "<=", ">=", "==", "!="};
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+    private static final int REMAINDER = 4;
+    private static final int BIT_AND = 5;
+    private static final int BIT_OR = 6;
+    private static final int BIT_XOR = 7;
+    private static final int SHIFT_LEFT = 8;
+    private static final int SHIFT_RIGHT = 9;
+    private static final int LESS = 10;
+    private static final int GREATER = 11;
+    private static final int LESS_EQUAL = 12;
+    private static final int GREATER_EQUAL = 13;
+    private static final int EQUAL = 14;
+    private static final int NOT_EQUAL = 15;
+
+    // Funciones de la biblioteca que se simulan
+    private static final int SQRT = 0;
+    private static final int POW = 1;
+    private static final int FABS = 2;
+    private static final int FLOOR = 3;
+    private static final int CEIL = 4;
+    private static final int EXP = 5;
+    private static final int LOG = 6;
+    private static final int SIN = 7;
+    private static final int COS = 8;
+    private static final int ABS = 9;
+    private static final int MAX = 10;
+    private static final int MIN = 11;
+    private static final int TO_STRING = 12;
+    private static final int SIZE = 13;
+    private static final int EMPTY = 14;
+    private static final int SUBSTR = 15;
+    private static final int AT = 16;
+    private static final Map<String, Integer> MATH_FUNCTIONS = new HashMap<>();
+
+    static {
+        String[] names = {"sqrt", "pow", "fabs", "floor", "ceil", "exp", "log", "sin", "cos"};
+        for (int i = 0; i < names.length; i++) {
+            MATH_FUNCTIONS.put(names[i], i);
+        }
+    }
+
+    private final CppParser parser;
+    private final SyntaxTree tree;
+    private final AnalysisMonitor monitor;
+
+    // Compilación: ámbitos, y por declaración de symbols el tipo, la casilla y si es global
+    private final SymbolTable symbols = new SymbolTable();
+    private int[] declarationTypes = new int[16];
+    private int[] declarationSlots = new int[16];
+    private boolean[] declarationGlobal = new boolean[16];
+    // Declaraciones del estado final: las globales y las del cuerpo de main, en orden
+    private final List<Integer> shown = new ArrayList<>();
+    // Funciones por nombre y cantidad de parámetros: f/2
+    private final Map<String, Function> functions = new HashMap<>();
+    private final Context globalContext = new Context(null);
+    private final List<Stmt> globalInitializers = new ArrayList<>();
+    private Context context = globalContext;
+
+    // Ejecución
+    private Frame globals;
+    private Frame mainFrame;
+    private long steps;
+    private long nextCheck;
+    private long memory;
+    private int callDepth;
+    private final StringBuilder output = new StringBuilder();
+    private boolean outputTruncated;
+
+    private Simulation(CppParser parser, AnalysisMonitor monitor) {
+        this.parser = parser;
+        this.tree = parser.tree();
+        this.monitor = monitor;
+    }
+
+    /** Compila y ejecuta code; devuelve el texto de la simulación para el reporte. */
+    static String run(CharSequence code, AnalysisMonitor monitor) {
+        CppParser parser = new CppParser(code);
+        try {
+            parser.parse();
+        } catch (AnalysisMonitor.BudgetExhaustedException ex) {
+            return "Simulación interrumpida: se agotó el presupuesto al leer el código.";
+        }
+        if (!parser.errors().isEmpty()) {
+            return "No se puede simular un código con errores de sintaxis.";
+        }
+        return new Simulation(parser, monitor).run();
+    }
+
+    private String run() {
+        Function main;
+        try {
+            main = compile();
+        } catch (Rejected ex) {
+            return ex.getMessage();
+        }
+        StringBuilder result = new StringBuilder();
+        globals = new Frame(globalContext.slots);
+        nextCheck = Math.min(CHECK_INTERVAL, STEP_BUDGET);
+        try {
+            allocate(globals, globals.bytes(), 1);
+            for (Stmt initializer : globalInitializers) {
+                initializer.exec(globals);
+            }
+            if (main != null) {
+                mainFrame = new Frame(main.slots);
+                allocate(mainFrame, mainFrame.bytes(), 1);
+                main.body.exec(mainFrame);
+            }
+        } catch (Stop ex) {
+            result.append(ex.getMessage()).append('\n');
+        } catch (StackOverflowError ex) {
+            result.append("Error: recursión demasiado profunda.\n");
+        }
+        result.append("Estado final de variables: ").append(state());
+        if (output.length() > 0) {
+            result.append("\nSalida: ").append(output).append(outputTruncated ? "..." : "");
+        }
+        return result.toString();
+    }
+
+    // ---- Compilación ----
+
+    // Compila todo el programa y devuelve main, o null si no tiene
+    private Function compile() {
+        int[] items = tree.children(tree.root());
+        for (int item : items) {
+            if (tree.kind(item) == SyntaxKind.FUNCTION) {
+                signature(item);
+            }
+        }
+        for (int item : items) {
+            switch (tree.kind(item)) {
+                case FUNCTION:
+                    function(item);
+                    break;
+                case DECLARATION:
+                    Stmt declaration = declaration(item);
+                    if (declaration != null) {
+                        globalInitializers.add(declaration);
+                    }
+                    break;
+                case USING:
+                case EMPTY:
+                    break;
+                default:
+                    throw unsupported(item, description(item));
+            }
+        }
+        Function main = functions.get("main/0");
+        return main != null && main.body != null ? main : null;
+    }
+
+    // Registra la función con sus tipos; la definición reemplaza a un prototipo
+    private void signature(int node) {
+        int[] children = tree.children(node);
+        if (children.length < 2 || tree.kind(children[0]) != SyntaxKind.TYPE) {
+            throw unsupported(node, "constructores ni destructores");
+        }
+        int nameNode = children[1];
+        String name = source(nameNode);
+        if (name.contains("::")) {
+            throw unsupported(node, "funciones miembro");
+        }
+        if (tree.end(children[0]) != tree.start(nameNode)) {
+            throw unsupported(node, "punteros ni referencias");
+        }
+        int returnType = type(children[0]);
+        List<Integer> parameters = new ArrayList<>();
+        boolean defined = false;
+        for (int i = 2; i < children.length; i++) {
+            int child = children[i];
+            if (tree.kind(child) == SyntaxKind.PARAMETER) {
+                parameters.add(parameterType(child));
+            } else if (tree.kind(child) == SyntaxKind.TYPE && returnType == AUTO) {
+                returnType = type(child);
+            } else if (tree.kind(child) == SyntaxKind.BLOCK) {
+                defined = true;
+            }
+        }
+        if (returnType == AUTO) {
+            throw unsupported(node, "deducir el tipo de retorno");
+        }
+        String key = name + "/" + parameters.size();
+        Function function = functions.get(key);
+        if (function == null) {
+            int[] types = new int[parameters.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = parameters.get(i);
+            }
+            function = new Function(name, returnType, types);
+            functions.put(key, function);
+        }
+        if (defined) {
+            function.node = node;
+        }
+    }
+
+    private int parameterType(int node) {
+        int[] children = tree.children(node);
+        if (children.length == 0 || tree.kind(children[0]) != SyntaxKind.TYPE) {
+            throw unsupported(node, "funciones con argumentos variables");
+        }
+        int type = type(children[0]);
+        if (children.length > 1) {
+            int[] parts = tree.children(children[1]);
+            if (parts.length == 0 || tree.kind(parts[0]) != SyntaxKind.NAME) {
+                throw unsupported(node, "parámetros con valor por defecto");
+            }
+            int dimensions = 0;
+            for (int i = 1; i < parts.length; i++) {
+                if (!isDimension(parts[i])) {
+                    throw unsupported(node, "parámetros con valor por defecto");
+                }
+                dimensions++;
+            }
+            if (dimensions > 1) {
+                throw unsupported(node, "arreglos de varias dimensiones");
+            }
+            if (dimensions == 1) {
+                type |= ARRAY;
+            }
+        }
+        if (type == VOID || type == AUTO) {
+            throw unsupported(node, "parámetros de tipo " + TYPE_NAMES[type]);
+        }
+        return type;
+    }
+
+    private void function(int node) {
+        int[] children = tree.children(node);
+        int arity = 0;
+        int body = -1;
+        for (int child : children) {
+            if (tree.kind(child) == SyntaxKind.PARAMETER) {
+                arity++;
+            } else if (tree.kind(child) == SyntaxKind.BLOCK) {
+                body = child;
+            }
+        }
+        Function function = functions.get(source(children[1]) + "/" + arity);
+        if (body < 0 || function.node != node) {
+            // Un prototipo, o una definición que otra posterior reemplazó
+            return;
+        }
+        context = new Context(function);
+        symbols.enterScope();
+        int parameter = 0;
+        for (int child : children) {
+            if (tree.kind(child) == SyntaxKind.PARAMETER) {
+                int[] parts = tree.children(child);
+                int type = function.parameterTypes[parameter++];
+                if (parts.length > 1) {
+                    declare(source(tree.children(parts[1])[0]), type, child);
+                } else {
+                    // Sin nombre: ocupa su casilla igual
+                    context.slots++;
+                }
+            }
+        }
+        // Los parámetros y el cuerpo comparten el ámbito
+        context.bodyDepth = symbols.depth();
+        function.body = block(tree.children(body));
+        symbols.exitScope();
+        function.slots = context.slots;
+        function.arraySlots = context.arraySlots();
+        context = globalContext;
+    }
+
+    private Stmt statement(int node) {
+        int[] children = tree.children(node);
+        switch (tree.kind(node)) {
+            case BLOCK: {
+                symbols.enterScope();
+                Stmt block = block(children);
+                symbols.exitScope();
+                return block;
+            }
+            case DECLARATION:
+                return declaration(node);
+            case EXPRESSION_STATEMENT:
+                return new ExpressionStmt(expression(children[0]));
+            case IF:
+                return new If(condition(children[0]), statement(children[1]), children.length > 2 ? statement(children[2]) : null);
+            case WHILE:
+                return new While(condition(children[0]), statement(children[1]));
+            case DO:
+                return new DoWhile(statement(children[0]), condition(children[1]));
+            case FOR:
+                return forStatement(node, children);
+            case SWITCH:
+                return switchStatement(node, children);
+            case RETURN:
+                return returnStatement(node, children);
+            case JUMP: {
+                String word = parser.text(tree.start(node));
+                if (word.equals("break")) {
+                    return new Jump(BREAK);
+                }
+                if (word.equals("continue")) {
+                    return new Jump(CONTINUE);
+                }
+                throw unsupported(node, "goto");
+            }
+            case EMPTY:
+            case USING:
+                return null;
+            default:
+                throw unsupported(node, description(node));
+        }
+    }
+
+    // Las sentencias de un bloque, en el ámbito ya abierto
+    private Stmt block(int[] children) {
+        List<Stmt> statements = new ArrayList<>();
+        for (int child : children) {
+            Stmt statement = statement(child);
+            if (statement != null) {
+                statements.add(statement);
+            }
+        }
+        return new Block(statements.toArray(new Stmt[0]));
+    }
+
+    private Stmt forStatement(int node, int[] children) {
+        if (children.length != 4) {
+            throw unsupported(node, "for de rango");
+        }
+        symbols.enterScope();
+        Stmt initializer = statement(children[0]);
+        Expr condition = tree.kind(children[1]) == SyntaxKind.EMPTY ? null : condition(children[1]);
+        Expr increment = tree.kind(children[2]) == SyntaxKind.EMPTY ? null : expression(children[2]);
+        Stmt body = statement(children[3]);
+        symbols.exitScope();
+        return new For(initializer, condition, increment, body);
+    }
+
+    private Stmt switchStatement(int node, int[] children) {
+        Expr value = expression(children[0]);
+        if (!isIntegral(value.type)) {
+            throw unsupported(node, "switch sobre " + typeName(value.type));
+        }
+        if (tree.kind(children[1]) != SyntaxKind.BLOCK) {
+            throw unsupported(node, "switch sin llaves");
+        }
+        symbols.enterScope();
+        List<Stmt> statements = new ArrayList<>();
+        List<long[]> labels = new ArrayList<>();
+        int defaultTarget = -1;
+        for (int child : tree.children(children[1])) {
+            if (tree.kind(child) == SyntaxKind.CASE) {
+                int[] label = tree.children(child);
+                if (label.length == 0) {
+                    defaultTarget = statements.size();
+                } else {
+                    Expr constant = expression(label[0]);
+                    if (!(constant instanceof LongConst)) {
+                        throw unsupported(child, "case con valores que no son constantes");
+                    }
+                    labels.add(new long[]{((LongConst) constant).value, statements.size()});
+                }
+            } else {
+                Stmt statement = statement(child);
+                if (statement != null) {
+                    statements.add(statement);
+                }
+            }
+        }
+        symbols.exitScope();
+        long[] values = new long[labels.size()];
+        int[] targets = new int[labels.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = labels.get(i)[0];
+            targets[i] = (int) labels.get(i)[1];
+        }
+        return new Switch(value, values, targets, defaultTarget, statements.toArray(new Stmt[0]));
+    }
+
+    private Stmt returnStatement(int node, int[] children) {
+        int type = context.function == null ? VOID : context.function.returnType;
+        if (children.length == 0) {
+            return new Return(null);
+        }
+        Expr value = expression(children[0]);
+        return new Return(type == VOID ? value : convert(value, type, node));
+    }
+
+    private Stmt declaration(int node) {
+        int[] children = tree.children(node);
+        if (parser.text(tree.start(node)).equals("typedef")) {
+            throw unsupported(node, "typedef");
+        }
+        if (children.length == 0 || tree.kind(children[0]) != SyntaxKind.TYPE) {
+            throw unsupported(node, description(children.length == 0 ? node : children[0]));
+        }
+        int type = type(children[0]);
+        List<Stmt> declarators = new ArrayList<>();
+        for (int i = 1; i < children.length; i++) {
+            if (tree.kind(children[i]) != SyntaxKind.DECLARATOR) {
+                throw unsupported(children[i], description(children[i]));
+            }
+            declarators.add(declarator(children[i], type));
+        }
+        if (declarators.isEmpty()) {
+            return null;
+        }
+        return declarators.size() == 1 ? declarators.get(0) : new Sequence(declarators.toArray(new Stmt[0]));
+    }
+
+    private Stmt declarator(int node, int type) {
+        int[] parts = tree.children(node);
+        String first = parser.text(tree.start(node));
+        if (first.equals("*") || first.equals("&") || first.equals("&&")) {
+            throw unsupported(node, "punteros ni referencias");
+        }
+        if (parts.length == 0 || tree.kind(parts[0]) != SyntaxKind.NAME) {
+            throw unsupported(node, "punteros a funciones");
+        }
+        String name = source(parts[0]);
+        if (name.contains("::")) {
+            throw unsupported(node, "nombres calificados en declaraciones");
+        }
+        int i = 1;
+        int dimension = -1;
+        while (i < parts.length && isDimension(parts[i])) {
+            if (dimension >= 0) {
+                throw unsupported(node, "arreglos de varias dimensiones");
+            }
+            dimension = parts[i++];
+        }
+        if (parts.length - i > 1) {
+            throw unsupported(node, "inicializar con varios argumentos");
+        }
+        int initializer = i < parts.length ? parts[i] : -1;
+        if (type == VOID) {
+            throw compileError(node, "la variable " + name + " no puede ser void");
+        }
+        if (dimension >= 0) {
+            return arrayDeclarator(node, name, type, dimension, initializer);
+        }
+        Expr value = null;
+        if (initializer >= 0 && tree.kind(initializer) == SyntaxKind.INITIALIZER_LIST) {
+            int[] list = tree.children(initializer);
+            if (list.length > 1) {
+                throw compileError(node, "demasiados valores para " + name);
+            }
+            value = list.length == 0 ? zero(type == AUTO ? INT : type) : expression(list[0]);
+        } else if (initializer >= 0) {
+            value = expression(initializer);
+        }
+        if (type == AUTO) {
+            if (value == null) {
+                throw compileError(node, "auto " + name + " necesita un valor inicial");
+            }
+            type = value.type;
+        }
+        if (value != null) {
+            value = convert(value, type, node);
+        }
+        // El nombre se ve después de su inicialización
+        int slot = declare(name, type, node);
+        return new DeclareScalar(slot, type, value, context == globalContext);
+    }
+
+    private Stmt arrayDeclarator(int node, String name, int type, int dimension, int initializer) {
+        if (type == AUTO) {
+            throw unsupported(node, "arreglos de auto");
+        }
+        int[] size = tree.children(dimension);
+        Expr length = size.length == 0 ? null : convert(expression(size[0]), LONG, node);
+        Expr[] elements = null;
+        if (initializer >= 0) {
+            if (tree.kind(initializer) != SyntaxKind.INITIALIZER_LIST) {
+                throw unsupported(node, "inicializar arreglos sin llaves");
+            }
+            int[] list = tree.children(initializer);
+            elements = new Expr[list.length];
+            for (int i = 0; i < list.length; i++) {
+                elements[i] = convert(expression(list[i]), type, list[i]);
+            }
+        }
+        if (length == null && elements == null) {
+            throw compileError(node, "el arreglo " + name + " necesita un tamaño");
+        }
+        int slot = declare(name, type | ARRAY, node);
+        context.arraySlots.add(slot);
+        return new DeclareArray(slot, type, length, elements, line(node));
+    }
+
+    // Un INDEX dentro de un declarador es una dimensión: empieza con '['
+    private boolean isDimension(int node) {
+        return tree.kind(node) == SyntaxKind.INDEX && parser.text(tree.start(node)).equals("[");
+    }
+
+    // Declara name en el ámbito abierto y le da una casilla del contexto; devuelve la casilla
+    private int declare(String name, int type, int node) {
+        symbols.declare(name, 0, name.length(), typeName(type), line(node));
+        int declaration = symbols.size() - 1;
+        if (declaration == declarationTypes.length) {
+            declarationTypes = Arrays.copyOf(declarationTypes, declaration * 2);
+            declarationSlots = Arrays.copyOf(declarationSlots, declaration * 2);
+            declarationGlobal = Arrays.copyOf(declarationGlobal, declaration * 2);
+        }
+        int slot = context.slots++;
+        declarationTypes[declaration] = type;
+        declarationSlots[declaration] = slot;
+        declarationGlobal[declaration] = context == globalContext;
+        boolean inMain = context.function != null && context.function.name.equals("main") && symbols.depth() == context.bodyDepth;
+        if (context == globalContext || inMain) {
+            shown.add(declaration);
+        }
+        return slot;
+    }
+
+    /** Tipo de un nodo TYPE: int, long, char, bool, double (y float), string, void o auto. */
+    private int type(int node) {
+        StringBuilder name = new StringBuilder();
+        boolean constant = false;
+        boolean reference = false;
+        for (int token = tree.start(node); token < tree.end(node); token++) {
+            String text = parser.text(token);
+            if (text.equals("std") && parser.text(token + 1).equals("::")) {
+                token++;
+            } else if (text.equals("const") || text.equals("static") || text.equals("constexpr") || text.equals("inline")
+                    || text.equals("volatile") || text.equals("register") || text.equals("extern") || text.equals("signed")) {
+                constant |= text.equals("const") || text.equals("constexpr");
+            } else if (text.equals("&")) {
+                reference = true;
+            } else if (text.equals("*") || text.equals("&&")) {
+                throw unsupported(node, "punteros ni referencias");
+            } else {
+                if (name.length() > 0) {
+                    name.append(' ');
+                }
+                name.append(text);
+            }
+        }
+        if (reference && !constant) {
+            // Una referencia const se comporta como una copia; una que modifica, no
+            throw unsupported(node, "punteros ni referencias");
+        }
+        switch (name.length() == 0 ? "int" : name.toString()) {
+            case "int":
+                return INT;
+            case "long":
+            case "long int":
+            case "long long":
+            case "long long int":
+                return LONG;
+            case "char":
+                return CHAR;
+            case "bool":
+                return BOOL;
+            case "double":
+            case "float":
+            case "long double":
+                return DOUBLE;
+            case "string":
+                return STRING;
+            case "void":
+                return VOID;
+            case "auto":
+                return AUTO;
+            default:
+                throw unsupported(node, "el tipo " + name);
+        }
+    }
+
+    // Una condición de if, while, do o for, como bool
+    private Expr condition(int node) {
+        if (tree.kind(node) == SyntaxKind.DECLARATION) {
+            throw unsupported(node, "declaraciones en condiciones");
+        }
+        return convert(expression(node), BOOL, node);
+    }
+
+    private Expr expression(int node) {
+        int[] children = tree.children(node);
+        switch (tree.kind(node)) {
+            case LITERAL:
+                return literal(node);
+            case NAME:
+                return variable(node);
+            case BINARY: {
+                String op = parser.text(tree.end(children[0]));
+                if (op.equals("<<")) {
+                    Expr output = output(node);
+                    if (output != null) {
+                        return output;
+                    }
+                }
+                return binary(op, expression(children[0]), expression(children[1]), node);
+            }
+            case ASSIGNMENT:
+                return assignment(node, children);
+            case UNARY:
+                return unary(node, children);
+            case POSTFIX: {
+                Target target = target(children[0]);
+                String op = parser.text(tree.end(node) - 1);
+                if (!isNumeric(target.type) || target.type == BOOL) {
+                    throw compileError(node, "no se puede aplicar " + op + " a " + typeName(target.type));
+                }
+                return new Postfix(target, op.equals("++") ? 1 : -1);
+            }
+            case CONDITIONAL:
+                return conditional(node, children);
+            case CAST:
+                return convert(expression(children[1]), scalarType(children[0]), node);
+            case CALL:
+                return call(node, children);
+            case INDEX:
+                return index(node, children);
+            default:
+                throw unsupported(node, description(node));
+        }
+    }
+
+    private Expr literal(int node) {
+        String text = parser.text(tree.start(node));
+        if (text.equals("true") || text.equals("false")) {
+            return new LongConst(BOOL, text.equals("true") ? 1 : 0);
+        }
+        if (!parser.isLiteral(tree.start(node))) {
+            throw unsupported(node, "punteros ni objetos");
+        }
+        if (text.charAt(0) == '"') {
+            StringBuilder value = new StringBuilder();
+            for (int token = tree.start(node); token < tree.end(node); token++) {
+                value.append(unescape(parser.text(token), node));
+            }
+            return new StringConst(value.toString());
+        }
+        if (text.charAt(0) == '\'') {
+            String value = unescape(text, node);
+            if (value.length() != 1) {
+                throw unsupported(node, "caracteres de varios bytes");
+            }
+            return new LongConst(CHAR, value.charAt(0));
+        }
+        return number(text, node);
+    }
+
+    private Expr number(String text, int node) {
+        String digits = text.toLowerCase(Locale.ROOT).replace("'", "");
+        boolean hex = digits.startsWith("0x");
+        boolean binary = digits.startsWith("0b");
+        try {
+            if (!hex && !binary && (digits.indexOf('.') >= 0 || digits.indexOf('e') >= 0)) {
+                if (digits.endsWith("f") || digits.endsWith("l")) {
+                    digits = digits.substring(0, digits.length() - 1);
+                }
+                return new DoubleConst(Double.parseDouble(digits));
+            }
+            boolean longSuffix = false;
+            while (digits.endsWith("u") || digits.endsWith("l")) {
+                longSuffix |= digits.endsWith("l");
+                digits = digits.substring(0, digits.length() - 1);
+            }
+            long value;
+            if (hex || binary) {
+                value = Long.parseLong(digits.substring(2), hex ? 16 : 2);
+            } else if (digits.length() > 1 && digits.charAt(0) == '0') {
+                value = Long.parseLong(digits.substring(1), 8);
+            } else {
+                value = Long.parseLong(digits);
+            }
+            return new LongConst(!longSuffix && value <= Integer.MAX_VALUE ? INT : LONG, value);
+        } catch (NumberFormatException ex) {
+            throw unsupported(node, "el número " + text);
+        }
+    }
+
+    // Contenido de un literal entre comillas, con los escapes de C++ resueltos
+    private String unescape(String quoted, int node) {
+        StringBuilder value = new StringBuilder();
+        int end = quoted.length() - 1;
+        for (int i = 1; i < end; i++) {
+            char c = quoted.charAt(i);
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escape = quoted.charAt(++i);
+            switch (escape) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 'a':
+                    value.append('\u0007');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'v':
+                    value.append('\u000B');
+                    break;
+                case 'x': {
+                    int start = ++i;
+                    while (i < end && Character.digit(quoted.charAt(i), 16) >= 0) {
+                        i++;
+                    }
+                    if (i == start) {
+                        throw unsupported(node, "el escape \\x sin dígitos");
+                    }
+                    value.append((char) (Integer.parseInt(quoted.substring(start, i), 16) & 0xFF));
+                    i--;
+                    break;
+                }
+                default:
+                    if (escape >= '0' && escape <= '7') {
+                        int start = i;
+                        while (i < end && i < start + 3 && quoted.charAt(i) >= '0' && quoted.charAt(i) <= '7') {
+                            i++;
+                        }
+                        value.append((char) (Integer.parseInt(quoted.substring(start, i), 8) & 0xFF));
+                        i--;
+                    } else {
+                        // \\, \', \" y \?
+                        value.append(escape);
+                    }
+            }
+        }
+        return value.toString();
+    }
+
+    private Expr variable(int node) {
+        String name = source(node);
+        int declaration = symbols.lookup(name, 0, name.length());
+        if (declaration < 0) {
+            if (name.equals("cin") || name.equals("std::cin")) {
+                throw unsupported(node, "la lectura con cin");
+            }
+            if (name.equals("cout") || name.equals("std::cout") || name.equals("endl") || name.equals("std::endl")) {
+                throw unsupported(node, name + " fuera de una salida con <<");
+            }
+            // El análisis semántico ya informó las variables fuera de su ámbito: lo que queda
+            // sin declarar viene de fuera del programa (INT_MAX, NULL, ...)
+            throw unsupported(node, "'" + name + "', que el programa no declara");
+        }
+        return new Variable(declarationTypes[declaration], declarationGlobal[declaration], declarationSlots[declaration]);
+    }
+
+    // cout << a << b: el operando de más a la izquierda es cout; null si no es una salida
+    private Expr output(int node) {
+        List<Integer> parts = new ArrayList<>();
+        int current = node;
+        while (tree.kind(current) == SyntaxKind.BINARY) {
+            int[] children = tree.children(current);
+            if (!parser.text(tree.end(children[0])).equals("<<")) {
+                return null;
+            }
+            parts.add(children[1]);
+            current = children[0];
+        }
+        String stream = tree.kind(current) == SyntaxKind.NAME ? source(current) : "";
+        if (!stream.equals("cout") && !stream.equals("std::cout") && !stream.equals("cerr") && !stream.equals("std::cerr")) {
+            return null;
+        }
+        Expr[] values = new Expr[parts.size()];
+        for (int i = 0; i < values.length; i++) {
+            int part = parts.get(parts.size() - 1 - i);
+            String name = tree.kind(part) == SyntaxKind.NAME ? source(part) : "";
+            if (name.equals("endl") || name.equals("std::endl")) {
+                values[i] = new StringConst("\n");
+            } else {
+                values[i] = expression(part);
+                if (values[i].type == VOID || (values[i].type & ARRAY) != 0) {
+                    throw unsupported(part, "mostrar " + typeName(values[i].type));
+                }
+            }
+        }
+        return new Output(values);
+    }
+
+    private Expr binary(String op, Expr left, Expr right, int node) {
+        if (op.equals(",")) {
+            return new Comma(left, right);
+        }
+        if (op.equals("&&") || op.equals("||")) {
+            return new Logical(op.equals("&&"), convert(left, BOOL, node), convert(right, BOOL, node));
+        }
+        int code = Arrays.asList(OPERATORS).indexOf(op);
+        if (code < 0) {
+            throw unsupported(node, "el operador " + op);
+        }
+        boolean comparison = code >= LESS;
+        if (left.type == STRING || right.type == STRING) {
+            Expr leftString = convert(left, STRING, node);
+            Expr rightString = convert(right, STRING, node);
+            if (comparison) {
+                return new StringCompare(code, leftString, rightString);
+            }
+            if (code == ADD) {
+                return new Concat(leftString, rightString, line(node));
+            }
+            throw compileError(node, "el operador " + op + " no se aplica a string");
+        }
+        if (!isNumeric(left.type) || !isNumeric(right.type)) {
+            throw compileError(node, "el operador " + op + " no se aplica a " + typeName(isNumeric(left.type) ? right.type : left.type));
+        }
+        int type = promote(left.type, right.type);
+        if (type == DOUBLE) {
+            if (code == REMAINDER || (code >= BIT_AND && code <= SHIFT_RIGHT)) {
+                throw compileError(node, "el operador " + op + " necesita operandos enteros");
+            }
+            Expr leftDouble = convert(left, DOUBLE, node);
+            Expr rightDouble = convert(right, DOUBLE, node);
+            return comparison ? new DoubleCompare(code, leftDouble, rightDouble) : new DoubleBinary(code, leftDouble, rightDouble);
+        }
+        if (comparison) {
+            return new LongCompare(code, left, right);
+        }
+        if (code == SHIFT_LEFT || code == SHIFT_RIGHT) {
+            // El resultado tiene el tipo del operando izquierdo
+            type = promote(left.type, INT);
+        }
+        return new LongBinary(code, type, left, right, line(node));
+    }
+
+    private Expr assignment(int node, int[] children) {
+        String op = parser.text(tree.end(children[0]));
+        Target target = target(children[0]);
+        if (tree.kind(children[1]) == SyntaxKind.INITIALIZER_LIST) {
+            throw unsupported(node, "asignar listas de inicialización");
+        }
+        Expr value = expression(children[1]);
+        if (!op.equals("=")) {
+            value = binary(op.substring(0, op.length() - 1), target.reader(), value, node);
+        }
+        return new Assign(target, convert(value, target.type, node));
+    }
+
+    // Lo que puede ir a la izquierda de una asignación: una variable o un elemento de arreglo
+    private Target target(int node) {
+        if (tree.kind(node) == SyntaxKind.NAME) {
+            Expr variable = variable(node);
+            if ((variable.type & ARRAY) != 0) {
+                throw compileError(node, "no se puede asignar un arreglo completo");
+            }
+            Variable target = (Variable) variable;
+            return new VariableTarget(target.type, target.global, target.slot, line(node));
+        }
+        if (tree.kind(node) == SyntaxKind.INDEX) {
+            int[] children = tree.children(node);
+            Expr array = expression(children[0]);
+            if (array.type == STRING) {
+                throw unsupported(node, "modificar caracteres de un string");
+            }
+            if ((array.type & ARRAY) == 0) {
+                throw compileError(node, "solo se pueden indexar arreglos y strings");
+            }
+            Expr index = convert(expression(children[1]), LONG, node);
+            return new ElementTarget(array, index, context.slots++, context.slots++, line(node));
+        }
+        throw unsupported(node, "asignar a algo que no es una variable ni un elemento de arreglo");
+    }
+
+    private Expr unary(int node, int[] children) {
+        String op = parser.text(tree.start(node));
+        switch (op) {
+            case "+":
+            case "-": {
+                Expr operand = expression(children[0]);
+                if (!isNumeric(operand.type)) {
+                    throw compileError(node, "el operador " + op + " no se aplica a " + typeName(operand.type));
+                }
+                if (op.equals("+")) {
+                    return convert(operand, promote(operand.type, INT), node);
+                }
+                if (operand instanceof LongConst) {
+                    return new LongConst(promote(operand.type, INT), -((LongConst) operand).value);
+                }
+                if (operand instanceof DoubleConst) {
+                    return new DoubleConst(-((DoubleConst) operand).value);
+                }
+                return operand.type == DOUBLE ? new DoubleNegate(operand) : new LongUnary(false, promote(operand.type, INT), operand);
+            }
+            case "!":
+                return new Not(convert(expression(children[0]), BOOL, node));
+            case "~": {
+                Expr operand = expression(children[0]);
+                if (!isIntegral(operand.type)) {
+                    throw compileError(node, "el operador ~ necesita un entero");
+                }
+                return new LongUnary(true, promote(operand.type, INT), operand);
+            }
+            case "++":
+            case "--": {
+                Target target = target(children[0]);
+                if (!isNumeric(target.type) || target.type == BOOL) {
+                    throw compileError(node, "no se puede aplicar " + op + " a " + typeName(target.type));
+                }
+                Expr next = binary(op.substring(1), target.reader(), new LongConst(INT, 1), node);
+                return new Assign(target, convert(next, target.type, node));
+            }
+            case "*":
+            case "&":
+                return failUnsupported(node, "punteros");
+            case "new":
+            case "delete":
+                return failUnsupported(node, "memoria dinámica");
+            case "throw":
+                return failUnsupported(node, "excepciones");
+            default:
+                return failUnsupported(node, op);
+        }
+    }
+
+    private Expr failUnsupported(int node, String what) {
+        throw unsupported(node, what);
+    }
+
+    private Expr conditional(int node, int[] children) {
+        Expr condition = convert(expression(children[0]), BOOL, node);
+        Expr whenTrue = expression(children[1]);
+        Expr whenFalse = expression(children[2]);
+        int type;
+        if (whenTrue.type == whenFalse.type) {
+            type = whenTrue.type;
+        } else if (whenTrue.type == STRING || whenFalse.type == STRING) {
+            type = STRING;
+        } else {
+            type = promote(whenTrue.type, whenFalse.type);
+        }
+        return new Conditional(type, condition, convert(whenTrue, type, node), convert(whenFalse, type, node));
+    }
+
+    private Expr call(int node, int[] children) {
+        int callee = children[0];
+        int[] arguments = Arrays.copyOfRange(children, 1, children.length);
+        if (tree.kind(callee) == SyntaxKind.TYPE) {
+            // Conversión con forma de función: int(x)
+            if (arguments.length != 1) {
+                throw unsupported(node, "conversiones con varios argumentos");
+            }
+            return convert(expression(arguments[0]), scalarType(callee), node);
+        }
+        if (tree.kind(callee) == SyntaxKind.MEMBER) {
+            return method(node, callee, arguments);
+        }
+        if (tree.kind(callee) != SyntaxKind.NAME) {
+            throw unsupported(node, "llamadas a algo que no es una función");
+        }
+        String name = source(callee);
+        Function function = functions.get(name + "/" + arguments.length);
+        if (function != null && symbols.lookup(name, 0, name.length()) < 0) {
+            Expr[] values = new Expr[arguments.length];
+            for (int i = 0; i < values.length; i++) {
+                Expr value = expression(arguments[i]);
+                int type = function.parameterTypes[i];
+                if ((type & ARRAY) != 0 && value.type != type) {
+                    throw compileError(node, "el argumento " + (i + 1) + " de " + name + " tiene que ser " + typeName(type));
+                }
+                values[i] = convert(value, type, arguments[i]);
+            }
+            return new Call(function, values, line(node));
+        }
+        return builtin(node, name.startsWith("std::") ? name.substring(5) : name, arguments);
+    }
+
+    private Expr builtin(int node, String name, int[] arguments) {
+        Expr[] values = new Expr[arguments.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = expression(arguments[i]);
+            if (!isNumeric(values[i].type)) {
+                throw compileError(node, name + " necesita argumentos numéricos");
+            }
+        }
+        Integer math = MATH_FUNCTIONS.get(name);
+        int arity = math == null ? 0 : math == POW ? 2 : 1;
+        if (math != null && values.length == arity) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = convert(values[i], DOUBLE, node);
+            }
+            return new Builtin(math, DOUBLE, values, line(node));
+        }
+        if (name.equals("abs") && values.length == 1) {
+            int type = promote(values[0].type, INT);
+            return new Builtin(ABS, type, new Expr[]{convert(values[0], type, node)}, line(node));
+        }
+        if ((name.equals("max") || name.equals("min")) && values.length == 2) {
+            int type = promote(values[0].type, values[1].type);
+            Expr[] converted = {convert(values[0], type, node), convert(values[1], type, node)};
+            return new Builtin(name.equals("max") ? MAX : MIN, type, converted, line(node));
+        }
+        if (name.equals("to_string") && values.length == 1) {
+            return new Builtin(TO_STRING, STRING, values, line(node));
+        }
+        throw unsupported(node, "la función " + name);
+    }
+
+    // s.size(), s.length(), s.empty(), s.substr(i, n) y s.at(i) de un string
+    private Expr method(int node, int member, int[] arguments) {
+        int[] parts = tree.children(member);
+        Expr object = expression(parts[0]);
+        String name = source(parts[parts.length - 1]);
+        if (object.type != STRING) {
+            throw unsupported(node, "métodos de " + typeName(object.type));
+        }
+        Expr[] values = new Expr[arguments.length + 1];
+        values[0] = object;
+        for (int i = 0; i < arguments.length; i++) {
+            values[i + 1] = convert(expression(arguments[i]), LONG, node);
+        }
+        if ((name.equals("size") || name.equals("length")) && arguments.length == 0) {
+            return new Builtin(SIZE, LONG, values, line(node));
+        }
+        if (name.equals("empty") && arguments.length == 0) {
+            return new Builtin(EMPTY, BOOL, values, line(node));
+        }
+        if (name.equals("substr") && arguments.length >= 1 && arguments.length <= 2) {
+            return new Builtin(SUBSTR, STRING, values, line(node));
+        }
+        if (name.equals("at") && arguments.length == 1) {
+            return new Builtin(AT, CHAR, values, line(node));
+        }
+        throw unsupported(node, "el método " + name);
+    }
+
+    private Expr index(int node, int[] children) {
+        Expr array = expression(children[0]);
+        Expr index = convert(expression(children[1]), LONG, node);
+        if (array.type == STRING) {
+            return new Builtin(AT, CHAR, new Expr[]{array, index}, line(node));
+        }
+        if ((array.type & ARRAY) == 0) {
+            throw compileError(node, "solo se pueden indexar arreglos y strings");
+        }
+        return new Element(array.type & ~ARRAY, array, index, line(node));
+    }
+
+    private int scalarType(int node) {
+        int type = type(node);
+        if (type == VOID || type == AUTO) {
+            throw unsupported(node, "conversiones a " + TYPE_NAMES[type]);
+        }
+        return type;
+    }
+
+    // expression con el tipo to, con las conversiones implícitas de C++
+    private Expr convert(Expr expression, int to, int node) {
+        int from = expression.type;
+        if (from == to) {
+            return expression;
+        }
+        if (isIntegral(to) && isIntegral(from)) {
+            return new LongConvert(to, expression);
+        }
+        if (isIntegral(to) && from == DOUBLE) {
+            return new DoubleToLong(to, expression);
+        }
+        if (to == DOUBLE && isIntegral(from)) {
+            return new LongToDouble(expression);
+        }
+        if (to == STRING && from == CHAR) {
+            return new CharToString(expression);
+        }
+        throw compileError(node, "no se puede convertir " + typeName(from) + " a " + typeName(to));
+    }
+
+    private Expr zero(int type) {
+        if (type == DOUBLE) {
+            return new DoubleConst(0);
+        }
+        if (type == STRING) {
+            return new StringConst("");
+        }
+        return new LongConst(type, 0);
+    }
+
+    // Texto de los tokens del nodo sin separación: std::cout
+    private String source(int node) {
+        StringBuilder text = new StringBuilder();
+        for (int token = tree.start(node); token < tree.end(node); token++) {
+            text.append(parser.text(token));
+        }
+        return text.toString();
+    }
+
+    private int line(int node) {
+        return parser.line(tree.start(node));
+    }
+
+    private String description(int node) {
+        switch (tree.kind(node)) {
+            case CLASS:
+                return "clases ni estructuras";
+            case ENUM:
+                return "enumeraciones";
+            case TEMPLATE:
+                return "plantillas";
+            case NAMESPACE:
+                return "espacios de nombres";
+            case TRY:
+                return "excepciones";
+            case LABEL:
+                return "etiquetas";
+            case LAMBDA:
+                return "lambdas";
+            case MEMBER:
+                return "miembros de objetos";
+            case INITIALIZER_LIST:
+                return "listas de inicialización en expresiones";
+            case CASE:
+                return "case fuera de un switch";
+            case FUNCTION:
+                return "funciones dentro de funciones";
+            default:
+                return "esta construcción";
+        }
+    }
+
+    private Rejected unsupported(int node, String what) {
+        return new Rejected("Esta simulación no admite " + what + " (línea " + line(node) + ").");
+    }
+
+    private Rejected compileError(int node, String message) {
+        return new Rejected("Error en la línea " + line(node) + ": " + message + ".");
+    }
+
+    private static boolean isIntegral(int type) {
+        return type >= BOOL && type <= LONG;
+    }
+
+    private static boolean isNumeric(int type) {
+        return type >= BOOL && type <= DOUBLE;
+    }
+
+    // Tipo de una operación aritmética: bool y char pasan a int
+    private static int promote(int left, int right) {
+        if (left == DOUBLE || right == DOUBLE) {
+            return DOUBLE;
+        }
+        return left == LONG || right == LONG ? LONG : INT;
+    }
+
+    private static String typeName(int type) {
+        return (type & ARRAY) != 0 ? TYPE_NAMES[type & ~ARRAY] + "[]" : TYPE_NAMES[type];
+    }
+
+    // ---- Ejecución ----
+
+    // Un paso más; cada CHECK_INTERVAL pasos se revisa la cancelación y el presupuesto
+    private void tick() {
+        if (++steps >= nextCheck) {
+            checkpoint();
+        }
+    }
+
+    private void checkpoint() {
+        if (steps >= STEP_BUDGET) {
+            monitor.markTruncated();
+            throw new Stop("Se detuvo después de " + steps + " pasos: se agotó el presupuesto de la simulación.");
+        }
+        monitor.checkCancelled();
+        nextCheck = Math.min(steps + CHECK_INTERVAL, STEP_BUDGET);
+    }
+
+    // Suma bytes a la memoria viva, a cuenta de frame; con bytes negativos la libera
+    private void allocate(Frame frame, long bytes, int line) {
+        memory += bytes;
+        frame.owned += bytes;
+        if (bytes > 0 && memory > MEMORY_LIMIT) {
+            throw memoryExceeded(line);
+        }
+    }
+
+    // Revisa que un resultado temporal de bytes quepa en la memoria
+    private void reserve(long bytes, int line) {
+        if (memory + bytes > MEMORY_LIMIT) {
+            throw memoryExceeded(line);
+        }
+    }
+
+    // Libera el marco de una llamada que terminó, con los strings de sus arreglos
+    private void release(Frame frame, int[] arraySlots) {
+        memory -= frame.owned;
+        for (int slot : arraySlots) {
+            memory -= stringBytes(frame.objects[slot]);
+        }
+    }
+
+    private Stop memoryExceeded(int line) {
+        return new Stop("Error en la línea " + line + ": la simulación superó el límite de " + MEMORY_MEGABYTES + " MB de memoria.");
+    }
+
+    private static Stop error(int line, String message) {
+        return new Stop("Error en la línea " + line + ": " + message + ".");
+    }
+
+    // Bytes de los strings guardados en un arreglo de strings
+    private static long stringBytes(Object array) {
+        long bytes = 0;
+        if (array instanceof String[]) {
+            for (String element : (String[]) array) {
+                bytes += 2L * element.length();
+            }
+        }
+        return bytes;
+    }
+
+    private void storeString(Frame frame, int slot, String value, int line) {
+        Object previous = frame.objects[slot];
+        allocate(frame, 2L * (value.length() - (previous == null ? 0 : ((String) previous).length())), line);
+        frame.objects[slot] = value;
+        frame.defined[slot] = true;
+    }
+
+    private void print(String text) {
+        if (outputTruncated) {
+            return;
+        }
+        int room = MAX_OUTPUT - output.length();
+        if (text.length() > room) {
+            output.append(text, 0, room);
+            outputTruncated = true;
+        } else {
+            output.append(text);
+        }
+    }
+
+    private static long checkIndex(long index, int length, int line) {
+        if (index < 0 || index >= length) {
+            throw error(line, "el índice " + index + " está fuera del arreglo de " + length + " elementos");
+        }
+        return index;
+    }
+
+    // Un valor entero llevado al rango de su tipo, como al guardarlo en C++
+    private static long wrap(int type, long value) {
+        switch (type) {
+            case BOOL:
+                return value != 0 ? 1 : 0;
+            case CHAR:
+                return (byte) value;
+            case INT:
+                return (int) value;
+            default:
+                return value;
+        }
+    }
+
+    private static char charOf(long value) {
+        return (char) (value & 0xFF);
+    }
+
+    // Un valor como lo muestra cout
+    private static String show(Expr value, Frame frame) {
+        switch (value.type) {
+            case BOOL:
+                return value.evalLong(frame) != 0 ? "1" : "0";
+            case CHAR:
+                return String.valueOf(charOf(value.evalLong(frame)));
+            case INT:
+            case LONG:
+                return Long.toString(value.evalLong(frame));
+            case DOUBLE:
+                return formatDouble(value.evalDouble(frame));
+            default:
+                return (String) value.evalObject(frame);
+        }
+    }
+
+    /** Un double como lo muestra cout por defecto (%g con 6 cifras significativas). */
+    static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "nan";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == 0) {
+            return 1 / value < 0 ? "-0" : "0";
+        }
+        BigDecimal rounded = new BigDecimal(value).round(new MathContext(6, RoundingMode.HALF_EVEN));
+        int exponent = rounded.precision() - rounded.scale() - 1;
+        if (exponent < -4 || exponent >= 6) {
+            String mantissa = rounded.movePointLeft(exponent).stripTrailingZeros().toPlainString();
+            return mantissa + (exponent < 0 ? "e-" : "e+") + (Math.abs(exponent) < 10 ? "0" : "") + Math.abs(exponent);
+        }
+        return rounded.stripTrailingZeros().toPlainString();
+    }
+
+    // Las variables globales y las del cuerpo de main con su valor al terminar
+    private String state() {
+        StringBuilder text = new StringBuilder("{");
+        for (int declaration : shown) {
+            if (text.length() > 1) {
+                text.append(", ");
+            }
+            Frame frame = declarationGlobal[declaration] ? globals : mainFrame;
+            text.append(symbols.name(declaration)).append('=')
+                    .append(describe(frame, declarationSlots[declaration], declarationTypes[declaration]));
+        }
+        return text.append('}').toString();
+    }
+
+    private static String describe(Frame frame, int slot, int type) {
+        if (frame == null || !frame.defined[slot]) {
+            return "No definida";
+        }
+        if ((type & ARRAY) != 0) {
+            Object array = frame.objects[slot];
+            int length = java.lang.reflect.Array.getLength(array);
+            StringBuilder text = new StringBuilder("[");
+            for (int i = 0; i < Math.min(length, MAX_SHOWN_ELEMENTS); i++) {
+                if (i > 0) {
+                    text.append(", ");
+                }
+                if (array instanceof long[]) {
+                    text.append(describe(type & ~ARRAY, ((long[]) array)[i], 0, null));
+                } else if (array instanceof double[]) {
+                    text.append(describe(DOUBLE, 0, ((double[]) array)[i], null));
+                } else {
+                    text.append(describe(STRING, 0, 0, ((String[]) array)[i]));
+                }
+            }
+            return text.append(length > MAX_SHOWN_ELEMENTS ? ", ...]" : "]").toString();
+        }
+        return describe(type, frame.longs[slot], frame.doubles[slot], frame.objects[slot]);
+    }
+
+    private static String describe(int type, long integer, double real, Object object) {
+        switch (type) {
+            case BOOL:
+                return integer != 0 ? "true" : "false";
+            case CHAR:
+                return "'" + escape(String.valueOf(charOf(integer))) + "'";
+            case DOUBLE:
+                return formatDouble(real);
+            case STRING: {
+                String text = (String) object;
+                boolean cut = text.length() > MAX_SHOWN_CHARS;
+                return "\"" + escape(cut ? text.substring(0, MAX_SHOWN_CHARS) : text) + (cut ? "\"..." : "\"");
+            }
+            default:
+                return Long.toString(integer);
+        }
+    }
+
+    // Los saltos de línea y tabuladores como en el código, para que el estado quede en una línea
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+    }
+
+    private static long stepBudget() {
+        long steps = Long.getLong("analyzer.simulation.steps", 50_000_000L);
+        return steps <= 0 ? Long.MAX_VALUE : steps;
+    }
+
+    /** Casillas de una llamada (o de las globales) y el valor que devolvió. */
+    private static final class Frame {
+        // Cada variable usa la casilla del arreglo de su tipo
+        final long[] longs;
+        final double[] doubles;
+        final Object[] objects;
+        final boolean[] defined;
+        // Memoria a cuenta de este marco, que se libera al volver
+        long owned;
+        long returnLong;
+        double returnDouble;
+        Object returnObject;
+
+        Frame(int slots) {
+            longs = new long[slots];
+            doubles = new double[slots];
+            objects = new Object[slots];
+            defined = new boolean[slots];
+        }
+
+        long bytes() {
+            return FRAME_BYTES + SLOT_BYTES * longs.length;
+        }
+    }
+
+    private static final class Function {
+        final String name;
+        final int returnType;
+        final int[] parameterTypes;
+        // Nodo de la definición, -1 si solo hay prototipo
+        int node = -1;
+        Stmt body;
+        int slots;
+        int[] arraySlots;
+
+        Function(String name, int returnType, int[] parameterTypes) {
+            this.name = name;
+            this.returnType = returnType;
+            this.parameterTypes = parameterTypes;
+        }
+    }
+
+    // Lo que se está compilando: una función, o las declaraciones globales
+    private static final class Context {
+        final Function function;
+        int slots;
+        // Profundidad de ámbito del cuerpo de la función
+        int bodyDepth;
+        final List<Integer> arraySlots = new ArrayList<>();
+
+        Context(Function function) {
+            this.function = function;
+        }
+
+        int[] arraySlots() {
+            int[] slots = new int[arraySlots.size()];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = arraySlots.get(i);
+            }
+            return slots;
+        }
+    }
+
+    /** El programa no se puede simular; el mensaje va en el reporte. */
+    private static final class Rejected extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Rejected(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /** Corta la ejecución: un error del programa o un límite de la simulación. */
+    private static final class Stop extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Stop(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    // ---- Nodos ----
+
+    /** Expresión compilada; se evalúa con el método de su tipo: evalLong para bool, char, int y long. */
+    private abstract static class Expr {
+        final int type;
+
+        Expr(int type) {
+            this.type = type;
+        }
+
+        long evalLong(Frame frame) {
+            throw new IllegalStateException(typeName(type));
+        }
+
+        double evalDouble(Frame frame) {
+            throw new IllegalStateException(typeName(type));
+        }
+
+        Object evalObject(Frame frame) {
+            throw new IllegalStateException(typeName(type));
+        }
+
+        // Evalúa por sus efectos y descarta el valor
+        void run(Frame frame) {
+            if (isIntegral(type)) {
+                evalLong(frame);
+            } else if (type == DOUBLE) {
+                evalDouble(frame);
+            } else {
+                evalObject(frame);
+            }
+        }
+    }
+
+    private static final class LongConst extends Expr {
+        final long value;
+
+        LongConst(int type, long value) {
+            super(type);
+            this.value = wrap(type, value);
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            return value;
+        }
+    }
+
+    private static final class DoubleConst extends Expr {
+        final double value;
+
+        DoubleConst(double value) {
+            super(DOUBLE);
+            this.value = value;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            return value;
+        }
+    }
+
+    private static final class StringConst extends Expr {
+        final String value;
+
+        StringConst(String value) {
+            super(STRING);
+            this.value = value;
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            return value;
+        }
+    }
+
+    private final class Variable extends Expr {
+        final boolean global;
+        final int slot;
+
+        Variable(int type, boolean global, int slot) {
+            super(type);
+            this.global = global;
+            this.slot = slot;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            return (global ? globals : frame).longs[slot];
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            return (global ? globals : frame).doubles[slot];
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            return (global ? globals : frame).objects[slot];
+        }
+    }
+
+    private static final class LongConvert extends Expr {
+        final Expr operand;
+
+        LongConvert(int type, Expr operand) {
+            super(type);
+            this.operand = operand;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            return wrap(type, operand.evalLong(frame));
+        }
+    }
+
+    private static final class DoubleToLong extends Expr {
+        final Expr operand;
+
+        DoubleToLong(int type, Expr operand) {
+            super(type);
+            this.operand = operand;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            double value = operand.evalDouble(frame);
+            return type == BOOL ? (value != 0 ? 1 : 0) : wrap(type, (long) value);
+        }
+    }
+
+    private static final class LongToDouble extends Expr {
+        final Expr operand;
+
+        LongToDouble(Expr operand) {
+            super(DOUBLE);
+            this.operand = operand;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            return operand.evalLong(frame);
+        }
+    }
+
+    private static final class CharToString extends Expr {
+        final Expr operand;
+
+        CharToString(Expr operand) {
+            super(STRING);
+            this.operand = operand;
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            return String.valueOf(charOf(operand.evalLong(frame)));
+        }
+    }
+
+    private static final class LongBinary extends Expr {
+        final int op;
+        final Expr left;
+        final Expr right;
+        final int line;
+
+        LongBinary(int op, int type, Expr left, Expr right, int line) {
+            super(type);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+            this.line = line;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            long a = left.evalLong(frame);
+            long b = right.evalLong(frame);
+            switch (op) {
+                case ADD:
+                    return wrap(type, a + b);
+                case SUBTRACT:
+                    return wrap(type, a - b);
+                case MULTIPLY:
+                    return wrap(type, a * b);
+                case DIVIDE:
+                    if (b == 0) {
+                        throw error(line, "división entera por cero");
+                    }
+                    return wrap(type, a / b);
+                case REMAINDER:
+                    if (b == 0) {
+                        throw error(line, "resto de una división por cero");
+                    }
+                    return wrap(type, a % b);
+                case BIT_AND:
+                    return a & b;
+                case BIT_OR:
+                    return a | b;
+                case BIT_XOR:
+                    return a ^ b;
+                case SHIFT_LEFT:
+                    return type == INT ? (int) a << b : a << b;
+                default:
+                    return type == INT ? (int) a >> b : a >> b;
+            }
+        }
+    }
+
+    private static final class DoubleBinary extends Expr {
+        final int op;
+        final Expr left;
+        final Expr right;
+
+        DoubleBinary(int op, Expr left, Expr right) {
+            super(DOUBLE);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            double a = left.evalDouble(frame);
+            double b = right.evalDouble(frame);
+            switch (op) {
+                case ADD:
+                    return a + b;
+                case SUBTRACT:
+                    return a - b;
+                case MULTIPLY:
+                    return a * b;
+                default:
+                    return a / b;
+            }
+        }
+    }
+
+    private static boolean compare(int op, int comparison) {
+        switch (op) {
+            case LESS:
+                return comparison < 0;
+            case GREATER:
+                return comparison > 0;
+            case LESS_EQUAL:
+                return comparison <= 0;
+            case GREATER_EQUAL:
+                return comparison >= 0;
+            case EQUAL:
+                return comparison == 0;
+            default:
+                return comparison != 0;
+        }
+    }
+
+    private static final class LongCompare extends Expr {
+        final int op;
+        final Expr left;
+        final Expr right;
+
+        LongCompare(int op, Expr left, Expr right) {
+            super(BOOL);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            long a = left.evalLong(frame);
+            long b = right.evalLong(frame);
+            switch (op) {
+                case LESS:
+                    return a < b ? 1 : 0;
+                case GREATER:
+                    return a > b ? 1 : 0;
+                case LESS_EQUAL:
+                    return a <= b ? 1 : 0;
+                case GREATER_EQUAL:
+                    return a >= b ? 1 : 0;
+                case EQUAL:
+                    return a == b ? 1 : 0;
+                default:
+                    return a != b ? 1 : 0;
+            }
+        }
+    }
+
+    private static final class DoubleCompare extends Expr {
+        final int op;
+        final Expr left;
+        final Expr right;
+
+        DoubleCompare(int op, Expr left, Expr right) {
+            super(BOOL);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            double a = left.evalDouble(frame);
+            double b = right.evalDouble(frame);
+            switch (op) {
+                case LESS:
+                    return a < b ? 1 : 0;
+                case GREATER:
+                    return a > b ? 1 : 0;
+                case LESS_EQUAL:
+                    return a <= b ? 1 : 0;
+                case GREATER_EQUAL:
+                    return a >= b ? 1 : 0;
+                case EQUAL:
+                    return a == b ? 1 : 0;
+                default:
+                    return a != b ? 1 : 0;
+            }
+        }
+    }
+
+    private static final class StringCompare extends Expr {
+        final int op;
+        final Expr left;
+        final Expr right;
+
+        StringCompare(int op, Expr left, Expr right) {
+            super(BOOL);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            String a = (String) left.evalObject(frame);
+            String b = (String) right.evalObject(frame);
+            return compare(op, a.compareTo(b)) ? 1 : 0;
+        }
+    }
+
+    private final class Concat extends Expr {
+        final Expr left;
+        final Expr right;
+        final int line;
+
+        Concat(Expr left, Expr right, int line) {
+            super(STRING);
+            this.left = left;
+            this.right = right;
+            this.line = line;
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            String a = (String) left.evalObject(frame);
+            String b = (String) right.evalObject(frame);
+            reserve(2L * (a.length() + b.length()), line);
+            return a.concat(b);
+        }
+    }
+
+    private static final class Logical extends Expr {
+        final boolean and;
+        final Expr left;
+        final Expr right;
+
+        Logical(boolean and, Expr left, Expr right) {
+            super(BOOL);
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            if (left.evalLong(frame) != 0) {
+                return and ? right.evalLong(frame) : 1;
+            }
+            return and ? 0 : right.evalLong(frame);
+        }
+    }
+
+    private static final class Not extends Expr {
+        final Expr operand;
+
+        Not(Expr operand) {
+            super(BOOL);
+            this.operand = operand;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            return operand.evalLong(frame) == 0 ? 1 : 0;
+        }
+    }
+
+    // -x o ~x de un entero
+    private static final class LongUnary extends Expr {
+        final boolean complement;
+        final Expr operand;
+
+        LongUnary(boolean complement, int type, Expr operand) {
+            super(type);
+            this.complement = complement;
+            this.operand = operand;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            long value = operand.evalLong(frame);
+            return complement ? ~value : wrap(type, -value);
+        }
+    }
+
+    private static final class DoubleNegate extends Expr {
+        final Expr operand;
+
+        DoubleNegate(Expr operand) {
+            super(DOUBLE);
+            this.operand = operand;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            return -operand.evalDouble(frame);
+        }
+    }
+
+    private static final class Comma extends Expr {
+        final Expr left;
+        final Expr right;
+
+        Comma(Expr left, Expr right) {
+            super(right.type);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            left.run(frame);
+            return right.evalLong(frame);
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            left.run(frame);
+            return right.evalDouble(frame);
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            left.run(frame);
+            return right.evalObject(frame);
+        }
+
+        @Override
+        void run(Frame frame) {
+            left.run(frame);
+            right.run(frame);
+        }
+    }
+
+    private static final class Conditional extends Expr {
+        final Expr condition;
+        final Expr whenTrue;
+        final Expr whenFalse;
+
+        Conditional(int type, Expr condition, Expr whenTrue, Expr whenFalse) {
+            super(type);
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            return (condition.evalLong(frame) != 0 ? whenTrue : whenFalse).evalLong(frame);
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            return (condition.evalLong(frame) != 0 ? whenTrue : whenFalse).evalDouble(frame);
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            return (condition.evalLong(frame) != 0 ? whenTrue : whenFalse).evalObject(frame);
+        }
+
+        @Override
+        void run(Frame frame) {
+            (condition.evalLong(frame) != 0 ? whenTrue : whenFalse).run(frame);
+        }
+    }
+
+    private static final class Element extends Expr {
+        final Expr array;
+        final Expr index;
+        final int line;
+
+        Element(int type, Expr array, Expr index, int line) {
+            super(type);
+            this.array = array;
+            this.index = index;
+            this.line = line;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            long[] values = (long[]) array.evalObject(frame);
+            return values[(int) checkIndex(index.evalLong(frame), values.length, line)];
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            double[] values = (double[]) array.evalObject(frame);
+            return values[(int) checkIndex(index.evalLong(frame), values.length, line)];
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            String[] values = (String[]) array.evalObject(frame);
+            return values[(int) checkIndex(index.evalLong(frame), values.length, line)];
+        }
+    }
+
+    /** Funciones de la biblioteca y métodos de string; para los métodos, el primer argumento es el string. */
+    private final class Builtin extends Expr {
+        final int function;
+        final Expr[] arguments;
+        final int line;
+
+        Builtin(int function, int type, Expr[] arguments, int line) {
+            super(type);
+            this.function = function;
+            this.arguments = arguments;
+            this.line = line;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            switch (function) {
+                case ABS:
+                    return wrap(type, Math.abs(arguments[0].evalLong(frame)));
+                case MAX:
+                    return Math.max(arguments[0].evalLong(frame), arguments[1].evalLong(frame));
+                case MIN:
+                    return Math.min(arguments[0].evalLong(frame), arguments[1].evalLong(frame));
+                case SIZE:
+                    return ((String) arguments[0].evalObject(frame)).length();
+                case EMPTY:
+                    return ((String) arguments[0].evalObject(frame)).isEmpty() ? 1 : 0;
+                default: {
+                    String text = (String) arguments[0].evalObject(frame);
+                    return (byte) text.charAt((int) checkIndex(arguments[1].evalLong(frame), text.length(), line));
+                }
+            }
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            double a = arguments[0].evalDouble(frame);
+            switch (function) {
+                case SQRT:
+                    return Math.sqrt(a);
+                case POW:
+                    return Math.pow(a, arguments[1].evalDouble(frame));
+                case FABS:
+                case ABS:
+                    return Math.abs(a);
+                case FLOOR:
+                    return Math.floor(a);
+                case CEIL:
+                    return Math.ceil(a);
+                case EXP:
+                    return Math.exp(a);
+                case LOG:
+                    return Math.log(a);
+                case SIN:
+                    return Math.sin(a);
+                case COS:
+                    return Math.cos(a);
+                case MAX:
+                    return Math.max(a, arguments[1].evalDouble(frame));
+                default:
+                    return Math.min(a, arguments[1].evalDouble(frame));
+            }
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            if (function == TO_STRING) {
+                Expr value = arguments[0];
+                // to_string de un double usa %f
+                return value.type == DOUBLE ? String.format(Locale.ROOT, "%.6f", value.evalDouble(frame)) : Long.toString(value.evalLong(frame));
+            }
+            String text = (String) arguments[0].evalObject(frame);
+            long start = arguments[1].evalLong(frame);
+            if (start < 0 || start > text.length()) {
+                throw error(line, "substr desde " + start + " en un string de " + text.length() + " caracteres");
+            }
+            long count = arguments.length > 2 ? arguments[2].evalLong(frame) : text.length();
+            int end = (int) Math.min(text.length(), start + Math.max(count, 0));
+            return text.substring((int) start, end);
+        }
+    }
+
+    private final class Call extends Expr {
+        final Function function;
+        final Expr[] arguments;
+        final int line;
+
+        Call(Function function, Expr[] arguments, int line) {
+            super(function.returnType);
+            this.function = function;
+            this.arguments = arguments;
+            this.line = line;
+        }
+
+        // Ejecuta la función en un marco nuevo y lo devuelve con el valor de retorno
+        Frame invoke(Frame frame) {
+            if (function.body == null) {
+                throw error(line, "la función " + function.name + " no tiene definición");
+            }
+            if (callDepth == MAX_CALL_DEPTH) {
+                throw error(line, "más de " + MAX_CALL_DEPTH + " llamadas anidadas");
+            }
+            tick();
+            Frame callee = new Frame(function.slots);
+            callDepth++;
+            try {
+                allocate(callee, callee.bytes(), line);
+                for (int i = 0; i < arguments.length; i++) {
+                    Expr argument = arguments[i];
+                    if (isIntegral(argument.type)) {
+                        callee.longs[i] = argument.evalLong(frame);
+                    } else if (argument.type == DOUBLE) {
+                        callee.doubles[i] = argument.evalDouble(frame);
+                    } else if (argument.type == STRING) {
+                        storeString(callee, i, (String) argument.evalObject(frame), line);
+                    } else {
+                        // Los arreglos se pasan por referencia, como en C++
+                        callee.objects[i] = argument.evalObject(frame);
+                    }
+                    callee.defined[i] = true;
+                }
+                function.body.exec(callee);
+                return callee;
+            } finally {
+                callDepth--;
+                release(callee, function.arraySlots);
+            }
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            return invoke(frame).returnLong;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            return invoke(frame).returnDouble;
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            Object value = invoke(frame).returnObject;
+            return value == null && type == STRING ? "" : value;
+        }
+
+        @Override
+        void run(Frame frame) {
+            invoke(frame);
+        }
+    }
+
+    private final class Output extends Expr {
+        final Expr[] values;
+
+        Output(Expr[] values) {
+            super(VOID);
+            this.values = values;
+        }
+
+        @Override
+        void run(Frame frame) {
+            for (Expr value : values) {
+                print(show(value, frame));
+            }
+        }
+    }
+
+    /** Una variable o un elemento de arreglo al que se asigna. */
+    private abstract static class Target {
+        final int type;
+
+        Target(int type) {
+            this.type = type;
+        }
+
+        // Evalúa lo que identifica al destino antes de leerlo o guardarlo
+        void bind(Frame frame) {
+        }
+
+        // Lee el destino ya ubicado por bind
+        abstract Expr reader();
+
+        abstract void storeLong(Frame frame, long value);
+
+        abstract void storeDouble(Frame frame, double value);
+
+        abstract void storeObject(Frame frame, Object value);
+    }
+
+    private final class VariableTarget extends Target {
+        final boolean global;
+        final int slot;
+        final int line;
+
+        VariableTarget(int type, boolean global, int slot, int line) {
+            super(type);
+            this.global = global;
+            this.slot = slot;
+            this.line = line;
+        }
+
+        @Override
+        Expr reader() {
+            return new Variable(type, global, slot);
+        }
+
+        @Override
+        void storeLong(Frame frame, long value) {
+            Frame target = global ? globals : frame;
+            target.longs[slot] = value;
+            target.defined[slot] = true;
+        }
+
+        @Override
+        void storeDouble(Frame frame, double value) {
+            Frame target = global ? globals : frame;
+            target.doubles[slot] = value;
+            target.defined[slot] = true;
+        }
+
+        @Override
+        void storeObject(Frame frame, Object value) {
+            storeString(global ? globals : frame, slot, (String) value, line);
+        }
+    }
+
+    /**
+     * a[i] como destino. bind evalúa el arreglo y el índice una sola vez y los deja en dos
+     * casillas auxiliares del marco, de donde los leen reader() y los store.
+     */
+    private final class ElementTarget extends Target {
+        final Expr array;
+        final Expr index;
+        final int arraySlot;
+        final int indexSlot;
+        final int line;
+
+        ElementTarget(Expr array, Expr index, int arraySlot, int indexSlot, int line) {
+            super(array.type & ~ARRAY);
+            this.array = array;
+            this.index = index;
+            this.arraySlot = arraySlot;
+            this.indexSlot = indexSlot;
+            this.line = line;
+        }
+
+        @Override
+        void bind(Frame frame) {
+            Object values = array.evalObject(frame);
+            frame.objects[arraySlot] = values;
+            frame.longs[indexSlot] = checkIndex(index.evalLong(frame), java.lang.reflect.Array.getLength(values), line);
+        }
+
+        @Override
+        Expr reader() {
+            return new Expr(type) {
+                @Override
+                long evalLong(Frame frame) {
+                    return ((long[]) frame.objects[arraySlot])[(int) frame.longs[indexSlot]];
+                }
+
+                @Override
+                double evalDouble(Frame frame) {
+                    return ((double[]) frame.objects[arraySlot])[(int) frame.longs[indexSlot]];
+                }
+
+                @Override
+                Object evalObject(Frame frame) {
+                    return ((String[]) frame.objects[arraySlot])[(int) frame.longs[indexSlot]];
+                }
+            };
+        }
+
+        @Override
+        void storeLong(Frame frame, long value) {
+            ((long[]) frame.objects[arraySlot])[(int) frame.longs[indexSlot]] = value;
+        }
+
+        @Override
+        void storeDouble(Frame frame, double value) {
+            ((double[]) frame.objects[arraySlot])[(int) frame.longs[indexSlot]] = value;
+        }
+
+        @Override
+        void storeObject(Frame frame, Object value) {
+            String[] values = (String[]) frame.objects[arraySlot];
+            int i = (int) frame.longs[indexSlot];
+            String text = (String) value;
+            // Los strings de un arreglo se liberan con el arreglo, no con este marco
+            memory += 2L * (text.length() - values[i].length());
+            if (memory > MEMORY_LIMIT) {
+                throw memoryExceeded(line);
+            }
+            values[i] = text;
+        }
+    }
+
+    private static final class Assign extends Expr {
+        final Target target;
+        final Expr value;
+
+        Assign(Target target, Expr value) {
+            super(target.type);
+            this.target = target;
+            this.value = value;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            target.bind(frame);
+            long result = value.evalLong(frame);
+            target.storeLong(frame, result);
+            return result;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            target.bind(frame);
+            double result = value.evalDouble(frame);
+            target.storeDouble(frame, result);
+            return result;
+        }
+
+        @Override
+        Object evalObject(Frame frame) {
+            target.bind(frame);
+            Object result = value.evalObject(frame);
+            target.storeObject(frame, result);
+            return result;
+        }
+    }
+
+    // x++ y x--: devuelve el valor anterior
+    private static final class Postfix extends Expr {
+        final Target target;
+        final Expr current;
+        final int delta;
+
+        Postfix(Target target, int delta) {
+            super(target.type);
+            this.target = target;
+            this.current = target.reader();
+            this.delta = delta;
+        }
+
+        @Override
+        long evalLong(Frame frame) {
+            target.bind(frame);
+            long previous = current.evalLong(frame);
+            target.storeLong(frame, wrap(type, previous + delta));
+            return previous;
+        }
+
+        @Override
+        double evalDouble(Frame frame) {
+            target.bind(frame);
+            double previous = current.evalDouble(frame);
+            target.storeDouble(frame, previous + delta);
+            return previous;
+        }
+    }
+
+    /** Sentencia compilada; exec devuelve NORMAL, BREAK, CONTINUE o RETURN. */
+    private abstract static class Stmt {
+        abstract int exec(Frame frame);
+    }
+
+    private static final class ExpressionStmt extends Stmt {
+        final Expr expression;
+
+        ExpressionStmt(Expr expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            expression.run(frame);
+            return NORMAL;
+        }
+    }
+
+    private final class Block extends Stmt {
+        final Stmt[] statements;
+
+        Block(Stmt[] statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            for (Stmt statement : statements) {
+                tick();
+                int result = statement.exec(frame);
+                if (result != NORMAL) {
+                    return result;
+                }
+            }
+            return NORMAL;
+        }
+    }
+
+    // Varias declaraciones de una misma sentencia: int a = 1, b = 2;
+    private static final class Sequence extends Stmt {
+        final Stmt[] statements;
+
+        Sequence(Stmt[] statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            for (Stmt statement : statements) {
+                statement.exec(frame);
+            }
+            return NORMAL;
+        }
+    }
+
+    private final class DeclareScalar extends Stmt {
+        final int slot;
+        final int type;
+        final Expr value;
+        // Las globales sin valor empiezan en cero; las locales quedan sin definir
+        final boolean global;
+
+        DeclareScalar(int slot, int type, Expr value, boolean global) {
+            this.slot = slot;
+            this.type = type;
+            this.value = value;
+            this.global = global;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            if (type == STRING) {
+                storeString(frame, slot, value == null ? "" : (String) value.evalObject(frame), 0);
+            } else if (value == null) {
+                frame.longs[slot] = 0;
+                frame.doubles[slot] = 0;
+                frame.defined[slot] = global;
+            } else {
+                if (type == DOUBLE) {
+                    frame.doubles[slot] = value.evalDouble(frame);
+                } else {
+                    frame.longs[slot] = value.evalLong(frame);
+                }
+                frame.defined[slot] = true;
+            }
+            return NORMAL;
+        }
+    }
+
+    private final class DeclareArray extends Stmt {
+        final int slot;
+        final int elementType;
+        final Expr length;
+        final Expr[] elements;
+        final int line;
+
+        DeclareArray(int slot, int elementType, Expr length, Expr[] elements, int line) {
+            this.slot = slot;
+            this.elementType = elementType;
+            this.length = length;
+            this.elements = elements;
+            this.line = line;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            long size = length == null ? elements.length : length.evalLong(frame);
+            if (size < 0 || (elements != null && elements.length > size)) {
+                throw error(line, size < 0 ? "el tamaño " + size + " es negativo" : "hay más valores que elementos en el arreglo");
+            }
+            Object previous = frame.objects[slot];
+            if (previous != null) {
+                // El arreglo de la vuelta anterior del bloque ya no existe
+                allocate(frame, -(16 + 8L * java.lang.reflect.Array.getLength(previous)), line);
+                memory -= stringBytes(previous);
+            }
+            allocate(frame, 16 + 8 * size, line);
+            int count = (int) size;
+            int given = elements == null ? 0 : elements.length;
+            if (elementType == DOUBLE) {
+                double[] values = new double[count];
+                for (int i = 0; i < given; i++) {
+                    values[i] = elements[i].evalDouble(frame);
+                }
+                frame.objects[slot] = values;
+            } else if (elementType == STRING) {
+                String[] values = new String[count];
+                Arrays.fill(values, "");
+                for (int i = 0; i < given; i++) {
+                    values[i] = (String) elements[i].evalObject(frame);
+                    memory += 2L * values[i].length();
+                }
+                frame.objects[slot] = values;
+            } else {
+                long[] values = new long[count];
+                for (int i = 0; i < given; i++) {
+                    values[i] = elements[i].evalLong(frame);
+                }
+                frame.objects[slot] = values;
+            }
+            frame.defined[slot] = true;
+            return NORMAL;
+        }
+    }
+
+    private static final class If extends Stmt {
+        final Expr condition;
+        final Stmt whenTrue;
+        final Stmt whenFalse;
+
+        If(Expr condition, Stmt whenTrue, Stmt whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            Stmt branch = condition.evalLong(frame) != 0 ? whenTrue : whenFalse;
+            return branch == null ? NORMAL : branch.exec(frame);
+        }
+    }
+
+    private final class While extends Stmt {
+        final Expr condition;
+        final Stmt body;
+
+        While(Expr condition, Stmt body) {
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            while (condition.evalLong(frame) != 0) {
+                tick();
+                int result = body == null ? NORMAL : body.exec(frame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+            }
+            return NORMAL;
+        }
+    }
+
+    private final class DoWhile extends Stmt {
+        final Stmt body;
+        final Expr condition;
+
+        DoWhile(Stmt body, Expr condition) {
+            this.body = body;
+            this.condition = condition;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            do {
+                tick();
+                int result = body == null ? NORMAL : body.exec(frame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+            } while (condition.evalLong(frame) != 0);
+            return NORMAL;
+        }
+    }
+
+    private final class For extends Stmt {
+        final Stmt initializer;
+        final Expr condition;
+        final Expr increment;
+        final Stmt body;
+
+        For(Stmt initializer, Expr condition, Expr increment, Stmt body) {
+            this.initializer = initializer;
+            this.condition = condition;
+            this.increment = increment;
+            this.body = body;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            if (initializer != null) {
+                initializer.exec(frame);
+            }
+            while (condition == null || condition.evalLong(frame) != 0) {
+                tick();
+                int result = body == null ? NORMAL : body.exec(frame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+                if (increment != null) {
+                    increment.run(frame);
+                }
+            }
+            return NORMAL;
+        }
+    }
+
+    private final class Switch extends Stmt {
+        final Expr value;
+        final long[] labels;
+        final int[] targets;
+        final int defaultTarget;
+        final Stmt[] statements;
+
+        Switch(Expr value, long[] labels, int[] targets, int defaultTarget, Stmt[] statements) {
+            this.value = value;
+            this.labels = labels;
+            this.targets = targets;
+            this.defaultTarget = defaultTarget;
+            this.statements = statements;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            long key = value.evalLong(frame);
+            int start = defaultTarget;
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == key) {
+                    start = targets[i];
+                    break;
+                }
+            }
+            if (start < 0) {
+                return NORMAL;
+            }
+            for (int i = start; i < statements.length; i++) {
+                tick();
+                int result = statements[i].exec(frame);
+                if (result == BREAK) {
+                    return NORMAL;
+                }
+                if (result != NORMAL) {
+                    return result;
+                }
+            }
+            return NORMAL;
+        }
+    }
+
+    private static final class Return extends Stmt {
+        final Expr value;
+
+        Return(Expr value) {
+            this.value = value;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            if (value == null) {
+                return RETURN;
+            }
+            if (value.type == VOID) {
+                value.run(frame);
+            } else if (isIntegral(value.type)) {
+                frame.returnLong = value.evalLong(frame);
+            } else if (value.type == DOUBLE) {
+                frame.returnDouble = value.evalDouble(frame);
+            } else {
+                frame.returnObject = value.evalObject(frame);
+            }
+            return RETURN;
+        }
+    }
+
+    private static final class Jump extends Stmt {
+        final int result;
+
+        Jump(int result) {
+            this.result = result;
+        }
+
+        @Override
+        int exec(Frame frame) {
+            return result;
+        }
+    }
+}
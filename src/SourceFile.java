@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+
+/**
+ * Código leído de un archivo UTF-8 de a bloques, avisando el avance, con su índice de
+ * líneas para mostrarlo sin pasarlo entero a un JTextArea. Los bytes inválidos quedan
+ * como el carácter de reemplazo, igual que en el modo por lotes.
+ */
+final class SourceFile {
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    private final Path path;
+    private final String text;
+    private final TextLines lines;
+
+    private SourceFile(Path path, String text) {
+        this.path = path;
+        this.text = text;
+        this.lines = new TextLines(text);
+    }
+
+    /**
+     * Lee el archivo avisando a progress el porcentaje leído después de cada bloque. Si el
+     * hilo se interrumpe, la lectura termina con CancellationException o con la
+     * ClosedByInterruptException del canal.
+     */
+    static SourceFile read(Path path, IntConsumer progress) throws IOException {
+        long size = Files.size(path);
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("El archivo es demasiado grande para analizarlo entero: " + size + " bytes");
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // UTF-8 nunca da más caracteres que bytes, así que el texto no se vuelve a copiar al crecer
+        StringBuilder text = new StringBuilder((int) size);
+        ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long read = 0;
+            boolean end = false;
+            while (!end) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Carga cancelada");
+                }
+                int count = channel.read(bytes);
+                end = count < 0;
+                read += Math.max(count, 0);
+                bytes.flip();
+                decoder.decode(bytes, chars, end);
+                if (end) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+                chars.flip();
+                text.append(chars);
+                chars.clear();
+                progress.accept(size == 0 ? 100 : (int) (100 * read / size));
+            }
+        }
+        return new SourceFile(path, text.toString());
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    TextLines getLines() {
+        return lines;
+    }
+}
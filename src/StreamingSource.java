@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Código que se lee por partes desde un Reader o un archivo mapeado en memoria, para
+ * tokenizar archivos más grandes que el heap. Solo guarda una ventana del texto: las
+ * posiciones siguen siendo absolutas, la ventana avanza a pedido con has() y lo anterior
+ * a release() se descarta en la próxima lectura. El Lexer libera todo lo anterior a la
+ * línea actual, así que la memoria depende del largo de las líneas (y de los comentarios
+ * de bloque, que son un solo token) y no del archivo.
+ *
+ * Un CharBuffer (por ejemplo el de un archivo ya decodificado) no necesita esta clase:
+ * es un CharSequence y se le pasa al Lexer directamente, sin copiarlo.
+ */
+final class StreamingSource implements CharSequence, AutoCloseable {
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private char[] window = new char[WINDOW_SIZE];
+    // Posición absoluta de window[0] y cantidad de caracteres válidos en la ventana
+    private int windowStart;
+    private int filled;
+    // Nada anterior a esta posición se vuelve a pedir
+    private int released;
+    private boolean finished;
+
+    StreamingSource(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** Archivo mapeado en memoria de a bloques y decodificado con charset a medida que se lee. */
+    static StreamingSource mapped(Path file, Charset charset) throws IOException {
+        return new StreamingSource(new MappedFileReader(file, charset));
+    }
+
+    /** true si existe el carácter en index; lee más del origen si todavía no llegó. */
+    boolean has(int index) {
+        while (index >= windowStart + filled && !finished) {
+            readMore();
+        }
+        return index < windowStart + filled;
+    }
+
+    /** Las posiciones anteriores a position ya no se van a pedir. */
+    void release(int position) {
+        released = Math.max(released, position);
+    }
+
+    private void readMore() {
+        if (filled == window.length) {
+            int discard = Math.min(released - windowStart, filled);
+            if (discard > 0) {
+                System.arraycopy(window, discard, window, 0, filled - discard);
+                windowStart += discard;
+                filled -= discard;
+            }
+            if (filled > window.length / 2) {
+                // Lo que todavía se usa (una línea muy larga) ocupa casi toda la ventana
+                window = Arrays.copyOf(window, window.length * 2);
+            }
+        }
+        try {
+            int read = reader.read(window, filled, window.length - filled);
+            if (read < 0) {
+                finished = true;
+            } else {
+                filled += read;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < windowStart || !has(index)) {
+            throw new IndexOutOfBoundsException("Posición fuera de la ventana leída: " + index);
+        }
+        return window[index - windowStart];
+    }
+
+    /** Caracteres leídos hasta ahora; es el largo total recién cuando has() devolvió false. */
+    @Override
+    public int length() {
+        return windowStart + filled;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < windowStart || start > end || (end > start && !has(end - 1))) {
+            throw new IndexOutOfBoundsException("Rango fuera de la ventana leída: " + start + "-" + end);
+        }
+        return new String(window, start - windowStart, end - start);
+    }
+
+    // Solo el texto que sigue en la ventana; el resto ya no está en memoria
+    @Override
+    public String toString() {
+        return new String(window, 0, filled);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Reader sobre un archivo mapeado por bloques. Si un carácter de varios bytes queda
+     * partido entre dos bloques, el siguiente bloque se mapea desde el primer byte sin
+     * decodificar.
+     */
+    static final class MappedFileReader extends Reader {
+        private static final long CHUNK_SIZE = 16L * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long size;
+        private final CharsetDecoder decoder;
+        private MappedByteBuffer chunk;
+        private long chunkStart;
+        // Ya se decodificó el último bloque / ya se vació el decodificador
+        private boolean decoded;
+        private boolean flushed;
+        // Segunda mitad de un par sustituto que no entró en el último read()
+        private int pendingLow = -1;
+
+        MappedFileReader(Path file, Charset charset) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            // Igual que new String(bytes, charset): las secuencias inválidas se reemplazan
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            map(0);
+        }
+
+        private void map(long start) throws IOException {
+            chunkStart = start;
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (pendingLow >= 0) {
+                buffer[offset] = (char) pendingLow;
+                pendingLow = -1;
+                return 1;
+            }
+            CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+            while (out.position() == offset && !flushed) {
+                if (!decoded) {
+                    boolean last = chunkStart + chunk.limit() == size;
+                    if (decoder.decode(chunk, out, last).isOverflow()) {
+                        if (out.position() == offset) {
+                            // Solo queda lugar para un char y el siguiente carácter ocupa dos
+                            CharBuffer pair = CharBuffer.allocate(2);
+                            decoder.decode(chunk, pair, last);
+                            buffer[offset] = pair.get(0);
+                            pendingLow = pair.get(1);
+                            return 1;
+                        }
+                        break;
+                    }
+                    if (!last) {
+                        map(chunkStart + chunk.position());
+                        continue;
+                    }
+                    decoded = true;
+                }
+                if (decoder.flush(out).isOverflow()) {
+                    break;
+                }
+                flushed = true;
+            }
+            return out.position() == offset ? -1 : out.position() - offset;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
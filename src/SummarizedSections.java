@@ -0,0 +1,126 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secciones del reporte en modo resumen: cada sección con coincidencias se cuenta en un
+ * MatchSummary en vez de listarse, así que la memoria no crece con lo encontrado. En las
+ * secciones sin repetidos (variables, constantes) el resumen cuenta cada aparición. Las
+ * palabras reservadas y las secciones no soportadas quedan con su texto de siempre.
+ *
+ * Un Reader se recorre por tramos de unos BLOCK_SIZE caracteres que terminan en cortes
+ * seguros de ChunkedAnalysis, así que ni el texto entero ni las coincidencias tienen que
+ * entrar en memoria. Si no aparece ningún corte seguro, el tramo crece hasta encontrarlo.
+ */
+final class SummarizedSections implements Closeable {
+    static final int BLOCK_SIZE = 4 * 1024 * 1024;
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final String language;
+    private final Set<String> reservedWords;
+    // Recibe los tramos; sus recolectores resumidos quedan vacíos
+    private final AnalysisPipeline total;
+    private final Map<ReportSection, MatchSummary> summaries = new EnumMap<>(ReportSection.class);
+    private long base;
+
+    /** Con spill, cada resumen además escribe sus coincidencias en un archivo temporal. */
+    SummarizedSections(String language, Set<String> reservedWords, boolean spill) throws IOException {
+        this.language = language;
+        this.reservedWords = reservedWords;
+        this.total = AnalysisPipeline.forLanguage(language, reservedWords);
+        try {
+            for (ReportSection section : ReportSection.values()) {
+                MatchSummary summary = new MatchSummary();
+                if (total.collector(section).summarizeInto(summary, 0)) {
+                    summaries.put(section, summary);
+                    if (spill) {
+                        summary.spillTo(Files.createTempFile("analisis-" + name(section) + "-", ".tsv"));
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /** Recorre code entero en una sola pasada. */
+    void run(String code, AnalysisMonitor monitor) {
+        AnalysisPipeline chunk = AnalysisPipeline.forLanguage(language, reservedWords, EnumSet.allOf(ReportSection.class));
+        for (Map.Entry<ReportSection, MatchSummary> entry : summaries.entrySet()) {
+            chunk.collector(entry.getKey()).summarizeInto(entry.getValue(), base);
+        }
+        chunk.run(code, monitor);
+        total.absorb(chunk);
+        base += code.length();
+    }
+
+    /** Recorre lo que quede de reader por tramos, como si fuera el texto que sigue. */
+    void run(Reader reader, AnalysisMonitor monitor) throws IOException {
+        StringBuilder pending = new StringBuilder();
+        char[] buffer = new char[READ_SIZE];
+        boolean end = false;
+        while (!end) {
+            int read = reader.read(buffer);
+            end = read < 0;
+            if (!end) {
+                pending.append(buffer, 0, read);
+                if (pending.length() < BLOCK_SIZE) {
+                    continue;
+                }
+            }
+            int cut = end ? pending.length() : ChunkedAnalysis.nextCut(pending, BLOCK_SIZE / 2);
+            if (cut == pending.length() && !end) {
+                continue;
+            }
+            run(pending.substring(0, cut), monitor);
+            pending.delete(0, cut);
+        }
+    }
+
+    /** Agrega "summaries" con un resumen por sección y "sections" con el texto de las demás. */
+    void appendJson(StringBuilder record) {
+        record.append(",\"summaries\":{");
+        boolean first = true;
+        for (Map.Entry<ReportSection, MatchSummary> entry : summaries.entrySet()) {
+            record.append(first ? "" : ",").append(BatchAnalyzer.quote(name(entry.getKey()))).append(':');
+            entry.getValue().appendJson(record);
+            first = false;
+        }
+        record.append("},\"sections\":{");
+        first = true;
+        for (ReportSection section : ReportSection.values()) {
+            if (!summaries.containsKey(section)) {
+                record.append(first ? "" : ",").append(BatchAnalyzer.quote(name(section)));
+                record.append(':').append(BatchAnalyzer.quote(total.result(section)));
+                first = false;
+            }
+        }
+        record.append('}');
+    }
+
+    private static String name(ReportSection section) {
+        return section.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (MatchSummary summary : summaries.values()) {
+            try {
+                summary.close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
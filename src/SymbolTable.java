@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+/**
+ * Tabla de símbolos de un análisis, con ámbitos anidados. Se crea una por análisis, así
+ * que no se comparte entre hilos.
+ *
+ * Los nombres (de variables y de tipos) se internan una sola vez y se identifican con un
+ * entero; cada declaración guarda en arreglos de enteros el nombre, el tipo, la posición
+ * en el código, la profundidad del ámbito y la declaración que ocultó. binding[nombre] es
+ * la declaración visible, de modo que buscar un nombre es buscarlo en la tabla de
+ * internado y leer un arreglo, sin crear objetos.
+ */
+final class SymbolTable {
+    private static final int NONE = -1;
+
+    // Nombres internados: names[id], y una tabla abierta de ids (más 1; 0 es vacío)
+    private String[] names = new String[16];
+    private int[] nameTable = new int[32];
+    private int nameCount;
+    // Declaración visible de cada nombre, o NONE
+    private int[] binding = new int[16];
+
+    // Una entrada por declaración, en el orden del código
+    private int[] symbol = new int[16];
+    private int[] type = new int[16];
+    private int[] position = new int[16];
+    private int[] depth = new int[16];
+    private int[] shadowed = new int[16];
+    private int declarationCount;
+
+    // Declaraciones visibles, en orden, y cuántas había al entrar a cada ámbito abierto
+    private int[] live = new int[16];
+    private int liveCount;
+    private int[] scopeMarks = new int[8];
+    private int scopeDepth;
+
+    void enterScope() {
+        if (scopeDepth == scopeMarks.length) {
+            scopeMarks = Arrays.copyOf(scopeMarks, scopeDepth * 2);
+        }
+        scopeMarks[scopeDepth++] = liveCount;
+    }
+
+    /** Cierra el ámbito abierto y vuelven a verse las declaraciones que ocultaba; sin ámbitos abiertos no hace nada. */
+    void exitScope() {
+        if (scopeDepth == 0) {
+            return;
+        }
+        int mark = scopeMarks[--scopeDepth];
+        while (liveCount > mark) {
+            int declaration = live[--liveCount];
+            binding[symbol[declaration]] = shadowed[declaration];
+        }
+    }
+
+    int depth() {
+        return scopeDepth;
+    }
+
+    /**
+     * Declara name[start, end) con el tipo dado en el ámbito abierto y devuelve la
+     * declaración. Si el nombre ya estaba declarado en el mismo ámbito, la nueva
+     * declaración lo reemplaza y se devuelve -(anterior + 1).
+     */
+    int declare(CharSequence code, int start, int end, String typeName, int at) {
+        int id = intern(code, start, end);
+        int previous = binding[id];
+        if (declarationCount == symbol.length) {
+            int capacity = declarationCount * 2;
+            symbol = Arrays.copyOf(symbol, capacity);
+            type = Arrays.copyOf(type, capacity);
+            position = Arrays.copyOf(position, capacity);
+            depth = Arrays.copyOf(depth, capacity);
+            shadowed = Arrays.copyOf(shadowed, capacity);
+        }
+        int declaration = declarationCount++;
+        symbol[declaration] = id;
+        type[declaration] = intern(typeName, 0, typeName.length());
+        position[declaration] = at;
+        depth[declaration] = scopeDepth;
+        shadowed[declaration] = previous;
+        if (liveCount == live.length) {
+            live = Arrays.copyOf(live, liveCount * 2);
+        }
+        live[liveCount++] = declaration;
+        binding[id] = declaration;
+        if (previous != NONE && depth[previous] == scopeDepth) {
+            return -(previous + 1);
+        }
+        return declaration;
+    }
+
+    /** Declaración visible de name[start, end), o -1 si no hay. */
+    int lookup(CharSequence code, int start, int end) {
+        int id = find(code, start, end);
+        return id == NONE ? NONE : binding[id];
+    }
+
+    String name(int declaration) {
+        return names[symbol[declaration]];
+    }
+
+    String type(int declaration) {
+        return names[type[declaration]];
+    }
+
+    int position(int declaration) {
+        return position[declaration];
+    }
+
+    int size() {
+        return declarationCount;
+    }
+
+    /** Todas las declaraciones en el orden del código, como nombre=tipo. */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        for (int i = 0; i < declarationCount; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(name(i)).append('=').append(type(i));
+        }
+        return text.append('}').toString();
+    }
+
+    // Id del nombre, agregándolo si es nuevo
+    private int intern(CharSequence code, int start, int end) {
+        int hash = hash(code, start, end);
+        int slot = hash & (nameTable.length - 1);
+        while (nameTable[slot] != 0) {
+            int id = nameTable[slot] - 1;
+            if (regionEquals(names[id], code, start, end)) {
+                return id;
+            }
+            slot = (slot + 1) & (nameTable.length - 1);
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+            binding = Arrays.copyOf(binding, nameCount * 2);
+        }
+        int id = nameCount++;
+        names[id] = code.subSequence(start, end).toString();
+        binding[id] = NONE;
+        nameTable[slot] = id + 1;
+        // Se mantiene a lo sumo a la mitad de su capacidad
+        if (nameCount * 2 > nameTable.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    // Id del nombre, o NONE si nunca se internó
+    private int find(CharSequence code, int start, int end) {
+        for (int slot = hash(code, start, end) & (nameTable.length - 1); nameTable[slot] != 0; slot = (slot + 1) & (nameTable.length - 1)) {
+            int id = nameTable[slot] - 1;
+            if (regionEquals(names[id], code, start, end)) {
+                return id;
+            }
+        }
+        return NONE;
+    }
+
+    private void rehash() {
+        nameTable = new int[nameTable.length * 2];
+        for (int id = 0; id < nameCount; id++) {
+            String name = names[id];
+            int slot = hash(name, 0, name.length()) & (nameTable.length - 1);
+            while (nameTable[slot] != 0) {
+                slot = (slot + 1) & (nameTable.length - 1);
+            }
+            nameTable[slot] = id + 1;
+        }
+    }
+
+    // El hash de String del tramo, mezclado para que los bits bajos sirvan de índice
+    private static int hash(CharSequence code, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + code.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean regionEquals(String name, CharSequence code, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != code.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+/** Tipo de un nodo de SyntaxTree; el árbol guarda su ordinal. */
+enum SyntaxKind {
+    TRANSLATION_UNIT,
+    NAMESPACE,
+    USING,
+    TEMPLATE,
+    CLASS,
+    ENUM,
+    FUNCTION,
+    PARAMETER,
+    TYPE,
+    DECLARATION,
+    DECLARATOR,
+    BLOCK,
+    IF,
+    WHILE,
+    DO,
+    FOR,
+    SWITCH,
+    CASE,
+    LABEL,
+    RETURN,
+    JUMP,
+    TRY,
+    EXPRESSION_STATEMENT,
+    EMPTY,
+    ASSIGNMENT,
+    CONDITIONAL,
+    BINARY,
+    UNARY,
+    POSTFIX,
+    CAST,
+    CALL,
+    INDEX,
+    MEMBER,
+    NAME,
+    LITERAL,
+    INITIALIZER_LIST,
+    LAMBDA,
+    ERROR
+}
@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+/**
+ * Árbol sintáctico guardado en arreglos de enteros, sin un objeto por nodo. Los nodos
+ * están en postorden: cada uno va después de todos sus descendientes y guarda cuántos
+ * nodos ocupa su subárbol, así que los nodos de n son los de [n - subtreeSize(n) + 1, n]
+ * y su último hijo es n - 1. Armarlo es agregar al final: quien reconoce un nodo anota
+ * size() antes de reconocer los hijos y después llama a add con ese valor.
+ *
+ * Cada nodo guarda el tramo de tokens [start, end) que cubre, como índices de token del
+ * CppParser que lo armó; una expresión entre paréntesis incluye los paréntesis.
+ */
+final class SyntaxTree {
+    private static final SyntaxKind[] KINDS = SyntaxKind.values();
+
+    private int[] kinds;
+    // Primer token del nodo y el que sigue al último
+    private int[] starts;
+    private int[] ends;
+    private int[] sizes;
+    private int count;
+
+    SyntaxTree(int capacity) {
+        capacity = Math.max(capacity, 16);
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        sizes = new int[capacity];
+    }
+
+    /** Agrega un nodo cuyos descendientes son los agregados desde first; devuelve su índice. */
+    int add(SyntaxKind kind, int start, int end, int first) {
+        if (count == kinds.length) {
+            int capacity = count + (count >> 1);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        kinds[count] = kind.ordinal();
+        starts[count] = start;
+        ends[count] = end;
+        sizes[count] = count - first + 1;
+        return count++;
+    }
+
+    /** Cambia el tramo de tokens de node, por ejemplo para incluir paréntesis. */
+    void widen(int node, int start, int end) {
+        starts[node] = start;
+        ends[node] = end;
+    }
+
+    /** Descarta los nodos desde size, por ejemplo los de una sentencia con errores. */
+    void truncate(int size) {
+        count = Math.min(count, size);
+    }
+
+    int size() {
+        return count;
+    }
+
+    // El último nodo agregado; al terminar el análisis es la raíz
+    int root() {
+        return count - 1;
+    }
+
+    SyntaxKind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    int start(int node) {
+        return starts[node];
+    }
+
+    int end(int node) {
+        return ends[node];
+    }
+
+    int subtreeSize(int node) {
+        return sizes[node];
+    }
+
+    /** Hijos de node en el orden del código. */
+    int[] children(int node) {
+        int first = node - sizes[node];
+        int total = 0;
+        for (int child = node - 1; child > first; child -= sizes[child]) {
+            total++;
+        }
+        int[] children = new int[total];
+        for (int child = node - 1; child > first; child -= sizes[child]) {
+            children[--total] = child;
+        }
+        return children;
+    }
+
+    int count(SyntaxKind kind) {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            if (kinds[i] == kind.ordinal()) {
+                total++;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.Arrays;
+
+/**
+ * Comienzos de línea de un texto, con los mismos saltos de línea que el Lexer: \n, \r,
+ * \r\n, \u0085, \u2028 y \u2029. Las líneas se numeran desde 0.
+ */
+final class TextLines {
+    private final CharSequence text;
+    private int[] starts = new int[16];
+    private int count = 1;
+
+    TextLines(CharSequence text) {
+        this.text = text;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\u0085' || c == '\u2028' || c == '\u2029'
+                    || (c == '\r' && (i + 1 == length || text.charAt(i + 1) != '\n'))) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+    }
+
+    CharSequence text() {
+        return text;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int start(int line) {
+        return starts[line];
+    }
+
+    /** Fin de la línea sin su salto. */
+    int end(int line) {
+        if (line + 1 == count) {
+            return text.length();
+        }
+        int next = starts[line + 1];
+        boolean crlf = next - 2 >= starts[line] && text.charAt(next - 1) == '\n' && text.charAt(next - 2) == '\r';
+        return next - (crlf ? 2 : 1);
+    }
+
+    /** Línea que contiene la posición offset. */
+    int lineOf(int offset) {
+        int line = Arrays.binarySearch(starts, 0, count, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+}
@@ -0,0 +1,79 @@
+class Token {
+    private TokenType type;
+    private String lexeme;
+    private int start;
+    private int end;
+    private int line;
+    private int column;
+    // Código del que se arma el lexema a pedido, en los tokens que llena TokenBuffer
+    private CharSequence source;
+    private boolean upperCaseKeywords;
+
+    // Token reutilizable: TokenBuffer.copyTo lo vuelve a llenar para cada posición
+    Token() {
+    }
+
+    public Token(TokenType type, String lexeme) {
+        this(type, lexeme, -1, -1, 0, 0);
+    }
+
+    public Token(TokenType type, String lexeme, int start, int end, int line, int column) {
+        this.type = type;
+        this.lexeme = lexeme;
+        this.start = start;
+        this.end = end;
+        this.line = line;
+        this.column = column;
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    public String getLexeme() {
+        if (lexeme == null && source != null) {
+            String text = source.subSequence(start, end).toString();
+            lexeme = upperCaseKeywords && type == TokenType.KEYWORD ? text.toUpperCase() : text;
+        }
+        return lexeme;
+    }
+
+    void set(TokenType type, int start, int end, int line, int column, CharSequence source, boolean upperCaseKeywords) {
+        this.type = type;
+        this.lexeme = null;
+        this.start = start;
+        this.end = end;
+        this.line = line;
+        this.column = column;
+        this.source = source;
+        this.upperCaseKeywords = upperCaseKeywords;
+    }
+
+    // Posición del primer carácter del token en el código fuente
+    public int getStart() {
+        return start;
+    }
+
+    // Posición siguiente al último carácter del token
+    public int getEnd() {
+        return end;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return "Token{" +
+                "type=" + type +
+                ", lexeme='" + getLexeme() + '\'' +
+                ", line=" + line +
+                ", column=" + column +
+                '}';
+    }
+}
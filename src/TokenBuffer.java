@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * Tokens guardados como enteros: tipo, inicio, fin, línea y columna de cada uno sobre
+ * el código fuente. Llenarlo no crea objetos por token; el lexema se arma solo cuando
+ * alguien lo pide.
+ */
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int[] columns;
+    private int size;
+    // Lo fija el Lexer que lo llena: si las palabras clave van en mayúsculas en el lexema
+    private boolean upperCaseKeywords;
+
+    TokenBuffer(int capacity) {
+        capacity = Math.max(capacity, 16);
+        types = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+    }
+
+    /** Todos los tokens del código de una vez. */
+    static TokenBuffer tokenize(CharSequence code, String language) {
+        TokenBuffer tokens = new TokenBuffer(code.length() / 4);
+        new Lexer(code, language).fill(tokens, Integer.MAX_VALUE);
+        return tokens;
+    }
+
+    void add(TokenType type, int start, int end, int line, int column) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        columns[size] = column;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void setUpperCaseKeywords(boolean upperCaseKeywords) {
+        this.upperCaseKeywords = upperCaseKeywords;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    int start(int index) {
+        return starts[index];
+    }
+
+    int end(int index) {
+        return ends[index];
+    }
+
+    int line(int index) {
+        return lines[index];
+    }
+
+    int column(int index) {
+        return columns[index];
+    }
+
+    // Mismo lexema que entrega Lexer.getNextToken: en los lenguajes que no distinguen
+    // mayúsculas las palabras clave van en mayúsculas
+    String lexeme(int index, CharSequence code) {
+        String text = code.subSequence(starts[index], ends[index]).toString();
+        return upperCaseKeywords && type(index) == TokenType.KEYWORD ? text.toUpperCase() : text;
+    }
+
+    /** Vuelve a llenar token con el de la posición index, sin armar todavía su lexema. */
+    void copyTo(int index, CharSequence code, Token token) {
+        token.set(type(index), starts[index], ends[index], lines[index], columns[index], code, upperCaseKeywords);
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.List;
+
+/**
+ * Recolector de una sección del reporte. Recibe los tokens del Lexer en orden,
+ * una sola vez, y al final entrega el texto de su sección o lo encontrado como lista.
+ * El código fuente se pasa junto a cada token para poder consultar el texto
+ * original (los lexemas de palabras clave vienen normalizados en mayúsculas).
+ */
+interface TokenCollector {
+    void accept(Token token, CharSequence source);
+
+    default void finish(CharSequence source) {
+    }
+
+    /** Como finish(source), al terminar un recorrido de solo [start, end) de source. */
+    default void finish(CharSequence source, int start, int end) {
+        finish(source);
+    }
+
+    String result();
+
+    /**
+     * Lo encontrado, sin el formato del reporte: en el orden del código y, donde el reporte
+     * no repite, sin repetidos. Vacía si la sección no está soportada para el lenguaje.
+     */
+    List<String> items();
+
+    /**
+     * Desde ahora cuenta cada coincidencia en summary en vez de guardarla; base se suma a
+     * sus posiciones. result() e items() quedan sin ellas. false si la sección no tiene
+     * coincidencias que resumir (palabras reservadas o lenguaje no soportado): esas ya
+     * ocupan poco y siguen igual.
+     */
+    default boolean summarizeInto(MatchSummary summary, long base) {
+        return false;
+    }
+}
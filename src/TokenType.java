@@ -0,0 +1,21 @@
+enum TokenType {
+    KEYWORD,
+    IDENTIFIER,
+    NUMBER,
+    LEFT_PAREN,
+    RIGHT_PAREN,
+    COMMA,
+    // Cadena o carácter entre comillas, con las comillas; sin cerrar termina con la línea
+    STRING,
+    // Comentario de línea o de bloque, con sus delimitadores
+    COMMENT,
+    // Operador de más de un carácter (==, &&, <=); los de uno salen como UNKNOWN
+    OPERATOR,
+    // Palabra con el prefijo de variables del lenguaje, como @total en T-SQL
+    VARIABLE,
+    // Directiva del preprocesador, como #include
+    DIRECTIVE,
+    // Agregar más tipos de token según sea necesario
+    EOF,
+    UNKNOWN
+}